@@ -0,0 +1,75 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HybridBinarizer 与 GlobalHistogramBinarizer 的二值化耗时
+ * <p>
+ * frameBinarizer 开头的方法为解码线程使用的 FrameBinarizer，复用 BitMatrix 与分块阈值数组。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinarizerBenchmark {
+	@Param({"640x480", "1280x720", "1920x1080"})
+	String resolution;
+	
+	private PlanarYUVLuminanceSource source;
+	private final FrameBinarizer frameBinarizer = new FrameBinarizer();
+	
+	@Setup
+	public void setup() {
+		int[] size = SyntheticFrame.parseResolution(this.resolution);
+		SyntheticFrame frame = SyntheticFrame.create(size[0], size[1], 90, BarcodeFormat.QR_CODE, "KycqScan");
+		int frameSize = frame.frameSize;
+		byte[] cropData = new byte[frameSize * frameSize];
+		FrameRotator.rotateCrop(frame.data, frame.dataWidth, frame.dataHeight, frame.rotation,
+				frame.frameLeft, frame.frameTop, frameSize, frameSize, cropData);
+		this.source = new PlanarYUVLuminanceSource(cropData, frameSize, frameSize, 0, 0, frameSize, frameSize, false);
+	}
+	
+	@Benchmark
+	public BitMatrix hybridBinarizer() throws NotFoundException {
+		Binarizer binarizer = new HybridBinarizer(this.source);
+		return binarizer.getBlackMatrix();
+	}
+	
+	@Benchmark
+	public BitMatrix globalHistogramBinarizer() throws NotFoundException {
+		Binarizer binarizer = new GlobalHistogramBinarizer(this.source);
+		return binarizer.getBlackMatrix();
+	}
+	
+	@Benchmark
+	public BitMatrix frameBinarizerHybrid() throws NotFoundException {
+		return this.frameBinarizer.create(this.source, FrameBinarizer.STRATEGY_HYBRID).getBlackMatrix();
+	}
+	
+	@Benchmark
+	public BitMatrix frameBinarizerGlobalHistogram() throws NotFoundException {
+		return this.frameBinarizer.create(this.source, FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM).getBlackMatrix();
+	}
+}
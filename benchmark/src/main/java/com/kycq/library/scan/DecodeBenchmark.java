@@ -0,0 +1,81 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整的单帧解码：截取旋转、二值化、MultiFormatReader.decodeWithState
+ * <p>
+ * 解码参数与 ScanView 一致，NONE 表示不含条码的帧，即扫描过程中最常见的失败帧。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+	@Param({"1280x720", "1920x1080"})
+	String resolution;
+	
+	@Param({"NONE", "QR_CODE", "CODE_128", "EAN_13", "DATA_MATRIX", "PDF_417"})
+	String format;
+	
+	private SyntheticFrame frame;
+	private byte[] cropBuffer;
+	private MultiFormatReader multiFormatReader;
+	
+	@Setup
+	public void setup() {
+		int[] size = SyntheticFrame.parseResolution(this.resolution);
+		BarcodeFormat barcodeFormat = "NONE".equals(this.format) ? null : BarcodeFormat.valueOf(this.format);
+		String contents = barcodeFormat == BarcodeFormat.EAN_13 ? "6901234567892" : "KYCQ-SCAN-0123456789";
+		this.frame = SyntheticFrame.create(size[0], size[1], 90, barcodeFormat, contents);
+		this.cropBuffer = new byte[this.frame.frameSize * this.frame.frameSize];
+		
+		this.multiFormatReader = new MultiFormatReader();
+		this.multiFormatReader.setHints(DecodeFormat.createDecodeHints());
+		
+		Result result = decode();
+		if (barcodeFormat != null && (result == null || !contents.equals(result.getText()))) {
+			throw new IllegalStateException("synthetic " + this.format + " frame is not decodable");
+		}
+	}
+	
+	@Benchmark
+	public Result decode() {
+		int frameSize = this.frame.frameSize;
+		FrameRotator.rotateCrop(this.frame.data, this.frame.dataWidth, this.frame.dataHeight, this.frame.rotation,
+				this.frame.frameLeft, this.frame.frameTop, frameSize, frameSize, this.cropBuffer);
+		PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(
+				this.cropBuffer, frameSize, frameSize,
+				0, 0, frameSize, frameSize, false);
+		BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+		try {
+			return this.multiFormatReader.decodeWithState(bitmap);
+		} catch (ReaderException ignored) {
+			return null;
+		} finally {
+			this.multiFormatReader.reset();
+		}
+	}
+}
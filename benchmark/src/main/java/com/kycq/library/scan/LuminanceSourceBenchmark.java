@@ -0,0 +1,106 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扫描框亮度数据构建与画面质量采样，与 DecodeHandler 相同的步骤
+ * <p>
+ * buildLuminanceSourceFromBuffer 模拟 Camera2 图像：亮度平面在带行间距的直接缓冲区中，只复制扫描框。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LuminanceSourceBenchmark {
+	@Param({"640x480", "1280x720", "1920x1080"})
+	String resolution;
+	
+	@Param({"0", "90"})
+	int rotation;
+	
+	/** 模拟 Camera2 图像每行末尾的对齐填充 */
+	private static final int ROW_PADDING = 64;
+	
+	private SyntheticFrame frame;
+	private LumaPlane lumaPlane;
+	private BufferLumaPlane bufferLumaPlane;
+	private byte[] cropBuffer;
+	private byte[] regionBuffer;
+	private final int[] sensorRect = new int[4];
+	private final FrameQuality frameQuality = new FrameQuality();
+	
+	@Setup
+	public void setup() {
+		int[] size = SyntheticFrame.parseResolution(this.resolution);
+		this.frame = SyntheticFrame.create(size[0], size[1], this.rotation, null, null);
+		this.lumaPlane = new ArrayLumaPlane(this.frame.data, this.frame.dataWidth);
+		this.cropBuffer = new byte[this.frame.frameSize * this.frame.frameSize];
+		this.regionBuffer = new byte[this.frame.frameSize * this.frame.frameSize];
+		
+		int rowStride = this.frame.dataWidth + ROW_PADDING;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * this.frame.dataHeight);
+		for (int y = 0; y < this.frame.dataHeight; y++) {
+			buffer.position(y * rowStride);
+			buffer.put(this.frame.data, y * this.frame.dataWidth, this.frame.dataWidth);
+		}
+		this.bufferLumaPlane = new BufferLumaPlane();
+		this.bufferLumaPlane.buffer = buffer;
+		this.bufferLumaPlane.rowStride = rowStride;
+		this.bufferLumaPlane.pixelStride = 1;
+		FrameRotator.mapToSensor(this.frame.dataWidth, this.frame.dataHeight, this.rotation,
+				this.frame.frameLeft, this.frame.frameTop, this.frame.frameSize, this.frame.frameSize,
+				this.sensorRect);
+	}
+	
+	@Benchmark
+	public FrameQuality measureFrameQuality() {
+		this.frameQuality.measure(this.lumaPlane, this.sensorRect);
+		return this.frameQuality;
+	}
+	
+	@Benchmark
+	public PlanarYUVLuminanceSource buildLuminanceSource() {
+		int frameSize = this.frame.frameSize;
+		FrameRotator.rotateCrop(this.frame.data, this.frame.dataWidth, this.frame.dataHeight, this.rotation,
+				this.frame.frameLeft, this.frame.frameTop, frameSize, frameSize, this.cropBuffer);
+		return new PlanarYUVLuminanceSource(
+				this.cropBuffer, frameSize, frameSize,
+				0, 0, frameSize, frameSize, false);
+	}
+	
+	@Benchmark
+	public PlanarYUVLuminanceSource buildLuminanceSourceFromBuffer() {
+		int frameSize = this.frame.frameSize;
+		int sensorWidth = this.sensorRect[2] - this.sensorRect[0];
+		int sensorHeight = this.sensorRect[3] - this.sensorRect[1];
+		if (this.rotation == 0) {
+			this.bufferLumaPlane.copyRegion(this.sensorRect[0], this.sensorRect[1],
+					sensorWidth, sensorHeight, this.cropBuffer);
+		} else {
+			this.bufferLumaPlane.copyRegion(this.sensorRect[0], this.sensorRect[1],
+					sensorWidth, sensorHeight, this.regionBuffer);
+			FrameRotator.rotateCrop(this.regionBuffer, sensorWidth, sensorHeight, this.rotation,
+					0, 0, frameSize, frameSize, this.cropBuffer);
+		}
+		return new PlanarYUVLuminanceSource(
+				this.cropBuffer, frameSize, frameSize,
+				0, 0, frameSize, frameSize, false);
+	}
+}
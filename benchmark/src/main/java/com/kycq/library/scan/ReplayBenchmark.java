@@ -0,0 +1,210 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全速回放录制的预览帧，经过与扫描时相同的帧分发与解码流程
+ * <p>
+ * recording 为 ScanView.setFrameRecordFile 录制的文件，为空时使用合成的帧序列。
+ * 每次调用回放整个文件，迭代结束时输出扫描统计；metrics 为 true 时同时输出各阶段耗时。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayBenchmark {
+	private static final int SYNTHETIC_FRAME_COUNT = 60;
+	private static final BarcodeFormat[] SYNTHETIC_FORMATS = {
+			null, null, BarcodeFormat.QR_CODE, null, BarcodeFormat.CODE_128, null, BarcodeFormat.PDF_417
+	};
+	
+	@Param({""})
+	String recording;
+	
+	@Param({"1", "2", "4"})
+	int workerCount;
+	
+	@Param({"false"})
+	boolean metrics;
+	
+	@Param({"true"})
+	boolean adaptiveBinarizer;
+	
+	@Param({"true"})
+	boolean roiTracking;
+	
+	private File recordingFile;
+	private boolean isSynthetic;
+	private int[] previewRect;
+	private ScanStatistics scanStatistics;
+	private ScanMetrics scanMetrics;
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		if (this.recording.isEmpty()) {
+			this.recordingFile = File.createTempFile("replay", ".frames");
+			this.isSynthetic = true;
+			writeSyntheticRecording(this.recordingFile);
+		} else {
+			this.recordingFile = new File(this.recording);
+		}
+		
+		FrameRecording.Reader reader = new FrameRecording.Reader(this.recordingFile);
+		try {
+			int rotatedWidth = FrameRotator.rotatedWidth(reader.width, reader.height, reader.rotationAngle);
+			int rotatedHeight = FrameRotator.rotatedHeight(reader.width, reader.height, reader.rotationAngle);
+			int frameSize = (int) (Math.min(rotatedWidth, rotatedHeight) * SyntheticFrame.FRAME_RATIO);
+			int left = (rotatedWidth - frameSize) / 2;
+			int top = (rotatedHeight - frameSize) / 2;
+			this.previewRect = new int[]{left, top, left + frameSize, top + frameSize};
+		} finally {
+			reader.close();
+		}
+	}
+	
+	@TearDown(Level.Iteration)
+	public void printStatistics() {
+		if (this.scanStatistics != null) {
+			System.out.println();
+			System.out.println("statistics of last replay: " + this.scanStatistics);
+		}
+		if (this.scanMetrics != null && this.scanMetrics.isEnabled()) {
+			System.out.println("metrics of last replay: " + this.scanMetrics);
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (this.isSynthetic) {
+			this.recordingFile.delete();
+		}
+	}
+	
+	@Benchmark
+	public long replay() throws Exception {
+		ScanStatistics theScanStatistics = new ScanStatistics();
+		FrameQualityGate frameQualityGate = new FrameQualityGate();
+		DuplicateFrameFilter duplicateFrameFilter = new DuplicateFrameFilter();
+		ReplayFrameSource frameSource = new ReplayFrameSource(this.recordingFile, false, false);
+		ScanMetrics theScanMetrics = new ScanMetrics();
+		theScanMetrics.setEnabled(this.metrics);
+		DecodeDispatcher decodeDispatcher = new DecodeDispatcher(frameSource, theScanStatistics, theScanMetrics);
+		
+		BinarizerSelector binarizerSelector = this.adaptiveBinarizer ? new BinarizerSelector() : null;
+		RoiTracker roiTracker = this.roiTracking ? new RoiTracker() : null;
+		WorkerThread[] workerThreads = new WorkerThread[this.workerCount];
+		for (int index = 0; index < workerThreads.length; index++) {
+			Map<DecodeHintType, Object> hints = DecodeFormat.createDecodeHints();
+			ZoomController.PointCollector pointCollector = null;
+			if (roiTracker != null) {
+				pointCollector = new ZoomController.PointCollector();
+				hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, pointCollector);
+			}
+			MultiFormatReader multiFormatReader = new MultiFormatReader();
+			multiFormatReader.setHints(hints);
+			FrameDecoder frameDecoder = new FrameDecoder(multiFormatReader,
+					frameQualityGate, duplicateFrameFilter, theScanStatistics, theScanMetrics, frameSource);
+			frameDecoder.setBinarizerSelector(binarizerSelector);
+			if (roiTracker != null) {
+				frameDecoder.setRoiTracker(roiTracker, pointCollector);
+			}
+			workerThreads[index] = new WorkerThread(decodeDispatcher, frameDecoder, this.previewRect);
+			workerThreads[index].start();
+			decodeDispatcher.workerIdle(workerThreads[index]);
+		}
+		
+		decodeDispatcher.setActive(true);
+		// 与 CaptureHandler 相同的缓冲区数量
+		frameSource.start(decodeDispatcher, this.workerCount + 2);
+		frameSource.awaitFinished();
+		for (WorkerThread workerThread : workerThreads) {
+			workerThread.interrupt();
+			workerThread.join();
+		}
+		frameSource.stop();
+		
+		this.scanStatistics = theScanStatistics;
+		this.scanMetrics = theScanMetrics;
+		return theScanStatistics.getSuccessCount();
+	}
+	
+	private static void writeSyntheticRecording(File file) throws IOException {
+		int width = 1280;
+		int height = 720;
+		int rotation = 90;
+		SyntheticFrame[] frames = new SyntheticFrame[SYNTHETIC_FORMATS.length];
+		for (int index = 0; index < frames.length; index++) {
+			frames[index] = SyntheticFrame.create(width, height, rotation,
+					SYNTHETIC_FORMATS[index], "KYCQ-SCAN-" + index);
+		}
+		
+		FrameRecording.Writer writer = new FrameRecording.Writer(file, width, height, rotation, width * height);
+		try {
+			// 30 帧每秒的时间戳
+			for (int index = 0; index < SYNTHETIC_FRAME_COUNT; index++) {
+				writer.write(frames[index % frames.length].data, index * 33333333L);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * 代替 DecodeHandler 的解码线程
+	 */
+	private static class WorkerThread extends Thread implements DecodeDispatcher.DecodeWorker {
+		private final BlockingQueue<PreviewFrame> frameQueue = new ArrayBlockingQueue<>(1);
+		private final DecodeDispatcher decodeDispatcher;
+		private final FrameDecoder frameDecoder;
+		private final int[] previewRect;
+		
+		WorkerThread(DecodeDispatcher decodeDispatcher, FrameDecoder frameDecoder, int[] previewRect) {
+			this.decodeDispatcher = decodeDispatcher;
+			this.frameDecoder = frameDecoder;
+			this.previewRect = previewRect;
+		}
+		
+		@Override
+		public void decode(PreviewFrame previewFrame) {
+			this.frameQueue.offer(previewFrame);
+		}
+		
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					PreviewFrame previewFrame = this.frameQueue.take();
+					this.frameDecoder.decode(previewFrame,
+							this.previewRect[0], this.previewRect[1], this.previewRect[2], this.previewRect[3]);
+					this.decodeDispatcher.workerIdle(this);
+				}
+			} catch (InterruptedException ignored) {
+			}
+		}
+	}
+}
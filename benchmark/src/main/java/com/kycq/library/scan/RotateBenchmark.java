@@ -0,0 +1,57 @@
+package com.kycq.library.scan;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整帧旋转与扫描框截取旋转
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RotateBenchmark {
+	@Param({"640x480", "1280x720", "1920x1080"})
+	String resolution;
+	
+	@Param({"0", "90", "180", "270"})
+	int rotation;
+	
+	private SyntheticFrame frame;
+	private byte[] result;
+	
+	@Setup
+	public void setup() {
+		int[] size = SyntheticFrame.parseResolution(this.resolution);
+		this.frame = SyntheticFrame.create(size[0], size[1], this.rotation, null, null);
+		this.result = new byte[size[0] * size[1]];
+	}
+	
+	@Benchmark
+	public byte[] rotateFrame() {
+		FrameRotator.rotate(this.frame.data, this.frame.dataWidth, this.frame.dataHeight,
+				this.rotation, this.result);
+		return this.result;
+	}
+	
+	@Benchmark
+	public byte[] rotateCrop() {
+		FrameRotator.rotateCrop(this.frame.data, this.frame.dataWidth, this.frame.dataHeight, this.rotation,
+				this.frame.frameLeft, this.frame.frameTop, this.frame.frameSize, this.frame.frameSize,
+				this.result);
+		return this.result;
+	}
+}
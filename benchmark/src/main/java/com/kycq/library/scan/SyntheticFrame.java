@@ -0,0 +1,122 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 合成的 NV21 预览帧
+ * <p>
+ * 条码按竖屏方向绘制在帧中央，再逆向旋转回传感器方向，
+ * 与竖屏预览时相机回调的数据一致。
+ */
+final class SyntheticFrame {
+	/** 默认扫描框占短边的比例，与 FinderView 一致 */
+	static final float FRAME_RATIO = 0.6F;
+	
+	private static final int BACKGROUND = 170;
+	private static final int BLACK = 40;
+	private static final int WHITE = 210;
+	private static final int NOISE = 12;
+	
+	final int dataWidth;
+	final int dataHeight;
+	final int rotation;
+	final byte[] data;
+	
+	final int frameLeft;
+	final int frameTop;
+	final int frameSize;
+	
+	private SyntheticFrame(int dataWidth, int dataHeight, int rotation, byte[] data) {
+		this.dataWidth = dataWidth;
+		this.dataHeight = dataHeight;
+		this.rotation = rotation;
+		this.data = data;
+		
+		int rotatedWidth = FrameRotator.rotatedWidth(dataWidth, dataHeight, rotation);
+		int rotatedHeight = FrameRotator.rotatedHeight(dataWidth, dataHeight, rotation);
+		this.frameSize = (int) (Math.min(rotatedWidth, rotatedHeight) * FRAME_RATIO);
+		this.frameLeft = (rotatedWidth - this.frameSize) / 2;
+		this.frameTop = (rotatedHeight - this.frameSize) / 2;
+	}
+	
+	/**
+	 * 解析 "1920x1080" 格式的分辨率
+	 */
+	static int[] parseResolution(String resolution) {
+		String[] values = resolution.split("x");
+		return new int[]{Integer.parseInt(values[0]), Integer.parseInt(values[1])};
+	}
+	
+	/**
+	 * 生成预览帧
+	 *
+	 * @param dataWidth  传感器宽度
+	 * @param dataHeight 传感器高度
+	 * @param rotation   相机旋转角度
+	 * @param format     条码格式，null 表示不含条码
+	 * @param contents   条码内容
+	 * @return 预览帧
+	 */
+	static SyntheticFrame create(int dataWidth, int dataHeight, int rotation,
+	                             BarcodeFormat format, String contents) {
+		int rotatedWidth = FrameRotator.rotatedWidth(dataWidth, dataHeight, rotation);
+		int rotatedHeight = FrameRotator.rotatedHeight(dataWidth, dataHeight, rotation);
+		Random random = new Random(rotatedWidth * 31 + rotatedHeight);
+		
+		byte[] display = new byte[rotatedWidth * rotatedHeight];
+		for (int index = 0; index < display.length; index++) {
+			display[index] = (byte) (BACKGROUND + random.nextInt(NOISE * 2 + 1) - NOISE);
+		}
+		if (format != null) {
+			drawBarcode(display, rotatedWidth, rotatedHeight, format, contents, random);
+		}
+		
+		byte[] data = new byte[dataWidth * dataHeight * 3 / 2];
+		// 竖屏画面逆向旋转回传感器方向
+		FrameRotator.rotate(display, rotatedWidth, rotatedHeight, (360 - rotation) % 360, data);
+		for (int index = dataWidth * dataHeight; index < data.length; index++) {
+			data[index] = (byte) 128;
+		}
+		return new SyntheticFrame(dataWidth, dataHeight, rotation, data);
+	}
+	
+	private static void drawBarcode(byte[] display, int width, int height,
+	                                BarcodeFormat format, String contents, Random random) {
+		int frameSize = (int) (Math.min(width, height) * FRAME_RATIO);
+		boolean isOneD = DecodeFormat.PRODUCT_FORMATS.contains(format)
+				|| DecodeFormat.INDUSTRIAL_FORMATS.contains(format);
+		int codeWidth = frameSize * 4 / 5;
+		int codeHeight = isOneD || format == BarcodeFormat.PDF_417 ? frameSize * 2 / 5 : codeWidth;
+		
+		Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+		hints.put(EncodeHintType.MARGIN, 2);
+		BitMatrix matrix;
+		try {
+			matrix = new MultiFormatWriter().encode(contents, format, codeWidth, codeHeight, hints);
+		} catch (WriterException e) {
+			throw new IllegalArgumentException(e);
+		}
+		
+		// 部分格式（如 Data Matrix）不按请求尺寸缩放，按整数倍放大
+		int scale = Math.max(1, Math.min(codeWidth / matrix.getWidth(), codeHeight / matrix.getHeight()));
+		int drawWidth = Math.min(matrix.getWidth() * scale, width);
+		int drawHeight = Math.min(matrix.getHeight() * scale, height);
+		int left = (width - drawWidth) / 2;
+		int top = (height - drawHeight) / 2;
+		for (int y = 0; y < drawHeight; y++) {
+			for (int x = 0; x < drawWidth; x++) {
+				int value = matrix.get(x / scale, y / scale) ? BLACK : WHITE;
+				value += random.nextInt(NOISE * 2 + 1) - NOISE;
+				display[(top + y) * width + left + x] = (byte) value;
+			}
+		}
+	}
+}
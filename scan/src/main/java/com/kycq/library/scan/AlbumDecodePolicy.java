@@ -0,0 +1,150 @@
+package com.kycq.library.scan;
+
+/**
+ * 相册图片的逐级解码策略
+ * <p>
+ * 先以较小的分辨率解码，失败后每次将缩放倍数减半（像素数约为 4 倍）重试，
+ * 直到原图分辨率或超过像素预算。简单的图片很快返回，细小或密集的条码仍有机会识别。
+ */
+public class AlbumDecodePolicy {
+	private int initialPixels = 160 * 1000;
+	private int pixelBudget = 4 * 1000 * 1000;
+	private boolean isTiledDecodeEnabled = true;
+	private int tileSize = 1024;
+	private int tileOverlap = 256;
+	private OnDecodeAttemptListener onDecodeAttemptListener;
+	
+	public synchronized int getInitialPixels() {
+		return this.initialPixels;
+	}
+	
+	/**
+	 * 设置首次解码的最大像素数
+	 *
+	 * @param initialPixels 像素数
+	 */
+	public synchronized void setInitialPixels(int initialPixels) {
+		if (initialPixels < 1) {
+			throw new IllegalArgumentException("initialPixels must be positive: " + initialPixels);
+		}
+		this.initialPixels = initialPixels;
+	}
+	
+	public synchronized int getPixelBudget() {
+		return this.pixelBudget;
+	}
+	
+	/**
+	 * 设置单次解码的最大像素数，超过后不再提高分辨率
+	 *
+	 * @param pixelBudget 像素数
+	 */
+	public synchronized void setPixelBudget(int pixelBudget) {
+		if (pixelBudget < 1) {
+			throw new IllegalArgumentException("pixelBudget must be positive: " + pixelBudget);
+		}
+		this.pixelBudget = pixelBudget;
+	}
+	
+	public synchronized boolean isTiledDecodeEnabled() {
+		return this.isTiledDecodeEnabled;
+	}
+	
+	/**
+	 * 设置逐级解码失败且原图超过像素预算时，是否以原图分辨率分块解码，默认启用
+	 *
+	 * @param tiledDecodeEnabled true 启用
+	 */
+	public synchronized void setTiledDecodeEnabled(boolean tiledDecodeEnabled) {
+		this.isTiledDecodeEnabled = tiledDecodeEnabled;
+	}
+	
+	public synchronized int getTileSize() {
+		return this.tileSize;
+	}
+	
+	public synchronized int getTileOverlap() {
+		return this.tileOverlap;
+	}
+	
+	/**
+	 * 设置分块大小
+	 * <p>
+	 * 重叠宽度应大于原图中条码的尺寸，更大的条码在缩小的分辨率下已能识别
+	 *
+	 * @param tileSize    区域边长
+	 * @param tileOverlap 相邻区域重叠的宽度
+	 */
+	public synchronized void setTileSize(int tileSize, int tileOverlap) {
+		if (tileOverlap < 0 || tileOverlap >= tileSize) {
+			throw new IllegalArgumentException("tileOverlap must be in [0, tileSize): " + tileOverlap);
+		}
+		this.tileSize = tileSize;
+		this.tileOverlap = tileOverlap;
+	}
+	
+	/**
+	 * 设置每次解码尝试的回调，在解码线程上调用，用于评估像素预算
+	 *
+	 * @param listener 回调
+	 */
+	public synchronized void setOnDecodeAttemptListener(OnDecodeAttemptListener listener) {
+		this.onDecodeAttemptListener = listener;
+	}
+	
+	synchronized OnDecodeAttemptListener getOnDecodeAttemptListener() {
+		return this.onDecodeAttemptListener;
+	}
+	
+	/**
+	 * 首次解码的缩放倍数
+	 *
+	 * @param width  原图宽度
+	 * @param height 原图高度
+	 * @return 2 的幂
+	 */
+	synchronized int initialSampleSize(int width, int height) {
+		int maxPixels = Math.min(this.initialPixels, this.pixelBudget);
+		int sampleSize = 1;
+		while (pixelCount(width, height, sampleSize) > maxPixels) {
+			sampleSize *= 2;
+		}
+		return sampleSize;
+	}
+	
+	/**
+	 * 解码失败后的下一级缩放倍数
+	 *
+	 * @param width      原图宽度
+	 * @param height     原图高度
+	 * @param sampleSize 本次缩放倍数
+	 * @return 下一级缩放倍数，0 表示不再重试
+	 */
+	synchronized int nextSampleSize(int width, int height, int sampleSize) {
+		if (sampleSize <= 1) {
+			return 0;
+		}
+		int nextSampleSize = sampleSize / 2;
+		if (pixelCount(width, height, nextSampleSize) > this.pixelBudget) {
+			return 0;
+		}
+		return nextSampleSize;
+	}
+	
+	static long pixelCount(int width, int height, int sampleSize) {
+		return (long) (width / sampleSize) * (height / sampleSize);
+	}
+	
+	public interface OnDecodeAttemptListener {
+		/**
+		 * 一次解码尝试
+		 *
+		 * @param width      解码的图片宽度
+		 * @param height     解码的图片高度
+		 * @param loadTime   读取图片耗时，毫秒
+		 * @param decodeTime 识别耗时，毫秒
+		 * @param success    是否识别成功
+		 */
+		void decodeAttempt(int width, int height, long loadTime, long decodeTime, boolean success);
+	}
+}
@@ -0,0 +1,153 @@
+package com.kycq.library.scan;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.SystemClock;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 相册图片解码，每个解码线程持有一个
+ */
+class AlbumDecoder {
+	private final MultiFormatReader multiFormatReader;
+	private final AlbumDecodePolicy albumDecodePolicy;
+	private final TileDecoder tileDecoder;
+	private final DecodeResultCache decodeResultCache;
+	private final BitmapLuminance bitmapLuminance = new BitmapLuminance();
+	/** 上一次解码时内存不足 */
+	private boolean isOutOfMemory;
+	
+	AlbumDecoder(MultiFormatReader multiFormatReader, AlbumDecodePolicy albumDecodePolicy,
+	             TileDecoder tileDecoder, DecodeResultCache decodeResultCache) {
+		this.multiFormatReader = multiFormatReader;
+		this.albumDecodePolicy = albumDecodePolicy;
+		this.tileDecoder = tileDecoder;
+		this.decodeResultCache = decodeResultCache;
+	}
+	
+	/**
+	 * 解码图片，优先使用缓存的结果
+	 *
+	 * @param albumImage 图片来源
+	 * @return 解码结果，失败时为 null
+	 */
+	Result decode(AlbumImage albumImage) {
+		String cacheKey = this.decodeResultCache.key(albumImage);
+		if (cacheKey != null) {
+			Result cachedResult = this.decodeResultCache.get(cacheKey);
+			if (cachedResult != null) {
+				return cachedResult;
+			}
+		}
+		
+		Result rawResult = decodeImage(albumImage);
+		if (rawResult != null && cacheKey != null) {
+			this.decodeResultCache.put(cacheKey, albumImage, rawResult);
+		}
+		return rawResult;
+	}
+	
+	/**
+	 * 由低到高逐级解码图片，内存不足时不再提高分辨率，也不再分块解码
+	 */
+	private Result decodeImage(AlbumImage albumImage) {
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		try {
+			albumImage.decodeBitmap(options);
+		} catch (IOException e) {
+			return null;
+		}
+		int width = options.outWidth;
+		int height = options.outHeight;
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		
+		options.inJustDecodeBounds = false;
+		options.inPreferredConfig = Bitmap.Config.RGB_565;
+		int sampleSize = this.albumDecodePolicy.initialSampleSize(width, height);
+		while (sampleSize > 0 && !Thread.currentThread().isInterrupted()) {
+			options.inSampleSize = sampleSize;
+			Result rawResult = decode(albumImage, options);
+			if (rawResult != null) {
+				return rawResult;
+			}
+			if (this.isOutOfMemory) {
+				return null;
+			}
+			sampleSize = this.albumDecodePolicy.nextSampleSize(width, height, sampleSize);
+		}
+		
+		if (this.albumDecodePolicy.isTiledDecodeEnabled()
+				&& AlbumDecodePolicy.pixelCount(width, height, 1) > this.albumDecodePolicy.getPixelBudget()) {
+			return decodeTiles(albumImage, width, height);
+		}
+		return null;
+	}
+	
+	/**
+	 * 以原图分辨率分块解码，多个结果时返回第一个
+	 */
+	private Result decodeTiles(AlbumImage albumImage, int width, int height) {
+		long startTime = SystemClock.elapsedRealtime();
+		List<Result> results;
+		try {
+			results = this.tileDecoder.decode(albumImage, width, height,
+					this.albumDecodePolicy.getTileSize(), this.albumDecodePolicy.getTileOverlap());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		
+		AlbumDecodePolicy.OnDecodeAttemptListener listener = this.albumDecodePolicy.getOnDecodeAttemptListener();
+		if (listener != null) {
+			long decodeTime = SystemClock.elapsedRealtime() - startTime;
+			listener.decodeAttempt(width, height, 0, decodeTime, !results.isEmpty());
+		}
+		return results.isEmpty() ? null : results.get(0);
+	}
+	
+	/**
+	 * 按 options 读取并解码一次，内存不足时设置 isOutOfMemory
+	 */
+	private Result decode(AlbumImage albumImage, BitmapFactory.Options options) {
+		this.isOutOfMemory = false;
+		long startTime = SystemClock.elapsedRealtime();
+		long loadTime = 0;
+		int width = 0;
+		int height = 0;
+		Result rawResult = null;
+		try {
+			Bitmap bitmap = albumImage.decodeBitmap(options);
+			if (bitmap == null) {
+				return null;
+			}
+			width = bitmap.getWidth();
+			height = bitmap.getHeight();
+			LuminanceSource luminanceSource = this.bitmapLuminance.extract(bitmap);
+			loadTime = SystemClock.elapsedRealtime() - startTime;
+			rawResult = this.multiFormatReader.decodeWithState(new BinaryBitmap(new HybridBinarizer(luminanceSource)));
+		} catch (Exception ignored) {
+		} catch (OutOfMemoryError error) {
+			this.isOutOfMemory = true;
+		} finally {
+			this.multiFormatReader.reset();
+		}
+		
+		AlbumDecodePolicy.OnDecodeAttemptListener listener = this.albumDecodePolicy.getOnDecodeAttemptListener();
+		if (listener != null && width > 0) {
+			long decodeTime = SystemClock.elapsedRealtime() - startTime - loadTime;
+			listener.decodeAttempt(width, height, loadTime, decodeTime, rawResult != null);
+		}
+		return rawResult;
+	}
+}
@@ -1,16 +1,11 @@
 package com.kycq.library.scan;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 
-import com.google.zxing.BinaryBitmap;
 import com.google.zxing.MultiFormatReader;
-import com.google.zxing.RGBLuminanceSource;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 
 import java.io.File;
 import java.util.concurrent.CountDownLatch;
@@ -25,7 +20,9 @@ class AlbumHandler extends Handler {
 	AlbumHandler(ScanView scanView) {
 		this.scanView = scanView;
 		
-		this.decodeThread = new DecodeThread(this, scanView.getMultiFormatReader());
+		this.decodeThread = new DecodeThread(this, scanView.getMultiFormatReader(),
+				scanView.getAlbumDecodePolicy(), scanView.getTileDecoder(),
+				scanView.getDecodeResultCache());
 		this.decodeThread.start();
 	}
 	
@@ -43,7 +40,7 @@ class AlbumHandler extends Handler {
 	public void handleMessage(Message message) {
 		switch (message.what) {
 			case SUCCESS:
-				this.scanView.decodeSuccess(((Result) message.obj).getText(), null, 0);
+				this.scanView.decodeSuccess(((Result) message.obj).getText());
 				break;
 			case FAILURE:
 				this.scanView.decodeFailure();
@@ -55,18 +52,27 @@ class AlbumHandler extends Handler {
 		private final CountDownLatch handlerInitLatch;
 		private AlbumHandler albumHandler;
 		private MultiFormatReader multiFormatReader;
+		private AlbumDecodePolicy albumDecodePolicy;
+		private TileDecoder tileDecoder;
+		private DecodeResultCache decodeResultCache;
 		private DecodeHandler decodeHandler;
 		
-		DecodeThread(AlbumHandler albumHandler, MultiFormatReader multiFormatReader) {
+		DecodeThread(AlbumHandler albumHandler, MultiFormatReader multiFormatReader,
+		             AlbumDecodePolicy albumDecodePolicy, TileDecoder tileDecoder,
+		             DecodeResultCache decodeResultCache) {
 			this.handlerInitLatch = new CountDownLatch(1);
 			this.albumHandler = albumHandler;
 			this.multiFormatReader = multiFormatReader;
+			this.albumDecodePolicy = albumDecodePolicy;
+			this.tileDecoder = tileDecoder;
+			this.decodeResultCache = decodeResultCache;
 		}
 		
 		@Override
 		public void run() {
 			Looper.prepare();
-			this.decodeHandler = new DecodeHandler(this.albumHandler, this.multiFormatReader);
+			this.decodeHandler = new DecodeHandler(this.albumHandler, this.multiFormatReader,
+					this.albumDecodePolicy, this.tileDecoder, this.decodeResultCache);
 			this.handlerInitLatch.countDown();
 			Looper.loop();
 		}
@@ -74,40 +80,22 @@ class AlbumHandler extends Handler {
 	
 	private static class DecodeHandler extends Handler {
 		private AlbumHandler albumHandler;
-		private MultiFormatReader multiFormatReader;
+		private AlbumDecoder albumDecoder;
+		private DecodeResultCache decodeResultCache;
 		
-		DecodeHandler(AlbumHandler albumHandler, MultiFormatReader multiFormatReader) {
+		DecodeHandler(AlbumHandler albumHandler, MultiFormatReader multiFormatReader,
+		              AlbumDecodePolicy albumDecodePolicy, TileDecoder tileDecoder,
+		              DecodeResultCache decodeResultCache) {
 			this.albumHandler = albumHandler;
-			this.multiFormatReader = multiFormatReader;
+			this.decodeResultCache = decodeResultCache;
+			this.albumDecoder = new AlbumDecoder(multiFormatReader, albumDecodePolicy,
+					tileDecoder, decodeResultCache);
 		}
 		
 		@Override
 		public void handleMessage(Message message) {
-			File file = (File) message.obj;
-			Result rawResult = null;
-			try {
-				BitmapFactory.Options options = new BitmapFactory.Options();
-				options.inJustDecodeBounds = true;
-				BitmapFactory.decodeFile(file.getPath(), options);
-				int sampleSize = (int) (options.outHeight / (float) 200);
-				
-				if (sampleSize <= 0) {
-					sampleSize = 1;
-				}
-				options.inSampleSize = sampleSize;
-				options.inJustDecodeBounds = false;
-				Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
-				
-				int[] pixels = new int[bitmap.getWidth() * bitmap.getHeight()];
-				bitmap.getPixels(pixels, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
-				RGBLuminanceSource rgbLuminanceSource = new RGBLuminanceSource(bitmap.getWidth(), bitmap.getHeight(), pixels);
-				rawResult = this.multiFormatReader.decodeWithState(new BinaryBitmap(new HybridBinarizer(rgbLuminanceSource)));
-			} catch (Exception ignored) {
-			} catch (OutOfMemoryError error) {
-				System.gc();
-			} finally {
-				this.multiFormatReader.reset();
-			}
+			Result rawResult = this.albumDecoder.decode(AlbumImage.fromFile((File) message.obj));
+			this.decodeResultCache.flush();
 			
 			if (rawResult != null) {
 				Message messageResult = Message.obtain(this.albumHandler, SUCCESS, rawResult);
@@ -0,0 +1,147 @@
+package com.kycq.library.scan;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.net.Uri;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 相册图片来源，文件或 content/file Uri
+ */
+abstract class AlbumImage {
+	
+	static AlbumImage fromFile(File file) {
+		return new FileImage(file);
+	}
+	
+	static AlbumImage fromUri(ContentResolver contentResolver, Uri uri) {
+		return new UriImage(contentResolver, uri);
+	}
+	
+	/**
+	 * 解码图片，inJustDecodeBounds 时只读取尺寸
+	 *
+	 * @param options 解码参数
+	 * @return 图片，只读取尺寸或无法解码时为 null
+	 * @throws IOException 无法读取
+	 */
+	abstract Bitmap decodeBitmap(BitmapFactory.Options options) throws IOException;
+	
+	/**
+	 * 创建区域解码器，只支持 JPEG 与 PNG
+	 *
+	 * @return 区域解码器
+	 * @throws IOException 无法读取或格式不支持
+	 */
+	abstract BitmapRegionDecoder newRegionDecoder() throws IOException;
+	
+	/**
+	 * 读取图片原始数据
+	 *
+	 * @return 输入流，由调用方关闭
+	 * @throws IOException 无法读取
+	 */
+	abstract InputStream openInputStream() throws IOException;
+	
+	/**
+	 * 图片文件，用于按文件大小与修改时间快速判断是否变化
+	 *
+	 * @return 文件，Uri 来源为 null
+	 */
+	File getFile() {
+		return null;
+	}
+	
+	static void closeQuietly(InputStream inputStream) {
+		try {
+			inputStream.close();
+		} catch (IOException ignored) {
+		}
+	}
+	
+	private static class FileImage extends AlbumImage {
+		private final File file;
+		
+		FileImage(File file) {
+			this.file = file;
+		}
+		
+		@Override
+		Bitmap decodeBitmap(BitmapFactory.Options options) throws IOException {
+			if (!this.file.canRead()) {
+				throw new IOException("cannot read " + this.file);
+			}
+			return BitmapFactory.decodeFile(this.file.getPath(), options);
+		}
+		
+		@Override
+		BitmapRegionDecoder newRegionDecoder() throws IOException {
+			return BitmapRegionDecoder.newInstance(this.file.getPath(), false);
+		}
+		
+		@Override
+		InputStream openInputStream() throws IOException {
+			return new FileInputStream(this.file);
+		}
+		
+		@Override
+		File getFile() {
+			return this.file;
+		}
+		
+		@Override
+		public String toString() {
+			return this.file.toString();
+		}
+	}
+	
+	private static class UriImage extends AlbumImage {
+		private final ContentResolver contentResolver;
+		private final Uri uri;
+		
+		UriImage(ContentResolver contentResolver, Uri uri) {
+			this.contentResolver = contentResolver;
+			this.uri = uri;
+		}
+		
+		@Override
+		Bitmap decodeBitmap(BitmapFactory.Options options) throws IOException {
+			InputStream inputStream = openInputStream();
+			try {
+				return BitmapFactory.decodeStream(inputStream, null, options);
+			} finally {
+				closeQuietly(inputStream);
+			}
+		}
+		
+		@Override
+		BitmapRegionDecoder newRegionDecoder() throws IOException {
+			InputStream inputStream = openInputStream();
+			try {
+				return BitmapRegionDecoder.newInstance(inputStream, false);
+			} finally {
+				closeQuietly(inputStream);
+			}
+		}
+		
+		@Override
+		InputStream openInputStream() throws IOException {
+			InputStream inputStream = this.contentResolver.openInputStream(this.uri);
+			if (inputStream == null) {
+				throw new IOException("cannot open " + this.uri);
+			}
+			return inputStream;
+		}
+		
+		@Override
+		public String toString() {
+			return this.uri.toString();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.kycq.library.scan;
+
+/**
+ * 数组中的亮度平面，如 NV21 的前 width * height 字节
+ */
+class ArrayLumaPlane extends LumaPlane {
+	byte[] data;
+	int width;
+	
+	ArrayLumaPlane() {
+	}
+	
+	ArrayLumaPlane(byte[] data, int width) {
+		this.data = data;
+		this.width = width;
+	}
+	
+	@Override
+	int get(int x, int y) {
+		return this.data[y * this.width + x] & 0xFF;
+	}
+	
+	@Override
+	void copyRegion(int left, int top, int width, int height, byte[] result) {
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(this.data, (top + y) * this.width + left, result, y * width, width);
+		}
+	}
+	
+	@Override
+	byte[] array() {
+		return this.data;
+	}
+}
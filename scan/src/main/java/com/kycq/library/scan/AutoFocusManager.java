@@ -1,14 +1,20 @@
 package com.kycq.library.scan;
 
 import android.hardware.Camera;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.RejectedExecutionException;
 
-class AutoFocusManager implements Camera.AutoFocusCallback {
-	private static final long AUTO_FOCUS_INTERVAL_MS = 2000L;
+/**
+ * 自动对焦，启动时对焦一次，之后由 FocusController 在画面变模糊时请求对焦
+ * <p>
+ * 对焦与超时都在主线程消息队列中调度，不占用线程。
+ */
+class AutoFocusManager implements Camera.AutoFocusCallback, FocusController.OnFocusRequestListener {
+	/** 对焦回调未送达时取消对焦 */
+	private static final long FOCUS_TIMEOUT_MS = 3000L;
 	private static final Collection<String> FOCUS_MODES_CALLING_AF;
 	
 	static {
@@ -18,38 +24,88 @@ class AutoFocusManager implements Camera.AutoFocusCallback {
 	}
 	
 	private final Camera mCamera;
+	private final FocusController focusController;
+	private final Handler handler = new Handler(Looper.getMainLooper());
 	
 	private boolean isStopped;
 	private boolean isFocusing;
 	private final boolean isUseAutoFocus;
 	
-	private AsyncTask<?, ?, ?> outstandingTask;
+	private OnFocusListener onFocusListener;
 	
-	AutoFocusManager(Camera camera, boolean isAutoFocus) {
+	private final Runnable focusRunnable = new Runnable() {
+		@Override
+		public void run() {
+			focus();
+		}
+	};
+	
+	private final Runnable timeoutRunnable = new Runnable() {
+		@Override
+		public void run() {
+			focusTimeout();
+		}
+	};
+	
+	AutoFocusManager(Camera camera, boolean isAutoFocus, FocusController focusController) {
 		mCamera = camera;
+		this.focusController = focusController;
 		String currentFocusMode = camera.getParameters().getFocusMode();
 		isUseAutoFocus = isAutoFocus && FOCUS_MODES_CALLING_AF.contains(currentFocusMode);
-		start();
+		if (isUseAutoFocus) {
+			focusController.setOnFocusRequestListener(this);
+			this.handler.post(this.focusRunnable);
+		}
 	}
 	
-	private synchronized void start() {
-		if (isUseAutoFocus) {
-			outstandingTask = null;
-			if (!isStopped && !isFocusing) {
-				try {
-					mCamera.autoFocus(this);
-					isFocusing = true;
-				} catch (RuntimeException ignored) {
-					autoFocusAgainLater();
-				}
+	void setOnFocusListener(OnFocusListener listener) {
+		this.onFocusListener = listener;
+	}
+	
+	private void focus() {
+		OnFocusListener listener = this.onFocusListener;
+		synchronized (this) {
+			if (isStopped || isFocusing) {
+				return;
+			}
+		}
+		if (listener != null) {
+			listener.beforeFocus();
+		}
+		synchronized (this) {
+			if (isStopped) {
+				return;
+			}
+			try {
+				mCamera.autoFocus(this);
+				isFocusing = true;
+				this.focusController.focusStarted();
+				this.handler.postDelayed(this.timeoutRunnable, FOCUS_TIMEOUT_MS);
+			} catch (RuntimeException ignored) {
+				// 画面仍模糊时再次请求
+				this.focusController.focusFinished(System.currentTimeMillis());
 			}
 		}
 	}
 	
+	private synchronized void focusTimeout() {
+		if (isStopped || !isFocusing) {
+			return;
+		}
+		isFocusing = false;
+		try {
+			mCamera.cancelAutoFocus();
+		} catch (RuntimeException ignored) {
+		}
+		this.focusController.focusFinished(System.currentTimeMillis());
+	}
+	
 	synchronized void stop() {
 		isStopped = true;
 		if (isUseAutoFocus) {
-			cancelOutstandingTask();
+			this.focusController.setOnFocusRequestListener(null);
+			this.handler.removeCallbacks(this.focusRunnable);
+			this.handler.removeCallbacks(this.timeoutRunnable);
 			try {
 				mCamera.cancelAutoFocus();
 			} catch (RuntimeException ignored) {
@@ -57,41 +113,38 @@ class AutoFocusManager implements Camera.AutoFocusCallback {
 		}
 	}
 	
-	private synchronized void cancelOutstandingTask() {
-		if (outstandingTask != null) {
-			if (outstandingTask.getStatus() != AsyncTask.Status.FINISHED) {
-				outstandingTask.cancel(true);
+	@Override
+	public void focusRequested() {
+		synchronized (this) {
+			if (isStopped) {
+				return;
 			}
-			outstandingTask = null;
 		}
+		this.handler.post(this.focusRunnable);
 	}
 	
 	@Override
 	public void onAutoFocus(boolean success, Camera camera) {
-		isFocusing = false;
-		autoFocusAgainLater();
-	}
-	
-	private synchronized void autoFocusAgainLater() {
-		if (!isStopped && outstandingTask == null) {
-			AutoFocusTask newTask = new AutoFocusTask();
-			try {
-				newTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
-				outstandingTask = newTask;
-			} catch (RejectedExecutionException ignored) {
+		synchronized (this) {
+			if (isStopped || !isFocusing) {
+				return;
 			}
+			isFocusing = false;
+			this.handler.removeCallbacks(this.timeoutRunnable);
+			this.focusController.focusFinished(System.currentTimeMillis());
+		}
+		OnFocusListener listener = this.onFocusListener;
+		if (listener != null) {
+			listener.onFocused();
 		}
 	}
 	
-	private final class AutoFocusTask extends AsyncTask<Object, Object, Object> {
-		@Override
-		protected Object doInBackground(Object... voids) {
-			try {
-				Thread.sleep(AUTO_FOCUS_INTERVAL_MS);
-			} catch (InterruptedException ignored) {
-			}
-			start();
-			return null;
-		}
+	interface OnFocusListener {
+		/**
+		 * 对焦前调用，可更新对焦区域
+		 */
+		void beforeFocus();
+		
+		void onFocused();
 	}
 }
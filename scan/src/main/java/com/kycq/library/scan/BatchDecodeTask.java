@@ -0,0 +1,167 @@
+package com.kycq.library.scan;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Result;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 相册图片批量解码
+ * <p>
+ * 图片在固定数量的线程上并行解码，每个线程持有独立的解码器，
+ * 每张图片解码完成立即在主线程回调结果与进度，回调顺序为完成顺序。
+ * 全部解码结束或取消后，在最后退出的解码线程上将缓存的结果写入磁盘。
+ */
+public class BatchDecodeTask {
+	private final List<AlbumImage> albumImages;
+	private final ScanView.OnBatchDecodeListener listener;
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	private final BlockingQueue<AlbumDecoder> albumDecoders;
+	private final ThreadPoolExecutor executor;
+	
+	private volatile boolean isCancelled;
+	/** 以下仅在主线程访问 */
+	private int completedCount;
+	private boolean isFinished;
+	
+	BatchDecodeTask(List<AlbumImage> albumImages, ScanView.OnBatchDecodeListener listener,
+	                MultiFormatReader[] multiFormatReaders, AlbumDecodePolicy albumDecodePolicy,
+	                TileDecoder tileDecoder, DecodeResultCache decodeResultCache) {
+		this.albumImages = albumImages;
+		this.listener = listener;
+		
+		int concurrency = multiFormatReaders.length;
+		this.albumDecoders = new ArrayBlockingQueue<>(concurrency);
+		for (MultiFormatReader multiFormatReader : multiFormatReaders) {
+			this.albumDecoders.offer(new AlbumDecoder(multiFormatReader, albumDecodePolicy,
+					tileDecoder, decodeResultCache));
+		}
+		this.executor = new BatchExecutor(concurrency, decodeResultCache);
+	}
+	
+	void start() {
+		if (this.albumImages.isEmpty()) {
+			postFinished();
+			return;
+		}
+		for (int index = 0; index < this.albumImages.size(); index++) {
+			this.executor.execute(new DecodeRunnable(index));
+		}
+		this.executor.shutdown();
+	}
+	
+	/**
+	 * 取消解码，尚未开始的图片不再解码，之后只回调一次结束
+	 */
+	public void cancel() {
+		if (this.isCancelled) {
+			return;
+		}
+		this.isCancelled = true;
+		this.executor.shutdownNow();
+		postFinished();
+	}
+	
+	public boolean isCancelled() {
+		return this.isCancelled;
+	}
+	
+	public int getTotalCount() {
+		return this.albumImages.size();
+	}
+	
+	private void postFinished() {
+		this.mainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (!isFinished) {
+					isFinished = true;
+					listener.batchDecodeFinished(isCancelled);
+				}
+			}
+		});
+	}
+	
+	private void postResult(final int index, final Result rawResult) {
+		this.mainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (isCancelled || isFinished) {
+					return;
+				}
+				completedCount++;
+				if (rawResult != null) {
+					listener.batchDecodeSuccess(index, rawResult.getText());
+				} else {
+					listener.batchDecodeFailure(index);
+				}
+				listener.batchDecodeProgress(completedCount, albumImages.size());
+				if (completedCount == albumImages.size()) {
+					isFinished = true;
+					listener.batchDecodeFinished(false);
+				}
+			}
+		});
+	}
+	
+	private class DecodeRunnable implements Runnable {
+		private final int index;
+		
+		DecodeRunnable(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		public void run() {
+			if (isCancelled) {
+				return;
+			}
+			// 线程数与解码器数量相同，总能立即取得
+			AlbumDecoder albumDecoder = albumDecoders.poll();
+			Result rawResult;
+			try {
+				rawResult = albumDecoder.decode(albumImages.get(this.index));
+			} finally {
+				albumDecoders.offer(albumDecoder);
+			}
+			postResult(this.index, rawResult);
+		}
+	}
+	
+	private static class BatchExecutor extends ThreadPoolExecutor {
+		private final DecodeResultCache decodeResultCache;
+		
+		BatchExecutor(int concurrency, DecodeResultCache decodeResultCache) {
+			super(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), new BatchThreadFactory());
+			this.decodeResultCache = decodeResultCache;
+		}
+		
+		@Override
+		protected void terminated() {
+			super.terminated();
+			this.decodeResultCache.flush();
+		}
+	}
+	
+	private static class BatchThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "BatchDecode-" + this.threadNumber.incrementAndGet());
+			thread.setPriority(Thread.NORM_PRIORITY - 1);
+			return thread;
+		}
+	}
+}
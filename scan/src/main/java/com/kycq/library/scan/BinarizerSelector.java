@@ -0,0 +1,65 @@
+package com.kycq.library.scan;
+
+/**
+ * 按画面对比度与近期成功率选择二值化方式，所有解码线程共用
+ * <p>
+ * 对比度足够的帧优先使用开销较小的全局直方图二值化；其滑动成功率明显低于分块二值化时改用分块二值化。
+ * 每 EXPLORE_INTERVAL 帧改用另一种方式一次，使两种方式的成功率都保持更新。
+ */
+class BinarizerSelector {
+	/** 对比度不低于该值时可使用全局直方图二值化 */
+	static final float GOOD_CONTRAST = 40;
+	/** 滑动成功率的平滑系数 */
+	private static final float RATE_ALPHA = 1 / 32F;
+	/** 全局直方图成功率不低于分块成功率的该比例时继续使用 */
+	private static final float FALLBACK_RATIO = 0.8F;
+	private static final int EXPLORE_INTERVAL = 8;
+	
+	private float globalHistogramRate;
+	private float hybridRate;
+	private int frameCount;
+	
+	/**
+	 * 选择二值化方式
+	 *
+	 * @param contrast 扫描区域对比度
+	 * @return FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM 或 FrameBinarizer.STRATEGY_HYBRID
+	 */
+	synchronized int select(float contrast) {
+		if (contrast < GOOD_CONTRAST) {
+			return FrameBinarizer.STRATEGY_HYBRID;
+		}
+		boolean isGlobalHistogram = this.globalHistogramRate >= this.hybridRate * FALLBACK_RATIO;
+		if (++this.frameCount % EXPLORE_INTERVAL == 0) {
+			isGlobalHistogram = !isGlobalHistogram;
+		}
+		return isGlobalHistogram ? FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM : FrameBinarizer.STRATEGY_HYBRID;
+	}
+	
+	/**
+	 * 记录识别结果，只统计对比度足够的帧，两种方式在相同条件下比较
+	 *
+	 * @param strategy  使用的二值化方式
+	 * @param contrast  扫描区域对比度
+	 * @param isSuccess 是否识别成功
+	 */
+	synchronized void decoded(int strategy, float contrast, boolean isSuccess) {
+		if (contrast < GOOD_CONTRAST) {
+			return;
+		}
+		float sample = isSuccess ? 1 : 0;
+		if (strategy == FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM) {
+			this.globalHistogramRate += (sample - this.globalHistogramRate) * RATE_ALPHA;
+		} else {
+			this.hybridRate += (sample - this.hybridRate) * RATE_ALPHA;
+		}
+	}
+	
+	synchronized float getGlobalHistogramRate() {
+		return this.globalHistogramRate;
+	}
+	
+	synchronized float getHybridRate() {
+		return this.hybridRate;
+	}
+}
@@ -0,0 +1,37 @@
+package com.kycq.library.scan;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ByteBuffer 中的亮度平面，按行间距与像素间距访问，不复制整帧
+ * <p>
+ * 如 Camera2 YUV_420_888 图像的 Y 平面，图像关闭前有效。
+ */
+class BufferLumaPlane extends LumaPlane {
+	ByteBuffer buffer;
+	int rowStride;
+	int pixelStride;
+	
+	@Override
+	int get(int x, int y) {
+		return this.buffer.get(y * this.rowStride + x * this.pixelStride) & 0xFF;
+	}
+	
+	@Override
+	void copyRegion(int left, int top, int width, int height, byte[] result) {
+		ByteBuffer theBuffer = this.buffer;
+		for (int y = 0; y < height; y++) {
+			int offset = (top + y) * this.rowStride + left * this.pixelStride;
+			int resultOffset = y * width;
+			if (this.pixelStride == 1) {
+				// 直接缓冲区的批量读取为内存复制
+				theBuffer.position(offset);
+				theBuffer.get(result, resultOffset, width);
+			} else {
+				for (int x = 0; x < width; x++) {
+					result[resultOffset + x] = theBuffer.get(offset + x * this.pixelStride);
+				}
+			}
+		}
+	}
+}
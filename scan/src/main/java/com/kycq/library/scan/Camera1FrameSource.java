@@ -0,0 +1,153 @@
+package com.kycq.library.scan;
+
+import android.graphics.ImageFormat;
+import android.graphics.Point;
+import android.hardware.Camera;
+
+import com.kycq.library.scan.open.OpenCamera;
+
+import java.util.ArrayDeque;
+
+/**
+ * android.hardware.Camera 预览回调作为帧来源
+ */
+class Camera1FrameSource implements FrameSource, Camera.PreviewCallback {
+	private final CameraManager cameraManager;
+	
+	private boolean isPreviewBufferEnabled = true;
+	private int bufferCount;
+	private byte[][] previewBuffers;
+	private final ArrayDeque<PreviewFrame> framePool = new ArrayDeque<>();
+	private FrameCallback frameCallback;
+	private Camera camera;
+	
+	Camera1FrameSource(CameraManager cameraManager) {
+		this.cameraManager = cameraManager;
+	}
+	
+	/**
+	 * 设置是否使用预分配的预览缓冲区，下次开始时生效
+	 *
+	 * @param previewBufferEnabled true 循环复用预览缓冲区
+	 */
+	void setPreviewBufferEnabled(boolean previewBufferEnabled) {
+		this.isPreviewBufferEnabled = previewBufferEnabled;
+	}
+	
+	@Override
+	public synchronized void start(FrameCallback frameCallback, int bufferCount) {
+		OpenCamera openCamera = this.cameraManager.getOpenCamera();
+		if (openCamera == null || this.camera != null) {
+			return;
+		}
+		this.camera = openCamera.getCamera();
+		this.frameCallback = frameCallback;
+		this.bufferCount = bufferCount;
+		if (this.isPreviewBufferEnabled) {
+			allocatePreviewBuffers(this.camera);
+		} else {
+			this.camera.setPreviewCallback(this);
+		}
+		this.cameraManager.startPreview();
+	}
+	
+	@Override
+	public synchronized void stop() {
+		if (this.camera == null) {
+			return;
+		}
+		if (this.isPreviewBufferEnabled) {
+			// 清空相机内部的缓冲队列
+			this.camera.setPreviewCallbackWithBuffer(null);
+			this.previewBuffers = null;
+		} else {
+			this.camera.setPreviewCallback(null);
+		}
+		this.cameraManager.stopPreview();
+		this.frameCallback = null;
+		this.camera = null;
+	}
+	
+	/**
+	 * 预分配预览缓冲区，预览期间循环使用
+	 *
+	 * @param camera 相机
+	 */
+	private void allocatePreviewBuffers(Camera camera) {
+		Point cameraResolution = this.cameraManager.getCameraConfigManager().cameraResolution;
+		Camera.Parameters parameters = camera.getParameters();
+		int bitsPerPixel = ImageFormat.getBitsPerPixel(parameters.getPreviewFormat());
+		if (bitsPerPixel <= 0) {
+			bitsPerPixel = ImageFormat.getBitsPerPixel(ImageFormat.NV21);
+		}
+		int bufferSize = cameraResolution.x * cameraResolution.y * bitsPerPixel / 8;
+		
+		this.previewBuffers = new byte[this.bufferCount][];
+		for (int index = 0; index < this.bufferCount; index++) {
+			this.previewBuffers[index] = new byte[bufferSize];
+			camera.addCallbackBuffer(this.previewBuffers[index]);
+		}
+		camera.setPreviewCallbackWithBuffer(this);
+	}
+	
+	/**
+	 * 将预览缓冲区归还相机
+	 *
+	 * @param data 预览数据
+	 */
+	private void returnPreviewBuffer(byte[] data) {
+		Camera theCamera = this.camera;
+		byte[][] thePreviewBuffers = this.previewBuffers;
+		if (data == null || theCamera == null || thePreviewBuffers == null) {
+			return;
+		}
+		for (byte[] previewBuffer : thePreviewBuffers) {
+			if (previewBuffer == data) {
+				theCamera.addCallbackBuffer(data);
+				return;
+			}
+		}
+	}
+	
+	private synchronized PreviewFrame obtainFrame() {
+		PreviewFrame previewFrame = this.framePool.poll();
+		if (previewFrame == null) {
+			previewFrame = new PreviewFrame();
+		}
+		return previewFrame;
+	}
+	
+	/**
+	 * 回收预览帧并归还预览缓冲区
+	 *
+	 * @param previewFrame 预览帧
+	 */
+	@Override
+	public synchronized void releaseFrame(PreviewFrame previewFrame) {
+		if (this.isPreviewBufferEnabled) {
+			returnPreviewBuffer(previewFrame.getData());
+		}
+		previewFrame.setData(null, 0, 0);
+		if (this.framePool.size() < this.bufferCount) {
+			this.framePool.offer(previewFrame);
+		}
+	}
+	
+	@Override
+	public void onPreviewFrame(byte[] data, Camera camera) {
+		CameraConfigManager cameraConfigManager = this.cameraManager.getCameraConfigManager();
+		Point cameraResolution = cameraConfigManager.cameraResolution;
+		FrameCallback theFrameCallback = this.frameCallback;
+		if (cameraResolution != null && theFrameCallback != null) {
+			PreviewFrame previewFrame = obtainFrame();
+			previewFrame.rotationAngle = cameraConfigManager.cameraRotation;
+			previewFrame.setData(data, cameraResolution.x, cameraResolution.y);
+			previewFrame.timestamp = System.nanoTime();
+			theFrameCallback.onFrame(previewFrame);
+		} else if (this.isPreviewBufferEnabled) {
+			synchronized (this) {
+				returnPreviewBuffer(data);
+			}
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.kycq.library.scan;
+
+import android.annotation.TargetApi;
+import android.graphics.ImageFormat;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Camera2 ImageReader 作为帧来源，直接读取 YUV_420_888 图像的亮度平面
+ * <p>
+ * 预览帧持有图像直到归还，ImageReader 需比解码缓冲多留两张图像供相机写入。
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class Camera2FrameSource extends ImageFrameSource implements ImageReader.OnImageAvailableListener {
+	private final Camera2Manager camera2Manager;
+	private final ImageReader imageReader;
+	private final HandlerThread handlerThread;
+	
+	/**
+	 * @param camera2Manager 相机驱动
+	 * @param width          图像宽度
+	 * @param height         图像高度
+	 * @param rotationAngle  画面需顺时针旋转的角度
+	 * @param maxImages      同时持有的最大图像数量
+	 */
+	Camera2FrameSource(Camera2Manager camera2Manager, int width, int height, int rotationAngle, int maxImages) {
+		super(width, height, rotationAngle);
+		this.camera2Manager = camera2Manager;
+		this.imageReader = ImageReader.newInstance(width, height, ImageFormat.YUV_420_888, maxImages);
+		this.handlerThread = new HandlerThread("Camera2Frame");
+		this.handlerThread.start();
+	}
+	
+	Surface getSurface() {
+		return this.imageReader.getSurface();
+	}
+	
+	@Override
+	void onStart() {
+		this.imageReader.setOnImageAvailableListener(this, new Handler(this.handlerThread.getLooper()));
+		this.camera2Manager.startPreview();
+	}
+	
+	@Override
+	void onStop() {
+		this.camera2Manager.stopPreview();
+		this.imageReader.setOnImageAvailableListener(null, null);
+	}
+	
+	/**
+	 * 停止并释放 ImageReader，相机关闭后调用
+	 */
+	void release() {
+		stop();
+		this.imageReader.close();
+		this.handlerThread.quitSafely();
+	}
+	
+	@Override
+	public void onImageAvailable(ImageReader reader) {
+		Image image;
+		try {
+			image = reader.acquireLatestImage();
+		} catch (IllegalStateException e) {
+			// 持有的图像已达上限，等待解码线程归还
+			return;
+		}
+		if (image != null) {
+			onImage(new ImageAdapter(image));
+		}
+	}
+	
+	private static class ImageAdapter implements LumaImage {
+		private final Image image;
+		private final Image.Plane plane;
+		
+		ImageAdapter(Image image) {
+			this.image = image;
+			this.plane = image.getPlanes()[0];
+		}
+		
+		@Override
+		public ByteBuffer getBuffer() {
+			return this.plane.getBuffer();
+		}
+		
+		@Override
+		public int getRowStride() {
+			return this.plane.getRowStride();
+		}
+		
+		@Override
+		public int getPixelStride() {
+			return this.plane.getPixelStride();
+		}
+		
+		@Override
+		public long getTimestamp() {
+			return this.image.getTimestamp();
+		}
+		
+		@Override
+		public void close() {
+			this.image.close();
+		}
+	}
+}
@@ -0,0 +1,435 @@
+package com.kycq.library.scan;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraMetadata;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Size;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * android.hardware.camera2 相机驱动
+ * <p>
+ * 预览画面与 ImageReader 同一会话输出，解码直接读取图像的亮度平面。
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class Camera2Manager extends CameraDriver {
+	private static final long OPEN_TIMEOUT_SECONDS = 3;
+	
+	private final Context context;
+	private final CameraConfigManager cameraConfigManager;
+	private int maxImages = 4;
+	
+	private HandlerThread cameraThread;
+	private Handler cameraHandler;
+	private CameraDevice cameraDevice;
+	private SurfaceHolder surfaceHolder;
+	private Camera2FrameSource frameSource;
+	private CameraCaptureSession captureSession;
+	private CaptureRequest.Builder requestBuilder;
+	private boolean isPreviewing;
+	private boolean isFlashOn;
+	/** 传感器有效区域与最大数码变焦倍数 */
+	private Rect activeArraySize;
+	private float maxDigitalZoom = 1;
+	private float zoomRatio = 1;
+	private Integer lastFocusState;
+	
+	Camera2Manager(Context context, PreviewSizePolicy previewSizePolicy) {
+		this.context = context;
+		this.cameraConfigManager = new CameraConfigManager(previewSizePolicy);
+	}
+	
+	/**
+	 * 是否支持 Camera2，LEGACY 级别的设备仍使用 android.hardware.Camera
+	 *
+	 * @param context 上下文
+	 * @return true 后置相机支持 Camera2
+	 */
+	static boolean isSupported(Context context) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+			return false;
+		}
+		android.hardware.camera2.CameraManager manager = getSystemCameraManager(context);
+		try {
+			String cameraId = findBackCameraId(manager);
+			if (cameraId == null) {
+				return false;
+			}
+			Integer hardwareLevel = manager.getCameraCharacteristics(cameraId)
+					.get(CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL);
+			return hardwareLevel != null
+					&& hardwareLevel != CameraMetadata.INFO_SUPPORTED_HARDWARE_LEVEL_LEGACY;
+		} catch (CameraAccessException | RuntimeException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * 设置 ImageReader 同时持有的最大图像数量，打开相机前设置
+	 *
+	 * @param maxImages 最大图像数量
+	 */
+	void setMaxImages(int maxImages) {
+		this.maxImages = maxImages;
+	}
+	
+	@Override
+	synchronized boolean isOpened() {
+		return this.cameraDevice != null;
+	}
+	
+	@Override
+	void openDriver(boolean openFlashMode) throws IOException {
+		if (isOpened()) {
+			return;
+		}
+		long configureStartTime = System.nanoTime();
+		android.hardware.camera2.CameraManager manager = getSystemCameraManager(this.context);
+		String cameraId;
+		try {
+			cameraId = findBackCameraId(manager);
+			if (cameraId == null) {
+				return;
+			}
+			initFromCameraCharacteristics(manager.getCameraCharacteristics(cameraId));
+		} catch (CameraAccessException e) {
+			throw new IOException(e);
+		}
+		long openStartTime = System.nanoTime();
+		recordStartup(StartupTimings.PHASE_CAMERA_CONFIGURE, configureStartTime, openStartTime);
+		
+		this.cameraThread = new HandlerThread("Camera2");
+		this.cameraThread.start();
+		this.cameraHandler = new Handler(this.cameraThread.getLooper());
+		
+		// 与 android.hardware.Camera 一样同步打开
+		final CountDownLatch openLatch = new CountDownLatch(1);
+		final CameraDevice[] openedDevice = new CameraDevice[1];
+		try {
+			manager.openCamera(cameraId, new CameraDevice.StateCallback() {
+				@Override
+				public void onOpened(CameraDevice camera) {
+					synchronized (openedDevice) {
+						if (openLatch.getCount() == 0) {
+							// 已超时放弃
+							camera.close();
+							return;
+						}
+						openedDevice[0] = camera;
+					}
+					openLatch.countDown();
+				}
+				
+				@Override
+				public void onDisconnected(CameraDevice camera) {
+					deviceFailed(camera, openedDevice, openLatch);
+				}
+				
+				@Override
+				public void onError(CameraDevice camera, int error) {
+					deviceFailed(camera, openedDevice, openLatch);
+				}
+			}, this.cameraHandler);
+			openLatch.await(OPEN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (CameraAccessException | SecurityException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		CameraDevice theCameraDevice;
+		synchronized (openedDevice) {
+			openLatch.countDown();
+			theCameraDevice = openedDevice[0];
+			synchronized (this) {
+				this.cameraDevice = theCameraDevice;
+			}
+		}
+		if (theCameraDevice == null) {
+			quitCameraThread();
+			return;
+		}
+		recordStartup(StartupTimings.PHASE_CAMERA_OPEN, openStartTime, System.nanoTime());
+		
+		this.isFlashOn = openFlashMode;
+	}
+	
+	/**
+	 * 相机断开或出错，打开期间由 openDriver 处理，打开后置空 cameraDevice 并回调
+	 */
+	private void deviceFailed(CameraDevice camera, CameraDevice[] openedDevice, CountDownLatch openLatch) {
+		camera.close();
+		synchronized (openedDevice) {
+			if (openedDevice[0] == camera) {
+				openedDevice[0] = null;
+			}
+		}
+		openLatch.countDown();
+		
+		boolean isOpenedDevice;
+		synchronized (this) {
+			isOpenedDevice = this.cameraDevice == camera;
+			if (isOpenedDevice) {
+				this.cameraDevice = null;
+				this.captureSession = null;
+				this.isPreviewing = false;
+			}
+		}
+		if (isOpenedDevice) {
+			notifyCameraError();
+		}
+	}
+	
+	@Override
+	void setPreviewDisplay(SurfaceHolder surfaceHolder) {
+		this.surfaceHolder = surfaceHolder;
+		Point cameraResolution = this.cameraConfigManager.cameraResolution;
+		surfaceHolder.setFixedSize(cameraResolution.x, cameraResolution.y);
+	}
+	
+	private void initFromCameraCharacteristics(CameraCharacteristics characteristics) {
+		StreamConfigurationMap configurationMap =
+				characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+		List<Point> supportedSizes = new ArrayList<>();
+		if (configurationMap != null) {
+			// 预览画面与 ImageReader 需使用相同尺寸
+			List<Size> previewSizes = Arrays.asList(configurationMap.getOutputSizes(SurfaceHolder.class));
+			for (Size size : configurationMap.getOutputSizes(ImageFormat.YUV_420_888)) {
+				if (previewSizes.contains(size)) {
+					supportedSizes.add(new Point(size.getWidth(), size.getHeight()));
+				}
+			}
+		}
+		this.activeArraySize = characteristics.get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
+		Float maxDigitalZoom = characteristics.get(CameraCharacteristics.SCALER_AVAILABLE_MAX_DIGITAL_ZOOM);
+		this.maxDigitalZoom = maxDigitalZoom == null || this.activeArraySize == null ? 1 : Math.max(maxDigitalZoom, 1);
+		this.zoomRatio = 1;
+		Integer sensorOrientation = characteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+		Integer lensFacing = characteristics.get(CameraCharacteristics.LENS_FACING);
+		this.cameraConfigManager.initFromSupportedSizes(this.context,
+				sensorOrientation == null ? 90 : sensorOrientation,
+				lensFacing != null && lensFacing == CameraMetadata.LENS_FACING_FRONT,
+				supportedSizes);
+	}
+	
+	@Override
+	Point getPreviewResolution() {
+		return this.cameraConfigManager.previewResolution;
+	}
+	
+	@Override
+	Point getCameraResolution() {
+		return this.cameraConfigManager.cameraResolution;
+	}
+	
+	@Override
+	List<Point> getSupportedPreviewSizes() {
+		return this.cameraConfigManager.supportedSizes;
+	}
+	
+	@Override
+	FrameSource createFrameSource() {
+		if (this.frameSource == null) {
+			Point cameraResolution = this.cameraConfigManager.cameraResolution;
+			this.frameSource = new Camera2FrameSource(this, cameraResolution.x, cameraResolution.y,
+					this.cameraConfigManager.cameraRotation, this.maxImages);
+		}
+		return this.frameSource;
+	}
+	
+	@Override
+	synchronized void startPreview() {
+		CameraDevice theCameraDevice = this.cameraDevice;
+		if (theCameraDevice == null || this.frameSource == null || this.isPreviewing) {
+			return;
+		}
+		this.isPreviewing = true;
+		List<Surface> surfaces = Arrays.asList(this.surfaceHolder.getSurface(), this.frameSource.getSurface());
+		try {
+			this.requestBuilder = theCameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+			for (Surface surface : surfaces) {
+				this.requestBuilder.addTarget(surface);
+			}
+			this.requestBuilder.set(CaptureRequest.CONTROL_AF_MODE,
+					CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+			theCameraDevice.createCaptureSession(surfaces, new CameraCaptureSession.StateCallback() {
+				@Override
+				public void onConfigured(CameraCaptureSession session) {
+					synchronized (Camera2Manager.this) {
+						if (!isPreviewing) {
+							session.close();
+							return;
+						}
+						captureSession = session;
+						updateRepeatingRequest();
+					}
+				}
+				
+				@Override
+				public void onConfigureFailed(CameraCaptureSession session) {
+					session.close();
+					boolean isFailed;
+					synchronized (Camera2Manager.this) {
+						isFailed = isPreviewing;
+						isPreviewing = false;
+					}
+					if (isFailed) {
+						notifyCameraError();
+					}
+				}
+			}, this.cameraHandler);
+		} catch (CameraAccessException | IllegalStateException e) {
+			this.isPreviewing = false;
+			e.printStackTrace();
+			notifyCameraError();
+		}
+	}
+	
+	private void updateRepeatingRequest() {
+		if (this.captureSession == null) {
+			return;
+		}
+		this.requestBuilder.set(CaptureRequest.FLASH_MODE, this.isFlashOn
+				? CaptureRequest.FLASH_MODE_TORCH : CaptureRequest.FLASH_MODE_OFF);
+		if (this.activeArraySize != null) {
+			this.requestBuilder.set(CaptureRequest.SCALER_CROP_REGION, computeCropRegion(this.activeArraySize, this.zoomRatio));
+		}
+		try {
+			this.captureSession.setRepeatingRequest(this.requestBuilder.build(),
+					this.captureCallback, this.cameraHandler);
+		} catch (CameraAccessException | IllegalStateException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * 对焦完成时同样视为画面变化
+	 */
+	private final CameraCaptureSession.CaptureCallback captureCallback = new CameraCaptureSession.CaptureCallback() {
+		@Override
+		public void onCaptureCompleted(CameraCaptureSession session, CaptureRequest request,
+		                               TotalCaptureResult result) {
+			Integer focusState = result.get(CaptureResult.CONTROL_AF_STATE);
+			if (focusState == null || focusState.equals(lastFocusState)) {
+				return;
+			}
+			lastFocusState = focusState;
+			if (focusState == CaptureResult.CONTROL_AF_STATE_PASSIVE_FOCUSED
+					|| focusState == CaptureResult.CONTROL_AF_STATE_FOCUSED_LOCKED) {
+				invalidateDuplicateFrame();
+			}
+		}
+	};
+	
+	@Override
+	synchronized void stopPreview() {
+		this.isPreviewing = false;
+		if (this.captureSession != null) {
+			this.captureSession.close();
+			this.captureSession = null;
+		}
+		this.requestBuilder = null;
+		this.lastFocusState = null;
+	}
+	
+	@Override
+	void closeDriver() {
+		stopPreview();
+		synchronized (this) {
+			if (this.cameraDevice != null) {
+				this.cameraDevice.close();
+				this.cameraDevice = null;
+			}
+		}
+		if (this.frameSource != null) {
+			this.frameSource.release();
+			this.frameSource = null;
+		}
+		quitCameraThread();
+	}
+	
+	private void quitCameraThread() {
+		if (this.cameraThread != null) {
+			this.cameraThread.quitSafely();
+			this.cameraThread = null;
+			this.cameraHandler = null;
+		}
+	}
+	
+	@Override
+	synchronized void openFlashMode() {
+		this.isFlashOn = true;
+		updateRepeatingRequest();
+	}
+	
+	@Override
+	synchronized void closeFlashMode() {
+		this.isFlashOn = false;
+		updateRepeatingRequest();
+	}
+	
+	@Override
+	float getMaxZoomRatio() {
+		return this.maxDigitalZoom;
+	}
+	
+	@Override
+	synchronized float setZoomRatio(float zoomRatio) {
+		float theZoomRatio = Math.max(1, Math.min(zoomRatio, this.maxDigitalZoom));
+		if (theZoomRatio != this.zoomRatio) {
+			this.zoomRatio = theZoomRatio;
+			updateRepeatingRequest();
+			invalidateDuplicateFrame();
+		}
+		return theZoomRatio;
+	}
+	
+	/**
+	 * 以有效区域中心按倍数截取
+	 */
+	private static Rect computeCropRegion(Rect activeArraySize, float zoomRatio) {
+		int width = (int) (activeArraySize.width() / zoomRatio);
+		int height = (int) (activeArraySize.height() / zoomRatio);
+		int left = (activeArraySize.width() - width) / 2;
+		int top = (activeArraySize.height() - height) / 2;
+		return new Rect(left, top, left + width, top + height);
+	}
+	
+	private static android.hardware.camera2.CameraManager getSystemCameraManager(Context context) {
+		return (android.hardware.camera2.CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+	}
+	
+	private static String findBackCameraId(android.hardware.camera2.CameraManager manager)
+			throws CameraAccessException {
+		String[] cameraIds = manager.getCameraIdList();
+		for (String cameraId : cameraIds) {
+			Integer lensFacing = manager.getCameraCharacteristics(cameraId).get(CameraCharacteristics.LENS_FACING);
+			if (lensFacing != null && lensFacing == CameraMetadata.LENS_FACING_BACK) {
+				return cameraId;
+			}
+		}
+		// 没有后置相机时取第一个
+		return cameraIds.length > 0 ? cameraIds[0] : null;
+	}
+}
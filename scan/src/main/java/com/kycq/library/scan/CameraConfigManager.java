@@ -16,28 +16,81 @@ import com.kycq.library.scan.open.OpenCamera;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 
 class CameraConfigManager {
-	private static final int MIN_PREVIEW_PIXELS = 480 * 320;
-	private static final double MAX_ASPECT_DISTORTION = 0.15;
-	
 	private static final float MAX_EXPOSURE_COMPENSATION = 1.5f;
 	private static final float MIN_EXPOSURE_COMPENSATION = 0.0f;
 	
 	private static final int AREA_PER_1000 = 400;
 	
+	private final PreviewSizePolicy previewSizePolicy;
+	
 	int cameraRotation;
 	Point cameraResolution;
 	Point previewResolution;
+	/** 相机支持的预览尺寸，传感器方向 */
+	List<Point> supportedSizes;
+	private Point screenResolution;
+	
+	CameraConfigManager(PreviewSizePolicy previewSizePolicy) {
+		this.previewSizePolicy = previewSizePolicy;
+	}
 	
 	void initFromCameraParameters(Context context, OpenCamera openCamera) {
 		Camera.Parameters cameraParameters = openCamera.getCamera().getParameters();
 		WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
 		Display display = manager.getDefaultDisplay();
 		
+		this.cameraRotation = computeCameraRotation(display,
+				openCamera.getOrientation(), openCamera.getFacing() == CameraFacing.FRONT);
+		
+		Point screenResolution = new Point();
+		display.getSize(screenResolution);
+		
+		this.screenResolution = screenResolution;
+		this.cameraResolution = findBestPreviewSizeValue(cameraParameters, screenResolution);
+		updatePreviewResolution();
+	}
+	
+	/**
+	 * 根据传感器方向与支持的输出尺寸初始化，用于 Camera2
+	 *
+	 * @param context           上下文
+	 * @param sensorOrientation 传感器方向
+	 * @param isFrontFacing     是否前置相机
+	 * @param supportedSizes    支持的输出尺寸
+	 */
+	void initFromSupportedSizes(Context context, int sensorOrientation, boolean isFrontFacing,
+	                            List<Point> supportedSizes) {
+		WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+		Display display = manager.getDefaultDisplay();
+		
+		this.cameraRotation = computeCameraRotation(display, sensorOrientation, isFrontFacing);
+		
+		Point screenResolution = new Point();
+		display.getSize(screenResolution);
+		
+		this.screenResolution = screenResolution;
+		this.supportedSizes = supportedSizes;
+		this.cameraResolution = selectPreviewSize(supportedSizes, screenResolution);
+		if (this.cameraResolution == null) {
+			throw new IllegalStateException("Camera contained no output size!");
+		}
+		updatePreviewResolution();
+	}
+	
+	/**
+	 * 扫描期间更换预览尺寸
+	 *
+	 * @param cameraResolution 预览尺寸，传感器方向
+	 */
+	void setCameraResolution(Point cameraResolution) {
+		this.cameraResolution = cameraResolution;
+		updatePreviewResolution();
+	}
+	
+	private static int computeCameraRotation(Display display, int cameraOrientation, boolean isFrontFacing) {
 		int displayRotation = display.getRotation();
 		int rotationFromNaturalToDisplay;
 		switch (displayRotation) {
@@ -61,20 +114,17 @@ class CameraConfigManager {
 				}
 		}
 		
-		int rotationFromNaturalToCamera = openCamera.getOrientation();
+		int rotationFromNaturalToCamera = cameraOrientation;
 		
-		if (openCamera.getFacing() == CameraFacing.FRONT) {
+		if (isFrontFacing) {
 			rotationFromNaturalToCamera = (360 - rotationFromNaturalToCamera) % 360;
 		}
 		
-		this.cameraRotation = (360 + rotationFromNaturalToCamera - rotationFromNaturalToDisplay) % 360;
-		
-		Point screenResolution = new Point();
-		display.getSize(screenResolution);
-		
-		this.cameraResolution = findBestPreviewSizeValue(cameraParameters, screenResolution);
-		
-		boolean isScreenPortrait = screenResolution.x < screenResolution.y;
+		return (360 + rotationFromNaturalToCamera - rotationFromNaturalToDisplay) % 360;
+	}
+	
+	private void updatePreviewResolution() {
+		boolean isScreenPortrait = this.screenResolution.x < this.screenResolution.y;
 		boolean isPreviewSizePortrait = this.cameraResolution.x < this.cameraResolution.y;
 		
 		if (isScreenPortrait == isPreviewSizePortrait) {
@@ -92,7 +142,7 @@ class CameraConfigManager {
 			return;
 		}
 		
-		initializeTorch(cameraParameters, safeMode);
+		initializeTorch(cameraParameters, openFlash, safeMode);
 		
 		// setFocus(cameraParameters, mPreviewView.isAutoFocus(), mPreviewView.isDisableContinuousFocus(), safeMode);
 		
@@ -107,17 +157,13 @@ class CameraConfigManager {
 			//
 			// if (!mPreviewView.isDisableMetering()) {
 			// 	setVideoStabilization(cameraParameters);
-			// 	setFocusArea(cameraParameters);
-			// 	setMetering(cameraParameters);
 			// }
+			// 扫描框布局后由对焦前更新为扫描框区域
+			setFocusArea(cameraParameters, null);
+			setMetering(cameraParameters, null);
 		}
 		
 		cameraParameters.setPreviewSize(this.cameraResolution.x, this.cameraResolution.y);
-		if (openFlash) {
-			cameraParameters.setFlashMode(Camera.Parameters.FLASH_MODE_TORCH);
-		} else {
-			cameraParameters.setFlashMode(Camera.Parameters.FLASH_MODE_OFF);
-		}
 		
 		theCamera.setParameters(cameraParameters);
 		// 当前相机角度旋转度数
@@ -133,57 +179,18 @@ class CameraConfigManager {
 		}
 	}
 	
-	private static Point findBestPreviewSizeValue(Camera.Parameters parameters, Point screenResolution) {
+	private Point findBestPreviewSizeValue(Camera.Parameters parameters, Point screenResolution) {
 		List<Camera.Size> rawSupportedSizes = parameters.getSupportedPreviewSizes();
-		if (rawSupportedSizes == null) {
-			Camera.Size defaultSize = parameters.getPreviewSize();
-			if (defaultSize == null) {
-				throw new IllegalStateException("Parameters contained no preview size!");
-			}
-			return new Point(defaultSize.width, defaultSize.height);
-		}
-		
-		List<Camera.Size> supportedPreviewSizes = new ArrayList<>(rawSupportedSizes);
-		Collections.sort(supportedPreviewSizes, new Comparator<Camera.Size>() {
-			@Override
-			public int compare(Camera.Size a, Camera.Size b) {
-				int aPixels = a.height * a.width;
-				int bPixels = b.height * b.width;
-				// 高分辨率排前，低分辨率排后
-				if (bPixels < aPixels) {
-					return -1;
-				}
-				if (bPixels > aPixels) {
-					return 1;
-				}
-				return 0;
+		if (rawSupportedSizes != null) {
+			List<Point> supportedSizes = new ArrayList<>(rawSupportedSizes.size());
+			for (Camera.Size rawSupportedSize : rawSupportedSizes) {
+				supportedSizes.add(new Point(rawSupportedSize.width, rawSupportedSize.height));
 			}
-		});
-		
-		Iterator<Camera.Size> it = supportedPreviewSizes.iterator();
-		while (it.hasNext()) {
-			Camera.Size supportedPreviewSize = it.next();
-			int realWidth = supportedPreviewSize.width;
-			int realHeight = supportedPreviewSize.height;
-			if (realWidth * realHeight < MIN_PREVIEW_PIXELS) {
-				it.remove();
-				continue;
+			this.supportedSizes = supportedSizes;
+			Point bestSize = selectPreviewSize(supportedSizes, screenResolution);
+			if (bestSize != null) {
+				return bestSize;
 			}
-			
-			boolean isCandidatePortrait = realWidth < realHeight;
-			int maybeFlippedWidth = isCandidatePortrait ? realHeight : realWidth;
-			int maybeFlippedHeight = isCandidatePortrait ? realWidth : realHeight;
-			
-			// 宽高比例一致
-			if (maybeFlippedWidth == screenResolution.x && maybeFlippedHeight == screenResolution.y) {
-				return new Point(realWidth, realHeight);
-			}
-		}
-		
-		// 宽高比例无法一致，取最优
-		if (!supportedPreviewSizes.isEmpty()) {
-			Camera.Size largestPreview = supportedPreviewSizes.get(0);
-			return new Point(largestPreview.width, largestPreview.height);
 		}
 		
 		// 支持列表为空，取默认值
@@ -194,18 +201,38 @@ class CameraConfigManager {
 		return new Point(defaultPreview.width, defaultPreview.height);
 	}
 	
-	private void initializeTorch(Camera.Parameters parameters, boolean safeMode) {
-		// TODO
-		// boolean currentSetting = mPreviewView.getFrontLightMode() == FrontLightMode.ON;
-		// doSetTorch(parameters, currentSetting, safeMode);
+	private Point selectPreviewSize(List<Point> supportedSizes, Point screenResolution) {
+		int[] size = this.previewSizePolicy.selectPreviewSize(
+				toSizes(supportedSizes), screenResolution.x, screenResolution.y);
+		return size == null ? null : new Point(size[0], size[1]);
 	}
 	
-	private void doSetTorch(Camera.Parameters parameters, boolean newSetting, boolean safeMode) {
+	/**
+	 * 转换为 PreviewSizePolicy 使用的 {宽, 高}
+	 */
+	static List<int[]> toSizes(List<Point> points) {
+		List<int[]> sizes = new ArrayList<>(points.size());
+		for (Point point : points) {
+			sizes.add(new int[]{point.x, point.y});
+		}
+		return sizes;
+	}
+	
+	private static void initializeTorch(Camera.Parameters parameters, boolean openFlash, boolean safeMode) {
+		doSetTorch(parameters, openFlash, safeMode);
+	}
+	
+	/**
+	 * 开关闪光灯，同时调整曝光补偿：闪光灯打开时不补偿，关闭时提高曝光
+	 *
+	 * @param newSetting true 打开闪光灯
+	 * @param safeMode   true 不调整曝光补偿
+	 */
+	static void doSetTorch(Camera.Parameters parameters, boolean newSetting, boolean safeMode) {
 		setTorch(parameters, newSetting);
-		// TODO
-		// if (!safeMode && !mPreviewView.isDisableExposure()) {
-		// 	setBestExposure(parameters, newSetting);
-		// }
+		if (!safeMode) {
+			setBestExposure(parameters, newSetting);
+		}
 	}
 	
 	private static void setBestExposure(Camera.Parameters parameters, boolean lightOn) {
@@ -300,18 +327,101 @@ class CameraConfigManager {
 		}
 	}
 	
-	private static void setFocusArea(Camera.Parameters parameters) {
+	/**
+	 * @return 最大数码变焦倍数，不支持变焦为 1
+	 */
+	static float getMaxZoomRatio(Camera.Parameters parameters) {
+		if (!parameters.isZoomSupported()) {
+			return 1;
+		}
+		List<Integer> zoomRatios = parameters.getZoomRatios();
+		if (zoomRatios == null || zoomRatios.isEmpty()) {
+			return 1;
+		}
+		return zoomRatios.get(zoomRatios.size() - 1) / 100F;
+	}
+	
+	/**
+	 * 选择不超过目标倍数的最大变焦级别
+	 *
+	 * @param parameters 相机参数
+	 * @param zoomRatio  目标倍数
+	 * @return 实际倍数，级别未变化时返回 0
+	 */
+	static float setZoom(Camera.Parameters parameters, float zoomRatio) {
+		if (!parameters.isZoomSupported()) {
+			return 0;
+		}
+		List<Integer> zoomRatios = parameters.getZoomRatios();
+		if (zoomRatios == null || zoomRatios.isEmpty()) {
+			return 0;
+		}
+		int targetRatio = Math.round(zoomRatio * 100);
+		int zoom = 0;
+		for (int index = 1; index < zoomRatios.size() && index <= parameters.getMaxZoom(); index++) {
+			if (zoomRatios.get(index) > targetRatio) {
+				break;
+			}
+			zoom = index;
+		}
+		if (zoom == parameters.getZoom()) {
+			return 0;
+		}
+		parameters.setZoom(zoom);
+		return zoomRatios.get(zoom) / 100F;
+	}
+	
+	/**
+	 * 扫描框换算为对焦与测光区域坐标
+	 *
+	 * @param previewRect 扫描框在预览帧（旋转后坐标系）中的位置
+	 * @return 传感器方向 -1000 到 1000 的区域
+	 */
+	Rect computeCameraArea(Rect previewRect) {
+		int[] sensorRect = new int[4];
+		FrameRotator.mapToSensor(this.cameraResolution.x, this.cameraResolution.y, this.cameraRotation,
+				previewRect.left, previewRect.top, previewRect.width(), previewRect.height(), sensorRect);
+		return new Rect(
+				toCameraCoordinate(sensorRect[0], this.cameraResolution.x),
+				toCameraCoordinate(sensorRect[1], this.cameraResolution.y),
+				toCameraCoordinate(sensorRect[2], this.cameraResolution.x),
+				toCameraCoordinate(sensorRect[3], this.cameraResolution.y)
+		);
+	}
+	
+	private static int toCameraCoordinate(int value, int size) {
+		return Math.max(-1000, Math.min(value * 2000 / size - 1000, 1000));
+	}
+	
+	/**
+	 * @param area 对焦区域，null 为画面中央
+	 * @return false 不支持对焦区域
+	 */
+	static boolean setFocusArea(Camera.Parameters parameters, Rect area) {
 		if (parameters.getMaxNumFocusAreas() > 0) {
-			List<Camera.Area> middleArea = buildMiddleArea(AREA_PER_1000);
-			parameters.setFocusAreas(middleArea);
+			parameters.setFocusAreas(buildArea(area));
+			return true;
 		}
+		return false;
 	}
 	
-	private static void setMetering(Camera.Parameters parameters) {
+	/**
+	 * @param area 测光区域，null 为画面中央
+	 * @return false 不支持测光区域
+	 */
+	static boolean setMetering(Camera.Parameters parameters, Rect area) {
 		if (parameters.getMaxNumMeteringAreas() > 0) {
-			List<Camera.Area> middleArea = buildMiddleArea(AREA_PER_1000);
-			parameters.setMeteringAreas(middleArea);
+			parameters.setMeteringAreas(buildArea(area));
+			return true;
+		}
+		return false;
+	}
+	
+	private static List<Camera.Area> buildArea(Rect area) {
+		if (area == null || area.isEmpty()) {
+			return buildMiddleArea(AREA_PER_1000);
 		}
+		return Collections.singletonList(new Camera.Area(area, 1000));
 	}
 	
 	private static List<Camera.Area> buildMiddleArea(int areaPer1000) {
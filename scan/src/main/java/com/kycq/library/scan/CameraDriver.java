@@ -0,0 +1,289 @@
+package com.kycq.library.scan;
+
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 相机驱动，管理相机的打开、预览与闪光灯，并提供预览帧来源
+ */
+abstract class CameraDriver {
+	private volatile Rect frameRect;
+	private final Object previewRectLock = new Object();
+	private Rect previewFrameRect;
+	private int previewViewWidth;
+	private int previewViewHeight;
+	private Point previewRectResolution;
+	// private boolean isFrameSquare = true;
+	// private float frameWidthRatio = 0.6F;
+	// private float frameHeightRatio = 0.6F;
+	
+	private DuplicateFrameFilter duplicateFrameFilter;
+	private volatile StartupTimings startupTimings;
+	private volatile OnCameraErrorListener onCameraErrorListener;
+	
+	void setDuplicateFrameFilter(DuplicateFrameFilter duplicateFrameFilter) {
+		this.duplicateFrameFilter = duplicateFrameFilter;
+	}
+	
+	void setStartupTimings(StartupTimings startupTimings) {
+		this.startupTimings = startupTimings;
+	}
+	
+	/**
+	 * @param listener 相机打开后断开或预览失败，在相机线程回调
+	 */
+	void setOnCameraErrorListener(OnCameraErrorListener listener) {
+		this.onCameraErrorListener = listener;
+	}
+	
+	abstract boolean isOpened();
+	
+	/**
+	 * 打开并配置相机，不需要预览画面，在后台线程调用；失败时 isOpened 返回 false
+	 *
+	 * @param openFlashMode 是否打开闪光灯
+	 */
+	abstract void openDriver(boolean openFlashMode) throws IOException;
+	
+	/**
+	 * 设置预览画面，相机打开且预览画面创建后在主线程调用
+	 *
+	 * @param surfaceHolder 预览画面
+	 */
+	abstract void setPreviewDisplay(SurfaceHolder surfaceHolder) throws IOException;
+	
+	/**
+	 * @return 与屏幕方向一致的预览分辨率，相机打开前为 null
+	 */
+	abstract Point getPreviewResolution();
+	
+	/**
+	 * @return 传感器方向的预览尺寸，相机打开前为 null
+	 */
+	abstract Point getCameraResolution();
+	
+	/**
+	 * @return 相机支持的预览尺寸，传感器方向
+	 */
+	abstract List<Point> getSupportedPreviewSizes();
+	
+	/**
+	 * @return true 支持扫描期间更换预览尺寸
+	 */
+	boolean isCameraResolutionChangeable() {
+		return false;
+	}
+	
+	/**
+	 * 扫描期间更换预览尺寸，在帧来源停止时调用
+	 *
+	 * @param cameraResolution 传感器方向的预览尺寸
+	 * @return false 不支持或更换失败
+	 */
+	boolean setCameraResolution(Point cameraResolution) {
+		return false;
+	}
+	
+	/**
+	 * 创建预览帧来源，相机打开后调用
+	 *
+	 * @return 帧来源
+	 */
+	abstract FrameSource createFrameSource();
+	
+	abstract void startPreview();
+	
+	abstract void stopPreview();
+	
+	abstract void closeDriver();
+	
+	abstract void openFlashMode();
+	
+	abstract void closeFlashMode();
+	
+	/**
+	 * @return 相机支持的最大数码变焦倍数，不支持变焦为 1
+	 */
+	float getMaxZoomRatio() {
+		return 1;
+	}
+	
+	/**
+	 * 以画面中心数码变焦
+	 *
+	 * @param zoomRatio 变焦倍数
+	 * @return 实际应用的倍数
+	 */
+	float setZoomRatio(float zoomRatio) {
+		return 1;
+	}
+	
+	/**
+	 * @return 根据清晰度请求对焦，不支持时为 null
+	 */
+	FocusController getFocusController() {
+		return null;
+	}
+	
+	/**
+	 * 记录启动阶段耗时
+	 *
+	 * @param phase StartupTimings.PHASE_CAMERA_OPEN 等
+	 */
+	void recordStartup(int phase, long startTime, long endTime) {
+		StartupTimings theStartupTimings = this.startupTimings;
+		if (theStartupTimings != null) {
+			theStartupTimings.record(phase, startTime, endTime);
+		}
+	}
+	
+	/**
+	 * 相机打开后断开或预览失败时调用
+	 */
+	void notifyCameraError() {
+		OnCameraErrorListener listener = this.onCameraErrorListener;
+		if (listener != null) {
+			listener.cameraError(this);
+		}
+	}
+	
+	/**
+	 * 对焦完成等画面变化时调用
+	 */
+	void invalidateDuplicateFrame() {
+		DuplicateFrameFilter theDuplicateFrameFilter = this.duplicateFrameFilter;
+		if (theDuplicateFrameFilter != null) {
+			theDuplicateFrameFilter.invalidate();
+		}
+	}
+	
+	// @SuppressWarnings("SuspiciousNameCombination")
+	// Rect getFrameRect(ScanView scanView) {
+	// 	if (this.frameRect != null) {
+	// 		return this.frameRect;
+	// 	}
+	//
+	// 	int measuredWidth = scanView.getMeasuredWidth();
+	// 	int measuredHeight = scanView.getMeasuredHeight();
+	// 	if (measuredWidth == 0 || measuredHeight == 0) {
+	// 		return null;
+	// 	}
+	//
+	// 	int width = (int) (measuredWidth * this.frameWidthRatio);
+	// 	int height = (int) (measuredHeight * this.frameHeightRatio);
+	//
+	// 	if (this.isFrameSquare) {
+	// 		if (width > height) {
+	// 			width = height;
+	// 		} else {
+	// 			height = width;
+	// 		}
+	// 	}
+	//
+	// 	int offsetWidth = (measuredWidth - width) / 2;
+	// 	int offsetHeight = (measuredHeight - height) / 2;
+	// 	this.frameRect = new Rect(offsetWidth, offsetHeight, offsetWidth + width, offsetHeight + height);
+	//
+	// 	return this.frameRect;
+	// }
+	
+	@SuppressWarnings("SuspiciousNameCombination")
+	Rect getFrameRect() {
+		// if (this.frameRect != null) {
+		// 	return this.frameRect;
+		// }
+		//
+		// int measuredWidth = scanView.getMeasuredWidth();
+		// int measuredHeight = scanView.getMeasuredHeight();
+		// if (measuredWidth == 0 || measuredHeight == 0) {
+		// 	return null;
+		// }
+		//
+		// int width = (int) (measuredWidth * this.frameWidthRatio);
+		// int height = (int) (measuredHeight * this.frameHeightRatio);
+		//
+		// if (this.isFrameSquare) {
+		// 	if (width > height) {
+		// 		width = height;
+		// 	} else {
+		// 		height = width;
+		// 	}
+		// }
+		//
+		// int offsetWidth = (measuredWidth - width) / 2;
+		// int offsetHeight = (measuredHeight - height) / 2;
+		// this.frameRect = new Rect(offsetWidth, offsetHeight, offsetWidth + width, offsetHeight + height);
+		
+		return this.frameRect;
+	}
+	
+	void setFrameRect(Rect frameRect) {
+		synchronized (this.previewRectLock) {
+			this.frameRect = frameRect;
+			this.previewFrameRect = null;
+		}
+	}
+	
+	/**
+	 * @return 最近一次计算的扫描框在预览帧中的位置，尚未计算或已失效时为 null
+	 */
+	Rect getLastPreviewRect() {
+		synchronized (this.previewRectLock) {
+			return this.previewFrameRect;
+		}
+	}
+	
+	/**
+	 * 扫描框在预览帧（旋转后坐标系）中的位置
+	 * <p>
+	 * 预览控件按预览分辨率的宽高比缩放后居中，扫描框由控件坐标换算为预览帧坐标。
+	 *
+	 * @param scanView    扫描控件
+	 * @param previewView 预览控件
+	 * @return 扫描框位置，尚未布局时为 null
+	 */
+	Rect getPreviewRect(ScanView scanView, SurfaceView previewView) {
+		Rect theFrameRect = this.frameRect;
+		Point previewResolution = getPreviewResolution();
+		int previewWidth = previewView.getMeasuredWidth();
+		int previewHeight = previewView.getMeasuredHeight();
+		if (theFrameRect == null || previewResolution == null || previewWidth == 0 || previewHeight == 0) {
+			return null;
+		}
+		
+		synchronized (this.previewRectLock) {
+			if (this.previewFrameRect != null
+					&& previewWidth == this.previewViewWidth && previewHeight == this.previewViewHeight
+					&& previewResolution.equals(this.previewRectResolution)) {
+				return this.previewFrameRect;
+			}
+			
+			int widthOffset = (previewWidth - scanView.getMeasuredWidth()) / 2;
+			int heightOffset = (previewHeight - scanView.getMeasuredHeight()) / 2;
+			
+			// 预览分辨率或控件尺寸变化后重新计算，已返回的 Rect 不再修改
+			this.previewFrameRect = new Rect(
+					(theFrameRect.left + widthOffset) * previewResolution.x / previewWidth,
+					(theFrameRect.top + heightOffset) * previewResolution.y / previewHeight,
+					(theFrameRect.right + widthOffset) * previewResolution.x / previewWidth,
+					(theFrameRect.bottom + heightOffset) * previewResolution.y / previewHeight
+			);
+			this.previewViewWidth = previewWidth;
+			this.previewViewHeight = previewHeight;
+			this.previewRectResolution = new Point(previewResolution);
+			return this.previewFrameRect;
+		}
+	}
+	
+	interface OnCameraErrorListener {
+		/**
+		 * @param cameraDriver 出错的相机驱动
+		 */
+		void cameraError(CameraDriver cameraDriver);
+	}
+}
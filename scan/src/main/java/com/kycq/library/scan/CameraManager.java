@@ -1,51 +1,65 @@
 package com.kycq.library.scan;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.hardware.Camera;
-import android.os.Handler;
-import android.os.Message;
+import android.os.Build;
 import android.view.SurfaceHolder;
-import android.view.SurfaceView;
 
 import com.kycq.library.scan.open.OpenCamera;
 
 import java.io.IOException;
+import java.util.List;
 
-class CameraManager implements Camera.PreviewCallback {
+/**
+ * android.hardware.Camera 相机驱动
+ */
+class CameraManager extends CameraDriver {
 	private Context context;
 	private OpenCamera openCamera;
 	
 	private CameraConfigManager cameraConfigManager;
 	private AutoFocusManager autoFocusManager;
+	private final FocusController focusController = new FocusController();
+	/** 已设置为对焦区域的扫描框 */
+	private Rect focusPreviewRect;
 	
 	private boolean isInitialized;
 	private boolean isPreviewing;
+	private boolean isPreviewBufferEnabled = true;
 	
-	private Rect frameRect;
-	private Rect previewFrameRect;
-	// private boolean isFrameSquare = true;
-	// private float frameWidthRatio = 0.6F;
-	// private float frameHeightRatio = 0.6F;
-	
-	private Handler decodeHandler;
-	private int decodeMessage;
-	
-	CameraManager(Context context) {
+	CameraManager(Context context, PreviewSizePolicy previewSizePolicy) {
 		this.context = context;
-		this.cameraConfigManager = new CameraConfigManager();
+		this.cameraConfigManager = new CameraConfigManager(previewSizePolicy);
 	}
 	
 	CameraConfigManager getCameraConfigManager() {
 		return this.cameraConfigManager;
 	}
 	
+	/**
+	 * 设置是否使用预分配的预览缓冲区，创建帧来源前设置
+	 *
+	 * @param previewBufferEnabled true 循环复用预览缓冲区
+	 */
+	void setPreviewBufferEnabled(boolean previewBufferEnabled) {
+		this.isPreviewBufferEnabled = previewBufferEnabled;
+	}
+	
+	@Override
 	boolean isOpened() {
 		return this.openCamera != null;
 	}
 	
-	void openDriver(SurfaceHolder surfaceHolder, boolean openFlashMode) throws IOException {
+	OpenCamera getOpenCamera() {
+		return this.openCamera;
+	}
+	
+	@Override
+	void openDriver(boolean openFlashMode) {
+		long openStartTime = System.nanoTime();
 		OpenCamera theOpenCamera = this.openCamera;
 		if (theOpenCamera == null) {
 			try {
@@ -58,6 +72,8 @@ class CameraManager implements Camera.PreviewCallback {
 			}
 			this.openCamera = theOpenCamera;
 		}
+		long configureStartTime = System.nanoTime();
+		recordStartup(StartupTimings.PHASE_CAMERA_OPEN, openStartTime, configureStartTime);
 		
 		if (!this.isInitialized) {
 			this.isInitialized = true;
@@ -80,31 +96,149 @@ class CameraManager implements Camera.PreviewCallback {
 				}
 			}
 		}
-		theCamera.setPreviewDisplay(surfaceHolder);
+		recordStartup(StartupTimings.PHASE_CAMERA_CONFIGURE, configureStartTime, System.nanoTime());
+	}
+	
+	@Override
+	void setPreviewDisplay(SurfaceHolder surfaceHolder) throws IOException {
+		OpenCamera theOpenCamera = this.openCamera;
+		if (theOpenCamera != null) {
+			theOpenCamera.getCamera().setPreviewDisplay(surfaceHolder);
+		}
+	}
+	
+	@Override
+	Point getPreviewResolution() {
+		return this.cameraConfigManager.previewResolution;
+	}
+	
+	@Override
+	Point getCameraResolution() {
+		return this.cameraConfigManager.cameraResolution;
+	}
+	
+	@Override
+	List<Point> getSupportedPreviewSizes() {
+		return this.cameraConfigManager.supportedSizes;
+	}
+	
+	@Override
+	boolean isCameraResolutionChangeable() {
+		return true;
+	}
+	
+	@Override
+	synchronized boolean setCameraResolution(Point cameraResolution) {
+		if (this.openCamera == null || this.isPreviewing) {
+			return false;
+		}
+		Camera theCamera = this.openCamera.getCamera();
+		try {
+			Camera.Parameters parameters = theCamera.getParameters();
+			parameters.setPreviewSize(cameraResolution.x, cameraResolution.y);
+			theCamera.setParameters(parameters);
+		} catch (RuntimeException e) {
+			return false;
+		}
+		this.cameraConfigManager.setCameraResolution(new Point(cameraResolution));
+		this.focusPreviewRect = null;
+		return true;
 	}
 	
+	@Override
+	FrameSource createFrameSource() {
+		Camera1FrameSource camera1FrameSource = new Camera1FrameSource(this);
+		camera1FrameSource.setPreviewBufferEnabled(this.isPreviewBufferEnabled);
+		return camera1FrameSource;
+	}
+	
+	@Override
 	synchronized void startPreview() {
 		OpenCamera theOpenCamera = this.openCamera;
 		if (theOpenCamera != null && !this.isPreviewing) {
 			theOpenCamera.getCamera().startPreview();
 			this.isPreviewing = true;
-			this.autoFocusManager = new AutoFocusManager(theOpenCamera.getCamera(), true);
+			this.autoFocusManager = new AutoFocusManager(theOpenCamera.getCamera(), true, this.focusController);
+			this.autoFocusManager.setOnFocusListener(new AutoFocusManager.OnFocusListener() {
+				@Override
+				public void beforeFocus() {
+					updateFocusArea();
+				}
+				
+				@Override
+				public void onFocused() {
+					invalidateDuplicateFrame();
+				}
+			});
+			setAutoFocusMoveCallback(theOpenCamera.getCamera());
+		}
+	}
+	
+	@Override
+	FocusController getFocusController() {
+		return this.focusController;
+	}
+	
+	/**
+	 * 对焦与测光区域设置为扫描框，扫描框变化后更新
+	 */
+	private synchronized void updateFocusArea() {
+		Rect previewRect = getLastPreviewRect();
+		OpenCamera theOpenCamera = this.openCamera;
+		if (previewRect == null || theOpenCamera == null || previewRect.equals(this.focusPreviewRect)) {
+			return;
+		}
+		this.focusPreviewRect = previewRect;
+		Camera theCamera = theOpenCamera.getCamera();
+		try {
+			Camera.Parameters parameters = theCamera.getParameters();
+			Rect area = this.cameraConfigManager.computeCameraArea(previewRect);
+			boolean isFocusAreaSet = CameraConfigManager.setFocusArea(parameters, area);
+			boolean isMeteringSet = CameraConfigManager.setMetering(parameters, area);
+			if (isFocusAreaSet || isMeteringSet) {
+				theCamera.setParameters(parameters);
+			}
+		} catch (RuntimeException ignored) {
+		}
+	}
+	
+	/**
+	 * 连续对焦模式下，对焦移动时同样视为画面变化
+	 *
+	 * @param camera 相机
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void setAutoFocusMoveCallback(Camera camera) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+			return;
+		}
+		try {
+			camera.setAutoFocusMoveCallback(new Camera.AutoFocusMoveCallback() {
+				@Override
+				public void onAutoFocusMoving(boolean start, Camera camera) {
+					if (!start) {
+						invalidateDuplicateFrame();
+					}
+				}
+			});
+		} catch (RuntimeException ignored) {
 		}
 	}
 	
+	@Override
 	synchronized void stopPreview() {
 		if (this.autoFocusManager != null) {
 			this.autoFocusManager.stop();
 			this.autoFocusManager = null;
 		}
+		this.focusPreviewRect = null;
 		if (this.openCamera != null && this.isPreviewing) {
 			this.openCamera.getCamera().stopPreview();
-			this.decodeHandler = null;
-			this.decodeMessage = 0;
 			this.isPreviewing = false;
 		}
 	}
 	
+	@Override
 	synchronized void closeDriver() {
 		if (this.openCamera != null) {
 			this.openCamera.getCamera().release();
@@ -112,125 +246,53 @@ class CameraManager implements Camera.PreviewCallback {
 		}
 	}
 	
-	public void openFlashMode() {
+	@Override
+	void openFlashMode() {
 		if (this.openCamera != null) {
 			Camera.Parameters parameters = this.openCamera.getCamera().getParameters();
-			parameters.setFlashMode(Camera.Parameters.FLASH_MODE_TORCH);
+			CameraConfigManager.doSetTorch(parameters, true, false);
 			this.openCamera.getCamera().setParameters(parameters);
 		}
 	}
 	
-	public void closeFlashMode() {
+	@Override
+	void closeFlashMode() {
 		if (this.openCamera != null) {
 			Camera.Parameters parameters = this.openCamera.getCamera().getParameters();
-			parameters.setFlashMode(Camera.Parameters.FLASH_MODE_OFF);
+			CameraConfigManager.doSetTorch(parameters, false, false);
 			this.openCamera.getCamera().setParameters(parameters);
 		}
 	}
-	// @SuppressWarnings("SuspiciousNameCombination")
-	// Rect getFrameRect(ScanView scanView) {
-	// 	if (this.frameRect != null) {
-	// 		return this.frameRect;
-	// 	}
-	//
-	// 	int measuredWidth = scanView.getMeasuredWidth();
-	// 	int measuredHeight = scanView.getMeasuredHeight();
-	// 	if (measuredWidth == 0 || measuredHeight == 0) {
-	// 		return null;
-	// 	}
-	//
-	// 	int width = (int) (measuredWidth * this.frameWidthRatio);
-	// 	int height = (int) (measuredHeight * this.frameHeightRatio);
-	//
-	// 	if (this.isFrameSquare) {
-	// 		if (width > height) {
-	// 			width = height;
-	// 		} else {
-	// 			height = width;
-	// 		}
-	// 	}
-	//
-	// 	int offsetWidth = (measuredWidth - width) / 2;
-	// 	int offsetHeight = (measuredHeight - height) / 2;
-	// 	this.frameRect = new Rect(offsetWidth, offsetHeight, offsetWidth + width, offsetHeight + height);
-	//
-	// 	return this.frameRect;
-	// }
-	
-	@SuppressWarnings("SuspiciousNameCombination")
-	Rect getFrameRect() {
-		// if (this.frameRect != null) {
-		// 	return this.frameRect;
-		// }
-		//
-		// int measuredWidth = scanView.getMeasuredWidth();
-		// int measuredHeight = scanView.getMeasuredHeight();
-		// if (measuredWidth == 0 || measuredHeight == 0) {
-		// 	return null;
-		// }
-		//
-		// int width = (int) (measuredWidth * this.frameWidthRatio);
-		// int height = (int) (measuredHeight * this.frameHeightRatio);
-		//
-		// if (this.isFrameSquare) {
-		// 	if (width > height) {
-		// 		width = height;
-		// 	} else {
-		// 		height = width;
-		// 	}
-		// }
-		//
-		// int offsetWidth = (measuredWidth - width) / 2;
-		// int offsetHeight = (measuredHeight - height) / 2;
-		// this.frameRect = new Rect(offsetWidth, offsetHeight, offsetWidth + width, offsetHeight + height);
-		
-		return this.frameRect;
-	}
-	
-	void setFrameRect(Rect frameRect) {
-		this.frameRect = frameRect;
-	}
 	
-	Rect getPreviewRect(ScanView scanView, SurfaceView previewView) {
-		if (this.previewFrameRect != null) {
-			return this.previewFrameRect;
+	@Override
+	synchronized float getMaxZoomRatio() {
+		if (this.openCamera == null) {
+			return 1;
+		}
+		try {
+			return CameraConfigManager.getMaxZoomRatio(this.openCamera.getCamera().getParameters());
+		} catch (RuntimeException e) {
+			return 1;
 		}
-		
-		this.previewFrameRect = new Rect();
-		int widthOffset = (previewView.getMeasuredWidth() - scanView.getMeasuredWidth()) / 2;
-		int heightOffset = (previewView.getMeasuredHeight() - scanView.getMeasuredHeight()) / 2;
-		
-		this.previewFrameRect.set(
-				this.frameRect.left + widthOffset,
-				this.frameRect.top + heightOffset,
-				this.frameRect.right + widthOffset,
-				this.frameRect.bottom + heightOffset
-		);
-		return this.previewFrameRect;
 	}
 	
-	synchronized void requestPreviewFrame(DecodeHandler decodeHandler, int decodeMessage) {
-		OpenCamera theOpenCamera = this.openCamera;
-		if (theOpenCamera != null && isPreviewing) {
-			this.decodeHandler = decodeHandler;
-			this.decodeMessage = decodeMessage;
-			theOpenCamera.getCamera().setOneShotPreviewCallback(this);
-		}
-	}
-	
-	@Override
-	public void onPreviewFrame(byte[] data, Camera camera) {
-		Point cameraResolution = this.cameraConfigManager.cameraResolution;
-		Handler theDecodeHandler = this.decodeHandler;
-		if (cameraResolution != null && theDecodeHandler != null) {
-			DecodeHandler.DecodeInfo decodeInfo = new DecodeHandler.DecodeInfo();
-			decodeInfo.rotationAngle = this.cameraConfigManager.cameraRotation;
-			decodeInfo.decodeWidth = cameraResolution.x;
-			decodeInfo.decodeHeight = cameraResolution.y;
-			decodeInfo.decodeData = data;
-			Message message = theDecodeHandler.obtainMessage(this.decodeMessage, decodeInfo);
-			message.sendToTarget();
-			this.decodeHandler = null;
+	@Override
+	synchronized float setZoomRatio(float zoomRatio) {
+		if (this.openCamera == null) {
+			return 1;
+		}
+		Camera theCamera = this.openCamera.getCamera();
+		try {
+			Camera.Parameters parameters = theCamera.getParameters();
+			float appliedRatio = CameraConfigManager.setZoom(parameters, zoomRatio);
+			if (appliedRatio == 0) {
+				return parameters.isZoomSupported() ? parameters.getZoomRatios().get(parameters.getZoom()) / 100F : 1;
+			}
+			theCamera.setParameters(parameters);
+			invalidateDuplicateFrame();
+			return appliedRatio;
+		} catch (RuntimeException e) {
+			return 1;
 		}
 	}
 }
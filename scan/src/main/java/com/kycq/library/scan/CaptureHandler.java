@@ -1,77 +1,438 @@
 package com.kycq.library.scan;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.graphics.Point;
 import android.graphics.Rect;
-import android.os.Bundle;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
 import android.os.Message;
 
 import com.google.zxing.MultiFormatReader;
 import com.google.zxing.Result;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.List;
 
 public class CaptureHandler extends Handler {
-	static final String BARCODE_BITMAP = "barcode_bitmap";
-	static final String BARCODE_SCALED_FACTOR = "barcode_scaled_factor";
-	
 	private static final int DECODE_RESTART = 1;
 	static final int DECODE_SUCCESS = 2;
-	static final int DECODE_FAILURE = 3;
+	static final int DECODE_THUMBNAIL = 3;
+	private static final int DECODE_METRICS = 4;
+	private static final int DECODE_STEP = 5;
+	private static final int DECODE_ZOOM = 6;
+	static final int DECODE_MULTI_SUCCESS = 7;
+	private static final int DECODE_TORCH = 8;
 	
 	private static int STATE_PREVIEW = 1;
 	private static int STATE_SUCCESS = 2;
 	private static int STATE_DONE = 3;
 	
 	private ScanView scanView;
-	private CameraManager cameraManager;
+	private FrameSource frameSource;
 	
-	private final InitLatchThread initLatchThread;
+	private final HandlerThread[] decodeThreads;
+	private final DecodeHandler[] decodeHandlers;
+	private final DecodeDispatcher decodeDispatcher;
 	private int state;
 	
-	CaptureHandler(ScanView scanView, CameraManager cameraManager) {
+	private final boolean isBarcodeThumbnailEnabled;
+	private Bitmap thumbnailBitmap;
+	
+	private final FrameQualityGate frameQualityGate;
+	private final DuplicateFrameFilter duplicateFrameFilter;
+	private final ScanStatistics scanStatistics;
+	/** 未启用时为 null */
+	private final BinarizerSelector binarizerSelector;
+	private final ScanMetrics scanMetrics;
+	private final ScanView.OnScanMetricsListener onScanMetricsListener;
+	private final long metricsInterval;
+	/** 识别成功的帧的分发时间与成功时间，System.nanoTime */
+	private volatile long successReceiveTime;
+	private volatile long successTime;
+	
+	private final PreviewSizePolicy previewSizePolicy;
+	private final boolean isPreviewSizeStepEnabled;
+	private final int bufferCount;
+	private final Object stepLock = new Object();
+	private int stepDecodeCount;
+	private int stepSuccessCount;
+	private long stepDecodeTime;
+	
+	private final ZoomController zoomController;
+	private final boolean isZoomEnabled;
+	/** 未启用时为 null */
+	private final RoiTracker roiTracker;
+	/** 相机不支持时为 null */
+	private final FocusController focusController;
+	private final TorchController torchController;
+	private final StartupTimings startupTimings;
+	
+	private final MultiDecodePolicy multiDecodePolicy;
+	private final MultiResultAccumulator multiResultAccumulator;
+	
+	/** 连续扫描时不为 null */
+	private final ResultDeduplicator resultDeduplicator;
+	
+	/**
+	 * @param decodeThreads 已启动的解码线程，退出时一并结束
+	 */
+	CaptureHandler(ScanView scanView, FrameSource frameSource, HandlerThread[] decodeThreads) {
 		this.scanView = scanView;
-		this.cameraManager = cameraManager;
+		this.frameSource = frameSource;
+		ContinuousScanPolicy continuousScanPolicy = scanView.getContinuousScanPolicy();
+		this.resultDeduplicator = continuousScanPolicy.isEnabled()
+				? new ResultDeduplicator(continuousScanPolicy.getDedupTtl(), continuousScanPolicy.getDedupCapacity())
+				: null;
+		// 连续扫描不停留在成功状态，不显示缩略图
+		this.isBarcodeThumbnailEnabled = scanView.isBarcodeThumbnailEnabled() && this.resultDeduplicator == null;
+		this.frameQualityGate = scanView.getFrameQualityGate();
+		this.duplicateFrameFilter = scanView.getDuplicateFrameFilter();
+		this.scanStatistics = scanView.getScanStatistics();
+		this.binarizerSelector = scanView.isAdaptiveBinarizerEnabled() ? new BinarizerSelector() : null;
+		this.scanMetrics = scanView.getScanMetrics();
+		this.onScanMetricsListener = scanView.getOnScanMetricsListener();
+		this.metricsInterval = scanView.getScanMetricsInterval();
+		this.previewSizePolicy = scanView.getPreviewSizePolicy();
+		this.isPreviewSizeStepEnabled = this.previewSizePolicy.isStepEnabled()
+				&& this.previewSizePolicy.getMode() == PreviewSizePolicy.MODE_ADAPTIVE
+				&& scanView.getCameraDriver().isCameraResolutionChangeable();
+		this.zoomController = scanView.getZoomController();
+		float maxZoomRatio = scanView.getCameraDriver().getMaxZoomRatio();
+		this.isZoomEnabled = this.zoomController.isEnabled() && maxZoomRatio > 1;
+		this.zoomController.reset(maxZoomRatio);
+		this.roiTracker = scanView.isRoiTrackingEnabled() ? new RoiTracker() : null;
+		this.focusController = scanView.getCameraDriver().getFocusController();
+		this.torchController = scanView.getTorchController();
+		this.torchController.reset(scanView.isOpenFlashMode());
+		this.torchController.setOnTorchRequestListener(new TorchController.OnTorchRequestListener() {
+			@Override
+			public void torchRequested(boolean torchOn) {
+				obtainMessage(DECODE_TORCH, torchOn).sendToTarget();
+			}
+		});
+		this.multiDecodePolicy = scanView.getMultiDecodePolicy();
+		this.multiResultAccumulator = this.multiDecodePolicy.isEnabled()
+				? new MultiResultAccumulator(this.multiDecodePolicy.getMaxResultCount(),
+				this.multiDecodePolicy.getSettleFrameCount())
+				: null;
 		
-		this.initLatchThread = new InitLatchThread(this.scanView.getMultiFormatReader());
-		this.initLatchThread.start();
+		this.decodeDispatcher = new DecodeDispatcher(this.frameSource, this.scanStatistics, this.scanMetrics);
+		this.startupTimings = scanView.getStartupTimings();
+		this.decodeThreads = decodeThreads;
+		int decodeWorkerCount = decodeThreads.length;
+		this.decodeHandlers = new DecodeHandler[decodeWorkerCount];
+		for (int index = 0; index < decodeWorkerCount; index++) {
+			ZoomController.PointCollector pointCollector = null;
+			MultiFormatReader multiFormatReader;
+			if (this.isZoomEnabled || this.roiTracker != null) {
+				pointCollector = new ZoomController.PointCollector();
+				multiFormatReader = this.scanView.createMultiFormatReader(pointCollector);
+			} else {
+				multiFormatReader = this.scanView.createMultiFormatReader();
+			}
+			// 解码线程随相机打开提前启动，消息队列通常已就绪
+			this.decodeHandlers[index] = new DecodeHandler(decodeThreads[index].getLooper(),
+					this, multiFormatReader, pointCollector);
+			this.decodeDispatcher.workerIdle(this.decodeHandlers[index]);
+		}
 		this.state = STATE_SUCCESS;
 		
-		this.cameraManager.startPreview();
+		// 解码中的帧、等待中的帧、相机填充中的帧
+		this.bufferCount = decodeWorkerCount + 2;
+		this.frameSource.start(this.decodeDispatcher, this.bufferCount);
 		restartPreviewAndDecode();
+		if (this.onScanMetricsListener != null) {
+			sendEmptyMessageDelayed(DECODE_METRICS, this.metricsInterval);
+		}
 	}
 	
 	void restartPreviewAndDecode() {
+		if (this.resultDeduplicator != null) {
+			this.resultDeduplicator.clear();
+		}
 		if (this.state == STATE_SUCCESS) {
+			if (this.roiTracker != null) {
+				this.roiTracker.reset();
+			}
 			this.state = STATE_PREVIEW;
-			this.cameraManager.requestPreviewFrame(
-					this.initLatchThread.getDecodeHandler(),
-					DecodeHandler.DECODE
-			);
+			this.duplicateFrameFilter.invalidate();
+			if (this.multiResultAccumulator != null) {
+				this.multiResultAccumulator.reset();
+			}
+			this.decodeDispatcher.setActive(true);
 			this.scanView.restartFinder();
 		}
 	}
 	
 	void quitSynchronously() {
 		this.state = STATE_DONE;
-		this.cameraManager.stopPreview();
-		Message quit = Message.obtain(this.initLatchThread.getDecodeHandler(), DecodeHandler.QUIT);
-		quit.sendToTarget();
-		try {
-			this.initLatchThread.join(500L);
-		} catch (InterruptedException ignored) {
+		this.torchController.setOnTorchRequestListener(null);
+		this.decodeDispatcher.setActive(false);
+		this.frameSource.stop();
+		for (DecodeHandler decodeHandler : this.decodeHandlers) {
+			Message quit = Message.obtain(decodeHandler, DecodeHandler.QUIT);
+			quit.sendToTarget();
+		}
+		for (HandlerThread decodeThread : this.decodeThreads) {
+			try {
+				decodeThread.join(500L);
+			} catch (InterruptedException ignored) {
+			}
 		}
 		
 		removeMessages(DECODE_SUCCESS);
-		removeMessages(DECODE_FAILURE);
+		removeMessages(DECODE_MULTI_SUCCESS);
+		removeMessages(DECODE_THUMBNAIL);
+		removeMessages(DECODE_METRICS);
+		removeMessages(DECODE_STEP);
+		removeMessages(DECODE_ZOOM);
+		removeMessages(DECODE_TORCH);
 	}
 	
 	Rect getPreviewRect() {
 		return this.scanView.getPreviewRect();
 	}
 	
+	FrameSource getFrameSource() {
+		return this.frameSource;
+	}
+	
+	FrameQualityGate getFrameQualityGate() {
+		return this.frameQualityGate;
+	}
+	
+	DuplicateFrameFilter getDuplicateFrameFilter() {
+		return this.duplicateFrameFilter;
+	}
+	
+	ScanStatistics getScanStatistics() {
+		return this.scanStatistics;
+	}
+	
+	BinarizerSelector getBinarizerSelector() {
+		return this.binarizerSelector;
+	}
+	
+	FocusController getFocusController() {
+		return this.focusController;
+	}
+	
+	StartupTimings getStartupTimings() {
+		return this.startupTimings;
+	}
+	
+	TorchController getTorchController() {
+		return this.torchController;
+	}
+	
+	RoiTracker getRoiTracker() {
+		return this.roiTracker;
+	}
+	
+	boolean isZoomEnabled() {
+		return this.isZoomEnabled;
+	}
+	
+	ScanMetrics getScanMetrics() {
+		return this.scanMetrics;
+	}
+	
+	boolean isPreviewSizeStepEnabled() {
+		return this.isPreviewSizeStepEnabled;
+	}
+	
+	/**
+	 * 记录一次识别的耗时，每 stepWindow 次在主线程判断是否调整预览尺寸
+	 *
+	 * @param decodeTime 耗时，纳秒
+	 * @param isSuccess  是否识别成功
+	 */
+	void decodeMeasured(long decodeTime, boolean isSuccess) {
+		float[] measurement;
+		synchronized (this.stepLock) {
+			this.stepDecodeCount++;
+			if (isSuccess) {
+				this.stepSuccessCount++;
+			}
+			this.stepDecodeTime += decodeTime;
+			if (this.stepDecodeCount < this.previewSizePolicy.getStepWindow()) {
+				return;
+			}
+			measurement = new float[]{
+					this.stepDecodeTime / 1000000F / this.stepDecodeCount,
+					(float) this.stepSuccessCount / this.stepDecodeCount};
+			this.stepDecodeCount = 0;
+			this.stepSuccessCount = 0;
+			this.stepDecodeTime = 0;
+		}
+		obtainMessage(DECODE_STEP, measurement).sendToTarget();
+	}
+	
+	/**
+	 * 按实测结果调整预览尺寸，需要重新开始预览
+	 *
+	 * @param measurement {平均耗时毫秒, 成功比例}
+	 */
+	private void stepPreviewSize(float[] measurement) {
+		CameraDriver cameraDriver = this.scanView.getCameraDriver();
+		List<Point> supportedSizes = cameraDriver.getSupportedPreviewSizes();
+		Point cameraResolution = cameraDriver.getCameraResolution();
+		if (supportedSizes == null || cameraResolution == null) {
+			return;
+		}
+		int[] nextSize = this.previewSizePolicy.stepPreviewSize(CameraConfigManager.toSizes(supportedSizes),
+				cameraResolution.x, cameraResolution.y, measurement[0], measurement[1]);
+		if (nextSize == null || (nextSize[0] == cameraResolution.x && nextSize[1] == cameraResolution.y)) {
+			return;
+		}
+		this.frameSource.stop();
+		cameraDriver.setCameraResolution(new Point(nextSize[0], nextSize[1]));
+		this.frameSource.start(this.decodeDispatcher, this.bufferCount);
+		// 预览控件按新的宽高比重新布局
+		this.scanView.requestLayout();
+	}
+	
+	/**
+	 * 识别失败且找到定位点时判断是否变焦，在主线程应用
+	 *
+	 * @param pointCollector 定位点
+	 * @param width          扫描区域宽度
+	 * @param height         扫描区域高度
+	 */
+	void zoomMeasured(ZoomController.PointCollector pointCollector, int width, int height) {
+		float zoomRatio = this.zoomController.frameFailed(pointCollector, width, height, System.currentTimeMillis());
+		if (zoomRatio != 0) {
+			obtainMessage(DECODE_ZOOM, zoomRatio).sendToTarget();
+		}
+	}
+	
+	/**
+	 * 识别成功后恢复为不变焦
+	 */
+	private void resetZoom() {
+		removeMessages(DECODE_ZOOM);
+		if (this.zoomController.getZoomRatio() != 1) {
+			CameraDriver cameraDriver = this.scanView.getCameraDriver();
+			cameraDriver.setZoomRatio(1);
+			this.zoomController.reset(cameraDriver.getMaxZoomRatio());
+			resetRoiTracker();
+		}
+	}
+	
+	/**
+	 * 变焦后画面位置变化，不再沿用跟踪的条码位置
+	 */
+	private void resetRoiTracker() {
+		if (this.roiTracker != null) {
+			this.roiTracker.reset();
+		}
+	}
+	
+	/**
+	 * 为解码线程创建多码识别
+	 *
+	 * @param multiFormatReader 解码线程的解码器
+	 * @return 未启用多码识别时为 null
+	 */
+	MultiDecoder createMultiDecoder(MultiFormatReader multiFormatReader) {
+		return this.multiResultAccumulator == null ? null : this.scanView.createMultiDecoder(multiFormatReader);
+	}
+	
+	MultiDecodePolicy getMultiDecodePolicy() {
+		return this.multiDecodePolicy;
+	}
+	
+	/**
+	 * 累积一帧的多码识别结果
+	 *
+	 * @param results 该帧识别到的条码
+	 * @return 可以回调时返回全部结果，否则为 null
+	 */
+	List<Result> multiDecoded(List<Result> results) {
+		return this.multiResultAccumulator.frameDecoded(results);
+	}
+	
+	boolean isBarcodeThumbnailEnabled() {
+		return this.isBarcodeThumbnailEnabled;
+	}
+	
+	/**
+	 * 获取缩略图位图，尺寸一致时复用上一次的位图
+	 *
+	 * @param width  宽度
+	 * @param height 高度
+	 * @return 可写入的位图
+	 */
+	synchronized Bitmap obtainThumbnailBitmap(int width, int height) {
+		Bitmap bitmap = this.thumbnailBitmap;
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+				|| bitmap.getWidth() != width || bitmap.getHeight() != height) {
+			bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			this.thumbnailBitmap = bitmap;
+		}
+		return bitmap;
+	}
+	
+	boolean isContinuous() {
+		return this.resultDeduplicator != null;
+	}
+	
+	/**
+	 * 连续扫描时判断结果是否在有效期内已回调
+	 *
+	 * @param rawResult 识别结果
+	 * @return 需要回调时返回原结果，否则为 null
+	 */
+	Result filterContinuous(Result rawResult) {
+		return this.resultDeduplicator.accept(MultiDecoder.resultKey(rawResult), System.currentTimeMillis())
+				? rawResult : null;
+	}
+	
+	/**
+	 * 连续扫描时去掉有效期内已回调的结果
+	 *
+	 * @param results 多码识别结果
+	 * @return 需要回调的结果，全部已回调时为 null
+	 */
+	List<Result> filterContinuous(List<Result> results) {
+		long now = System.currentTimeMillis();
+		List<Result> newResults = new ArrayList<>(results.size());
+		for (Result result : results) {
+			if (this.resultDeduplicator.accept(MultiDecoder.resultKey(result), now)) {
+				newResults.add(result);
+			}
+		}
+		return newResults.isEmpty() ? null : newResults;
+	}
+	
+	/**
+	 * 解码成功，暂停分发预览帧；连续扫描时继续分发
+	 *
+	 * @param receiveTime 成功的帧的分发时间，未统计耗时为 0
+	 * @return false 其他解码线程已先行成功
+	 */
+	boolean decodeSucceeded(long receiveTime) {
+		if (this.resultDeduplicator == null && !this.decodeDispatcher.deactivate()) {
+			return false;
+		}
+		if (this.scanMetrics.isEnabled()) {
+			this.successReceiveTime = receiveTime;
+			this.successTime = System.nanoTime();
+		} else {
+			this.successTime = 0;
+		}
+		return true;
+	}
+	
+	/**
+	 * 解码线程空闲，领取下一帧
+	 *
+	 * @param decodeHandler 解码线程
+	 */
+	void decodeFinished(DecodeHandler decodeHandler) {
+		this.decodeDispatcher.workerIdle(decodeHandler);
+	}
+	
 	@Override
 	public void handleMessage(Message message) {
 		switch (message.what) {
@@ -79,58 +440,67 @@ public class CaptureHandler extends Handler {
 				restartPreviewAndDecode();
 				break;
 			case DECODE_SUCCESS:
-				this.state = STATE_SUCCESS;
-				Bundle bundle = message.getData();
-				Bitmap barcodeBitmap = null;
-				float scaleFactor = 1.0f;
-				if (bundle != null) {
-					byte[] compressedBitmap = bundle.getByteArray(BARCODE_BITMAP);
-					if (compressedBitmap != null) {
-						barcodeBitmap = BitmapFactory.decodeByteArray(compressedBitmap, 0, compressedBitmap.length, null);
-						barcodeBitmap = barcodeBitmap.copy(Bitmap.Config.ARGB_8888, true);
-					}
-					scaleFactor = bundle.getFloat(BARCODE_SCALED_FACTOR);
+			case DECODE_MULTI_SUCCESS:
+				if (this.state != STATE_PREVIEW) {
+					// 其他解码线程已先行成功
+					break;
+				}
+				if (this.resultDeduplicator == null) {
+					this.state = STATE_SUCCESS;
+				}
+				this.startupTimings.recordSinceStart(StartupTimings.PHASE_FIRST_RESULT);
+				if (this.successTime != 0 && this.scanMetrics.isEnabled()) {
+					long deliveryTime = System.nanoTime();
+					this.scanMetrics.record(ScanMetrics.STAGE_DELIVERY, this.successTime, deliveryTime);
+					this.scanMetrics.record(ScanMetrics.STAGE_TOTAL, this.successReceiveTime, deliveryTime);
+				}
+				if (this.isZoomEnabled) {
+					resetZoom();
+				}
+				if (message.what == DECODE_MULTI_SUCCESS) {
+					this.scanView.decodeMultiSuccess(resultTexts((List<?>) message.obj));
+				} else {
+					this.scanView.decodeSuccess(((Result) message.obj).getText());
 				}
-				this.scanView.decodeSuccess(((Result) message.obj).getText(), barcodeBitmap, scaleFactor);
 				break;
-			case DECODE_FAILURE:
-				this.state = STATE_PREVIEW;
-				this.cameraManager.requestPreviewFrame(
-						this.initLatchThread.getDecodeHandler(),
-						DecodeHandler.DECODE
-				);
+			case DECODE_THUMBNAIL:
+				if (this.state == STATE_SUCCESS) {
+					this.scanView.decodeThumbnail((Bitmap) message.obj);
+				}
+				break;
+			case DECODE_STEP:
+				if (this.state == STATE_PREVIEW) {
+					stepPreviewSize((float[]) message.obj);
+				}
+				break;
+			case DECODE_ZOOM:
+				if (this.state == STATE_PREVIEW) {
+					float zoomRatio = this.scanView.getCameraDriver().setZoomRatio((Float) message.obj);
+					this.zoomController.zoomApplied(zoomRatio);
+					resetRoiTracker();
+				}
+				break;
+			case DECODE_TORCH:
+				if (this.state != STATE_DONE && this.torchController.isEnabled()) {
+					boolean torchOn = (Boolean) message.obj;
+					this.scanView.setTorch(torchOn);
+					this.torchController.torchApplied(torchOn, System.currentTimeMillis());
+				}
+				break;
+			case DECODE_METRICS:
+				if (this.state != STATE_DONE) {
+					this.onScanMetricsListener.scanMetrics(this.scanMetrics);
+					sendEmptyMessageDelayed(DECODE_METRICS, this.metricsInterval);
+				}
 				break;
 		}
 	}
 	
-	/**
-	 * 初始化异步线程消息队列
-	 */
-	private class InitLatchThread extends Thread {
-		private final CountDownLatch handlerInitLatch;
-		
-		private MultiFormatReader multiFormatReader;
-		private DecodeHandler decodeHandler;
-		
-		InitLatchThread(MultiFormatReader multiFormatReader) {
-			this.handlerInitLatch = new CountDownLatch(1);
-			this.multiFormatReader = multiFormatReader;
-		}
-		
-		DecodeHandler getDecodeHandler() {
-			try {
-				this.handlerInitLatch.await();
-			} catch (InterruptedException ignored) {
-			}
-			return this.decodeHandler;
-		}
-		
-		@Override
-		public void run() {
-			Looper.prepare();
-			this.decodeHandler = new DecodeHandler(CaptureHandler.this, this.multiFormatReader);
-			this.handlerInitLatch.countDown();
-			Looper.loop();
+	private static List<String> resultTexts(List<?> results) {
+		List<String> texts = new ArrayList<>(results.size());
+		for (Object result : results) {
+			texts.add(((Result) result).getText());
 		}
+		return texts;
 	}
 }
@@ -0,0 +1,58 @@
+package com.kycq.library.scan;
+
+/**
+ * 连续扫描策略，默认关闭
+ * <p>
+ * 启用后识别成功不暂停解码，相机与解码线程保持运行；同一格式与内容的结果在有效期内只回调一次，
+ * 有效期从最近一次识别到该结果起计算，保存的结果数量不超过容量。
+ */
+public class ContinuousScanPolicy {
+	private boolean isEnabled;
+	private long dedupTtl = 3000;
+	private int dedupCapacity = 256;
+	
+	public synchronized boolean isEnabled() {
+		return this.isEnabled;
+	}
+	
+	/**
+	 * 设置是否连续扫描，下次启动扫描时生效
+	 *
+	 * @param enabled true 启用
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.isEnabled = enabled;
+	}
+	
+	public synchronized long getDedupTtl() {
+		return this.dedupTtl;
+	}
+	
+	/**
+	 * 设置重复结果的抑制时间
+	 *
+	 * @param dedupTtl 毫秒
+	 */
+	public synchronized void setDedupTtl(long dedupTtl) {
+		if (dedupTtl <= 0) {
+			throw new IllegalArgumentException("dedupTtl must be positive: " + dedupTtl);
+		}
+		this.dedupTtl = dedupTtl;
+	}
+	
+	public synchronized int getDedupCapacity() {
+		return this.dedupCapacity;
+	}
+	
+	/**
+	 * 设置保存的最大结果数量，超出时丢弃最久未识别到的结果
+	 *
+	 * @param dedupCapacity 不小于 1
+	 */
+	public synchronized void setDedupCapacity(int dedupCapacity) {
+		if (dedupCapacity < 1) {
+			throw new IllegalArgumentException("dedupCapacity must be positive: " + dedupCapacity);
+		}
+		this.dedupCapacity = dedupCapacity;
+	}
+}
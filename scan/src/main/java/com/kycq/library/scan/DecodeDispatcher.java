@@ -0,0 +1,105 @@
+package com.kycq.library.scan;
+
+import java.util.ArrayDeque;
+
+/**
+ * 预览帧分发
+ * <p>
+ * 空闲的解码线程直接领取新帧；全部繁忙时只保留最新的一帧，旧帧立即归还帧来源。
+ */
+class DecodeDispatcher implements FrameSource.FrameCallback {
+	private final FrameSource frameSource;
+	private final ScanStatistics scanStatistics;
+	private final ScanMetrics scanMetrics;
+	private final ArrayDeque<DecodeWorker> idleWorkers = new ArrayDeque<>();
+	
+	private PreviewFrame pendingFrame;
+	private boolean isActive;
+	
+	DecodeDispatcher(FrameSource frameSource, ScanStatistics scanStatistics, ScanMetrics scanMetrics) {
+		this.frameSource = frameSource;
+		this.scanStatistics = scanStatistics;
+		this.scanMetrics = scanMetrics;
+	}
+	
+	synchronized boolean isActive() {
+		return this.isActive;
+	}
+	
+	/**
+	 * 开始或暂停分发，暂停时丢弃等待中的帧
+	 *
+	 * @param active true 开始分发
+	 */
+	synchronized void setActive(boolean active) {
+		this.isActive = active;
+		if (!active && this.pendingFrame != null) {
+			this.frameSource.releaseFrame(this.pendingFrame);
+			this.pendingFrame = null;
+		}
+	}
+	
+	/**
+	 * 暂停分发
+	 *
+	 * @return true 本次调用使分发由开始变为暂停
+	 */
+	synchronized boolean deactivate() {
+		boolean wasActive = this.isActive;
+		setActive(false);
+		return wasActive;
+	}
+	
+	/**
+	 * 分发预览帧
+	 *
+	 * @param previewFrame 预览帧
+	 */
+	@Override
+	public synchronized void onFrame(PreviewFrame previewFrame) {
+		if (!this.isActive) {
+			this.frameSource.releaseFrame(previewFrame);
+			return;
+		}
+		this.scanStatistics.frameReceived();
+		if (this.scanMetrics.isEnabled()) {
+			this.scanMetrics.frameReceived();
+			previewFrame.receiveTime = System.nanoTime();
+		} else {
+			previewFrame.receiveTime = 0;
+		}
+		DecodeWorker decodeWorker = this.idleWorkers.poll();
+		if (decodeWorker != null) {
+			decodeWorker.decode(previewFrame);
+			return;
+		}
+		// 解码线程全部繁忙，以最新帧替换等待中的旧帧
+		if (this.pendingFrame != null) {
+			this.frameSource.releaseFrame(this.pendingFrame);
+			this.scanStatistics.frameDropped();
+		}
+		this.pendingFrame = previewFrame;
+	}
+	
+	/**
+	 * 解码线程空闲，有等待中的帧则立即领取
+	 *
+	 * @param decodeWorker 解码线程
+	 */
+	synchronized void workerIdle(DecodeWorker decodeWorker) {
+		PreviewFrame previewFrame = this.pendingFrame;
+		if (this.isActive && previewFrame != null) {
+			this.pendingFrame = null;
+			decodeWorker.decode(previewFrame);
+		} else {
+			this.idleWorkers.offer(decodeWorker);
+		}
+	}
+	
+	/**
+	 * 解码线程，decode 只投递任务，不在调用线程上解码
+	 */
+	interface DecodeWorker {
+		void decode(PreviewFrame previewFrame);
+	}
+}
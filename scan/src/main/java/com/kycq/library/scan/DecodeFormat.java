@@ -1,7 +1,10 @@
 package com.kycq.library.scan;
 
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
 
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
@@ -50,4 +53,25 @@ class DecodeFormat {
 	
 	private DecodeFormat() {
 	}
+	
+	/**
+	 * 扫描使用的解码参数，支持全部一维码与二维码格式
+	 *
+	 * @return 解码参数
+	 */
+	static Map<DecodeHintType, Object> createDecodeHints() {
+		Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+		Collection<BarcodeFormat> decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
+		decodeFormats.addAll(PRODUCT_FORMATS);
+		decodeFormats.addAll(INDUSTRIAL_FORMATS);
+		decodeFormats.addAll(QR_CODE_FORMATS);
+		decodeFormats.addAll(DATA_MATRIX_FORMATS);
+		decodeFormats.addAll(AZTEC_FORMATS);
+		decodeFormats.addAll(PDF417_FORMATS);
+		hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
+		//if (characterSet != null) {
+		//	hints.put(DecodeHintType.CHARACTER_SET, characterSet);
+		//}
+		return hints;
+	}
 }
@@ -2,31 +2,57 @@ package com.kycq.library.scan;
 
 import android.graphics.Bitmap;
 import android.graphics.Rect;
-import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 
-import com.google.zxing.BinaryBitmap;
 import com.google.zxing.MultiFormatReader;
 import com.google.zxing.PlanarYUVLuminanceSource;
-import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 
-import java.io.ByteArrayOutputStream;
+import java.util.List;
 
-class DecodeHandler extends Handler {
+class DecodeHandler extends Handler implements DecodeDispatcher.DecodeWorker {
 	static final int DECODE = 1;
 	static final int QUIT = 2;
 	
 	private CaptureHandler captureHandler;
-	private MultiFormatReader multiFormatReader;
+	private FrameDecoder frameDecoder;
+	/** 启用自动变焦或位置跟踪时收集定位点，否则为 null */
+	private ZoomController.PointCollector pointCollector;
+	private boolean isZoomEnabled;
 	private boolean isRunning = true;
+	private boolean isMultiDecodeEnabled;
 	
-	DecodeHandler(CaptureHandler captureHandler, MultiFormatReader multiFormatReader) {
+	private int[] thumbnailPixels;
+	
+	DecodeHandler(Looper looper, CaptureHandler captureHandler, MultiFormatReader multiFormatReader,
+	              ZoomController.PointCollector pointCollector) {
+		super(looper);
 		this.captureHandler = captureHandler;
-		this.multiFormatReader = multiFormatReader;
+		this.pointCollector = pointCollector;
+		this.isZoomEnabled = captureHandler.isZoomEnabled();
+		this.frameDecoder = new FrameDecoder(multiFormatReader,
+				captureHandler.getFrameQualityGate(), captureHandler.getDuplicateFrameFilter(),
+				captureHandler.getScanStatistics(), captureHandler.getScanMetrics(),
+				captureHandler.getFrameSource());
+		this.frameDecoder.setBinarizerSelector(captureHandler.getBinarizerSelector());
+		this.frameDecoder.setFocusController(captureHandler.getFocusController());
+		this.frameDecoder.setTorchController(captureHandler.getTorchController());
+		RoiTracker roiTracker = captureHandler.getRoiTracker();
+		if (roiTracker != null) {
+			this.frameDecoder.setRoiTracker(roiTracker, pointCollector);
+		}
+		MultiDecoder multiDecoder = captureHandler.createMultiDecoder(multiFormatReader);
+		if (multiDecoder != null) {
+			this.frameDecoder.setMultiDecoder(multiDecoder, captureHandler.getMultiDecodePolicy());
+			this.isMultiDecodeEnabled = true;
+		}
+	}
+	
+	@Override
+	public void decode(PreviewFrame previewFrame) {
+		obtainMessage(DECODE, previewFrame).sendToTarget();
 	}
 	
 	@Override
@@ -36,9 +62,8 @@ class DecodeHandler extends Handler {
 		}
 		switch (message.what) {
 			case DECODE:
-				DecodeInfo decodeInfo = (DecodeInfo) message.obj;
-				rotateData(decodeInfo);
-				decode(decodeInfo);
+				PreviewFrame previewFrame = (PreviewFrame) message.obj;
+				decodeFrame(previewFrame);
 				break;
 			case QUIT:
 				isRunning = false;
@@ -50,107 +75,89 @@ class DecodeHandler extends Handler {
 		}
 	}
 	
-	@SuppressWarnings("SuspiciousNameCombination")
-	private void rotateData(DecodeInfo decodeInfo) {
-		byte[] resultData = new byte[decodeInfo.decodeData.length];
-		switch (decodeInfo.rotationAngle) {
-			case 90: {
-				for (int y = 0; y < decodeInfo.decodeHeight; y++) {
-					for (int x = 0; x < decodeInfo.decodeWidth; x++) {
-						resultData[x * decodeInfo.decodeHeight + decodeInfo.decodeHeight - y - 1]
-								= decodeInfo.decodeData[x + y * decodeInfo.decodeWidth];
-					}
-				}
-				int tempSize = decodeInfo.decodeWidth;
-				decodeInfo.decodeWidth = decodeInfo.decodeHeight;
-				decodeInfo.decodeHeight = tempSize;
-				break;
-			}
-			case 180: {
-				int length = decodeInfo.decodeWidth * decodeInfo.decodeHeight;
-				for (int index = 0; index < length; index++) {
-					resultData[index] = decodeInfo.decodeData[length - index - 1];
-				}
-				break;
+	private void decodeFrame(PreviewFrame previewFrame) {
+		this.captureHandler.getStartupTimings().recordSinceStart(StartupTimings.PHASE_FIRST_FRAME);
+		Result rawResult;
+		Rect rect = this.captureHandler.getPreviewRect();
+		if (rect == null) {
+			this.captureHandler.getFrameSource().releaseFrame(previewFrame);
+			rawResult = null;
+		} else {
+			long startTime = this.captureHandler.isPreviewSizeStepEnabled() ? System.nanoTime() : 0;
+			if (this.pointCollector != null) {
+				this.pointCollector.reset();
 			}
-			case 270: {
-				for (int y = 0; y < decodeInfo.decodeHeight; y++) {
-					for (int x = 0; x < decodeInfo.decodeWidth; x++) {
-						resultData[(decodeInfo.decodeWidth - x - 1) * decodeInfo.decodeHeight + y]
-								= decodeInfo.decodeData[x + y * decodeInfo.decodeWidth];
-					}
-				}
-				int tempSize = decodeInfo.decodeWidth;
-				decodeInfo.decodeWidth = decodeInfo.decodeHeight;
-				decodeInfo.decodeHeight = tempSize;
-				break;
+			rawResult = this.frameDecoder.decode(previewFrame, rect.left, rect.top, rect.right, rect.bottom);
+			// 只统计实际识别的帧
+			PlanarYUVLuminanceSource source = this.frameDecoder.getLuminanceSource();
+			if (startTime != 0 && source != null) {
+				this.captureHandler.decodeMeasured(System.nanoTime() - startTime, rawResult != null);
 			}
-		}
-		decodeInfo.decodeData = resultData;
-	}
-	
-	private void decode(DecodeInfo decodeInfo) {
-		Result rawResult = null;
-		PlanarYUVLuminanceSource source = buildLuminanceSource(decodeInfo.decodeData,
-				decodeInfo.decodeWidth, decodeInfo.decodeHeight);
-		if (source != null) {
-			BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-			try {
-				rawResult = this.multiFormatReader.decodeWithState(bitmap);
-			} catch (ReaderException ignored) {
-			} finally {
-				this.multiFormatReader.reset();
+			if (this.isZoomEnabled && rawResult == null && source != null) {
+				this.captureHandler.zoomMeasured(this.pointCollector, source.getWidth(), source.getHeight());
 			}
 		}
 		
-		if (this.captureHandler == null) {
-			return;
-		}
-		
-		if (rawResult != null) {
-			Message message = Message.obtain(captureHandler, CaptureHandler.DECODE_SUCCESS, rawResult);
-			Bundle bundle = new Bundle();
-			bundleThumbnail(source, bundle);
-			message.setData(bundle);
-			message.sendToTarget();
+		Object successResult;
+		int successMessage;
+		if (this.isMultiDecodeEnabled) {
+			// 结果跨帧累积，稳定后一次回调
+			List<Result> results = rect == null || this.frameDecoder.getLuminanceSource() == null
+					? null : this.captureHandler.multiDecoded(this.frameDecoder.getResults());
+			if (results != null && this.captureHandler.isContinuous()) {
+				results = this.captureHandler.filterContinuous(results);
+			}
+			successResult = results;
+			successMessage = CaptureHandler.DECODE_MULTI_SUCCESS;
 		} else {
-			Message message = Message.obtain(captureHandler, CaptureHandler.DECODE_FAILURE);
-			message.sendToTarget();
-		}
-	}
-	
-	private PlanarYUVLuminanceSource buildLuminanceSource(byte[] data, int dataWidth, int dataHeight) {
-		Rect rect = this.captureHandler.getPreviewRect();
-		if (rect == null) {
-			return null;
+			if (rawResult != null && this.captureHandler.isContinuous()) {
+				rawResult = this.captureHandler.filterContinuous(rawResult);
+			}
+			successResult = rawResult;
+			successMessage = CaptureHandler.DECODE_SUCCESS;
 		}
-		if (rect.left + rect.width() <= dataWidth && rect.top + rect.height() <= dataHeight) {
-			return new PlanarYUVLuminanceSource(
-					data, dataWidth, dataHeight,
-					rect.left, rect.top, rect.width(), rect.height(), false);
-		} else if (rect.left + rect.width() <= dataHeight && rect.top + rect.height() <= dataWidth) {
-			return new PlanarYUVLuminanceSource(
-					data, dataHeight, dataWidth,
-					rect.left, rect.top, rect.width(), rect.height(), false);
+		if (successResult != null && this.captureHandler.decodeSucceeded(this.frameDecoder.getReceiveTime())) {
+			Message message = Message.obtain(captureHandler, successMessage, successResult);
+			message.sendToTarget();
+			// 结果送达后再生成缩略图，不占用解码到回调之间的时间
+			if (this.captureHandler.isBarcodeThumbnailEnabled()) {
+				Bitmap thumbnail = renderThumbnail(this.frameDecoder.getLuminanceSource());
+				Message thumbnailMessage = Message.obtain(captureHandler, CaptureHandler.DECODE_THUMBNAIL, thumbnail);
+				thumbnailMessage.sendToTarget();
+			}
 		}
-		return null;
+		this.captureHandler.decodeFinished(this);
 	}
 	
-	private static void bundleThumbnail(PlanarYUVLuminanceSource source, Bundle bundle) {
-		int[] pixels = source.renderThumbnail();
+	/**
+	 * 按 1/2 缩放直接生成 ARGB 缩略图，复用像素数组与位图
+	 *
+	 * @param source 扫描区域亮度数据
+	 * @return 缩略图
+	 */
+	private Bitmap renderThumbnail(PlanarYUVLuminanceSource source) {
+		int sourceWidth = source.getWidth();
 		int width = source.getThumbnailWidth();
 		int height = source.getThumbnailHeight();
-		Bitmap bitmap = Bitmap.createBitmap(pixels, 0, width, width, height, Bitmap.Config.ARGB_8888);
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		bitmap.compress(Bitmap.CompressFormat.JPEG, 50, out);
-		bundle.putByteArray(CaptureHandler.BARCODE_BITMAP, out.toByteArray());
-		bundle.putFloat(CaptureHandler.BARCODE_SCALED_FACTOR, (float) width / source.getWidth());
-	}
-	
-	static class DecodeInfo {
-		int rotationAngle;
-		int decodeWidth;
-		int decodeHeight;
-		byte[] decodeData;
+		// 扫描区域为完整的截取数据，getMatrix 直接返回原数组
+		byte[] matrix = source.getMatrix();
+		
+		int[] pixels = this.thumbnailPixels;
+		if (pixels == null || pixels.length < width * height) {
+			pixels = new int[width * height];
+			this.thumbnailPixels = pixels;
+		}
+		for (int y = 0; y < height; y++) {
+			int inputOffset = y * 2 * sourceWidth;
+			int outputOffset = y * width;
+			for (int x = 0; x < width; x++) {
+				int grey = matrix[inputOffset + x * 2] & 0xFF;
+				pixels[outputOffset + x] = 0xFF000000 | (grey * 0x00010101);
+			}
+		}
+		
+		Bitmap bitmap = this.captureHandler.obtainThumbnailBitmap(width, height);
+		bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+		return bitmap;
 	}
 }
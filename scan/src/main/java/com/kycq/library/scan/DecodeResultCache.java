@@ -0,0 +1,382 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 相册图片解码结果缓存
+ * <p>
+ * 以图片内容的 SHA-1 为键，按最近使用淘汰，保存在磁盘上。
+ * 文件的大小与修改时间未变化时直接使用上次计算的键，不再读取文件内容；
+ * 命中时不再解码图片。只缓存解码成功的结果。
+ * <p>
+ * 缓存在解码线程首次使用时加载；新增或更新的结果先保存在内存中，批量解码结束后一次写入磁盘。
+ */
+public class DecodeResultCache {
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/** writeUTF 的长度上限 */
+	private static final int MAX_TEXT_LENGTH = 16 * 1024;
+	
+	private final File cacheFile;
+	/** 按访问顺序排列，最久未使用的在前 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+	private final Map<String, Entry> pathEntries = new HashMap<>();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	/** 同一时间只有一个线程写入磁盘 */
+	private final Object saveLock = new Object();
+	
+	private boolean isEnabled = true;
+	private int maxEntries = 500;
+	private boolean isLoaded;
+	/** 内存中有尚未写入磁盘的变化 */
+	private boolean isDirty;
+	
+	DecodeResultCache(File cacheFile) {
+		this.cacheFile = cacheFile;
+	}
+	
+	public synchronized boolean isEnabled() {
+		return this.isEnabled;
+	}
+	
+	/**
+	 * 设置是否启用缓存，默认启用
+	 *
+	 * @param enabled true 启用
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.isEnabled = enabled;
+	}
+	
+	public synchronized int getMaxEntries() {
+		return this.maxEntries;
+	}
+	
+	/**
+	 * 设置最多缓存的结果数量，超过时淘汰最久未使用的结果，下次写入磁盘时生效
+	 *
+	 * @param maxEntries 结果数量
+	 */
+	public synchronized void setMaxEntries(int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		if (trimToSize()) {
+			this.isDirty = true;
+		}
+	}
+	
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+	
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+	
+	/**
+	 * 内存中的结果数量，不读取磁盘
+	 *
+	 * @return 结果数量，首次解码前缓存尚未加载时为 0
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+	
+	/**
+	 * 清空缓存与计数，同时删除磁盘上的缓存
+	 */
+	public void clear() {
+		synchronized (this.saveLock) {
+			synchronized (this) {
+				this.entries.clear();
+				this.pathEntries.clear();
+				this.isLoaded = true;
+				this.isDirty = false;
+				this.hitCount.set(0);
+				this.missCount.set(0);
+			}
+			this.cacheFile.delete();
+		}
+	}
+	
+	/**
+	 * 计算图片的缓存键，文件未变化时不读取内容
+	 *
+	 * @param albumImage 图片来源
+	 * @return 缓存键，未启用或无法读取时为 null
+	 */
+	String key(AlbumImage albumImage) {
+		File file = albumImage.getFile();
+		synchronized (this) {
+			if (!this.isEnabled) {
+				return null;
+			}
+			ensureLoaded();
+			if (file != null) {
+				Entry entry = this.pathEntries.get(file.getPath());
+				if (entry != null && entry.length == file.length() && entry.lastModified == file.lastModified()) {
+					return entry.key;
+				}
+			}
+		}
+		
+		String key;
+		try {
+			key = contentHash(albumImage);
+		} catch (IOException e) {
+			return null;
+		}
+		if (file != null) {
+			synchronized (this) {
+				Entry entry = this.entries.get(key);
+				if (entry != null) {
+					updatePath(entry, file);
+					this.isDirty = true;
+				}
+			}
+		}
+		return key;
+	}
+	
+	/**
+	 * 查找缓存的结果
+	 *
+	 * @param key 缓存键
+	 * @return 解码结果，未缓存时为 null
+	 */
+	synchronized Result get(String key) {
+		Entry entry = this.entries.get(key);
+		if (entry == null) {
+			this.missCount.incrementAndGet();
+			return null;
+		}
+		this.hitCount.incrementAndGet();
+		return new Result(entry.text, null, null, entry.format);
+	}
+	
+	/**
+	 * 缓存解码成功的结果
+	 *
+	 * @param key        缓存键
+	 * @param albumImage 图片来源
+	 * @param result     解码结果
+	 */
+	synchronized void put(String key, AlbumImage albumImage, Result result) {
+		if (!this.isEnabled || result.getText().length() > MAX_TEXT_LENGTH) {
+			return;
+		}
+		Entry entry = new Entry(key, result.getBarcodeFormat(), result.getText());
+		File file = albumImage.getFile();
+		if (file != null) {
+			updatePath(entry, file);
+		}
+		this.entries.put(key, entry);
+		trimToSize();
+		this.isDirty = true;
+	}
+	
+	/**
+	 * 将内存中的变化写入磁盘，在解码线程调用
+	 */
+	void flush() {
+		synchronized (this.saveLock) {
+			List<Entry> snapshot;
+			synchronized (this) {
+				if (!this.isDirty) {
+					return;
+				}
+				this.isDirty = false;
+				snapshot = new ArrayList<>(this.entries.size());
+				for (Entry entry : this.entries.values()) {
+					snapshot.add(new Entry(entry));
+				}
+			}
+			if (!save(snapshot)) {
+				synchronized (this) {
+					this.isDirty = true;
+				}
+			}
+		}
+	}
+	
+	private void updatePath(Entry entry, File file) {
+		Entry previousEntry = this.pathEntries.get(file.getPath());
+		if (previousEntry != null && previousEntry != entry) {
+			previousEntry.path = null;
+		}
+		entry.path = file.getPath();
+		entry.length = file.length();
+		entry.lastModified = file.lastModified();
+		this.pathEntries.put(entry.path, entry);
+	}
+	
+	private boolean trimToSize() {
+		boolean isTrimmed = false;
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while (this.entries.size() > this.maxEntries && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			iterator.remove();
+			if (entry.path != null) {
+				this.pathEntries.remove(entry.path);
+			}
+			isTrimmed = true;
+		}
+		return isTrimmed;
+	}
+	
+	private static String contentHash(AlbumImage albumImage) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		InputStream inputStream = albumImage.openInputStream();
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int length;
+			while ((length = inputStream.read(buffer)) != -1) {
+				messageDigest.update(buffer, 0, length);
+			}
+		} finally {
+			AlbumImage.closeQuietly(inputStream);
+		}
+		
+		byte[] digest = messageDigest.digest();
+		StringBuilder builder = new StringBuilder(digest.length * 2);
+		for (byte value : digest) {
+			builder.append(Character.forDigit((value >> 4) & 0xF, 16));
+			builder.append(Character.forDigit(value & 0xF, 16));
+		}
+		return builder.toString();
+	}
+	
+	private void ensureLoaded() {
+		if (this.isLoaded) {
+			return;
+		}
+		this.isLoaded = true;
+		if (!this.cacheFile.exists()) {
+			return;
+		}
+		DataInputStream inputStream = null;
+		try {
+			inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(this.cacheFile)));
+			if (inputStream.readInt() != VERSION) {
+				throw new IOException("unknown cache version");
+			}
+			int count = inputStream.readInt();
+			for (int index = 0; index < count; index++) {
+				Entry entry = new Entry(inputStream.readUTF(),
+						BarcodeFormat.valueOf(inputStream.readUTF()), inputStream.readUTF());
+				if (inputStream.readBoolean()) {
+					entry.path = inputStream.readUTF();
+					entry.length = inputStream.readLong();
+					entry.lastModified = inputStream.readLong();
+					this.pathEntries.put(entry.path, entry);
+				}
+				this.entries.put(entry.key, entry);
+			}
+			if (trimToSize()) {
+				this.isDirty = true;
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// 缓存损坏或版本不符，丢弃
+			this.entries.clear();
+			this.pathEntries.clear();
+			this.cacheFile.delete();
+		} finally {
+			if (inputStream != null) {
+				AlbumImage.closeQuietly(inputStream);
+			}
+		}
+	}
+	
+	/**
+	 * 写入临时文件后替换，写入失败不影响已有缓存
+	 *
+	 * @return false 写入失败
+	 */
+	private boolean save(List<Entry> snapshot) {
+		File tempFile = new File(this.cacheFile.getPath() + ".tmp");
+		DataOutputStream outputStream = null;
+		try {
+			outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			outputStream.writeInt(VERSION);
+			outputStream.writeInt(snapshot.size());
+			for (Entry entry : snapshot) {
+				outputStream.writeUTF(entry.key);
+				outputStream.writeUTF(entry.format.name());
+				outputStream.writeUTF(entry.text);
+				outputStream.writeBoolean(entry.path != null);
+				if (entry.path != null) {
+					outputStream.writeUTF(entry.path);
+					outputStream.writeLong(entry.length);
+					outputStream.writeLong(entry.lastModified);
+				}
+			}
+			outputStream.close();
+			outputStream = null;
+			if (!tempFile.renameTo(this.cacheFile)) {
+				tempFile.delete();
+				return false;
+			}
+			return true;
+		} catch (IOException e) {
+			tempFile.delete();
+			return false;
+		} finally {
+			if (outputStream != null) {
+				try {
+					outputStream.close();
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+	
+	private static class Entry {
+		final String key;
+		final BarcodeFormat format;
+		final String text;
+		String path;
+		long length;
+		long lastModified;
+		
+		Entry(String key, BarcodeFormat format, String text) {
+			this.key = key;
+			this.format = format;
+			this.text = text;
+		}
+		
+		Entry(Entry entry) {
+			this(entry.key, entry.format, entry.text);
+			this.path = entry.path;
+			this.length = entry.length;
+			this.lastModified = entry.lastModified;
+		}
+	}
+}
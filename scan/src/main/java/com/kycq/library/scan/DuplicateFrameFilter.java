@@ -0,0 +1,100 @@
+package com.kycq.library.scan;
+
+/**
+ * 静止画面的重复帧过滤
+ * <p>
+ * 记录最近一次解码失败帧的感知哈希，之后相差不超过容差的帧视为同一画面直接跳过，
+ * 直到画面移动或重新对焦。每跳过一定帧数仍解码一帧，避免静止对准条码时偶然失败后无法识别。
+ */
+public class DuplicateFrameFilter {
+	private boolean isEnabled = true;
+	private int tolerance = 4;
+	private int maxConsecutiveSkips = 15;
+	
+	private boolean hasFailedHash;
+	private long failedHash;
+	private int consecutiveSkips;
+	
+	public synchronized boolean isEnabled() {
+		return this.isEnabled;
+	}
+	
+	/**
+	 * 设置是否启用重复帧过滤，默认启用
+	 *
+	 * @param enabled true 启用
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.isEnabled = enabled;
+		invalidate();
+	}
+	
+	public synchronized int getTolerance() {
+		return this.tolerance;
+	}
+	
+	/**
+	 * 设置判断为同一画面的哈希容差
+	 *
+	 * @param tolerance 64 位哈希中允许不同的位数
+	 */
+	public synchronized void setTolerance(int tolerance) {
+		this.tolerance = tolerance;
+	}
+	
+	public synchronized int getMaxConsecutiveSkips() {
+		return this.maxConsecutiveSkips;
+	}
+	
+	/**
+	 * 设置连续跳过的最大帧数，超过后强制解码一帧
+	 *
+	 * @param maxConsecutiveSkips 最大帧数
+	 */
+	public synchronized void setMaxConsecutiveSkips(int maxConsecutiveSkips) {
+		this.maxConsecutiveSkips = maxConsecutiveSkips;
+	}
+	
+	/**
+	 * 画面已变化（重新对焦、解码成功、重新扫描），清除记录的失败帧
+	 */
+	public synchronized void invalidate() {
+		this.hasFailedHash = false;
+		this.consecutiveSkips = 0;
+	}
+	
+	/**
+	 * 判断是否与最近一次解码失败的帧相同
+	 *
+	 * @param hash 感知哈希
+	 * @return true 跳过该帧
+	 */
+	synchronized boolean isDuplicate(long hash) {
+		if (!this.isEnabled || !this.hasFailedHash) {
+			return false;
+		}
+		if (FrameHash.distance(hash, this.failedHash) > this.tolerance) {
+			this.hasFailedHash = false;
+			this.consecutiveSkips = 0;
+			return false;
+		}
+		if (this.consecutiveSkips >= this.maxConsecutiveSkips) {
+			this.consecutiveSkips = 0;
+			return false;
+		}
+		this.consecutiveSkips++;
+		return true;
+	}
+	
+	/**
+	 * 记录解码失败的帧
+	 *
+	 * @param hash 感知哈希
+	 */
+	synchronized void decodeFailed(long hash) {
+		if (this.isEnabled) {
+			this.hasFailedHash = true;
+			this.failedHash = hash;
+		}
+	}
+}
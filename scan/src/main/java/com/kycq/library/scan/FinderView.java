@@ -17,7 +17,7 @@ public class FinderView extends View {
 	private static final float ALPHA_RATIO = 0.2f;
 	private static final int OPAQUE_ALPHA = 255;
 	
-	private CameraManager cameraManager;
+	private CameraDriver cameraDriver;
 	
 	private final Paint paint;
 	private int maskColor = 0x60000000;
@@ -44,16 +44,15 @@ public class FinderView extends View {
 		this.paint = new Paint(Paint.ANTI_ALIAS_FLAG);
 	}
 	
-	void setCameraManager(CameraManager cameraManager) {
-		this.cameraManager = cameraManager;
+	void setCameraDriver(CameraDriver cameraDriver) {
+		this.cameraDriver = cameraDriver;
+		// 新的相机驱动在绘制时设置扫描框
+		invalidate();
 	}
 	
 	public void drawFinderView() {
-		Bitmap barcodeBitmap = this.barcodeBitmap;
+		// 缩略图位图由解码流程复用，不在此回收
 		this.barcodeBitmap = null;
-		if (barcodeBitmap != null) {
-			barcodeBitmap.recycle();
-		}
 		invalidate();
 	}
 	
@@ -64,10 +63,10 @@ public class FinderView extends View {
 	
 	@SuppressWarnings("SuspiciousNameCombination")
 	Rect getFrameRect() {
-		if (this.cameraManager == null) {
+		if (this.cameraDriver == null) {
 			return null;
 		}
-		Rect frameRect = this.cameraManager.getFrameRect();
+		Rect frameRect = this.cameraDriver.getFrameRect();
 		if (frameRect != null) {
 			return frameRect;
 		}
@@ -98,7 +97,7 @@ public class FinderView extends View {
 	}
 	
 	protected final void setFrameRect(Rect frameRect) {
-		this.cameraManager.setFrameRect(frameRect);
+		this.cameraDriver.setFrameRect(frameRect);
 	}
 	
 	@Override
@@ -272,10 +271,6 @@ public class FinderView extends View {
 	@Override
 	protected void onDetachedFromWindow() {
 		super.onDetachedFromWindow();
-		Bitmap barcodeBitmap = this.barcodeBitmap;
 		this.barcodeBitmap = null;
-		if (barcodeBitmap != null) {
-			barcodeBitmap.recycle();
-		}
 	}
 }
@@ -0,0 +1,91 @@
+package com.kycq.library.scan;
+
+/**
+ * 根据扫描区域清晰度决定何时重新对焦，所有解码线程共用
+ * <p>
+ * 对焦完成后记录清晰度平滑值的峰值，平滑值低于峰值的 DROP_RATIO 或低于 MIN_SHARPNESS 时请求对焦，
+ * 画面保持清晰时不再对焦。
+ */
+class FocusController {
+	/** 清晰度平滑系数 */
+	private static final float ALPHA = 0.25F;
+	private static final float DROP_RATIO = 0.6F;
+	/** 与 FrameQualityGate 默认的最低清晰度一致 */
+	private static final float MIN_SHARPNESS = 4;
+	/** 两次对焦的最小间隔，毫秒 */
+	private static final long MIN_FOCUS_INTERVAL = 1000L;
+	
+	private OnFocusRequestListener onFocusRequestListener;
+	private boolean isFocusing;
+	private boolean isRequested;
+	private long focusTime;
+	private int sampleCount;
+	private float sharpness;
+	private float peakSharpness;
+	
+	/**
+	 * @param listener 对焦请求，在解码线程回调；为 null 时不再请求
+	 */
+	synchronized void setOnFocusRequestListener(OnFocusRequestListener listener) {
+		this.onFocusRequestListener = listener;
+		this.isFocusing = false;
+		this.isRequested = false;
+		resetSharpness();
+	}
+	
+	synchronized void focusStarted() {
+		this.isFocusing = true;
+		this.isRequested = false;
+	}
+	
+	/**
+	 * 对焦完成或失败，重新记录清晰度
+	 *
+	 * @param nowMillis 当前时间
+	 */
+	synchronized void focusFinished(long nowMillis) {
+		this.isFocusing = false;
+		this.isRequested = false;
+		this.focusTime = nowMillis;
+		resetSharpness();
+	}
+	
+	/**
+	 * 记录一帧扫描区域的清晰度，需要对焦时回调 OnFocusRequestListener
+	 *
+	 * @param frameSharpness 拉普拉斯算子绝对值的平均
+	 * @param nowMillis      当前时间
+	 * @return true 已请求对焦
+	 */
+	boolean frameMeasured(float frameSharpness, long nowMillis) {
+		OnFocusRequestListener listener;
+		synchronized (this) {
+			listener = this.onFocusRequestListener;
+			if (listener == null || this.isFocusing || this.isRequested) {
+				return false;
+			}
+			this.sharpness = this.sampleCount++ == 0
+					? frameSharpness : this.sharpness + (frameSharpness - this.sharpness) * ALPHA;
+			this.peakSharpness = Math.max(this.peakSharpness, this.sharpness);
+			if (nowMillis - this.focusTime < MIN_FOCUS_INTERVAL) {
+				return false;
+			}
+			if (this.sharpness >= MIN_SHARPNESS && this.sharpness >= this.peakSharpness * DROP_RATIO) {
+				return false;
+			}
+			this.isRequested = true;
+		}
+		listener.focusRequested();
+		return true;
+	}
+	
+	private void resetSharpness() {
+		this.sampleCount = 0;
+		this.sharpness = 0;
+		this.peakSharpness = 0;
+	}
+	
+	interface OnFocusRequestListener {
+		void focusRequested();
+	}
+}
@@ -0,0 +1,299 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * 预览帧二值化，每个解码线程持有一个
+ * <p>
+ * 算法与 ZXing 的 GlobalHistogramBinarizer、HybridBinarizer 相同，只有整个扫描区域的二值化复用 BitMatrix 与分块阈值数组，
+ * 扫描区域尺寸不变时不再分配。二值化结果只在本次识别期间有效；跟踪预测区域的尺寸每帧变化，
+ * 与识别中裁剪或旋转得到的图像一样使用 ZXing 原有的二值化，不共用缓冲区。
+ */
+class FrameBinarizer {
+	static final int STRATEGY_GLOBAL_HISTOGRAM = 0;
+	static final int STRATEGY_HYBRID = 1;
+	
+	private static final int LUMINANCE_BITS = 5;
+	private static final int LUMINANCE_SHIFT = 8 - LUMINANCE_BITS;
+	private static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
+	
+	private static final int BLOCK_SIZE_POWER = 3;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER;
+	private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;
+	private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+	private static final int MIN_DYNAMIC_RANGE = 24;
+	
+	private final int[] buckets = new int[LUMINANCE_BUCKETS];
+	private BitMatrix matrix;
+	private int[][] blackPoints;
+	
+	/**
+	 * 创建二值化
+	 *
+	 * @param source   扫描区域亮度数据
+	 * @param strategy STRATEGY_GLOBAL_HISTOGRAM 或 STRATEGY_HYBRID
+	 * @return 二值化，下次创建前有效
+	 */
+	Binarizer create(LuminanceSource source, int strategy) {
+		return strategy == STRATEGY_GLOBAL_HISTOGRAM
+				? new ReusableGlobalHistogramBinarizer(source)
+				: new ReusableHybridBinarizer(source);
+	}
+	
+	/**
+	 * 创建 ZXing 原有的二值化，不共用缓冲区
+	 *
+	 * @param source   尺寸不固定的亮度数据
+	 * @param strategy STRATEGY_GLOBAL_HISTOGRAM 或 STRATEGY_HYBRID
+	 * @return 二值化
+	 */
+	static Binarizer createUnshared(LuminanceSource source, int strategy) {
+		return strategy == STRATEGY_GLOBAL_HISTOGRAM
+				? new GlobalHistogramBinarizer(source)
+				: new HybridBinarizer(source);
+	}
+	
+	private BitMatrix obtainMatrix(int width, int height) {
+		BitMatrix theMatrix = this.matrix;
+		if (theMatrix == null || theMatrix.getWidth() != width || theMatrix.getHeight() != height) {
+			theMatrix = new BitMatrix(width, height);
+			this.matrix = theMatrix;
+		} else {
+			theMatrix.clear();
+		}
+		return theMatrix;
+	}
+	
+	private int[][] obtainBlackPoints(int subWidth, int subHeight) {
+		int[][] theBlackPoints = this.blackPoints;
+		if (theBlackPoints == null || theBlackPoints.length != subHeight || theBlackPoints[0].length != subWidth) {
+			theBlackPoints = new int[subHeight][subWidth];
+			this.blackPoints = theBlackPoints;
+		}
+		return theBlackPoints;
+	}
+	
+	private BitMatrix binarizeGlobalHistogram(LuminanceSource source) throws NotFoundException {
+		int width = source.getWidth();
+		int height = source.getHeight();
+		byte[] luminances = source.getMatrix();
+		
+		// 取中间五分之三宽度的四行估计黑白分界
+		int[] localBuckets = this.buckets;
+		for (int index = 0; index < LUMINANCE_BUCKETS; index++) {
+			localBuckets[index] = 0;
+		}
+		int right = (width * 4) / 5;
+		for (int y = 1; y < 5; y++) {
+			int offset = (height * y / 5) * width;
+			for (int x = width / 5; x < right; x++) {
+				localBuckets[(luminances[offset + x] & 0xFF) >> LUMINANCE_SHIFT]++;
+			}
+		}
+		int blackPoint = estimateBlackPoint(localBuckets);
+		
+		BitMatrix theMatrix = obtainMatrix(width, height);
+		for (int y = 0; y < height; y++) {
+			int offset = y * width;
+			for (int x = 0; x < width; x++) {
+				if ((luminances[offset + x] & 0xFF) < blackPoint) {
+					theMatrix.set(x, y);
+				}
+			}
+		}
+		return theMatrix;
+	}
+	
+	private BitMatrix binarizeHybrid(LuminanceSource source) throws NotFoundException {
+		int width = source.getWidth();
+		int height = source.getHeight();
+		if (width < MINIMUM_DIMENSION || height < MINIMUM_DIMENSION) {
+			return binarizeGlobalHistogram(source);
+		}
+		byte[] luminances = source.getMatrix();
+		int subWidth = width >> BLOCK_SIZE_POWER;
+		if ((width & BLOCK_SIZE_MASK) != 0) {
+			subWidth++;
+		}
+		int subHeight = height >> BLOCK_SIZE_POWER;
+		if ((height & BLOCK_SIZE_MASK) != 0) {
+			subHeight++;
+		}
+		int[][] theBlackPoints = obtainBlackPoints(subWidth, subHeight);
+		calculateBlackPoints(luminances, subWidth, subHeight, width, height, theBlackPoints);
+		BitMatrix theMatrix = obtainMatrix(width, height);
+		calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, theBlackPoints, theMatrix);
+		return theMatrix;
+	}
+	
+	private static int estimateBlackPoint(int[] buckets) throws NotFoundException {
+		// 最高的峰
+		int maxBucketCount = 0;
+		int firstPeak = 0;
+		int firstPeakSize = 0;
+		for (int x = 0; x < LUMINANCE_BUCKETS; x++) {
+			if (buckets[x] > firstPeakSize) {
+				firstPeak = x;
+				firstPeakSize = buckets[x];
+			}
+			if (buckets[x] > maxBucketCount) {
+				maxBucketCount = buckets[x];
+			}
+		}
+		
+		// 距最高峰较远的第二个峰
+		int secondPeak = 0;
+		int secondPeakScore = 0;
+		for (int x = 0; x < LUMINANCE_BUCKETS; x++) {
+			int distanceToBiggest = x - firstPeak;
+			int score = buckets[x] * distanceToBiggest * distanceToBiggest;
+			if (score > secondPeakScore) {
+				secondPeak = x;
+				secondPeakScore = score;
+			}
+		}
+		if (firstPeak > secondPeak) {
+			int temp = firstPeak;
+			firstPeak = secondPeak;
+			secondPeak = temp;
+		}
+		if (secondPeak - firstPeak <= LUMINANCE_BUCKETS / 16) {
+			throw NotFoundException.getNotFoundInstance();
+		}
+		
+		// 两峰之间偏向暗峰的谷
+		int bestValley = secondPeak - 1;
+		int bestValleyScore = -1;
+		for (int x = secondPeak - 1; x > firstPeak; x--) {
+			int fromFirst = x - firstPeak;
+			int score = fromFirst * fromFirst * (secondPeak - x) * (maxBucketCount - buckets[x]);
+			if (score > bestValleyScore) {
+				bestValley = x;
+				bestValleyScore = score;
+			}
+		}
+		return bestValley << LUMINANCE_SHIFT;
+	}
+	
+	private static void calculateBlackPoints(byte[] luminances, int subWidth, int subHeight,
+	                                         int width, int height, int[][] blackPoints) {
+		int maxYOffset = height - BLOCK_SIZE;
+		int maxXOffset = width - BLOCK_SIZE;
+		for (int y = 0; y < subHeight; y++) {
+			int yOffset = Math.min(y << BLOCK_SIZE_POWER, maxYOffset);
+			for (int x = 0; x < subWidth; x++) {
+				int xOffset = Math.min(x << BLOCK_SIZE_POWER, maxXOffset);
+				int sum = 0;
+				int min = 0xFF;
+				int max = 0;
+				for (int yy = 0, offset = yOffset * width + xOffset; yy < BLOCK_SIZE; yy++, offset += width) {
+					for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+						int pixel = luminances[offset + xx] & 0xFF;
+						sum += pixel;
+						if (pixel < min) {
+							min = pixel;
+						}
+						if (pixel > max) {
+							max = pixel;
+						}
+					}
+					// 动态范围足够后其余行只求和
+					if (max - min > MIN_DYNAMIC_RANGE) {
+						for (yy++, offset += width; yy < BLOCK_SIZE; yy++, offset += width) {
+							for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+								sum += luminances[offset + xx] & 0xFF;
+							}
+						}
+					}
+				}
+				
+				int average = sum >> (BLOCK_SIZE_POWER * 2);
+				if (max - min <= MIN_DYNAMIC_RANGE) {
+					// 平坦的块视为背景，取最小值的一半，与相邻块的阈值衔接
+					average = min / 2;
+					if (y > 0 && x > 0) {
+						int averageNeighborBlackPoint =
+								(blackPoints[y - 1][x] + (2 * blackPoints[y][x - 1]) + blackPoints[y - 1][x - 1]) / 4;
+						if (min < averageNeighborBlackPoint) {
+							average = averageNeighborBlackPoint;
+						}
+					}
+				}
+				blackPoints[y][x] = average;
+			}
+		}
+	}
+	
+	private static void calculateThresholdForBlock(byte[] luminances, int subWidth, int subHeight,
+	                                               int width, int height, int[][] blackPoints, BitMatrix matrix) {
+		int maxYOffset = height - BLOCK_SIZE;
+		int maxXOffset = width - BLOCK_SIZE;
+		for (int y = 0; y < subHeight; y++) {
+			int yOffset = Math.min(y << BLOCK_SIZE_POWER, maxYOffset);
+			int top = cap(y, subHeight - 3);
+			for (int x = 0; x < subWidth; x++) {
+				int xOffset = Math.min(x << BLOCK_SIZE_POWER, maxXOffset);
+				int left = cap(x, subWidth - 3);
+				// 周围 5 x 5 块的平均阈值
+				int sum = 0;
+				for (int z = -2; z <= 2; z++) {
+					int[] blackRow = blackPoints[top + z];
+					sum += blackRow[left - 2] + blackRow[left - 1] + blackRow[left] + blackRow[left + 1] + blackRow[left + 2];
+				}
+				int threshold = sum / 25;
+				for (int yy = 0, offset = yOffset * width + xOffset; yy < BLOCK_SIZE; yy++, offset += width) {
+					for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+						// 阈值为 0 时纯黑像素仍为黑色
+						if ((luminances[offset + xx] & 0xFF) <= threshold) {
+							matrix.set(xOffset + xx, yOffset + yy);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	private static int cap(int value, int max) {
+		return value < 2 ? 2 : value > max ? max : value;
+	}
+	
+	/**
+	 * 一维码逐行识别仍使用 GlobalHistogramBinarizer.getBlackRow
+	 */
+	private class ReusableGlobalHistogramBinarizer extends GlobalHistogramBinarizer {
+		ReusableGlobalHistogramBinarizer(LuminanceSource source) {
+			super(source);
+		}
+		
+		@Override
+		public BitMatrix getBlackMatrix() throws NotFoundException {
+			return binarizeGlobalHistogram(getLuminanceSource());
+		}
+		
+		@Override
+		public Binarizer createBinarizer(LuminanceSource source) {
+			return new GlobalHistogramBinarizer(source);
+		}
+	}
+	
+	private class ReusableHybridBinarizer extends GlobalHistogramBinarizer {
+		ReusableHybridBinarizer(LuminanceSource source) {
+			super(source);
+		}
+		
+		@Override
+		public BitMatrix getBlackMatrix() throws NotFoundException {
+			return binarizeHybrid(getLuminanceSource());
+		}
+		
+		@Override
+		public Binarizer createBinarizer(LuminanceSource source) {
+			return new HybridBinarizer(source);
+		}
+	}
+}
@@ -0,0 +1,492 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单帧解码流程：截取扫描区域、画面质量筛选、重复帧过滤、旋转截取与识别
+ * <p>
+ * 不依赖 Android，每个解码线程持有一个。
+ */
+class FrameDecoder {
+	private final MultiFormatReader multiFormatReader;
+	private final FrameQualityGate frameQualityGate;
+	private final DuplicateFrameFilter duplicateFrameFilter;
+	private final ScanStatistics scanStatistics;
+	private final ScanMetrics scanMetrics;
+	private final FrameSource frameSource;
+	
+	/** 旋转后坐标系中的扫描区域 {left, top, width, height} */
+	private final int[] frameRect = new int[4];
+	/** 传感器坐标系中的扫描区域 {left, top, right, bottom} */
+	private final int[] sensorRect = new int[4];
+	private final FrameQuality frameQuality = new FrameQuality();
+	private final int[] hashCells = new int[72];
+	
+	private byte[] cropBuffer;
+	private byte[] regionBuffer;
+	private PlanarYUVLuminanceSource luminanceSource;
+	private long receiveTime;
+	
+	private MultiDecoder multiDecoder;
+	private MultiDecodePolicy multiDecodePolicy;
+	private List<Result> results = Collections.emptyList();
+	
+	private final FrameBinarizer frameBinarizer = new FrameBinarizer();
+	private BinarizerSelector binarizerSelector;
+	private long binarizeTime;
+	private long decodeTime;
+	
+	/** 未设置时为 null */
+	private FocusController focusController;
+	/** 未设置时为 null */
+	private TorchController torchController;
+	
+	private RoiTracker roiTracker;
+	/** 识别过程中找到的定位点，未设置时为 null */
+	private ZoomController.PointCollector pointCollector;
+	/** 相对扫描区域的预测区域 {left, top, width, height} */
+	private final int[] trackRect = new int[4];
+	private byte[] trackBuffer;
+	
+	FrameDecoder(MultiFormatReader multiFormatReader, FrameQualityGate frameQualityGate,
+	             DuplicateFrameFilter duplicateFrameFilter, ScanStatistics scanStatistics,
+	             ScanMetrics scanMetrics, FrameSource frameSource) {
+		this.multiFormatReader = multiFormatReader;
+		this.frameQualityGate = frameQualityGate;
+		this.duplicateFrameFilter = duplicateFrameFilter;
+		this.scanStatistics = scanStatistics;
+		this.scanMetrics = scanMetrics;
+		this.frameSource = frameSource;
+	}
+	
+	/**
+	 * 启用单帧多码识别，decode 返回第一个结果，全部结果由 getResults 获取
+	 *
+	 * @param multiDecoder      多码识别
+	 * @param multiDecodePolicy 多码识别策略
+	 */
+	void setMultiDecoder(MultiDecoder multiDecoder, MultiDecodePolicy multiDecodePolicy) {
+		this.multiDecoder = multiDecoder;
+		this.multiDecodePolicy = multiDecodePolicy;
+	}
+	
+	/**
+	 * 按对比度与成功率选择二值化方式，未设置时总是使用分块二值化
+	 *
+	 * @param binarizerSelector 所有解码线程共用
+	 */
+	void setBinarizerSelector(BinarizerSelector binarizerSelector) {
+		this.binarizerSelector = binarizerSelector;
+	}
+	
+	/**
+	 * 每帧扫描区域的清晰度交给对焦控制，画面变模糊时重新对焦
+	 *
+	 * @param focusController 所有解码线程共用，可为 null
+	 */
+	void setFocusController(FocusController focusController) {
+		this.focusController = focusController;
+	}
+	
+	/**
+	 * 每帧扫描区域的平均亮度交给闪光灯控制，FrontLightMode.AUTO 时据此开关闪光灯
+	 *
+	 * @param torchController 所有解码线程共用，可为 null
+	 */
+	void setTorchController(TorchController torchController) {
+		this.torchController = torchController;
+	}
+	
+	/**
+	 * 跟踪条码位置，优先识别上次位置附近的区域；启用多码识别时只更新位置，每帧识别整个扫描区域
+	 *
+	 * @param roiTracker     所有解码线程共用
+	 * @param pointCollector 解码器回调的定位点，可为 null；识别失败时同样用于更新位置
+	 */
+	void setRoiTracker(RoiTracker roiTracker, ZoomController.PointCollector pointCollector) {
+		this.roiTracker = roiTracker;
+		this.pointCollector = pointCollector;
+	}
+	
+	/**
+	 * 解码预览帧，扫描区域复制后立即归还预览帧
+	 *
+	 * @param previewFrame 预览帧
+	 * @param left         旋转后坐标系中的扫描区域
+	 * @param top          旋转后坐标系中的扫描区域
+	 * @param right        旋转后坐标系中的扫描区域
+	 * @param bottom       旋转后坐标系中的扫描区域
+	 * @return 解码结果，失败时为 null
+	 */
+	Result decode(PreviewFrame previewFrame, int left, int top, int right, int bottom) {
+		// 关闭统计时不读取时间
+		boolean isTiming = this.scanMetrics.isEnabled();
+		long startTime = isTiming ? System.nanoTime() : 0;
+		this.receiveTime = previewFrame.receiveTime;
+		long timestamp = previewFrame.timestamp;
+		this.results = Collections.emptyList();
+		if (isTiming) {
+			this.scanMetrics.record(ScanMetrics.STAGE_QUEUE, this.receiveTime, startTime);
+		}
+		
+		Result rawResult = null;
+		boolean isAccepted = false;
+		long frameHash = 0;
+		if (computeFrameRect(previewFrame, left, top, right, bottom)) {
+			int quality = checkFrameQuality(previewFrame);
+			if (quality != FrameQualityGate.QUALITY_OK) {
+				this.scanStatistics.frameRejected(quality);
+			} else if (this.duplicateFrameFilter.isEnabled()) {
+				frameHash = FrameHash.compute(previewFrame.lumaPlane, this.sensorRect, this.hashCells);
+				if (this.duplicateFrameFilter.isDuplicate(frameHash)) {
+					this.scanStatistics.frameDuplicated();
+				} else {
+					isAccepted = true;
+				}
+			} else {
+				isAccepted = true;
+			}
+		}
+		long analyzeTime = isTiming ? System.nanoTime() : 0;
+		PlanarYUVLuminanceSource source = isAccepted ? buildLuminanceSource(previewFrame) : null;
+		long luminanceTime = isTiming ? System.nanoTime() : 0;
+		// 扫描区域已复制，尽早归还预览帧
+		this.frameSource.releaseFrame(previewFrame);
+		this.luminanceSource = source;
+		if (isTiming) {
+			this.scanMetrics.record(ScanMetrics.STAGE_ANALYZE, startTime, analyzeTime);
+		}
+		if (source == null) {
+			return null;
+		}
+		
+		this.scanStatistics.decodeAttempted();
+		BinarizerSelector theBinarizerSelector = this.binarizerSelector;
+		float contrast = this.frameQuality.contrast;
+		int strategy = theBinarizerSelector == null
+				? FrameBinarizer.STRATEGY_HYBRID : theBinarizerSelector.select(contrast);
+		if (isTiming) {
+			this.scanMetrics.decodeAttempted();
+			this.scanMetrics.record(ScanMetrics.STAGE_LUMINANCE, analyzeTime, luminanceTime);
+			this.binarizeTime = 0;
+			this.decodeTime = 0;
+		}
+		
+		// 先识别上次条码位置附近的区域，未命中时识别整个扫描区域；
+		// 多码识别需要每帧识别整个扫描区域，否则预测区域内的重复结果会让多码结果提前稳定
+		RoiTracker theRoiTracker = this.roiTracker;
+		if (theRoiTracker != null && this.multiDecoder == null
+				&& theRoiTracker.predict(this.frameRect, timestamp, this.trackRect)) {
+			// 预测区域尺寸每帧变化，不复用二值化缓冲区
+			rawResult = decodeSource(FrameBinarizer.createUnshared(buildTrackedSource(source), strategy), isTiming);
+			this.scanStatistics.trackedDecoded(rawResult != null);
+			if (rawResult != null) {
+				trackResults(rawResult, this.trackRect[0], this.trackRect[1], timestamp);
+			} else {
+				theRoiTracker.miss();
+			}
+		}
+		if (rawResult == null) {
+			rawResult = decodeSource(this.frameBinarizer.create(source, strategy), isTiming);
+			if (theRoiTracker != null) {
+				if (rawResult != null) {
+					trackResults(rawResult, 0, 0, timestamp);
+				} else if (this.pointCollector != null && this.pointCollector.count >= 2) {
+					// 识别失败但找到定位点
+					ZoomController.PointCollector thePointCollector = this.pointCollector;
+					theRoiTracker.hit(
+							this.frameRect[0] + thePointCollector.minX, this.frameRect[1] + thePointCollector.minY,
+							this.frameRect[0] + thePointCollector.maxX, this.frameRect[1] + thePointCollector.maxY,
+							timestamp);
+				}
+			}
+		}
+		if (isTiming) {
+			long endTime = System.nanoTime();
+			this.scanMetrics.record(ScanMetrics.STAGE_BINARIZE, endTime - this.binarizeTime, endTime);
+			this.scanMetrics.record(ScanMetrics.STAGE_DECODE, endTime - this.decodeTime, endTime);
+		}
+		
+		this.scanStatistics.binarized(strategy, rawResult != null);
+		if (theBinarizerSelector != null) {
+			theBinarizerSelector.decoded(strategy, contrast, rawResult != null);
+		}
+		if (rawResult != null) {
+			this.scanStatistics.decodeSucceeded();
+			if (isTiming) {
+				this.scanMetrics.decodeSucceeded();
+			}
+			this.duplicateFrameFilter.invalidate();
+		} else {
+			this.duplicateFrameFilter.decodeFailed(frameHash);
+		}
+		return rawResult;
+	}
+	
+	/**
+	 * 二值化并识别，统计耗时时累计二值化与识别的耗时
+	 * <p>
+	 * 二值化耗时在解码器实际调用二值化时计入，不提前二值化，识别结果与关闭统计时相同。
+	 *
+	 * @return 识别结果，失败时为 null
+	 */
+	private Result decodeSource(Binarizer binarizer, boolean isTiming) {
+		if (this.pointCollector != null) {
+			this.pointCollector.reset();
+		}
+		BinaryBitmap bitmap = new BinaryBitmap(isTiming ? new TimingBinarizer(binarizer) : binarizer);
+		long startTime = isTiming ? System.nanoTime() : 0;
+		long theBinarizeTime = this.binarizeTime;
+		Result rawResult = null;
+		try {
+			if (this.multiDecoder != null) {
+				this.results = this.multiDecoder.decode(bitmap,
+						this.multiDecodePolicy.getMaxResultCount(), this.multiDecodePolicy.getFrameTimeBudget());
+				rawResult = this.results.isEmpty() ? null : this.results.get(0);
+			} else {
+				rawResult = this.multiFormatReader.decodeWithState(bitmap);
+			}
+		} catch (ReaderException ignored) {
+		} finally {
+			this.multiFormatReader.reset();
+		}
+		if (isTiming) {
+			long elapsed = System.nanoTime() - startTime;
+			this.decodeTime += elapsed - (this.binarizeTime - theBinarizeTime);
+		}
+		return rawResult;
+	}
+	
+	/**
+	 * 由扫描区域亮度数据复制预测区域
+	 */
+	private PlanarYUVLuminanceSource buildTrackedSource(PlanarYUVLuminanceSource source) {
+		int sourceWidth = source.getWidth();
+		int left = this.trackRect[0];
+		int top = this.trackRect[1];
+		int width = this.trackRect[2];
+		int height = this.trackRect[3];
+		byte[] trackData = this.trackBuffer;
+		if (trackData == null || trackData.length < width * height) {
+			trackData = new byte[width * height];
+			this.trackBuffer = trackData;
+		}
+		byte[] matrix = source.getMatrix();
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(matrix, (top + y) * sourceWidth + left, trackData, y * width, width);
+		}
+		return new PlanarYUVLuminanceSource(trackData, width, height, 0, 0, width, height, false);
+	}
+	
+	/**
+	 * 以识别结果的定位点范围更新跟踪位置，多码识别时取全部结果的范围
+	 *
+	 * @param offsetX 识别区域相对扫描区域的位置
+	 * @param offsetY 识别区域相对扫描区域的位置
+	 */
+	private void trackResults(Result rawResult, int offsetX, int offsetY, long timestamp) {
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		List<Result> theResults = this.multiDecoder != null ? this.results : Collections.singletonList(rawResult);
+		for (Result result : theResults) {
+			ResultPoint[] resultPoints = result.getResultPoints();
+			if (resultPoints == null) {
+				continue;
+			}
+			for (ResultPoint resultPoint : resultPoints) {
+				if (resultPoint == null) {
+					continue;
+				}
+				minX = Math.min(minX, resultPoint.getX());
+				minY = Math.min(minY, resultPoint.getY());
+				maxX = Math.max(maxX, resultPoint.getX());
+				maxY = Math.max(maxY, resultPoint.getY());
+			}
+		}
+		if (minX > maxX) {
+			return;
+		}
+		int left = this.frameRect[0] + offsetX;
+		int top = this.frameRect[1] + offsetY;
+		this.roiTracker.hit(left + minX, top + minY, left + maxX, top + maxY, timestamp);
+	}
+	
+	/**
+	 * 最近一次多码识别的全部结果，下次解码前有效
+	 *
+	 * @return 识别结果，未启用多码识别或未识别时为空
+	 */
+	List<Result> getResults() {
+		return this.results;
+	}
+	
+	/**
+	 * 最近一次解码的扫描区域亮度数据，下次解码前有效
+	 *
+	 * @return 扫描区域亮度数据，未解码时为 null
+	 */
+	PlanarYUVLuminanceSource getLuminanceSource() {
+		return this.luminanceSource;
+	}
+	
+	/**
+	 * 最近一次解码的预览帧分发时间
+	 *
+	 * @return System.nanoTime，未统计耗时为 0
+	 */
+	long getReceiveTime() {
+		return this.receiveTime;
+	}
+	
+	/**
+	 * 计算扫描区域在旋转后坐标系与传感器坐标系中的位置
+	 *
+	 * @return false 扫描区域无效
+	 */
+	private boolean computeFrameRect(PreviewFrame previewFrame, int left, int top, int right, int bottom) {
+		int rotatedWidth = FrameRotator.rotatedWidth(
+				previewFrame.dataWidth, previewFrame.dataHeight, previewFrame.rotationAngle);
+		int rotatedHeight = FrameRotator.rotatedHeight(
+				previewFrame.dataWidth, previewFrame.dataHeight, previewFrame.rotationAngle);
+		
+		left = Math.max(left, 0);
+		top = Math.max(top, 0);
+		int width = Math.min(right, rotatedWidth) - left;
+		int height = Math.min(bottom, rotatedHeight) - top;
+		if (width <= 0 || height <= 0) {
+			return false;
+		}
+		this.frameRect[0] = left;
+		this.frameRect[1] = top;
+		this.frameRect[2] = width;
+		this.frameRect[3] = height;
+		FrameRotator.mapToSensor(previewFrame.dataWidth, previewFrame.dataHeight, previewFrame.rotationAngle,
+				left, top, width, height, this.sensorRect);
+		return true;
+	}
+	
+	/**
+	 * 在传感器数据上采样判断扫描区域画面质量
+	 *
+	 * @return FrameQualityGate.QUALITY_OK 或跳过原因
+	 */
+	private int checkFrameQuality(PreviewFrame previewFrame) {
+		boolean isGateEnabled = this.frameQualityGate.isEnabled();
+		FocusController theFocusController = this.focusController;
+		TorchController theTorchController = this.torchController;
+		if (theTorchController != null && !theTorchController.isEnabled()) {
+			theTorchController = null;
+		}
+		if (!isGateEnabled && this.binarizerSelector == null
+				&& theFocusController == null && theTorchController == null) {
+			return FrameQualityGate.QUALITY_OK;
+		}
+		// 对比度同时用于选择二值化方式，清晰度与亮度同时用于对焦与闪光灯
+		this.frameQuality.measure(previewFrame.lumaPlane, this.sensorRect);
+		if (theFocusController != null || theTorchController != null) {
+			long now = System.currentTimeMillis();
+			if (theFocusController != null) {
+				theFocusController.frameMeasured(this.frameQuality.sharpness, now);
+			}
+			if (theTorchController != null) {
+				theTorchController.frameMeasured(this.frameQuality.meanLuminance, now);
+			}
+		}
+		return isGateEnabled ? this.frameQualityGate.evaluate(this.frameQuality) : FrameQualityGate.QUALITY_OK;
+	}
+	
+	/**
+	 * 根据扫描区域截取亮度数据，只旋转扫描区域内的像素
+	 * <p>
+	 * 亮度平面不在数组中时（如 Camera2 图像的直接缓冲区）只按行复制扫描区域，不复制整帧。
+	 */
+	private PlanarYUVLuminanceSource buildLuminanceSource(PreviewFrame previewFrame) {
+		int left = this.frameRect[0];
+		int top = this.frameRect[1];
+		int width = this.frameRect[2];
+		int height = this.frameRect[3];
+		
+		byte[] cropData = this.cropBuffer;
+		if (cropData == null || cropData.length < width * height) {
+			cropData = new byte[width * height];
+			this.cropBuffer = cropData;
+		}
+		LumaPlane lumaPlane = previewFrame.lumaPlane;
+		byte[] data = lumaPlane.array();
+		if (data != null) {
+			FrameRotator.rotateCrop(data,
+					previewFrame.dataWidth, previewFrame.dataHeight, previewFrame.rotationAngle,
+					left, top, width, height, cropData);
+		} else if (previewFrame.rotationAngle == 0) {
+			lumaPlane.copyRegion(left, top, width, height, cropData);
+		} else {
+			// 先复制传感器坐标系中的扫描区域，再旋转
+			int sensorWidth = this.sensorRect[2] - this.sensorRect[0];
+			int sensorHeight = this.sensorRect[3] - this.sensorRect[1];
+			byte[] regionData = this.regionBuffer;
+			if (regionData == null || regionData.length < width * height) {
+				regionData = new byte[width * height];
+				this.regionBuffer = regionData;
+			}
+			lumaPlane.copyRegion(this.sensorRect[0], this.sensorRect[1], sensorWidth, sensorHeight, regionData);
+			FrameRotator.rotateCrop(regionData,
+					sensorWidth, sensorHeight, previewFrame.rotationAngle,
+					0, 0, width, height, cropData);
+		}
+		return new PlanarYUVLuminanceSource(
+				cropData, width, height,
+				0, 0, width, height, false);
+	}
+	
+	/**
+	 * 统计耗时时累计二值化耗时，包括识别中裁剪或旋转后的二值化
+	 */
+	private class TimingBinarizer extends Binarizer {
+		private final Binarizer binarizer;
+		
+		TimingBinarizer(Binarizer binarizer) {
+			super(binarizer.getLuminanceSource());
+			this.binarizer = binarizer;
+		}
+		
+		@Override
+		public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+			long startTime = System.nanoTime();
+			try {
+				return this.binarizer.getBlackRow(y, row);
+			} finally {
+				FrameDecoder.this.binarizeTime += System.nanoTime() - startTime;
+			}
+		}
+		
+		@Override
+		public BitMatrix getBlackMatrix() throws NotFoundException {
+			long startTime = System.nanoTime();
+			try {
+				return this.binarizer.getBlackMatrix();
+			} finally {
+				FrameDecoder.this.binarizeTime += System.nanoTime() - startTime;
+			}
+		}
+		
+		@Override
+		public Binarizer createBinarizer(LuminanceSource source) {
+			return new TimingBinarizer(this.binarizer.createBinarizer(source));
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.kycq.library.scan;
+
+/**
+ * 扫描区域的感知哈希（差值哈希）
+ * <p>
+ * 区域划分为 9 x 8 个格子，每格稀疏采样取平均亮度，
+ * 同一行相邻格子的明暗关系组成 64 位哈希，对亮度整体变化与噪点不敏感。
+ */
+final class FrameHash {
+	private static final int GRID_WIDTH = 9;
+	private static final int GRID_HEIGHT = 8;
+	/** 每个格子每个方向的采样点数 */
+	private static final int CELL_SAMPLE_COUNT = 4;
+	
+	private FrameHash() {
+	}
+	
+	/**
+	 * 计算区域哈希
+	 *
+	 * @param lumaPlane  亮度平面
+	 * @param sensorRect 传感器坐标系区域 {left, top, right, bottom}
+	 * @param cells      格子亮度缓存，长度不小于 72
+	 * @return 64 位哈希
+	 */
+	static long compute(LumaPlane lumaPlane, int[] sensorRect, int[] cells) {
+		int left = sensorRect[0];
+		int top = sensorRect[1];
+		int width = sensorRect[2] - left;
+		int height = sensorRect[3] - top;
+		
+		for (int gridY = 0; gridY < GRID_HEIGHT; gridY++) {
+			int cellTop = top + gridY * height / GRID_HEIGHT;
+			int cellHeight = Math.max(1, height / GRID_HEIGHT);
+			for (int gridX = 0; gridX < GRID_WIDTH; gridX++) {
+				int cellLeft = left + gridX * width / GRID_WIDTH;
+				int cellWidth = Math.max(1, width / GRID_WIDTH);
+				int sum = 0;
+				for (int sampleY = 0; sampleY < CELL_SAMPLE_COUNT; sampleY++) {
+					int sampleTop = cellTop + sampleY * cellHeight / CELL_SAMPLE_COUNT;
+					for (int sampleX = 0; sampleX < CELL_SAMPLE_COUNT; sampleX++) {
+						sum += lumaPlane.get(cellLeft + sampleX * cellWidth / CELL_SAMPLE_COUNT, sampleTop);
+					}
+				}
+				cells[gridY * GRID_WIDTH + gridX] = sum;
+			}
+		}
+		
+		long hash = 0;
+		for (int gridY = 0; gridY < GRID_HEIGHT; gridY++) {
+			int offset = gridY * GRID_WIDTH;
+			for (int gridX = 0; gridX < GRID_WIDTH - 1; gridX++) {
+				hash <<= 1;
+				if (cells[offset + gridX] > cells[offset + gridX + 1]) {
+					hash |= 1;
+				}
+			}
+		}
+		return hash;
+	}
+	
+	/**
+	 * 两个哈希不同的位数
+	 */
+	static int distance(long hash1, long hash2) {
+		return Long.bitCount(hash1 ^ hash2);
+	}
+}
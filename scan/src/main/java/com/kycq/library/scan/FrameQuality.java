@@ -0,0 +1,62 @@
+package com.kycq.library.scan;
+
+/**
+ * 扫描区域画面质量，在传感器数据上稀疏采样计算
+ */
+class FrameQuality {
+	/** 每个方向的采样点数 */
+	private static final int SAMPLE_COUNT = 32;
+	
+	/** 平均亮度 0 - 255 */
+	float meanLuminance;
+	/** 对比度，亮度标准差 */
+	float contrast;
+	/** 清晰度，拉普拉斯算子绝对值的平均 */
+	float sharpness;
+	
+	/**
+	 * 计算区域画面质量
+	 *
+	 * @param lumaPlane  亮度平面
+	 * @param sensorRect 传感器坐标系区域 {left, top, right, bottom}
+	 */
+	void measure(LumaPlane lumaPlane, int[] sensorRect) {
+		// 拉普拉斯算子需要上下左右各一个像素
+		int left = sensorRect[0] + 1;
+		int top = sensorRect[1] + 1;
+		int right = sensorRect[2] - 1;
+		int bottom = sensorRect[3] - 1;
+		if (right <= left || bottom <= top) {
+			this.meanLuminance = 0;
+			this.contrast = 0;
+			this.sharpness = 0;
+			return;
+		}
+		int stepX = Math.max(1, (right - left) / SAMPLE_COUNT);
+		int stepY = Math.max(1, (bottom - top) / SAMPLE_COUNT);
+		
+		long sum = 0;
+		long squareSum = 0;
+		long laplacianSum = 0;
+		int count = 0;
+		for (int y = top; y < bottom; y += stepY) {
+			for (int x = left; x < right; x += stepX) {
+				int value = lumaPlane.get(x, y);
+				int laplacian = 4 * value
+						- lumaPlane.get(x - 1, y)
+						- lumaPlane.get(x + 1, y)
+						- lumaPlane.get(x, y - 1)
+						- lumaPlane.get(x, y + 1);
+				sum += value;
+				squareSum += value * value;
+				laplacianSum += laplacian < 0 ? -laplacian : laplacian;
+				count++;
+			}
+		}
+		float mean = (float) sum / count;
+		float variance = (float) squareSum / count - mean * mean;
+		this.meanLuminance = mean;
+		this.contrast = (float) Math.sqrt(Math.max(variance, 0));
+		this.sharpness = (float) laplacianSum / count;
+	}
+}
@@ -0,0 +1,171 @@
+package com.kycq.library.scan;
+
+/**
+ * 解码前的画面质量筛选
+ * <p>
+ * 过暗、过亮、无对比度或模糊的帧直接跳过，不进入二值化与解码。
+ * 清晰度阈值随最近画面的清晰度峰值自适应调整，阈值可按设备调整。
+ */
+public class FrameQualityGate {
+	static final int QUALITY_OK = 0;
+	static final int QUALITY_DARK = 1;
+	static final int QUALITY_BRIGHT = 2;
+	static final int QUALITY_FLAT = 3;
+	static final int QUALITY_BLURRY = 4;
+	
+	/** 清晰度峰值每帧衰减比例 */
+	private static final float PEAK_DECAY = 0.95F;
+	
+	private boolean isEnabled = true;
+	private float minLuminance = 20;
+	private float maxLuminance = 245;
+	private float minContrast = 8;
+	private float minSharpness = 4;
+	private float relativeSharpness = 0.4F;
+	private int maxConsecutiveRejects = 10;
+	
+	private float peakSharpness;
+	private int consecutiveRejects;
+	
+	public synchronized boolean isEnabled() {
+		return this.isEnabled;
+	}
+	
+	/**
+	 * 设置是否启用画面质量筛选，默认启用
+	 *
+	 * @param enabled true 启用
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.isEnabled = enabled;
+	}
+	
+	public synchronized float getMinLuminance() {
+		return this.minLuminance;
+	}
+	
+	/**
+	 * 设置最低平均亮度，低于该值视为过暗
+	 *
+	 * @param minLuminance 0 - 255
+	 */
+	public synchronized void setMinLuminance(float minLuminance) {
+		this.minLuminance = minLuminance;
+	}
+	
+	public synchronized float getMaxLuminance() {
+		return this.maxLuminance;
+	}
+	
+	/**
+	 * 设置最高平均亮度，高于该值视为过曝
+	 *
+	 * @param maxLuminance 0 - 255
+	 */
+	public synchronized void setMaxLuminance(float maxLuminance) {
+		this.maxLuminance = maxLuminance;
+	}
+	
+	public synchronized float getMinContrast() {
+		return this.minContrast;
+	}
+	
+	/**
+	 * 设置最低对比度（亮度标准差），低于该值视为画面中没有内容
+	 *
+	 * @param minContrast 对比度
+	 */
+	public synchronized void setMinContrast(float minContrast) {
+		this.minContrast = minContrast;
+	}
+	
+	public synchronized float getMinSharpness() {
+		return this.minSharpness;
+	}
+	
+	/**
+	 * 设置清晰度绝对下限
+	 *
+	 * @param minSharpness 拉普拉斯算子绝对值的平均
+	 */
+	public synchronized void setMinSharpness(float minSharpness) {
+		this.minSharpness = minSharpness;
+	}
+	
+	public synchronized float getRelativeSharpness() {
+		return this.relativeSharpness;
+	}
+	
+	/**
+	 * 设置相对清晰度阈值，低于最近清晰度峰值的该比例视为模糊
+	 *
+	 * @param relativeSharpness 0 - 1
+	 */
+	public synchronized void setRelativeSharpness(float relativeSharpness) {
+		this.relativeSharpness = relativeSharpness;
+	}
+	
+	public synchronized int getMaxConsecutiveRejects() {
+		return this.maxConsecutiveRejects;
+	}
+	
+	/**
+	 * 设置连续跳过的最大帧数，超过后强制解码一帧，避免阈值不合适时无法识别
+	 *
+	 * @param maxConsecutiveRejects 最大帧数
+	 */
+	public synchronized void setMaxConsecutiveRejects(int maxConsecutiveRejects) {
+		this.maxConsecutiveRejects = maxConsecutiveRejects;
+	}
+	
+	/**
+	 * 当前的清晰度阈值
+	 *
+	 * @return 清晰度阈值
+	 */
+	public synchronized float getSharpnessThreshold() {
+		return Math.max(this.minSharpness, this.peakSharpness * this.relativeSharpness);
+	}
+	
+	/**
+	 * 重置自适应状态
+	 */
+	public synchronized void reset() {
+		this.peakSharpness = 0;
+		this.consecutiveRejects = 0;
+	}
+	
+	/**
+	 * 判断画面质量
+	 *
+	 * @param frameQuality 画面质量
+	 * @return QUALITY_OK 或跳过原因
+	 */
+	synchronized int evaluate(FrameQuality frameQuality) {
+		if (!this.isEnabled) {
+			return QUALITY_OK;
+		}
+		float sharpnessThreshold = getSharpnessThreshold();
+		this.peakSharpness = Math.max(frameQuality.sharpness, this.peakSharpness * PEAK_DECAY);
+		
+		int quality;
+		if (frameQuality.meanLuminance < this.minLuminance) {
+			quality = QUALITY_DARK;
+		} else if (frameQuality.meanLuminance > this.maxLuminance) {
+			quality = QUALITY_BRIGHT;
+		} else if (frameQuality.contrast < this.minContrast) {
+			quality = QUALITY_FLAT;
+		} else if (frameQuality.sharpness < sharpnessThreshold) {
+			quality = QUALITY_BLURRY;
+		} else {
+			quality = QUALITY_OK;
+		}
+		
+		if (quality == QUALITY_OK || this.consecutiveRejects >= this.maxConsecutiveRejects) {
+			this.consecutiveRejects = 0;
+			return QUALITY_OK;
+		}
+		this.consecutiveRejects++;
+		return quality;
+	}
+}
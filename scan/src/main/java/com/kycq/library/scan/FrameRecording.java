@@ -0,0 +1,131 @@
+package com.kycq.library.scan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 预览帧录制文件
+ * <p>
+ * 文件头为魔数、版本、宽、高、旋转角度与每帧字节数，之后每帧为纳秒时间戳与帧数据。
+ * 帧数据可以是完整的 NV21，也可以只有亮度平面。
+ */
+final class FrameRecording {
+	private static final int MAGIC = 0x4B534652;
+	private static final int VERSION = 1;
+	
+	private FrameRecording() {
+	}
+	
+	static class Writer implements Closeable {
+		private final DataOutputStream outputStream;
+		private final int frameSize;
+		
+		Writer(File file, int width, int height, int rotationAngle, int frameSize) throws IOException {
+			if (frameSize < width * height) {
+				throw new IllegalArgumentException("frameSize must contain the luminance plane: " + frameSize);
+			}
+			this.frameSize = frameSize;
+			this.outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			this.outputStream.writeInt(MAGIC);
+			this.outputStream.writeInt(VERSION);
+			this.outputStream.writeInt(width);
+			this.outputStream.writeInt(height);
+			this.outputStream.writeInt(rotationAngle);
+			this.outputStream.writeInt(frameSize);
+		}
+		
+		/**
+		 * 写入一帧
+		 *
+		 * @param data      帧数据，写入前 frameSize 字节
+		 * @param timestamp 采集时间，纳秒
+		 * @throws IOException 写入失败
+		 */
+		void write(byte[] data, long timestamp) throws IOException {
+			this.outputStream.writeLong(timestamp);
+			this.outputStream.write(data, 0, this.frameSize);
+		}
+		
+		@Override
+		public void close() throws IOException {
+			this.outputStream.close();
+		}
+	}
+	
+	static class Reader implements Closeable {
+		private final DataInputStream inputStream;
+		
+		final int width;
+		final int height;
+		final int rotationAngle;
+		final int frameSize;
+		
+		/** 最近读取的帧的采集时间 */
+		long timestamp;
+		
+		Reader(File file) throws IOException {
+			this.inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (this.inputStream.readInt() != MAGIC || this.inputStream.readInt() != VERSION) {
+					throw new IOException("not a frame recording: " + file);
+				}
+				this.width = this.inputStream.readInt();
+				this.height = this.inputStream.readInt();
+				this.rotationAngle = this.inputStream.readInt();
+				this.frameSize = this.inputStream.readInt();
+			} catch (IOException e) {
+				this.inputStream.close();
+				throw e;
+			}
+		}
+		
+		/**
+		 * 读取下一帧的采集时间，之后调用 readData 读取或跳过帧数据
+		 *
+		 * @return false 已读完
+		 * @throws IOException 读取失败
+		 */
+		boolean readTimestamp() throws IOException {
+			try {
+				this.timestamp = this.inputStream.readLong();
+			} catch (EOFException e) {
+				return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * 读取当前帧的数据
+		 *
+		 * @param data 帧数据，为 null 时跳过该帧
+		 * @throws IOException 读取失败
+		 */
+		void readData(byte[] data) throws IOException {
+			if (data == null) {
+				int skipped = 0;
+				while (skipped < this.frameSize) {
+					int count = this.inputStream.skipBytes(this.frameSize - skipped);
+					if (count <= 0) {
+						throw new EOFException();
+					}
+					skipped += count;
+				}
+			} else {
+				this.inputStream.readFully(data, 0, this.frameSize);
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			this.inputStream.close();
+		}
+	}
+}
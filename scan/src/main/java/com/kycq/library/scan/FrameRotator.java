@@ -0,0 +1,222 @@
+package com.kycq.library.scan;
+
+/**
+ * 预览数据旋转工具
+ * <p>
+ * 只处理亮度（Y）分量，色度数据不会被读取。
+ */
+final class FrameRotator {
+	/** 分块边长，32 x 32 的读写缓存行可同时驻留 L1 */
+	private static final int BLOCK_SIZE = 32;
+	
+	private FrameRotator() {
+	}
+	
+	/**
+	 * 旋转后的数据宽度
+	 *
+	 * @param dataWidth  传感器数据宽度
+	 * @param dataHeight 传感器数据高度
+	 * @param rotation   旋转角度
+	 * @return 旋转后的宽度
+	 */
+	static int rotatedWidth(int dataWidth, int dataHeight, int rotation) {
+		return rotation == 90 || rotation == 270 ? dataHeight : dataWidth;
+	}
+	
+	/**
+	 * 旋转后的数据高度
+	 *
+	 * @param dataWidth  传感器数据宽度
+	 * @param dataHeight 传感器数据高度
+	 * @param rotation   旋转角度
+	 * @return 旋转后的高度
+	 */
+	static int rotatedHeight(int dataWidth, int dataHeight, int rotation) {
+		return rotation == 90 || rotation == 270 ? dataWidth : dataHeight;
+	}
+	
+	/**
+	 * 旋转后坐标系中的区域映射回传感器坐标系
+	 *
+	 * @param dataWidth  传感器数据宽度
+	 * @param dataHeight 传感器数据高度
+	 * @param rotation   顺时针旋转角度
+	 * @param left       旋转后区域左边界
+	 * @param top        旋转后区域上边界
+	 * @param width      区域宽度
+	 * @param height     区域高度
+	 * @param sensorRect 输出传感器坐标系区域 {left, top, right, bottom}
+	 */
+	static void mapToSensor(int dataWidth, int dataHeight, int rotation,
+	                        int left, int top, int width, int height, int[] sensorRect) {
+		switch (rotation) {
+			case 90:
+				sensorRect[0] = top;
+				sensorRect[1] = dataHeight - left - width;
+				sensorRect[2] = top + height;
+				sensorRect[3] = dataHeight - left;
+				break;
+			case 180:
+				sensorRect[0] = dataWidth - left - width;
+				sensorRect[1] = dataHeight - top - height;
+				sensorRect[2] = dataWidth - left;
+				sensorRect[3] = dataHeight - top;
+				break;
+			case 270:
+				sensorRect[0] = dataWidth - top - height;
+				sensorRect[1] = left;
+				sensorRect[2] = dataWidth - top;
+				sensorRect[3] = left + width;
+				break;
+			default:
+				sensorRect[0] = left;
+				sensorRect[1] = top;
+				sensorRect[2] = left + width;
+				sensorRect[3] = top + height;
+				break;
+		}
+	}
+	
+	/**
+	 * 旋转整帧亮度数据
+	 *
+	 * @param data       传感器数据
+	 * @param dataWidth  传感器数据宽度
+	 * @param dataHeight 传感器数据高度
+	 * @param rotation   顺时针旋转角度
+	 * @param result     输出数据，长度不小于 dataWidth * dataHeight
+	 */
+	static void rotate(byte[] data, int dataWidth, int dataHeight, int rotation, byte[] result) {
+		rotateCrop(data, dataWidth, dataHeight, rotation,
+				0, 0,
+				rotatedWidth(dataWidth, dataHeight, rotation),
+				rotatedHeight(dataWidth, dataHeight, rotation),
+				result);
+	}
+	
+	/**
+	 * 截取旋转后坐标系中的区域，映射回传感器坐标系后只复制该区域的亮度数据
+	 *
+	 * @param data       传感器数据
+	 * @param dataWidth  传感器数据宽度
+	 * @param dataHeight 传感器数据高度
+	 * @param rotation   顺时针旋转角度
+	 * @param left       旋转后区域左边界
+	 * @param top        旋转后区域上边界
+	 * @param width      区域宽度
+	 * @param height     区域高度
+	 * @param result     输出数据，长度不小于 width * height
+	 */
+	static void rotateCrop(byte[] data, int dataWidth, int dataHeight, int rotation,
+	                       int left, int top, int width, int height, byte[] result) {
+		switch (rotation) {
+			case 90:
+				rotate90(data, dataWidth, dataHeight, left, top, width, height, result);
+				break;
+			case 180:
+				rotate180(data, dataWidth, dataHeight, left, top, width, height, result);
+				break;
+			case 270:
+				rotate270(data, dataWidth, left, top, width, height, result);
+				break;
+			default:
+				for (int y = 0; y < height; y++) {
+					System.arraycopy(data, (top + y) * dataWidth + left, result, y * width, width);
+				}
+				break;
+		}
+	}
+	
+	/**
+	 * 旋转后 (x, y) 对应传感器 (y, dataHeight - 1 - x)
+	 * <p>
+	 * 按 BLOCK_SIZE 分块转置，块内连续写入输出的一行，读取传感器的一列，
+	 * 读写涉及的缓存行都落在同一块内。
+	 */
+	private static void rotate90(byte[] data, int dataWidth, int dataHeight,
+	                             int left, int top, int width, int height, byte[] result) {
+		int dataWidth2 = dataWidth * 2;
+		int dataWidth3 = dataWidth * 3;
+		int dataWidth4 = dataWidth * 4;
+		for (int blockY = 0; blockY < height; blockY += BLOCK_SIZE) {
+			int blockBottom = Math.min(blockY + BLOCK_SIZE, height);
+			for (int blockX = 0; blockX < width; blockX += BLOCK_SIZE) {
+				int blockRight = Math.min(blockX + BLOCK_SIZE, width);
+				for (int y = blockY; y < blockBottom; y++) {
+					int inputOffset = (dataHeight - 1 - left - blockX) * dataWidth + top + y;
+					int outputOffset = y * width;
+					int x = blockX;
+					for (; x <= blockRight - 4; x += 4) {
+						result[outputOffset + x] = data[inputOffset];
+						result[outputOffset + x + 1] = data[inputOffset - dataWidth];
+						result[outputOffset + x + 2] = data[inputOffset - dataWidth2];
+						result[outputOffset + x + 3] = data[inputOffset - dataWidth3];
+						inputOffset -= dataWidth4;
+					}
+					for (; x < blockRight; x++) {
+						result[outputOffset + x] = data[inputOffset];
+						inputOffset -= dataWidth;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 旋转后 (x, y) 对应传感器 (dataWidth - 1 - x, dataHeight - 1 - y)
+	 * <p>
+	 * 读写均为顺序访问，无需分块，逐行倒序复制。
+	 */
+	private static void rotate180(byte[] data, int dataWidth, int dataHeight,
+	                              int left, int top, int width, int height, byte[] result) {
+		for (int y = 0; y < height; y++) {
+			int inputOffset = (dataHeight - 1 - top - y) * dataWidth + dataWidth - 1 - left;
+			int outputOffset = y * width;
+			int x = 0;
+			for (; x <= width - 4; x += 4) {
+				result[outputOffset + x] = data[inputOffset - x];
+				result[outputOffset + x + 1] = data[inputOffset - x - 1];
+				result[outputOffset + x + 2] = data[inputOffset - x - 2];
+				result[outputOffset + x + 3] = data[inputOffset - x - 3];
+			}
+			for (; x < width; x++) {
+				result[outputOffset + x] = data[inputOffset - x];
+			}
+		}
+	}
+	
+	/**
+	 * 旋转后 (x, y) 对应传感器 (dataWidth - 1 - y, x)
+	 * <p>
+	 * 分块方式同 {@link #rotate90}，块内沿传感器的一列向下读取。
+	 */
+	private static void rotate270(byte[] data, int dataWidth,
+	                              int left, int top, int width, int height, byte[] result) {
+		int dataWidth2 = dataWidth * 2;
+		int dataWidth3 = dataWidth * 3;
+		int dataWidth4 = dataWidth * 4;
+		for (int blockY = 0; blockY < height; blockY += BLOCK_SIZE) {
+			int blockBottom = Math.min(blockY + BLOCK_SIZE, height);
+			for (int blockX = 0; blockX < width; blockX += BLOCK_SIZE) {
+				int blockRight = Math.min(blockX + BLOCK_SIZE, width);
+				for (int y = blockY; y < blockBottom; y++) {
+					int inputOffset = (left + blockX) * dataWidth + dataWidth - 1 - top - y;
+					int outputOffset = y * width;
+					int x = blockX;
+					for (; x <= blockRight - 4; x += 4) {
+						result[outputOffset + x] = data[inputOffset];
+						result[outputOffset + x + 1] = data[inputOffset + dataWidth];
+						result[outputOffset + x + 2] = data[inputOffset + dataWidth2];
+						result[outputOffset + x + 3] = data[inputOffset + dataWidth3];
+						inputOffset += dataWidth4;
+					}
+					for (; x < blockRight; x++) {
+						result[outputOffset + x] = data[inputOffset];
+						inputOffset += dataWidth;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.kycq.library.scan;
+
+/**
+ * 预览帧来源
+ * <p>
+ * 帧来源只持有有限的帧缓冲区，回调的每一帧处理完成后都须调用 releaseFrame 归还，
+ * 缓冲区用尽时新帧被丢弃。
+ */
+interface FrameSource {
+	
+	/**
+	 * 开始输出预览帧
+	 *
+	 * @param frameCallback 帧回调，在帧来源的线程上调用
+	 * @param bufferCount   帧缓冲区数量
+	 */
+	void start(FrameCallback frameCallback, int bufferCount);
+	
+	/**
+	 * 停止输出预览帧，之后归还的帧直接丢弃
+	 */
+	void stop();
+	
+	/**
+	 * 归还预览帧
+	 *
+	 * @param previewFrame 预览帧
+	 */
+	void releaseFrame(PreviewFrame previewFrame);
+	
+	interface FrameCallback {
+		void onFrame(PreviewFrame previewFrame);
+	}
+}
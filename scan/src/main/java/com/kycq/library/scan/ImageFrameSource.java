@@ -0,0 +1,132 @@
+package com.kycq.library.scan;
+
+import java.util.ArrayDeque;
+
+/**
+ * 以图像作为帧来源，预览帧直接引用图像的亮度平面，不复制整帧
+ * <p>
+ * 图像在预览帧归还时关闭，同时持有的图像不超过开始时指定的缓冲数量，
+ * 超出时与相机缓冲区用尽一样丢弃新图像。
+ */
+abstract class ImageFrameSource implements FrameSource {
+	private final int width;
+	private final int height;
+	private final int rotationAngle;
+	
+	private final ArrayDeque<ImageFrame> framePool = new ArrayDeque<>();
+	private FrameCallback frameCallback;
+	private int bufferCount;
+	private int pendingCount;
+	
+	/**
+	 * @param width         图像宽度
+	 * @param height        图像高度
+	 * @param rotationAngle 画面需顺时针旋转的角度
+	 */
+	ImageFrameSource(int width, int height, int rotationAngle) {
+		this.width = width;
+		this.height = height;
+		this.rotationAngle = rotationAngle;
+	}
+	
+	@Override
+	public void start(FrameCallback frameCallback, int bufferCount) {
+		synchronized (this) {
+			if (this.frameCallback != null) {
+				return;
+			}
+			this.frameCallback = frameCallback;
+			this.bufferCount = bufferCount;
+		}
+		onStart();
+	}
+	
+	@Override
+	public void stop() {
+		synchronized (this) {
+			if (this.frameCallback == null) {
+				return;
+			}
+			this.frameCallback = null;
+		}
+		onStop();
+	}
+	
+	/**
+	 * 归还预览帧并关闭对应的图像
+	 *
+	 * @param previewFrame 预览帧
+	 */
+	@Override
+	public void releaseFrame(PreviewFrame previewFrame) {
+		ImageFrame imageFrame = (ImageFrame) previewFrame;
+		LumaImage image;
+		synchronized (this) {
+			image = imageFrame.image;
+			if (image == null) {
+				return;
+			}
+			imageFrame.image = null;
+			imageFrame.bufferLumaPlane.buffer = null;
+			this.pendingCount--;
+			if (this.framePool.size() < this.bufferCount) {
+				this.framePool.offer(imageFrame);
+			}
+		}
+		image.close();
+	}
+	
+	/**
+	 * 新图像到达，由子类在图像线程调用
+	 *
+	 * @param image 图像，所有权交给帧来源
+	 */
+	void onImage(LumaImage image) {
+		FrameCallback theFrameCallback;
+		ImageFrame imageFrame = null;
+		synchronized (this) {
+			theFrameCallback = this.frameCallback;
+			if (theFrameCallback != null && this.pendingCount < this.bufferCount) {
+				imageFrame = this.framePool.poll();
+				if (imageFrame == null) {
+					imageFrame = new ImageFrame();
+				}
+				imageFrame.image = image;
+				this.pendingCount++;
+			}
+		}
+		if (imageFrame == null) {
+			image.close();
+			return;
+		}
+		
+		BufferLumaPlane lumaPlane = imageFrame.bufferLumaPlane;
+		lumaPlane.buffer = image.getBuffer();
+		lumaPlane.rowStride = image.getRowStride();
+		lumaPlane.pixelStride = image.getPixelStride();
+		imageFrame.dataWidth = this.width;
+		imageFrame.dataHeight = this.height;
+		imageFrame.rotationAngle = this.rotationAngle;
+		imageFrame.timestamp = image.getTimestamp();
+		theFrameCallback.onFrame(imageFrame);
+	}
+	
+	/**
+	 * 开始输出图像
+	 */
+	abstract void onStart();
+	
+	/**
+	 * 停止输出图像
+	 */
+	abstract void onStop();
+	
+	private static class ImageFrame extends PreviewFrame {
+		final BufferLumaPlane bufferLumaPlane = new BufferLumaPlane();
+		LumaImage image;
+		
+		ImageFrame() {
+			this.lumaPlane = this.bufferLumaPlane;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.kycq.library.scan;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时直方图，以微秒为单位按对数分桶，可多线程同时记录
+ * <p>
+ * 8 微秒以下每微秒一个桶，以上每个 2 倍区间分 8 个桶，百分位误差不超过 12.5%。
+ */
+class LatencyHistogram {
+	/** 每个 2 倍区间的桶数 */
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	/** 最大记录约 2^27 微秒（134 秒），更大的值计入最后一个桶 */
+	private static final int MAX_EXPONENT = 26;
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	
+	/**
+	 * 记录一次耗时
+	 *
+	 * @param nanos 耗时，纳秒
+	 */
+	void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+		this.counts.incrementAndGet(bucketIndex(micros));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(micros);
+	}
+	
+	long getCount() {
+		return this.count.get();
+	}
+	
+	/**
+	 * @return 平均耗时，微秒
+	 */
+	long getMean() {
+		long theCount = this.count.get();
+		return theCount == 0 ? 0 : this.sum.get() / theCount;
+	}
+	
+	/**
+	 * 百分位耗时，取所在桶的中间值
+	 *
+	 * @param percentile 0 - 100
+	 * @return 耗时，微秒，没有记录时为 0
+	 */
+	long getPercentile(float percentile) {
+		long total = 0;
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			total += this.counts.get(index);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100D);
+		rank = Math.max(rank, 1);
+		long accumulated = 0;
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			accumulated += this.counts.get(index);
+			if (accumulated >= rank) {
+				return (bucketLowerBound(index) + bucketLowerBound(index + 1) - 1) / 2;
+			}
+		}
+		return bucketLowerBound(BUCKET_COUNT - 1);
+	}
+	
+	void reset() {
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			this.counts.set(index, 0);
+		}
+		this.count.set(0);
+		this.sum.set(0);
+	}
+	
+	static int bucketIndex(long micros) {
+		if (micros < SUB_BUCKET_COUNT) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+	
+	static long bucketLowerBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		int subBucket = index % SUB_BUCKET_COUNT;
+		return (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+	}
+}
@@ -0,0 +1,24 @@
+package com.kycq.library.scan;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 持有亮度平面的图像，如 Camera2 的 android.media.Image
+ */
+interface LumaImage {
+	ByteBuffer getBuffer();
+	
+	int getRowStride();
+	
+	int getPixelStride();
+	
+	/**
+	 * @return 采集时间，纳秒
+	 */
+	long getTimestamp();
+	
+	/**
+	 * 释放图像，之后亮度平面失效
+	 */
+	void close();
+}
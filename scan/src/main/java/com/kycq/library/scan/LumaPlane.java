@@ -0,0 +1,36 @@
+package com.kycq.library.scan;
+
+/**
+ * 预览帧的亮度平面，坐标为传感器坐标系
+ */
+abstract class LumaPlane {
+	
+	/**
+	 * 像素亮度
+	 *
+	 * @param x 横坐标
+	 * @param y 纵坐标
+	 * @return 0 - 255
+	 */
+	abstract int get(int x, int y);
+	
+	/**
+	 * 复制区域内的亮度，按行紧密排列
+	 *
+	 * @param left   区域左边
+	 * @param top    区域上边
+	 * @param width  区域宽度
+	 * @param height 区域高度
+	 * @param result 复制结果
+	 */
+	abstract void copyRegion(int left, int top, int width, int height, byte[] result);
+	
+	/**
+	 * 行间距与帧宽度相同的亮度数组，可直接旋转截取
+	 *
+	 * @return 亮度数组，不是数组时为 null
+	 */
+	byte[] array() {
+		return null;
+	}
+}
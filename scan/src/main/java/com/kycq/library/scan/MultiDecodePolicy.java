@@ -0,0 +1,75 @@
+package com.kycq.library.scan;
+
+/**
+ * 单帧多码识别策略，默认关闭
+ * <p>
+ * 启用后每帧识别扫描区域内的全部条码，结果按格式与内容跨帧去重累积，
+ * 连续若干帧没有新的条码或达到最大数量时一次回调全部结果。
+ */
+public class MultiDecodePolicy {
+	private boolean isEnabled;
+	private int maxResultCount = 6;
+	private long frameTimeBudget = 100;
+	private int settleFrameCount = 3;
+	
+	public synchronized boolean isEnabled() {
+		return this.isEnabled;
+	}
+	
+	/**
+	 * 设置是否单帧多码识别，启用时通过 ScanView.OnMultiScanListener 回调，下次启动扫描时生效
+	 *
+	 * @param enabled true 启用
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.isEnabled = enabled;
+	}
+	
+	public synchronized int getMaxResultCount() {
+		return this.maxResultCount;
+	}
+	
+	/**
+	 * 设置一次回调的最大条码数量，达到后立即回调
+	 *
+	 * @param maxResultCount 不小于 1
+	 */
+	public synchronized void setMaxResultCount(int maxResultCount) {
+		if (maxResultCount < 1) {
+			throw new IllegalArgumentException("maxResultCount must be positive: " + maxResultCount);
+		}
+		this.maxResultCount = maxResultCount;
+	}
+	
+	public synchronized long getFrameTimeBudget() {
+		return this.frameTimeBudget;
+	}
+	
+	/**
+	 * 设置单帧识别的时间预算，超时后不再搜索其余区域
+	 *
+	 * @param frameTimeBudget 毫秒
+	 */
+	public synchronized void setFrameTimeBudget(long frameTimeBudget) {
+		if (frameTimeBudget <= 0) {
+			throw new IllegalArgumentException("frameTimeBudget must be positive: " + frameTimeBudget);
+		}
+		this.frameTimeBudget = frameTimeBudget;
+	}
+	
+	public synchronized int getSettleFrameCount() {
+		return this.settleFrameCount;
+	}
+	
+	/**
+	 * 设置连续多少帧没有新的条码后回调已累积的结果
+	 *
+	 * @param settleFrameCount 不小于 1
+	 */
+	public synchronized void setSettleFrameCount(int settleFrameCount) {
+		if (settleFrameCount < 1) {
+			throw new IllegalArgumentException("settleFrameCount must be positive: " + settleFrameCount);
+		}
+		this.settleFrameCount = settleFrameCount;
+	}
+}
@@ -0,0 +1,132 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单帧多码识别，每个解码线程持有一个
+ * <p>
+ * 先以 QRCodeMultiReader 识别全部二维码，再由 GenericMultipleBarcodeReader 递归搜索其余区域，
+ * 超过时间预算后不再搜索。
+ */
+class MultiDecoder {
+	private final MultiFormatReader multiFormatReader;
+	private final Map<DecodeHintType, ?> hints;
+	private final QRCodeMultiReader qrCodeMultiReader;
+	private final DeadlineReader deadlineReader;
+	private final GenericMultipleBarcodeReader genericMultipleBarcodeReader;
+	
+	private final List<Result> results = new ArrayList<>();
+	private final Set<String> resultKeys = new HashSet<>();
+	
+	/**
+	 * @param multiFormatReader 已设置解码参数的解码器
+	 * @param hints             与解码器相同的解码参数
+	 */
+	MultiDecoder(MultiFormatReader multiFormatReader, Map<DecodeHintType, ?> hints) {
+		this.multiFormatReader = multiFormatReader;
+		this.hints = hints;
+		Object possibleFormats = hints == null ? null : hints.get(DecodeHintType.POSSIBLE_FORMATS);
+		boolean isQRCodeEnabled = possibleFormats == null
+				|| ((Collection<?>) possibleFormats).contains(BarcodeFormat.QR_CODE);
+		this.qrCodeMultiReader = isQRCodeEnabled ? new QRCodeMultiReader() : null;
+		this.deadlineReader = new DeadlineReader(multiFormatReader);
+		this.genericMultipleBarcodeReader = new GenericMultipleBarcodeReader(this.deadlineReader);
+	}
+	
+	/**
+	 * 识别图像中的全部条码
+	 *
+	 * @param bitmap         扫描区域图像
+	 * @param maxResultCount 最大数量
+	 * @param timeBudget     时间预算，毫秒
+	 * @return 按格式与内容去重的结果，下次识别前有效
+	 */
+	List<Result> decode(BinaryBitmap bitmap, int maxResultCount, long timeBudget) {
+		this.results.clear();
+		this.resultKeys.clear();
+		long deadline = System.nanoTime() + timeBudget * 1000000L;
+		
+		if (this.qrCodeMultiReader != null) {
+			try {
+				addResults(this.qrCodeMultiReader.decodeMultiple(bitmap, this.hints), maxResultCount);
+			} catch (ReaderException ignored) {
+			}
+		}
+		if (this.results.size() < maxResultCount && System.nanoTime() < deadline) {
+			this.deadlineReader.deadline = deadline;
+			try {
+				addResults(this.genericMultipleBarcodeReader.decodeMultiple(bitmap, this.hints), maxResultCount);
+			} catch (ReaderException ignored) {
+			} finally {
+				this.multiFormatReader.reset();
+			}
+		}
+		return this.results;
+	}
+	
+	private void addResults(Result[] theResults, int maxResultCount) {
+		for (Result result : theResults) {
+			if (this.results.size() >= maxResultCount) {
+				return;
+			}
+			if (this.resultKeys.add(resultKey(result))) {
+				this.results.add(result);
+			}
+		}
+	}
+	
+	/**
+	 * 按格式与内容去重
+	 */
+	static String resultKey(Result result) {
+		return result.getBarcodeFormat() + ":" + result.getText();
+	}
+	
+	/**
+	 * 超过截止时间后直接视为未找到，结束 GenericMultipleBarcodeReader 的递归
+	 * <p>
+	 * 解码参数已设置在解码器上，使用 decodeWithState 避免每次调用重新创建各格式的解码器。
+	 */
+	private static class DeadlineReader implements Reader {
+		private final MultiFormatReader multiFormatReader;
+		long deadline;
+		
+		DeadlineReader(MultiFormatReader multiFormatReader) {
+			this.multiFormatReader = multiFormatReader;
+		}
+		
+		@Override
+		public Result decode(BinaryBitmap image) throws NotFoundException {
+			if (System.nanoTime() > this.deadline) {
+				throw NotFoundException.getNotFoundInstance();
+			}
+			return this.multiFormatReader.decodeWithState(image);
+		}
+		
+		@Override
+		public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException {
+			return decode(image);
+		}
+		
+		@Override
+		public void reset() {
+			this.multiFormatReader.reset();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.Result;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 跨帧累积多码识别结果，所有解码线程共用
+ * <p>
+ * 按格式与内容去重并保持首次识别的顺序，连续 settleFrameCount 帧没有新的条码或达到最大数量时返回全部结果。
+ */
+class MultiResultAccumulator {
+	private final int maxResultCount;
+	private final int settleFrameCount;
+	private final Map<String, Result> results = new LinkedHashMap<>();
+	private int quietFrameCount;
+	
+	MultiResultAccumulator(int maxResultCount, int settleFrameCount) {
+		this.maxResultCount = maxResultCount;
+		this.settleFrameCount = settleFrameCount;
+	}
+	
+	/**
+	 * 加入一帧的识别结果
+	 *
+	 * @param frameResults 该帧识别到的条码，可为空
+	 * @return 可以回调时返回全部结果并清空，否则为 null
+	 */
+	synchronized List<Result> frameDecoded(List<Result> frameResults) {
+		boolean isGrown = false;
+		for (Result result : frameResults) {
+			String key = MultiDecoder.resultKey(result);
+			if (!this.results.containsKey(key) && this.results.size() < this.maxResultCount) {
+				this.results.put(key, result);
+				isGrown = true;
+			}
+		}
+		if (this.results.isEmpty()) {
+			return null;
+		}
+		if (isGrown) {
+			this.quietFrameCount = 0;
+		} else {
+			this.quietFrameCount++;
+		}
+		if (this.results.size() < this.maxResultCount && this.quietFrameCount < this.settleFrameCount) {
+			return null;
+		}
+		List<Result> theResults = new ArrayList<>(this.results.values());
+		reset();
+		return theResults;
+	}
+	
+	synchronized void reset() {
+		this.results.clear();
+		this.quietFrameCount = 0;
+	}
+}
@@ -0,0 +1,44 @@
+package com.kycq.library.scan;
+
+/**
+ * 预览帧，由帧来源循环复用
+ */
+class PreviewFrame {
+	/** 亮度平面 */
+	LumaPlane lumaPlane;
+	int dataWidth;
+	int dataHeight;
+	/** 画面需顺时针旋转的角度 */
+	int rotationAngle;
+	/** 采集时间，纳秒 */
+	long timestamp;
+	/** 分发时间，System.nanoTime，未统计耗时为 0 */
+	long receiveTime;
+	
+	private ArrayLumaPlane arrayLumaPlane;
+	
+	/**
+	 * 使用数组中的亮度平面
+	 *
+	 * @param data       帧数据，前 dataWidth * dataHeight 字节为亮度平面
+	 * @param dataWidth  帧宽度
+	 * @param dataHeight 帧高度
+	 */
+	void setData(byte[] data, int dataWidth, int dataHeight) {
+		if (this.arrayLumaPlane == null) {
+			this.arrayLumaPlane = new ArrayLumaPlane();
+		}
+		this.arrayLumaPlane.data = data;
+		this.arrayLumaPlane.width = dataWidth;
+		this.lumaPlane = this.arrayLumaPlane;
+		this.dataWidth = dataWidth;
+		this.dataHeight = dataHeight;
+	}
+	
+	/**
+	 * @return 数组中的帧数据，亮度平面不在数组中时为 null
+	 */
+	byte[] getData() {
+		return this.lumaPlane == null ? null : this.lumaPlane.array();
+	}
+}
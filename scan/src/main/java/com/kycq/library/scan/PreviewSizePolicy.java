@@ -0,0 +1,289 @@
+package com.kycq.library.scan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 预览分辨率策略，可继承后通过 ScanView.setPreviewSizePolicy 替换
+ * <p>
+ * MODE_ADAPTIVE 选择扫描框内像素足够的最小尺寸，解码耗时与扫描框像素数基本成正比，
+ * 低端设备不必解码 1080P 以上的画面。启用分级调整后，扫描期间按实测解码耗时与识别结果升降一级分辨率。
+ * MODE_LARGEST 与屏幕分辨率一致的尺寸优先，否则取最大尺寸。
+ */
+public class PreviewSizePolicy {
+	public static final int MODE_LARGEST = 0;
+	public static final int MODE_ADAPTIVE = 1;
+	
+	private static final int MIN_PREVIEW_PIXELS = 480 * 320;
+	private static final double MAX_ASPECT_DISTORTION = 0.15;
+	/** 超过耗时预算该比例后才降低分辨率，避免来回切换 */
+	private static final float STEP_DOWN_RATIO = 1.25F;
+	
+	private int mode = MODE_ADAPTIVE;
+	private float finderRatio = 0.6F;
+	private int minFinderPixels = 400;
+	private float targetDecodeRate = 15;
+	private boolean isStepEnabled;
+	private int stepWindow = 30;
+	
+	/** 实测的每百万扫描框像素解码耗时，毫秒，多次扫描间保留 */
+	private float decodeCostPerMegapixel;
+	
+	public synchronized int getMode() {
+		return this.mode;
+	}
+	
+	/**
+	 * 设置选择方式，默认 MODE_ADAPTIVE，下次启动扫描时生效
+	 *
+	 * @param mode MODE_ADAPTIVE 或 MODE_LARGEST
+	 */
+	public synchronized void setMode(int mode) {
+		if (mode != MODE_LARGEST && mode != MODE_ADAPTIVE) {
+			throw new IllegalArgumentException("Unknown mode: " + mode);
+		}
+		this.mode = mode;
+	}
+	
+	public synchronized float getFinderRatio() {
+		return this.finderRatio;
+	}
+	
+	/**
+	 * 设置扫描框边长占画面短边的比例，用于估算扫描框内的像素数
+	 *
+	 * @param finderRatio 0 - 1
+	 */
+	public synchronized void setFinderRatio(float finderRatio) {
+		if (finderRatio <= 0 || finderRatio > 1) {
+			throw new IllegalArgumentException("finderRatio must be in (0, 1]: " + finderRatio);
+		}
+		this.finderRatio = finderRatio;
+	}
+	
+	public synchronized int getMinFinderPixels() {
+		return this.minFinderPixels;
+	}
+	
+	/**
+	 * 设置扫描框边长至少需要的像素数，密集的条码需要更多像素
+	 *
+	 * @param minFinderPixels 像素数
+	 */
+	public synchronized void setMinFinderPixels(int minFinderPixels) {
+		if (minFinderPixels < 1) {
+			throw new IllegalArgumentException("minFinderPixels must be positive: " + minFinderPixels);
+		}
+		this.minFinderPixels = minFinderPixels;
+	}
+	
+	public synchronized float getTargetDecodeRate() {
+		return this.targetDecodeRate;
+	}
+	
+	/**
+	 * 设置每个解码线程每秒的目标解码次数，决定提高分辨率的耗时预算
+	 *
+	 * @param targetDecodeRate 每秒次数
+	 */
+	public synchronized void setTargetDecodeRate(float targetDecodeRate) {
+		if (targetDecodeRate <= 0) {
+			throw new IllegalArgumentException("targetDecodeRate must be positive: " + targetDecodeRate);
+		}
+		this.targetDecodeRate = targetDecodeRate;
+	}
+	
+	public synchronized boolean isStepEnabled() {
+		return this.isStepEnabled;
+	}
+	
+	/**
+	 * 设置扫描期间是否按实测解码耗时升降分辨率，默认关闭，下次启动扫描时生效
+	 * <p>
+	 * 切换分辨率需要重新开始预览，画面会短暂停顿
+	 *
+	 * @param stepEnabled true 启用
+	 */
+	public synchronized void setStepEnabled(boolean stepEnabled) {
+		this.isStepEnabled = stepEnabled;
+	}
+	
+	public synchronized int getStepWindow() {
+		return this.stepWindow;
+	}
+	
+	/**
+	 * 设置每次判断是否调整分辨率前的解码次数
+	 *
+	 * @param stepWindow 解码次数
+	 */
+	public synchronized void setStepWindow(int stepWindow) {
+		if (stepWindow < 1) {
+			throw new IllegalArgumentException("stepWindow must be positive: " + stepWindow);
+		}
+		this.stepWindow = stepWindow;
+	}
+	
+	/**
+	 * 实测的每百万扫描框像素解码耗时
+	 *
+	 * @return 毫秒，未测量时为 0
+	 */
+	public synchronized float getDecodeCostPerMegapixel() {
+		return this.decodeCostPerMegapixel;
+	}
+	
+	/**
+	 * 打开相机时选择预览尺寸
+	 *
+	 * @param supportedSizes 相机支持的尺寸 {宽, 高}，传感器方向
+	 * @param screenWidth    屏幕宽度
+	 * @param screenHeight   屏幕高度
+	 * @return 预览尺寸 {宽, 高}，没有合适尺寸时为 null
+	 */
+	public synchronized int[] selectPreviewSize(List<int[]> supportedSizes, int screenWidth, int screenHeight) {
+		List<int[]> sizes = sortByPixels(supportedSizes);
+		if (this.mode == MODE_LARGEST) {
+			return findScreenOrLargestSize(sizes, screenWidth, screenHeight);
+		}
+		
+		List<int[]> candidates = filterAspectRatio(sizes, screenWidth, screenHeight);
+		if (candidates.isEmpty()) {
+			candidates = sizes;
+		}
+		for (int[] candidate : candidates) {
+			if (finderPixels(candidate) >= this.minFinderPixels) {
+				return candidate.clone();
+			}
+		}
+		// 都不满足时取最大尺寸
+		return candidates.isEmpty() ? null : candidates.get(candidates.size() - 1).clone();
+	}
+	
+	/**
+	 * 扫描期间按实测结果调整预览尺寸，每 stepWindow 次解码调用一次
+	 *
+	 * @param supportedSizes 相机支持的尺寸 {宽, 高}，传感器方向
+	 * @param currentWidth   当前宽度
+	 * @param currentHeight  当前高度
+	 * @param decodeMillis   平均每次解码的耗时，毫秒
+	 * @param successRate    识别成功的比例
+	 * @return 新尺寸 {宽, 高}，不调整时为 null
+	 */
+	public synchronized int[] stepPreviewSize(List<int[]> supportedSizes, int currentWidth, int currentHeight,
+	                                          float decodeMillis, float successRate) {
+		float currentFinderPixels = Math.min(currentWidth, currentHeight) * this.finderRatio;
+		float megapixels = currentFinderPixels * currentFinderPixels / 1000000F;
+		if (megapixels > 0 && decodeMillis > 0) {
+			float cost = decodeMillis / megapixels;
+			this.decodeCostPerMegapixel = this.decodeCostPerMegapixel == 0
+					? cost : (this.decodeCostPerMegapixel + cost) / 2;
+		}
+		if (this.mode != MODE_ADAPTIVE || !this.isStepEnabled) {
+			return null;
+		}
+		
+		List<int[]> candidates = filterAspectRatio(sortByPixels(supportedSizes), currentWidth, currentHeight);
+		int index = indexOf(candidates, currentWidth, currentHeight);
+		if (index < 0) {
+			return null;
+		}
+		float budget = 1000F / this.targetDecodeRate;
+		if (decodeMillis > budget * STEP_DOWN_RATIO) {
+			// 超出耗时预算，在扫描框像素足够的前提下降低一级
+			if (index > 0 && finderPixels(candidates.get(index - 1)) >= this.minFinderPixels) {
+				return candidates.get(index - 1).clone();
+			}
+		} else if (successRate == 0 && index < candidates.size() - 1) {
+			// 一直未识别，预计耗时仍在预算内时提高一级
+			int[] nextSize = candidates.get(index + 1);
+			float nextMegapixels = finderPixels(nextSize) * finderPixels(nextSize) / 1000000F;
+			if (this.decodeCostPerMegapixel * nextMegapixels <= budget) {
+				return nextSize.clone();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 扫描框边长的像素数
+	 */
+	private float finderPixels(int[] size) {
+		return Math.min(size[0], size[1]) * this.finderRatio;
+	}
+	
+	private static int indexOf(List<int[]> sizes, int width, int height) {
+		for (int index = 0; index < sizes.size(); index++) {
+			int[] size = sizes.get(index);
+			if (size[0] == width && size[1] == height) {
+				return index;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * 按像素数由小到大排序，去掉过小的尺寸
+	 */
+	private static List<int[]> sortByPixels(List<int[]> supportedSizes) {
+		List<int[]> sizes = new ArrayList<>(supportedSizes.size());
+		for (int[] size : supportedSizes) {
+			if (size[0] * size[1] >= MIN_PREVIEW_PIXELS) {
+				sizes.add(size);
+			}
+		}
+		Collections.sort(sizes, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				int aPixels = a[1] * a[0];
+				int bPixels = b[1] * b[0];
+				if (aPixels < bPixels) {
+					return -1;
+				}
+				if (aPixels > bPixels) {
+					return 1;
+				}
+				return 0;
+			}
+		});
+		return sizes;
+	}
+	
+	/**
+	 * 宽高比与参考尺寸接近的尺寸，不区分横竖
+	 */
+	private static List<int[]> filterAspectRatio(List<int[]> sizes, int referenceWidth, int referenceHeight) {
+		double referenceRatio = (double) Math.max(referenceWidth, referenceHeight)
+				/ Math.min(referenceWidth, referenceHeight);
+		List<int[]> candidates = new ArrayList<>();
+		for (int[] size : sizes) {
+			double ratio = (double) Math.max(size[0], size[1]) / Math.min(size[0], size[1]);
+			if (Math.abs(ratio - referenceRatio) <= MAX_ASPECT_DISTORTION) {
+				candidates.add(size);
+			}
+		}
+		return candidates;
+	}
+	
+	/**
+	 * 与屏幕宽高一致的尺寸优先，否则取最大尺寸
+	 */
+	private static int[] findScreenOrLargestSize(List<int[]> sizes, int screenWidth, int screenHeight) {
+		for (int index = sizes.size() - 1; index >= 0; index--) {
+			int[] size = sizes.get(index);
+			boolean isCandidatePortrait = size[0] < size[1];
+			int maybeFlippedWidth = isCandidatePortrait ? size[1] : size[0];
+			int maybeFlippedHeight = isCandidatePortrait ? size[0] : size[1];
+			
+			// 宽高比例一致
+			if (maybeFlippedWidth == screenWidth && maybeFlippedHeight == screenHeight) {
+				return size.clone();
+			}
+		}
+		
+		// 宽高比例无法一致，取最优
+		return sizes.isEmpty() ? null : sizes.get(sizes.size() - 1).clone();
+	}
+}
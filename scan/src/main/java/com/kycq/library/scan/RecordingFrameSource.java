@@ -0,0 +1,102 @@
+package com.kycq.library.scan;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 录制经过的预览帧，只录制亮度平面，用于离线回放
+ * <p>
+ * 写入在帧来源的线程上同步进行，会降低帧率，只用于采集测试素材。
+ */
+class RecordingFrameSource implements FrameSource, FrameSource.FrameCallback {
+	private final FrameSource frameSource;
+	private final File file;
+	
+	private FrameCallback frameCallback;
+	private FrameRecording.Writer writer;
+	private boolean isFailed;
+	private byte[] recordBuffer;
+	private int recordWidth;
+	private int recordHeight;
+	
+	RecordingFrameSource(FrameSource frameSource, File file) {
+		this.frameSource = frameSource;
+		this.file = file;
+	}
+	
+	@Override
+	public void start(FrameCallback frameCallback, int bufferCount) {
+		synchronized (this) {
+			this.frameCallback = frameCallback;
+		}
+		this.frameSource.start(this, bufferCount);
+	}
+	
+	@Override
+	public void stop() {
+		this.frameSource.stop();
+		synchronized (this) {
+			this.frameCallback = null;
+			if (this.writer != null) {
+				try {
+					this.writer.close();
+				} catch (IOException ignored) {
+				}
+				this.writer = null;
+			}
+		}
+	}
+	
+	@Override
+	public void releaseFrame(PreviewFrame previewFrame) {
+		this.frameSource.releaseFrame(previewFrame);
+	}
+	
+	@Override
+	public void onFrame(PreviewFrame previewFrame) {
+		FrameCallback theFrameCallback;
+		synchronized (this) {
+			theFrameCallback = this.frameCallback;
+			record(previewFrame);
+		}
+		if (theFrameCallback != null) {
+			theFrameCallback.onFrame(previewFrame);
+		} else {
+			this.frameSource.releaseFrame(previewFrame);
+		}
+	}
+	
+	private void record(PreviewFrame previewFrame) {
+		if (this.isFailed || this.frameCallback == null) {
+			return;
+		}
+		if (this.writer != null && (previewFrame.dataWidth != this.recordWidth
+				|| previewFrame.dataHeight != this.recordHeight)) {
+			// 扫描期间更换了预览尺寸，录制文件只支持一种尺寸
+			this.isFailed = true;
+			return;
+		}
+		try {
+			if (this.writer == null) {
+				this.writer = new FrameRecording.Writer(this.file,
+						previewFrame.dataWidth, previewFrame.dataHeight, previewFrame.rotationAngle,
+						previewFrame.dataWidth * previewFrame.dataHeight);
+				this.recordWidth = previewFrame.dataWidth;
+				this.recordHeight = previewFrame.dataHeight;
+			}
+			byte[] data = previewFrame.getData();
+			if (data == null) {
+				int frameSize = previewFrame.dataWidth * previewFrame.dataHeight;
+				if (this.recordBuffer == null || this.recordBuffer.length < frameSize) {
+					this.recordBuffer = new byte[frameSize];
+				}
+				data = this.recordBuffer;
+				previewFrame.lumaPlane.copyRegion(0, 0, previewFrame.dataWidth, previewFrame.dataHeight, data);
+			}
+			this.writer.write(data, previewFrame.timestamp);
+		} catch (IOException e) {
+			// 存储空间不足等，停止录制但不影响扫描
+			this.isFailed = true;
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.kycq.library.scan;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * 回放录制的预览帧
+ * <p>
+ * 按录制时的间隔回放时，没有空闲缓冲区的帧与相机一样被丢弃；
+ * 全速回放时等待缓冲区归还，每一帧都会送达，用于在普通 JVM 上测量整个解码流程。
+ */
+class ReplayFrameSource implements FrameSource {
+	private final File file;
+	private final boolean isRealTime;
+	private final boolean isLooping;
+	
+	private final ArrayDeque<PreviewFrame> freeFrames = new ArrayDeque<>();
+	private int bufferCount;
+	private ReplayThread replayThread;
+	private IOException replayException;
+	
+	/**
+	 * @param file       录制文件
+	 * @param isRealTime true 按录制时的间隔回放，false 全速回放
+	 * @param isLooping  true 循环回放
+	 */
+	ReplayFrameSource(File file, boolean isRealTime, boolean isLooping) {
+		this.file = file;
+		this.isRealTime = isRealTime;
+		this.isLooping = isLooping;
+	}
+	
+	@Override
+	public synchronized void start(FrameCallback frameCallback, int bufferCount) {
+		if (this.replayThread != null) {
+			return;
+		}
+		this.bufferCount = bufferCount;
+		this.replayException = null;
+		this.replayThread = new ReplayThread(frameCallback);
+		this.replayThread.start();
+	}
+	
+	@Override
+	public void stop() {
+		ReplayThread theReplayThread;
+		synchronized (this) {
+			theReplayThread = this.replayThread;
+			if (theReplayThread == null) {
+				return;
+			}
+			theReplayThread.isRunning = false;
+			theReplayThread.interrupt();
+		}
+		try {
+			theReplayThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			this.replayThread = null;
+			this.freeFrames.clear();
+			notifyAll();
+		}
+	}
+	
+	@Override
+	public synchronized void releaseFrame(PreviewFrame previewFrame) {
+		if (this.replayThread != null) {
+			this.freeFrames.offer(previewFrame);
+			notifyAll();
+		}
+	}
+	
+	/**
+	 * 等待回放结束且全部帧已归还
+	 *
+	 * @throws IOException          读取录制文件失败
+	 * @throws InterruptedException 等待时被中断
+	 */
+	void awaitFinished() throws IOException, InterruptedException {
+		ReplayThread theReplayThread;
+		synchronized (this) {
+			theReplayThread = this.replayThread;
+		}
+		if (theReplayThread == null) {
+			return;
+		}
+		theReplayThread.join();
+		synchronized (this) {
+			if (this.replayException != null) {
+				throw this.replayException;
+			}
+			while (this.replayThread == theReplayThread && this.freeFrames.size() < this.bufferCount) {
+				wait();
+			}
+		}
+	}
+	
+	/**
+	 * 取得空闲缓冲区，全速回放时等待归还
+	 *
+	 * @return 空闲缓冲区，按录制间隔回放且没有空闲时为 null
+	 */
+	private synchronized PreviewFrame obtainFrame() throws InterruptedException {
+		if (!this.isRealTime) {
+			while (this.freeFrames.isEmpty()) {
+				wait();
+			}
+		}
+		return this.freeFrames.poll();
+	}
+	
+	private synchronized void replayFailed(IOException e) {
+		this.replayException = e;
+	}
+	
+	private class ReplayThread extends Thread {
+		private final FrameCallback frameCallback;
+		private volatile boolean isRunning = true;
+		private boolean isAllocated;
+		
+		ReplayThread(FrameCallback frameCallback) {
+			super("FrameReplay");
+			this.frameCallback = frameCallback;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				do {
+					replay();
+				} while (isLooping && this.isRunning);
+			} catch (IOException e) {
+				replayFailed(e);
+			} catch (InterruptedException ignored) {
+			}
+		}
+		
+		private void replay() throws IOException, InterruptedException {
+			FrameRecording.Reader reader = new FrameRecording.Reader(file);
+			try {
+				allocateFrames(reader);
+				long startTime = System.nanoTime();
+				long firstTimestamp = -1;
+				while (this.isRunning) {
+					if (!reader.readTimestamp()) {
+						return;
+					}
+					if (firstTimestamp < 0) {
+						firstTimestamp = reader.timestamp;
+					}
+					// 到达该帧的采集时间后再取缓冲区，期间归还的缓冲区仍可使用
+					if (isRealTime) {
+						long delay = startTime + (reader.timestamp - firstTimestamp) - System.nanoTime();
+						if (delay > 0) {
+							Thread.sleep(delay / 1000000L, (int) (delay % 1000000L));
+						}
+					}
+					PreviewFrame previewFrame = obtainFrame();
+					reader.readData(previewFrame == null ? null : previewFrame.getData());
+					if (previewFrame == null) {
+						continue;
+					}
+					previewFrame.rotationAngle = reader.rotationAngle;
+					previewFrame.timestamp = reader.timestamp;
+					this.frameCallback.onFrame(previewFrame);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		
+		private void allocateFrames(FrameRecording.Reader reader) {
+			if (this.isAllocated) {
+				return;
+			}
+			this.isAllocated = true;
+			synchronized (ReplayFrameSource.this) {
+				for (int index = 0; index < bufferCount; index++) {
+					PreviewFrame previewFrame = new PreviewFrame();
+					previewFrame.setData(new byte[reader.frameSize], reader.width, reader.height);
+					freeFrames.offer(previewFrame);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.kycq.library.scan;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 连续扫描的结果去重，所有解码线程共用
+ * <p>
+ * 按最近识别时间排序，头部为最久未识别到的结果：过期与超出容量都从头部移除，内存不超过容量。
+ */
+class ResultDeduplicator {
+	private final long ttl;
+	private final int capacity;
+	private final LinkedHashMap<String, Long> lastSeenTimes;
+	
+	/**
+	 * @param ttl      抑制时间，毫秒
+	 * @param capacity 最大数量
+	 */
+	ResultDeduplicator(long ttl, int capacity) {
+		this.ttl = ttl;
+		this.capacity = capacity;
+		// 访问顺序，重复识别时移到尾部
+		this.lastSeenTimes = new LinkedHashMap<String, Long>(16, 0.75F, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > ResultDeduplicator.this.capacity;
+			}
+		};
+	}
+	
+	/**
+	 * 记录一次识别，有效期内已记录时只刷新识别时间
+	 *
+	 * @param key 结果的格式与内容
+	 * @param now 当前时间，毫秒
+	 * @return true 需要回调
+	 */
+	synchronized boolean accept(String key, long now) {
+		Iterator<Long> iterator = this.lastSeenTimes.values().iterator();
+		while (iterator.hasNext()) {
+			if (now - iterator.next() < this.ttl) {
+				break;
+			}
+			iterator.remove();
+		}
+		return this.lastSeenTimes.put(key, now) == null;
+	}
+	
+	synchronized int size() {
+		return this.lastSeenTimes.size();
+	}
+	
+	synchronized void clear() {
+		this.lastSeenTimes.clear();
+	}
+}
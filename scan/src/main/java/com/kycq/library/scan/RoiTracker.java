@@ -0,0 +1,134 @@
+package com.kycq.library.scan;
+
+/**
+ * 跟踪最近识别到的条码位置，所有解码线程共用
+ * <p>
+ * 记录最近两次识别到的定位点范围与时间，按移动速度预测下一帧中的位置，加上边距后作为优先识别的区域。
+ * 连续未命中、超过有效期或预测区域接近整个扫描区域时不再预测；每 REFRESH_INTERVAL 次预测跳过一次，
+ * 使扫描区域内新出现的条码仍能被识别。坐标均为旋转后的预览帧坐标。
+ */
+class RoiTracker {
+	/** 边距占定位点范围边长的比例 */
+	private static final float PADDING_RATIO = 0.5F;
+	private static final int MIN_PADDING = 16;
+	/** 与 HybridBinarizer 的最小尺寸一致 */
+	private static final int MIN_SIZE = 40;
+	/** 预测区域面积超过扫描区域的该比例时直接识别整个扫描区域 */
+	private static final float MAX_AREA_RATIO = 0.7F;
+	private static final int MAX_MISS_COUNT = 3;
+	private static final int REFRESH_INTERVAL = 4;
+	private static final long TTL_NANOS = 1000000000L;
+	/** 两次识别间隔超过该时间时不计算速度 */
+	private static final long MAX_VELOCITY_INTERVAL_NANOS = 500000000L;
+	
+	private boolean isTracking;
+	/** 最近一次识别到的范围 {left, top, right, bottom} */
+	private final float[] box = new float[4];
+	private long timestamp;
+	private float velocityX;
+	private float velocityY;
+	private int missCount;
+	private int predictCount;
+	
+	/**
+	 * 预测条码在本帧中的区域
+	 *
+	 * @param frameRect 扫描区域 {left, top, width, height}
+	 * @param timestamp 帧时间，纳秒
+	 * @param result    预测区域，相对扫描区域 {left, top, width, height}
+	 * @return false 没有可用的预测，识别整个扫描区域
+	 */
+	synchronized boolean predict(int[] frameRect, long timestamp, int[] result) {
+		if (!this.isTracking) {
+			return false;
+		}
+		if (timestamp - this.timestamp > TTL_NANOS) {
+			reset();
+			return false;
+		}
+		if (++this.predictCount % REFRESH_INTERVAL == 0) {
+			return false;
+		}
+		
+		float elapsed = Math.max(0, timestamp - this.timestamp);
+		float boxWidth = this.box[2] - this.box[0];
+		float boxHeight = this.box[3] - this.box[1];
+		// 位移不超过一个范围边长
+		float maxShift = Math.max(boxWidth, boxHeight);
+		float shiftX = Math.max(-maxShift, Math.min(this.velocityX * elapsed, maxShift));
+		float shiftY = Math.max(-maxShift, Math.min(this.velocityY * elapsed, maxShift));
+		float padding = Math.max(boxWidth, boxHeight) * PADDING_RATIO + MIN_PADDING;
+		
+		int frameLeft = frameRect[0];
+		int frameTop = frameRect[1];
+		int frameRight = frameLeft + frameRect[2];
+		int frameBottom = frameTop + frameRect[3];
+		int left = Math.max(frameLeft, (int) (this.box[0] + shiftX - padding));
+		int top = Math.max(frameTop, (int) (this.box[1] + shiftY - padding));
+		int right = Math.min(frameRight, (int) (this.box[2] + shiftX + padding));
+		int bottom = Math.min(frameBottom, (int) (this.box[3] + shiftY + padding));
+		int width = right - left;
+		int height = bottom - top;
+		if (width < MIN_SIZE || height < MIN_SIZE
+				|| (float) width * height > (float) frameRect[2] * frameRect[3] * MAX_AREA_RATIO) {
+			return false;
+		}
+		result[0] = left - frameLeft;
+		result[1] = top - frameTop;
+		result[2] = width;
+		result[3] = height;
+		return true;
+	}
+	
+	/**
+	 * 识别到条码或定位点
+	 *
+	 * @param left      定位点范围，旋转后的预览帧坐标
+	 * @param top       定位点范围
+	 * @param right     定位点范围
+	 * @param bottom    定位点范围
+	 * @param timestamp 帧时间，纳秒
+	 */
+	synchronized void hit(float left, float top, float right, float bottom, long timestamp) {
+		long interval = timestamp - this.timestamp;
+		if (this.isTracking && interval < 0) {
+			// 其他解码线程已记录更新的帧
+			return;
+		}
+		if (this.isTracking && interval > 0 && interval < MAX_VELOCITY_INTERVAL_NANOS) {
+			this.velocityX = ((left + right) - (this.box[0] + this.box[2])) / 2 / interval;
+			this.velocityY = ((top + bottom) - (this.box[1] + this.box[3])) / 2 / interval;
+		} else {
+			this.velocityX = 0;
+			this.velocityY = 0;
+		}
+		this.isTracking = true;
+		this.box[0] = left;
+		this.box[1] = top;
+		this.box[2] = right;
+		this.box[3] = bottom;
+		this.timestamp = timestamp;
+		this.missCount = 0;
+	}
+	
+	/**
+	 * 预测区域内未识别到条码
+	 */
+	synchronized void miss() {
+		if (++this.missCount >= MAX_MISS_COUNT) {
+			reset();
+		}
+	}
+	
+	synchronized boolean isTracking() {
+		return this.isTracking;
+	}
+	
+	synchronized void reset() {
+		this.isTracking = false;
+		this.velocityX = 0;
+		this.velocityY = 0;
+		this.missCount = 0;
+		this.predictCount = 0;
+	}
+}
@@ -0,0 +1,160 @@
+package com.kycq.library.scan;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 扫描各阶段耗时统计，默认关闭
+ * <p>
+ * 关闭时每帧只有一次开关判断；启用后每个阶段记录两次 System.nanoTime 并计入对数直方图。
+ * 启用时解码前单独完成二值化以区分二值化与识别耗时，只识别一维码时会增加一次二值化开销。
+ */
+public class ScanMetrics {
+	/** 预览回调到解码线程开始处理 */
+	public static final int STAGE_QUEUE = 0;
+	/** 画面质量筛选与重复帧判断 */
+	public static final int STAGE_ANALYZE = 1;
+	/** 旋转截取扫描区域，构建亮度数据 */
+	public static final int STAGE_LUMINANCE = 2;
+	/** 二值化，识别中逐行二值化与整体二值化的合计 */
+	public static final int STAGE_BINARIZE = 3;
+	/** 条码识别，不含二值化 */
+	public static final int STAGE_DECODE = 4;
+	/** 识别成功到主线程回调 */
+	public static final int STAGE_DELIVERY = 5;
+	/** 预览回调到主线程回调，只统计成功的帧 */
+	public static final int STAGE_TOTAL = 6;
+	
+	private static final String[] STAGE_NAMES = {
+			"queue", "analyze", "luminance", "binarize", "decode", "delivery", "total"};
+	
+	private final LatencyHistogram[] histograms = new LatencyHistogram[STAGE_NAMES.length];
+	private final AtomicLong frameCount = new AtomicLong();
+	private final AtomicLong attemptCount = new AtomicLong();
+	private final AtomicLong successCount = new AtomicLong();
+	
+	private volatile boolean isEnabled;
+	private volatile long startTime;
+	
+	public ScanMetrics() {
+		for (int index = 0; index < this.histograms.length; index++) {
+			this.histograms[index] = new LatencyHistogram();
+		}
+		this.startTime = System.nanoTime();
+	}
+	
+	public boolean isEnabled() {
+		return this.isEnabled;
+	}
+	
+	/**
+	 * 设置是否统计，由关闭变为启用时清空之前的数据
+	 *
+	 * @param enabled true 统计
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		if (enabled && !this.isEnabled) {
+			reset();
+		}
+		this.isEnabled = enabled;
+	}
+	
+	/**
+	 * 阶段的记录次数
+	 *
+	 * @param stage STAGE_QUEUE 等
+	 * @return 记录次数
+	 */
+	public long getSampleCount(int stage) {
+		return this.histograms[stage].getCount();
+	}
+	
+	/**
+	 * 阶段耗时的百分位数，误差不超过 12.5%
+	 *
+	 * @param stage      STAGE_QUEUE 等
+	 * @param percentile 百分位 0 - 100，如 50、95、99
+	 * @return 耗时，毫秒，没有记录时为 0
+	 */
+	public float getLatency(int stage, float percentile) {
+		return this.histograms[stage].getPercentile(percentile) / 1000F;
+	}
+	
+	/**
+	 * 阶段的平均耗时
+	 *
+	 * @param stage STAGE_QUEUE 等
+	 * @return 耗时，毫秒
+	 */
+	public float getMeanLatency(int stage) {
+		return this.histograms[stage].getMean() / 1000F;
+	}
+	
+	/**
+	 * 自启用或上次重置起，每秒分发给解码的预览帧数
+	 */
+	public float getFramesPerSecond() {
+		long elapsed = System.nanoTime() - this.startTime;
+		return elapsed <= 0 ? 0 : this.frameCount.get() * 1000000000F / elapsed;
+	}
+	
+	/**
+	 * 每次识别成功平均尝试识别的帧数
+	 *
+	 * @return 尝试次数，没有成功时为 0
+	 */
+	public float getAttemptsPerSuccess() {
+		long theSuccessCount = this.successCount.get();
+		return theSuccessCount == 0 ? 0 : (float) this.attemptCount.get() / theSuccessCount;
+	}
+	
+	public synchronized void reset() {
+		for (LatencyHistogram histogram : this.histograms) {
+			histogram.reset();
+		}
+		this.frameCount.set(0);
+		this.attemptCount.set(0);
+		this.successCount.set(0);
+		this.startTime = System.nanoTime();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format(Locale.US, "fps: %.1f, attempts/success: %.1f",
+				getFramesPerSecond(), getAttemptsPerSuccess()));
+		for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+			if (getSampleCount(stage) == 0) {
+				continue;
+			}
+			builder.append(String.format(Locale.US, ", %s p50/p95/p99: %.2f/%.2f/%.2f ms",
+					STAGE_NAMES[stage], getLatency(stage, 50), getLatency(stage, 95), getLatency(stage, 99)));
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * 记录阶段耗时，调用前应先判断 isEnabled
+	 *
+	 * @param stage     STAGE_QUEUE 等
+	 * @param startTime 开始时间，System.nanoTime，0 表示未记录开始时间
+	 * @param endTime   结束时间，System.nanoTime
+	 */
+	void record(int stage, long startTime, long endTime) {
+		if (startTime != 0) {
+			this.histograms[stage].record(endTime - startTime);
+		}
+	}
+	
+	void frameReceived() {
+		this.frameCount.incrementAndGet();
+	}
+	
+	void decodeAttempted() {
+		this.attemptCount.incrementAndGet();
+	}
+	
+	void decodeSucceeded() {
+		this.successCount.incrementAndGet();
+	}
+}
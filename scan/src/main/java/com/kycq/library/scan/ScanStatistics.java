@@ -0,0 +1,245 @@
+package com.kycq.library.scan;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 扫描统计，各计数自创建或上次重置起累计
+ */
+public class ScanStatistics {
+	private final AtomicLong frameCount = new AtomicLong();
+	private final AtomicLong droppedFrameCount = new AtomicLong();
+	private final AtomicLong darkFrameCount = new AtomicLong();
+	private final AtomicLong brightFrameCount = new AtomicLong();
+	private final AtomicLong flatFrameCount = new AtomicLong();
+	private final AtomicLong blurryFrameCount = new AtomicLong();
+	private final AtomicLong duplicateFrameCount = new AtomicLong();
+	private final AtomicLong decodeCount = new AtomicLong();
+	private final AtomicLong successCount = new AtomicLong();
+	private final AtomicLong globalHistogramCount = new AtomicLong();
+	private final AtomicLong globalHistogramSuccessCount = new AtomicLong();
+	private final AtomicLong hybridCount = new AtomicLong();
+	private final AtomicLong hybridSuccessCount = new AtomicLong();
+	private final AtomicLong trackedCount = new AtomicLong();
+	private final AtomicLong trackedSuccessCount = new AtomicLong();
+	
+	/**
+	 * 扫描期间相机送达的帧数
+	 */
+	public long getFrameCount() {
+		return this.frameCount.get();
+	}
+	
+	/**
+	 * 解码线程繁忙时被更新的帧替换掉的帧数
+	 */
+	public long getDroppedFrameCount() {
+		return this.droppedFrameCount.get();
+	}
+	
+	/**
+	 * 因过暗跳过的帧数
+	 */
+	public long getDarkFrameCount() {
+		return this.darkFrameCount.get();
+	}
+	
+	/**
+	 * 因过曝跳过的帧数
+	 */
+	public long getBrightFrameCount() {
+		return this.brightFrameCount.get();
+	}
+	
+	/**
+	 * 因无对比度跳过的帧数
+	 */
+	public long getFlatFrameCount() {
+		return this.flatFrameCount.get();
+	}
+	
+	/**
+	 * 因模糊跳过的帧数
+	 */
+	public long getBlurryFrameCount() {
+		return this.blurryFrameCount.get();
+	}
+	
+	/**
+	 * 画面质量筛选跳过的总帧数
+	 */
+	public long getRejectedFrameCount() {
+		return getDarkFrameCount() + getBrightFrameCount() + getFlatFrameCount() + getBlurryFrameCount();
+	}
+	
+	/**
+	 * 与上一次解码失败的画面相同而跳过的帧数
+	 */
+	public long getDuplicateFrameCount() {
+		return this.duplicateFrameCount.get();
+	}
+	
+	/**
+	 * 实际进入解码的帧数
+	 */
+	public long getDecodeCount() {
+		return this.decodeCount.get();
+	}
+	
+	/**
+	 * 解码成功的帧数
+	 */
+	public long getSuccessCount() {
+		return this.successCount.get();
+	}
+	
+	/**
+	 * 使用全局直方图二值化的解码次数
+	 */
+	public long getGlobalHistogramCount() {
+		return this.globalHistogramCount.get();
+	}
+	
+	/**
+	 * 使用全局直方图二值化的成功次数
+	 */
+	public long getGlobalHistogramSuccessCount() {
+		return this.globalHistogramSuccessCount.get();
+	}
+	
+	/**
+	 * 使用分块二值化的解码次数
+	 */
+	public long getHybridCount() {
+		return this.hybridCount.get();
+	}
+	
+	/**
+	 * 使用分块二值化的成功次数
+	 */
+	public long getHybridSuccessCount() {
+		return this.hybridSuccessCount.get();
+	}
+	
+	/**
+	 * 全局直方图二值化的成功比例，未使用时为 0
+	 */
+	public float getGlobalHistogramHitRate() {
+		long count = getGlobalHistogramCount();
+		return count == 0 ? 0 : (float) getGlobalHistogramSuccessCount() / count;
+	}
+	
+	/**
+	 * 分块二值化的成功比例，未使用时为 0
+	 */
+	public float getHybridHitRate() {
+		long count = getHybridCount();
+		return count == 0 ? 0 : (float) getHybridSuccessCount() / count;
+	}
+	
+	/**
+	 * 优先识别上次条码位置附近区域的次数
+	 */
+	public long getTrackedCount() {
+		return this.trackedCount.get();
+	}
+	
+	/**
+	 * 在上次条码位置附近区域识别成功的次数，其余回退到整个扫描区域
+	 */
+	public long getTrackedSuccessCount() {
+		return this.trackedSuccessCount.get();
+	}
+	
+	public void reset() {
+		this.frameCount.set(0);
+		this.droppedFrameCount.set(0);
+		this.darkFrameCount.set(0);
+		this.brightFrameCount.set(0);
+		this.flatFrameCount.set(0);
+		this.blurryFrameCount.set(0);
+		this.duplicateFrameCount.set(0);
+		this.decodeCount.set(0);
+		this.successCount.set(0);
+		this.globalHistogramCount.set(0);
+		this.globalHistogramSuccessCount.set(0);
+		this.hybridCount.set(0);
+		this.hybridSuccessCount.set(0);
+		this.trackedCount.set(0);
+		this.trackedSuccessCount.set(0);
+	}
+	
+	@Override
+	public String toString() {
+		return "frames: " + getFrameCount()
+				+ ", dropped: " + getDroppedFrameCount()
+				+ ", rejected: " + getRejectedFrameCount()
+				+ " (dark " + getDarkFrameCount()
+				+ ", bright " + getBrightFrameCount()
+				+ ", flat " + getFlatFrameCount()
+				+ ", blurry " + getBlurryFrameCount() + ")"
+				+ ", duplicated: " + getDuplicateFrameCount()
+				+ ", decodes: " + getDecodeCount()
+				+ ", successes: " + getSuccessCount()
+				+ ", global histogram: " + getGlobalHistogramSuccessCount() + "/" + getGlobalHistogramCount()
+				+ ", hybrid: " + getHybridSuccessCount() + "/" + getHybridCount()
+				+ ", tracked: " + getTrackedSuccessCount() + "/" + getTrackedCount();
+	}
+	
+	void frameReceived() {
+		this.frameCount.incrementAndGet();
+	}
+	
+	void frameDropped() {
+		this.droppedFrameCount.incrementAndGet();
+	}
+	
+	void frameRejected(int quality) {
+		switch (quality) {
+			case FrameQualityGate.QUALITY_DARK:
+				this.darkFrameCount.incrementAndGet();
+				break;
+			case FrameQualityGate.QUALITY_BRIGHT:
+				this.brightFrameCount.incrementAndGet();
+				break;
+			case FrameQualityGate.QUALITY_FLAT:
+				this.flatFrameCount.incrementAndGet();
+				break;
+			case FrameQualityGate.QUALITY_BLURRY:
+				this.blurryFrameCount.incrementAndGet();
+				break;
+		}
+	}
+	
+	void frameDuplicated() {
+		this.duplicateFrameCount.incrementAndGet();
+	}
+	
+	void decodeAttempted() {
+		this.decodeCount.incrementAndGet();
+	}
+	
+	void decodeSucceeded() {
+		this.successCount.incrementAndGet();
+	}
+	
+	void binarized(int strategy, boolean isSuccess) {
+		if (strategy == FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM) {
+			this.globalHistogramCount.incrementAndGet();
+			if (isSuccess) {
+				this.globalHistogramSuccessCount.incrementAndGet();
+			}
+		} else {
+			this.hybridCount.incrementAndGet();
+			if (isSuccess) {
+				this.hybridSuccessCount.incrementAndGet();
+			}
+		}
+	}
+	
+	void trackedDecoded(boolean isSuccess) {
+		this.trackedCount.incrementAndGet();
+		if (isSuccess) {
+			this.trackedSuccessCount.incrementAndGet();
+		}
+	}
+}
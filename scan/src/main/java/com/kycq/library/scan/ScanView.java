@@ -1,39 +1,95 @@
 package com.kycq.library.scan;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Point;
 import android.graphics.Rect;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.widget.FrameLayout;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ResultPointCallback;
+import com.kycq.library.scan.open.FrontLightMode;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumMap;
-import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 
 public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
+	/** 支持时使用 Camera2，否则使用 android.hardware.Camera */
+	public static final int CAMERA_BACKEND_AUTO = 0;
+	/** android.hardware.Camera，预览帧为 NV21 数组 */
+	public static final int CAMERA_BACKEND_CAMERA1 = 1;
+	/** android.hardware.camera2，直接读取 YUV_420_888 图像的亮度平面，需 API 21 */
+	public static final int CAMERA_BACKEND_CAMERA2 = 2;
+	
+	private static final int MAX_DEFAULT_DECODE_WORKER_COUNT = 4;
+	private static final int MAX_DEFAULT_BATCH_DECODE_CONCURRENCY = 4;
+	private static final String DECODE_RESULT_CACHE_NAME = "scan_result_cache";
+	private static final long DEFAULT_SCAN_METRICS_INTERVAL = 1000L;
+	
 	private SurfaceView previewView;
 	private FinderView finderView;
 	
 	private boolean isSurfaced;
-	private CameraManager cameraManager;
+	private int cameraBackend = CAMERA_BACKEND_CAMERA1;
+	private CameraDriver cameraDriver;
+	private File frameRecordFile;
 	private boolean openFlashMode;
+	private FrontLightMode frontLightMode = FrontLightMode.OFF;
+	private final TorchController torchController = new TorchController();
+	private boolean isPreviewBufferEnabled = true;
+	private boolean isAdaptiveBinarizerEnabled = true;
+	private boolean isRoiTrackingEnabled = true;
+	private boolean isBarcodeThumbnailEnabled;
 	
 	private CaptureHandler captureHandler;
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	/** 相机打开期间不为 null */
+	private CameraOpenThread cameraOpenThread;
+	/** 已取消的打开线程，下次打开相机前在后台等待其结束 */
+	private CameraOpenThread cancelledOpenThread;
+	/** 随相机打开提前启动，开始预览后交给 CaptureHandler */
+	private HandlerThread[] decodeThreads;
+	private final StartupTimings startupTimings = new StartupTimings();
+	/** 首次解码图片时创建 */
 	private AlbumHandler albumHandler;
+	/** 首次解码图片时创建 */
+	private TileDecoder tileDecoder;
+	private DecodeResultCache decodeResultCache;
+	private int decodeWorkerCount;
+	private int batchDecodeConcurrency;
 	
+	private Map<DecodeHintType, Object> hints;
 	private MultiFormatReader multiFormatReader;
 	
+	private final FrameQualityGate frameQualityGate = new FrameQualityGate();
+	private final DuplicateFrameFilter duplicateFrameFilter = new DuplicateFrameFilter();
+	private final ScanStatistics scanStatistics = new ScanStatistics();
+	private final ScanMetrics scanMetrics = new ScanMetrics();
+	private final AlbumDecodePolicy albumDecodePolicy = new AlbumDecodePolicy();
+	private PreviewSizePolicy previewSizePolicy = new PreviewSizePolicy();
+	private final ZoomController zoomController = new ZoomController();
+	private final MultiDecodePolicy multiDecodePolicy = new MultiDecodePolicy();
+	private final ContinuousScanPolicy continuousScanPolicy = new ContinuousScanPolicy();
+	
 	private OnScanListener onScanListener;
+	private OnMultiScanListener onMultiScanListener;
+	private OnScanMetricsListener onScanMetricsListener;
+	private long scanMetricsInterval = DEFAULT_SCAN_METRICS_INTERVAL;
 	
 	public ScanView(Context context, AttributeSet attrs) {
 		super(context, attrs);
@@ -43,60 +99,227 @@ public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
 		this.finderView = new FinderView(context);
 		addView(this.finderView);
 		
-		this.multiFormatReader = new MultiFormatReader();
-		Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
-		Collection<BarcodeFormat> decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
-		decodeFormats.addAll(DecodeFormat.PRODUCT_FORMATS);
-		decodeFormats.addAll(DecodeFormat.INDUSTRIAL_FORMATS);
-		decodeFormats.addAll(DecodeFormat.QR_CODE_FORMATS);
-		decodeFormats.addAll(DecodeFormat.DATA_MATRIX_FORMATS);
-		decodeFormats.addAll(DecodeFormat.AZTEC_FORMATS);
-		decodeFormats.addAll(DecodeFormat.PDF417_FORMATS);
-		hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
-		//if (characterSet != null) {
-		//	hints.put(DecodeHintType.CHARACTER_SET, characterSet);
-		//}
-		this.multiFormatReader.setHints(hints);
+		// 保留一个核心给界面与相机回调
+		int availableProcessors = Runtime.getRuntime().availableProcessors();
+		this.decodeWorkerCount = Math.max(1, Math.min(availableProcessors - 1, MAX_DEFAULT_DECODE_WORKER_COUNT));
+		this.batchDecodeConcurrency = Math.max(1, Math.min(availableProcessors, MAX_DEFAULT_BATCH_DECODE_CONCURRENCY));
 		
-		this.albumHandler = new AlbumHandler(this);
+		this.hints = DecodeFormat.createDecodeHints();
+		this.multiFormatReader = createMultiFormatReader();
+		
+		this.decodeResultCache = new DecodeResultCache(new File(context.getCacheDir(), DECODE_RESULT_CACHE_NAME));
 	}
 	
 	public void decode(File file) {
+		if (this.albumHandler == null) {
+			this.albumHandler = new AlbumHandler(this);
+		}
 		this.albumHandler.decode(file);
 	}
 	
+	/**
+	 * 批量解码图片文件，结果与进度在主线程回调
+	 *
+	 * @param files    图片文件
+	 * @param listener 回调，index 为图片在 files 中的位置
+	 * @return 解码任务，可取消
+	 */
+	public BatchDecodeTask decode(Collection<File> files, OnBatchDecodeListener listener) {
+		List<AlbumImage> albumImages = new ArrayList<>(files.size());
+		for (File file : files) {
+			albumImages.add(AlbumImage.fromFile(file));
+		}
+		return startBatchDecode(albumImages, listener);
+	}
+	
+	/**
+	 * 批量解码图片 Uri，结果与进度在主线程回调
+	 *
+	 * @param uris     图片 Uri
+	 * @param listener 回调，index 为图片在 uris 中的位置
+	 * @return 解码任务，可取消
+	 */
+	public BatchDecodeTask decodeUris(Collection<Uri> uris, OnBatchDecodeListener listener) {
+		ContentResolver contentResolver = getContext().getContentResolver();
+		List<AlbumImage> albumImages = new ArrayList<>(uris.size());
+		for (Uri uri : uris) {
+			albumImages.add(AlbumImage.fromUri(contentResolver, uri));
+		}
+		return startBatchDecode(albumImages, listener);
+	}
+	
+	private BatchDecodeTask startBatchDecode(List<AlbumImage> albumImages, OnBatchDecodeListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener must not be null");
+		}
+		int concurrency = Math.max(1, Math.min(this.batchDecodeConcurrency, albumImages.size()));
+		MultiFormatReader[] multiFormatReaders = new MultiFormatReader[concurrency];
+		for (int index = 0; index < concurrency; index++) {
+			multiFormatReaders[index] = createMultiFormatReader();
+		}
+		BatchDecodeTask batchDecodeTask = new BatchDecodeTask(albumImages, listener,
+				multiFormatReaders, this.albumDecodePolicy, getTileDecoder(), this.decodeResultCache);
+		batchDecodeTask.start();
+		return batchDecodeTask;
+	}
+	
 	public void setOnScanListener(OnScanListener listener) {
 		this.onScanListener = listener;
 	}
 	
+	/**
+	 * 设置单帧多码识别的回调，需通过 MultiDecodePolicy.setEnabled 启用，失败仍由 OnScanListener 回调
+	 *
+	 * @param listener 回调
+	 */
+	public void setOnMultiScanListener(OnMultiScanListener listener) {
+		this.onMultiScanListener = listener;
+	}
+	
+	/**
+	 * 开始扫描
+	 * <p>
+	 * 相机在后台线程打开与配置，同时创建预览画面并启动解码线程，两者都就绪后开始预览，各阶段耗时见 getStartupTimings。
+	 */
 	public void startScan() {
-		if (this.cameraManager == null || !this.cameraManager.isOpened()) {
-			this.cameraManager = new CameraManager(getContext());
-			this.finderView.setCameraManager(this.cameraManager);
+		if (this.cameraOpenThread == null && (this.cameraDriver == null || !this.cameraDriver.isOpened())) {
+			this.startupTimings.start();
+			// 打开完成前只由打开线程访问，在 cameraOpened 中交给界面使用
+			CameraDriver theCameraDriver = createCameraDriver();
+			theCameraDriver.setDuplicateFrameFilter(this.duplicateFrameFilter);
+			theCameraDriver.setStartupTimings(this.startupTimings);
+			theCameraDriver.setOnCameraErrorListener(this.cameraErrorListener);
+			startDecodeThreads();
+			this.cameraOpenThread = new CameraOpenThread(theCameraDriver, this.openFlashMode,
+					this.cancelledOpenThread);
+			this.cancelledOpenThread = null;
+			this.cameraOpenThread.start();
 		}
 		
 		SurfaceHolder surfaceHolder = this.previewView.getHolder();
 		if (this.isSurfaced) {
+			this.startupTimings.recordSinceStart(StartupTimings.PHASE_SURFACE);
 			initCamera(surfaceHolder);
 		} else {
 			surfaceHolder.addCallback(this);
 		}
 	}
 	
+	private void startDecodeThreads() {
+		if (this.decodeThreads != null) {
+			return;
+		}
+		this.decodeThreads = new HandlerThread[this.decodeWorkerCount];
+		for (int index = 0; index < this.decodeThreads.length; index++) {
+			this.decodeThreads[index] = new HandlerThread("Decode" + index);
+			this.decodeThreads[index].start();
+		}
+	}
+	
+	private void quitDecodeThreads() {
+		if (this.decodeThreads == null) {
+			return;
+		}
+		for (HandlerThread decodeThread : this.decodeThreads) {
+			decodeThread.quit();
+		}
+		this.decodeThreads = null;
+	}
+	
+	/**
+	 * 相机打开完成，在主线程调用
+	 *
+	 * @param cameraOpenThread 打开相机的线程，扫描已停止时与当前线程不同
+	 */
+	private void cameraOpened(CameraOpenThread cameraOpenThread) {
+		if (this.cameraOpenThread != cameraOpenThread) {
+			// 已取消，相机已在 stopScan 中关闭
+			return;
+		}
+		this.cameraOpenThread = null;
+		if (!cameraOpenThread.cameraDriver.isOpened()) {
+			cameraOpenThread.cameraDriver.closeDriver();
+			quitDecodeThreads();
+			return;
+		}
+		this.cameraDriver = cameraOpenThread.cameraDriver;
+		this.finderView.setCameraDriver(this.cameraDriver);
+		if (this.openFlashMode != cameraOpenThread.openFlashMode) {
+			// 打开期间切换了闪光灯
+			setTorch(this.openFlashMode);
+		}
+		if (this.isSurfaced) {
+			initCamera(this.previewView.getHolder());
+		}
+	}
+	
+	/**
+	 * 相机打开后断开或预览失败时关闭相机并回调 scanFailure，之后可调用 restartScan 重新打开
+	 */
+	private final CameraDriver.OnCameraErrorListener cameraErrorListener = new CameraDriver.OnCameraErrorListener() {
+		@Override
+		public void cameraError(final CameraDriver cameraDriver) {
+			mainHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					if (ScanView.this.cameraDriver != cameraDriver || cameraOpenThread != null) {
+						return;
+					}
+					if (captureHandler != null) {
+						captureHandler.quitSynchronously();
+						captureHandler = null;
+					}
+					quitDecodeThreads();
+					cameraDriver.closeDriver();
+					decodeFailure();
+				}
+			});
+		}
+	};
+	
+	private CameraDriver createCameraDriver() {
+		boolean isCamera2 = this.cameraBackend == CAMERA_BACKEND_CAMERA2
+				|| (this.cameraBackend == CAMERA_BACKEND_AUTO && Camera2Manager.isSupported(getContext()));
+		if (isCamera2) {
+			Camera2Manager camera2Manager = new Camera2Manager(getContext(), this.previewSizePolicy);
+			// 解码缓冲之外多留两张图像供相机写入
+			camera2Manager.setMaxImages(this.decodeWorkerCount + 4);
+			return camera2Manager;
+		}
+		CameraManager cameraManager = new CameraManager(getContext(), this.previewSizePolicy);
+		cameraManager.setPreviewBufferEnabled(this.isPreviewBufferEnabled);
+		return cameraManager;
+	}
+	
 	public void stopScan() {
+		if (this.cameraOpenThread != null) {
+			// 不等待打开完成，打开线程发现取消后自行关闭相机
+			this.cameraOpenThread.cameraDriver.setStartupTimings(null);
+			if (!this.cameraOpenThread.cancel()) {
+				this.cameraOpenThread.cameraDriver.closeDriver();
+			}
+			this.cancelledOpenThread = this.cameraOpenThread;
+			this.cameraOpenThread = null;
+		}
 		if (this.captureHandler != null) {
 			this.captureHandler.quitSynchronously();
 			this.captureHandler = null;
 		}
+		quitDecodeThreads();
 		
-		this.cameraManager.closeDriver();
+		if (this.cameraDriver != null) {
+			this.cameraDriver.closeDriver();
+		}
 		if (this.isSurfaced) {
 			this.previewView.getHolder().removeCallback(this);
 		}
 	}
 	
+	/**
+	 * 重新开始扫描；连续扫描时清空已回调的结果，之后再次识别到的条码重新回调
+	 */
 	public void restartScan() {
-		if (this.cameraManager == null || !this.cameraManager.isOpened()
+		if (this.cameraDriver == null || !this.cameraDriver.isOpened()
 				|| this.captureHandler == null) {
 			startScan();
 		} else {
@@ -104,17 +327,63 @@ public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
 		}
 	}
 	
+	/**
+	 * 打开闪光灯，等同于 setFrontLightMode(FrontLightMode.ON)
+	 */
 	public void openFlashMode() {
-		this.openFlashMode = true;
-		if (this.cameraManager != null) {
-			this.cameraManager.openFlashMode();
-		}
+		setFrontLightMode(FrontLightMode.ON);
 	}
 	
+	/**
+	 * 关闭闪光灯，等同于 setFrontLightMode(FrontLightMode.OFF)
+	 */
 	public void closeFlashMode() {
-		this.openFlashMode = false;
-		if (this.cameraManager != null) {
-			this.cameraManager.closeFlashMode();
+		setFrontLightMode(FrontLightMode.OFF);
+	}
+	
+	/**
+	 * 设置闪光灯模式，默认 OFF
+	 * <p>
+	 * AUTO 时根据扫描区域平均亮度开关闪光灯，阈值见 getTorchController；
+	 * 之后调用 openFlashMode 或 closeFlashMode 即退出 AUTO。
+	 *
+	 * @param frontLightMode ON、AUTO 或 OFF
+	 */
+	public void setFrontLightMode(FrontLightMode frontLightMode) {
+		if (frontLightMode == null) {
+			throw new IllegalArgumentException("frontLightMode must not be null");
+		}
+		this.frontLightMode = frontLightMode;
+		this.torchController.setEnabled(frontLightMode == FrontLightMode.AUTO);
+		if (frontLightMode == FrontLightMode.ON) {
+			setTorch(true);
+		} else if (frontLightMode == FrontLightMode.OFF) {
+			setTorch(false);
+		}
+	}
+	
+	public FrontLightMode getFrontLightMode() {
+		return this.frontLightMode;
+	}
+	
+	/**
+	 * FrontLightMode.AUTO 时开关闪光灯的亮度阈值
+	 *
+	 * @return 闪光灯控制
+	 */
+	public TorchController getTorchController() {
+		return this.torchController;
+	}
+	
+	void setTorch(boolean torchOn) {
+		this.openFlashMode = torchOn;
+		// 相机打开期间的变化在打开完成后设置
+		if (this.cameraDriver != null && this.cameraOpenThread == null) {
+			if (torchOn) {
+				this.cameraDriver.openFlashMode();
+			} else {
+				this.cameraDriver.closeFlashMode();
+			}
 		}
 	}
 	
@@ -122,24 +391,336 @@ public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
 		return this.openFlashMode;
 	}
 	
+	/**
+	 * 设置相机实现，默认 CAMERA_BACKEND_CAMERA1，下次启动扫描时生效
+	 * <p>
+	 * CAMERA_BACKEND_CAMERA2 在 API 21 以下不可用，CAMERA_BACKEND_AUTO 在设备支持完整 Camera2 时使用 Camera2。
+	 *
+	 * @param cameraBackend CAMERA_BACKEND_AUTO、CAMERA_BACKEND_CAMERA1 或 CAMERA_BACKEND_CAMERA2
+	 */
+	public void setCameraBackend(int cameraBackend) {
+		if (cameraBackend != CAMERA_BACKEND_AUTO && cameraBackend != CAMERA_BACKEND_CAMERA1
+				&& cameraBackend != CAMERA_BACKEND_CAMERA2) {
+			throw new IllegalArgumentException("Unknown camera backend: " + cameraBackend);
+		}
+		if (cameraBackend == CAMERA_BACKEND_CAMERA2 && Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+			throw new IllegalArgumentException("Camera2 requires API 21");
+		}
+		this.cameraBackend = cameraBackend;
+	}
+	
+	public int getCameraBackend() {
+		return this.cameraBackend;
+	}
+	
+	/**
+	 * 设置解码线程数量，下次启动扫描时生效
+	 *
+	 * @param decodeWorkerCount 解码线程数量
+	 */
+	public void setDecodeWorkerCount(int decodeWorkerCount) {
+		if (decodeWorkerCount < 1) {
+			throw new IllegalArgumentException("decodeWorkerCount must be positive: " + decodeWorkerCount);
+		}
+		this.decodeWorkerCount = decodeWorkerCount;
+	}
+	
+	public int getDecodeWorkerCount() {
+		return this.decodeWorkerCount;
+	}
+	
+	/**
+	 * 设置批量解码的最大并行数量，下次批量解码时生效
+	 * <p>
+	 * 每个并行解码同时持有一张图片，内存紧张时应调小
+	 *
+	 * @param batchDecodeConcurrency 最大并行数量
+	 */
+	public void setBatchDecodeConcurrency(int batchDecodeConcurrency) {
+		if (batchDecodeConcurrency < 1) {
+			throw new IllegalArgumentException("batchDecodeConcurrency must be positive: " + batchDecodeConcurrency);
+		}
+		this.batchDecodeConcurrency = batchDecodeConcurrency;
+	}
+	
+	public int getBatchDecodeConcurrency() {
+		return this.batchDecodeConcurrency;
+	}
+	
+	/**
+	 * 解码前的画面质量筛选，可调整各项阈值
+	 *
+	 * @return 画面质量筛选
+	 */
+	public FrameQualityGate getFrameQualityGate() {
+		return this.frameQualityGate;
+	}
+	
+	/**
+	 * 静止画面的重复帧过滤，可调整容差
+	 *
+	 * @return 重复帧过滤
+	 */
+	public DuplicateFrameFilter getDuplicateFrameFilter() {
+		return this.duplicateFrameFilter;
+	}
+	
+	/**
+	 * 预览分辨率策略，默认选择扫描框内像素足够的最小尺寸
+	 *
+	 * @return 预览分辨率策略
+	 */
+	public PreviewSizePolicy getPreviewSizePolicy() {
+		return this.previewSizePolicy;
+	}
+	
+	/**
+	 * 替换预览分辨率策略，下次启动扫描时生效
+	 *
+	 * @param previewSizePolicy 预览分辨率策略
+	 */
+	public void setPreviewSizePolicy(PreviewSizePolicy previewSizePolicy) {
+		if (previewSizePolicy == null) {
+			throw new IllegalArgumentException("previewSizePolicy must not be null");
+		}
+		this.previewSizePolicy = previewSizePolicy;
+	}
+	
+	/**
+	 * 根据定位点自动变焦，默认关闭，通过 ZoomController.setEnabled 启用
+	 *
+	 * @return 自动变焦
+	 */
+	public ZoomController getZoomController() {
+		return this.zoomController;
+	}
+	
+	/**
+	 * 单帧多码识别策略，默认关闭
+	 *
+	 * @return 多码识别策略
+	 */
+	public MultiDecodePolicy getMultiDecodePolicy() {
+		return this.multiDecodePolicy;
+	}
+	
+	/**
+	 * 连续扫描策略，默认关闭
+	 *
+	 * @return 连续扫描策略
+	 */
+	public ContinuousScanPolicy getContinuousScanPolicy() {
+		return this.continuousScanPolicy;
+	}
+	
+	/**
+	 * 相册图片的逐级解码策略，可调整像素预算
+	 *
+	 * @return 逐级解码策略
+	 */
+	public AlbumDecodePolicy getAlbumDecodePolicy() {
+		return this.albumDecodePolicy;
+	}
+	
+	/**
+	 * 相册图片解码结果缓存，可查看命中次数或清空
+	 *
+	 * @return 解码结果缓存
+	 */
+	public DecodeResultCache getDecodeResultCache() {
+		return this.decodeResultCache;
+	}
+	
+	/**
+	 * 扫描统计
+	 *
+	 * @return 扫描统计
+	 */
+	public ScanStatistics getScanStatistics() {
+		return this.scanStatistics;
+	}
+	
+	/**
+	 * 扫描各阶段耗时统计，默认关闭，通过 ScanMetrics.setEnabled 启用
+	 *
+	 * @return 耗时统计
+	 */
+	public ScanMetrics getScanMetrics() {
+		return this.scanMetrics;
+	}
+	
+	/**
+	 * 设置扫描期间定时在主线程回调耗时统计，设置非空回调时同时启用统计，下次启动扫描时生效
+	 *
+	 * @param listener       回调，null 取消
+	 * @param intervalMillis 回调间隔，毫秒
+	 */
+	public void setOnScanMetricsListener(OnScanMetricsListener listener, long intervalMillis) {
+		if (intervalMillis <= 0) {
+			throw new IllegalArgumentException("intervalMillis must be positive: " + intervalMillis);
+		}
+		this.onScanMetricsListener = listener;
+		this.scanMetricsInterval = intervalMillis;
+		if (listener != null) {
+			this.scanMetrics.setEnabled(true);
+		}
+	}
+	
+	OnScanMetricsListener getOnScanMetricsListener() {
+		return this.onScanMetricsListener;
+	}
+	
+	long getScanMetricsInterval() {
+		return this.scanMetricsInterval;
+	}
+	
+	/**
+	 * 设置扫描成功后是否在扫描框内显示条码缩略图，默认不显示，下次启动扫描时生效
+	 *
+	 * @param barcodeThumbnailEnabled true 显示缩略图
+	 */
+	public void setBarcodeThumbnailEnabled(boolean barcodeThumbnailEnabled) {
+		this.isBarcodeThumbnailEnabled = barcodeThumbnailEnabled;
+	}
+	
+	public boolean isBarcodeThumbnailEnabled() {
+		return this.isBarcodeThumbnailEnabled;
+	}
+	
+	/**
+	 * 设置是否使用预分配的预览缓冲区，下次启动扫描时生效
+	 *
+	 * @param previewBufferEnabled true 循环复用预览缓冲区
+	 */
+	public void setPreviewBufferEnabled(boolean previewBufferEnabled) {
+		this.isPreviewBufferEnabled = previewBufferEnabled;
+	}
+	
+	/**
+	 * 设置对比度足够时是否优先使用全局直方图二值化，默认启用，各方式的成功比例见 ScanStatistics，
+	 * 下次启动扫描时生效
+	 *
+	 * @param adaptiveBinarizerEnabled false 总是使用分块二值化
+	 */
+	public void setAdaptiveBinarizerEnabled(boolean adaptiveBinarizerEnabled) {
+		this.isAdaptiveBinarizerEnabled = adaptiveBinarizerEnabled;
+	}
+	
+	boolean isAdaptiveBinarizerEnabled() {
+		return this.isAdaptiveBinarizerEnabled;
+	}
+	
+	/**
+	 * 设置是否跟踪最近识别到的条码位置，优先识别该位置附近的区域，未识别到时再识别整个扫描区域，默认启用，
+	 * 单帧多码识别时每帧都识别整个扫描区域，命中次数见 ScanStatistics，下次启动扫描时生效
+	 *
+	 * @param roiTrackingEnabled false 总是识别整个扫描区域
+	 */
+	public void setRoiTrackingEnabled(boolean roiTrackingEnabled) {
+		this.isRoiTrackingEnabled = roiTrackingEnabled;
+	}
+	
+	boolean isRoiTrackingEnabled() {
+		return this.isRoiTrackingEnabled;
+	}
+	
+	/**
+	 * 设置预览帧录制文件，扫描期间送达的预览帧亮度数据写入该文件，用于离线回放测试，
+	 * 下次启动扫描时生效
+	 *
+	 * @param frameRecordFile 录制文件，null 不录制
+	 */
+	public void setFrameRecordFile(File frameRecordFile) {
+		this.frameRecordFile = frameRecordFile;
+	}
+	
+	/**
+	 * 相机已打开且预览画面已创建时开始预览
+	 */
 	private void initCamera(SurfaceHolder surfaceHolder) {
-		if (this.cameraManager.isOpened()) {
+		if (this.captureHandler != null || this.cameraOpenThread != null || this.decodeThreads == null
+				|| this.cameraDriver == null || !this.cameraDriver.isOpened()) {
 			return;
 		}
 		
+		long startTime = System.nanoTime();
 		try {
-			this.cameraManager.openDriver(surfaceHolder, this.openFlashMode);
-			if (!this.cameraManager.isOpened()) {
-				return;
-			}
+			this.cameraDriver.setPreviewDisplay(surfaceHolder);
 			initPreview();
 			
-			captureHandler = new CaptureHandler(this, this.cameraManager);
+			FrameSource frameSource = this.cameraDriver.createFrameSource();
+			if (this.frameRecordFile != null) {
+				frameSource = new RecordingFrameSource(frameSource, this.frameRecordFile);
+			}
+			captureHandler = new CaptureHandler(this, frameSource, this.decodeThreads);
+			this.decodeThreads = null;
+			this.startupTimings.record(StartupTimings.PHASE_START_PREVIEW, startTime, System.nanoTime());
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 	
+	/**
+	 * 在后台线程打开并配置相机，完成后在主线程继续启动
+	 */
+	private class CameraOpenThread extends Thread {
+		private final CameraDriver cameraDriver;
+		private final boolean openFlashMode;
+		private final CameraOpenThread cancelledOpenThread;
+		private boolean isCancelled;
+		private boolean isOpenFinished;
+		
+		/**
+		 * @param cancelledOpenThread 上次取消的打开线程，等待其关闭相机后再打开
+		 */
+		CameraOpenThread(CameraDriver cameraDriver, boolean openFlashMode, CameraOpenThread cancelledOpenThread) {
+			super("CameraOpen");
+			this.cameraDriver = cameraDriver;
+			this.openFlashMode = openFlashMode;
+			this.cancelledOpenThread = cancelledOpenThread;
+		}
+		
+		/**
+		 * 取消打开，在主线程调用
+		 *
+		 * @return false 已打开完成，需由调用方关闭相机
+		 */
+		synchronized boolean cancel() {
+			this.isCancelled = true;
+			return !this.isOpenFinished;
+		}
+		
+		@Override
+		public void run() {
+			if (this.cancelledOpenThread != null) {
+				try {
+					this.cancelledOpenThread.join();
+				} catch (InterruptedException ignored) {
+				}
+			}
+			try {
+				this.cameraDriver.openDriver(this.openFlashMode);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			boolean isCancelledOpen;
+			synchronized (this) {
+				isCancelledOpen = this.isCancelled;
+				this.isOpenFinished = !isCancelledOpen;
+			}
+			if (isCancelledOpen) {
+				this.cameraDriver.closeDriver();
+				return;
+			}
+			mainHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					cameraOpened(CameraOpenThread.this);
+				}
+			});
+		}
+	}
+	
 	private void initPreview() {
 		int measuredWidth = this.previewView.getMeasuredWidth();
 		int measuredHeight = this.previewView.getMeasuredHeight();
@@ -147,7 +728,7 @@ public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
 			return;
 		}
 		
-		Point previewResolution = this.cameraManager.getCameraConfigManager().previewResolution;
+		Point previewResolution = this.cameraDriver.getPreviewResolution();
 		if (measuredWidth != previewResolution.x || measuredHeight != previewResolution.y) {
 			requestLayout();
 		}
@@ -157,22 +738,93 @@ public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
 		return this.multiFormatReader;
 	}
 	
+	/**
+	 * 创建独立的解码器，每个解码线程持有一个
+	 *
+	 * @return 解码器
+	 */
+	MultiFormatReader createMultiFormatReader() {
+		MultiFormatReader multiFormatReader = new MultiFormatReader();
+		multiFormatReader.setHints(this.hints);
+		return multiFormatReader;
+	}
+	
+	/**
+	 * 创建识别过程中回调定位点的解码器
+	 *
+	 * @param resultPointCallback 定位点回调
+	 * @return 解码器
+	 */
+	MultiFormatReader createMultiFormatReader(ResultPointCallback resultPointCallback) {
+		Map<DecodeHintType, Object> pointHints = new EnumMap<>(DecodeHintType.class);
+		pointHints.putAll(this.hints);
+		pointHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
+		MultiFormatReader multiFormatReader = new MultiFormatReader();
+		multiFormatReader.setHints(pointHints);
+		return multiFormatReader;
+	}
+	
+	/**
+	 * 创建与解码器使用相同解码参数的多码识别
+	 *
+	 * @param multiFormatReader 解码线程的解码器
+	 * @return 多码识别
+	 */
+	MultiDecoder createMultiDecoder(MultiFormatReader multiFormatReader) {
+		return new MultiDecoder(multiFormatReader, this.hints);
+	}
+	
+	/**
+	 * 最近一次启动扫描的各阶段耗时
+	 *
+	 * @return 启动耗时
+	 */
+	public StartupTimings getStartupTimings() {
+		return this.startupTimings;
+	}
+	
+	CameraDriver getCameraDriver() {
+		return this.cameraDriver;
+	}
+	
+	/**
+	 * 分块解码器，首次调用时创建，在主线程调用
+	 */
+	TileDecoder getTileDecoder() {
+		if (this.tileDecoder == null) {
+			MultiFormatReader[] tileReaders = new MultiFormatReader[this.batchDecodeConcurrency];
+			for (int index = 0; index < tileReaders.length; index++) {
+				tileReaders[index] = createMultiFormatReader();
+			}
+			this.tileDecoder = new TileDecoder(tileReaders);
+		}
+		return this.tileDecoder;
+	}
+	
 	Rect getPreviewRect() {
-		return this.cameraManager.getPreviewRect(this, this.previewView);
+		return this.cameraDriver.getPreviewRect(this, this.previewView);
 	}
 	
 	void restartFinder() {
 		this.finderView.drawFinderView();
 	}
 	
-	void decodeSuccess(String result, Bitmap barcodeBitmap, float scaleFactor) {
-		this.finderView.drawBarcodeView(barcodeBitmap);
-		
+	void decodeSuccess(String result) {
 		if (this.onScanListener != null) {
 			this.onScanListener.scanSuccess(result);
 		}
 	}
 	
+	void decodeMultiSuccess(List<String> results) {
+		if (this.onMultiScanListener != null) {
+			this.onMultiScanListener.multiScanSuccess(results);
+		}
+	}
+	
+	void decodeThumbnail(Bitmap barcodeBitmap) {
+		this.finderView.drawBarcodeView(barcodeBitmap);
+	}
+	
 	void decodeFailure() {
 		if (this.onScanListener != null) {
 			this.onScanListener.scanFailure();
@@ -183,10 +835,10 @@ public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
 	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
 		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
 		
-		if (this.cameraManager == null) {
+		if (this.cameraDriver == null) {
 			return;
 		}
-		Point previewResolution = this.cameraManager.getCameraConfigManager().previewResolution;
+		Point previewResolution = this.cameraDriver.getPreviewResolution();
 		if (previewResolution == null) {
 			return;
 		}
@@ -259,6 +911,7 @@ public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
 	public void surfaceCreated(SurfaceHolder surfaceHolder) {
 		if (!this.isSurfaced) {
 			this.isSurfaced = true;
+			this.startupTimings.recordSinceStart(StartupTimings.PHASE_SURFACE);
 			initCamera(surfaceHolder);
 		}
 	}
@@ -277,4 +930,37 @@ public class ScanView extends FrameLayout implements SurfaceHolder.Callback {
 		
 		void scanFailure();
 	}
+	
+	public interface OnMultiScanListener {
+		/**
+		 * 单帧多码识别成功
+		 *
+		 * @param results 按首次识别顺序去重的全部结果
+		 */
+		void multiScanSuccess(List<String> results);
+	}
+	
+	public interface OnScanMetricsListener {
+		/**
+		 * 定时回调，统计自启用或上次重置起累计
+		 *
+		 * @param scanMetrics 耗时统计
+		 */
+		void scanMetrics(ScanMetrics scanMetrics);
+	}
+	
+	public interface OnBatchDecodeListener {
+		void batchDecodeSuccess(int index, String result);
+		
+		void batchDecodeFailure(int index);
+		
+		void batchDecodeProgress(int completedCount, int totalCount);
+		
+		/**
+		 * 全部解码完成或已取消，只回调一次
+		 *
+		 * @param cancelled true 已取消
+		 */
+		void batchDecodeFinished(boolean cancelled);
+	}
 }
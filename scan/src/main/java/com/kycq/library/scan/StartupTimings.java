@@ -0,0 +1,96 @@
+package com.kycq.library.scan;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 启动扫描各阶段耗时，每次打开相机时重新记录，每个阶段只记录第一次
+ * <p>
+ * 相机在后台线程打开与配置，与预览画面创建、解码线程启动同时进行；相机与预览画面都就绪后开始预览。
+ */
+public class StartupTimings {
+	/** 打开相机 */
+	public static final int PHASE_CAMERA_OPEN = 0;
+	/** 读取相机参数、选择预览尺寸并设置参数 */
+	public static final int PHASE_CAMERA_CONFIGURE = 1;
+	/** startScan 到预览画面创建 */
+	public static final int PHASE_SURFACE = 2;
+	/** 相机与预览画面都就绪后到开始预览，包括创建解码器 */
+	public static final int PHASE_START_PREVIEW = 3;
+	/** startScan 到解码线程收到第一帧 */
+	public static final int PHASE_FIRST_FRAME = 4;
+	/** startScan 到第一次识别成功回调 */
+	public static final int PHASE_FIRST_RESULT = 5;
+	
+	private static final String[] PHASE_NAMES = {
+			"camera open", "camera configure", "surface", "start preview", "first frame", "first result"};
+	
+	/** 各阶段耗时，纳秒，未记录为 -1 */
+	private final AtomicLongArray phaseTimes = new AtomicLongArray(PHASE_NAMES.length);
+	private volatile long startTime;
+	
+	public StartupTimings() {
+		start();
+	}
+	
+	/**
+	 * 阶段耗时
+	 *
+	 * @param phase PHASE_CAMERA_OPEN 等
+	 * @return 耗时，毫秒，尚未记录时为 -1
+	 */
+	public float getPhaseTime(int phase) {
+		long phaseTime = this.phaseTimes.get(phase);
+		return phaseTime < 0 ? -1 : phaseTime / 1000000F;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+			if (phase > 0) {
+				builder.append(", ");
+			}
+			builder.append(PHASE_NAMES[phase]).append(": ");
+			float phaseTime = getPhaseTime(phase);
+			if (phaseTime < 0) {
+				builder.append('-');
+			} else {
+				builder.append(String.format(Locale.US, "%.1f ms", phaseTime));
+			}
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * 开始记录，清空之前的耗时
+	 */
+	void start() {
+		for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+			this.phaseTimes.set(phase, -1);
+		}
+		this.startTime = System.nanoTime();
+	}
+	
+	/**
+	 * 记录阶段耗时，已记录时忽略
+	 *
+	 * @param phase     PHASE_CAMERA_OPEN 等
+	 * @param startTime 开始时间，System.nanoTime
+	 * @param endTime   结束时间，System.nanoTime
+	 */
+	void record(int phase, long startTime, long endTime) {
+		this.phaseTimes.compareAndSet(phase, -1, Math.max(0, endTime - startTime));
+	}
+	
+	/**
+	 * 记录 startScan 到当前的耗时，已记录时忽略
+	 *
+	 * @param phase PHASE_SURFACE 等
+	 */
+	void recordSinceStart(int phase) {
+		if (this.phaseTimes.get(phase) < 0) {
+			record(phase, this.startTime, System.nanoTime());
+		}
+	}
+}
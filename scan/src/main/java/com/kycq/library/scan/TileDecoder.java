@@ -0,0 +1,217 @@
+package com.kycq.library.scan;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 超大图片的分块解码
+ * <p>
+ * 以原图分辨率按相互重叠的区域逐块读取，各块在独立线程上并行解码，
+ * 同时在内存中的只有正在解码的区域，峰值内存与图片大小无关。
+ */
+class TileDecoder {
+	private static final long KEEP_ALIVE_SECONDS = 30;
+	
+	private final BlockingQueue<TileWorker> tileWorkers;
+	private final ThreadPoolExecutor executor;
+	
+	TileDecoder(MultiFormatReader[] multiFormatReaders) {
+		int concurrency = multiFormatReaders.length;
+		this.tileWorkers = new ArrayBlockingQueue<>(concurrency);
+		for (MultiFormatReader multiFormatReader : multiFormatReaders) {
+			this.tileWorkers.offer(new TileWorker(multiFormatReader));
+		}
+		this.executor = new ThreadPoolExecutor(concurrency, concurrency,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new TileThreadFactory());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * 分块解码图片
+	 *
+	 * @param albumImage  图片来源
+	 * @param width       原图宽度
+	 * @param height      原图高度
+	 * @param tileSize    区域边长
+	 * @param tileOverlap 相邻区域重叠的宽度
+	 * @return 去重后的解码结果，按区域顺序排列，坐标为原图坐标；读取失败的区域跳过
+	 * @throws InterruptedException 等待时被中断
+	 */
+	List<Result> decode(AlbumImage albumImage, int width, int height,
+	                    int tileSize, int tileOverlap) throws InterruptedException {
+		BitmapRegionDecoder regionDecoder;
+		try {
+			regionDecoder = albumImage.newRegionDecoder();
+		} catch (IOException e) {
+			return new ArrayList<>();
+		}
+		
+		List<Future<Result>> futures = new ArrayList<>();
+		try {
+			for (Rect tileRect : splitTiles(width, height, tileSize, tileOverlap)) {
+				futures.add(this.executor.submit(new TileCallable(regionDecoder, tileRect)));
+			}
+			
+			Map<String, Result> results = new LinkedHashMap<>();
+			for (Future<Result> future : futures) {
+				Result result;
+				try {
+					result = future.get();
+				} catch (ExecutionException e) {
+					// 单个区域读取失败时继续收集其他区域的结果
+					continue;
+				}
+				if (result == null) {
+					continue;
+				}
+				String key = result.getBarcodeFormat() + ":" + result.getText();
+				if (!results.containsKey(key)) {
+					results.put(key, result);
+				}
+			}
+			return new ArrayList<>(results.values());
+		} finally {
+			boolean isAllDone = true;
+			for (Future<Result> future : futures) {
+				future.cancel(false);
+				isAllDone &= future.isDone();
+			}
+			// 被中断时可能仍有区域正在读取，交由回收器释放
+			if (isAllDone) {
+				regionDecoder.recycle();
+			}
+		}
+	}
+	
+	/**
+	 * 划分区域，相邻区域重叠 tileOverlap，最后一块与图片边缘对齐
+	 */
+	static List<Rect> splitTiles(int width, int height, int tileSize, int tileOverlap) {
+		int[] lefts = splitAxis(width, tileSize, tileOverlap);
+		int[] tops = splitAxis(height, tileSize, tileOverlap);
+		List<Rect> tileRects = new ArrayList<>(lefts.length * tops.length);
+		for (int top : tops) {
+			for (int left : lefts) {
+				tileRects.add(new Rect(left, top,
+						Math.min(left + tileSize, width), Math.min(top + tileSize, height)));
+			}
+		}
+		return tileRects;
+	}
+	
+	static int[] splitAxis(int length, int tileSize, int tileOverlap) {
+		if (length <= tileSize) {
+			return new int[]{0};
+		}
+		int step = tileSize - tileOverlap;
+		int count = (length - tileOverlap + step - 1) / step;
+		int[] starts = new int[count];
+		for (int index = 0; index < count; index++) {
+			starts[index] = Math.min(index * step, length - tileSize);
+		}
+		return starts;
+	}
+	
+	private class TileCallable implements Callable<Result> {
+		private final BitmapRegionDecoder regionDecoder;
+		private final Rect tileRect;
+		
+		TileCallable(BitmapRegionDecoder regionDecoder, Rect tileRect) {
+			this.regionDecoder = regionDecoder;
+			this.tileRect = tileRect;
+		}
+		
+		@Override
+		public Result call() throws Exception {
+			// 线程数与解码器数量相同，总能立即取得
+			TileWorker tileWorker = tileWorkers.poll();
+			MultiFormatReader multiFormatReader = tileWorker.multiFormatReader;
+			try {
+				BitmapFactory.Options options = new BitmapFactory.Options();
+				options.inPreferredConfig = Bitmap.Config.RGB_565;
+				Bitmap bitmap = this.regionDecoder.decodeRegion(this.tileRect, options);
+				if (bitmap == null) {
+					return null;
+				}
+				LuminanceSource luminanceSource = tileWorker.bitmapLuminance.extract(bitmap);
+				Result result = multiFormatReader.decodeWithState(new BinaryBitmap(new HybridBinarizer(luminanceSource)));
+				return translate(result, this.tileRect.left, this.tileRect.top);
+			} catch (ReaderException e) {
+				return null;
+			} catch (OutOfMemoryError error) {
+				return null;
+			} finally {
+				multiFormatReader.reset();
+				tileWorkers.offer(tileWorker);
+			}
+		}
+	}
+	
+	/**
+	 * 每个分块线程使用的解码器与亮度缓存
+	 */
+	private static class TileWorker {
+		final MultiFormatReader multiFormatReader;
+		final BitmapLuminance bitmapLuminance = new BitmapLuminance();
+		
+		TileWorker(MultiFormatReader multiFormatReader) {
+			this.multiFormatReader = multiFormatReader;
+		}
+	}
+	
+	private static Result translate(Result result, int left, int top) {
+		ResultPoint[] resultPoints = result.getResultPoints();
+		if (resultPoints == null) {
+			return result;
+		}
+		ResultPoint[] translatedPoints = new ResultPoint[resultPoints.length];
+		for (int index = 0; index < resultPoints.length; index++) {
+			ResultPoint resultPoint = resultPoints[index];
+			if (resultPoint != null) {
+				translatedPoints[index] = new ResultPoint(resultPoint.getX() + left, resultPoint.getY() + top);
+			}
+		}
+		Result translatedResult = new Result(result.getText(), result.getRawBytes(),
+				translatedPoints, result.getBarcodeFormat(), result.getTimestamp());
+		translatedResult.putAllMetadata(result.getResultMetadata());
+		return translatedResult;
+	}
+	
+	private static class TileThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "TileDecode-" + this.threadNumber.incrementAndGet());
+			thread.setPriority(Thread.NORM_PRIORITY - 1);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.kycq.library.scan;
+
+/**
+ * FrontLightMode.AUTO 时根据扫描区域平均亮度开关闪光灯
+ * <p>
+ * 平均亮度平滑后低于 darkLuminance 时打开，闪光灯打开后高于 brightLuminance 时关闭，两个阈值之间保持不变；
+ * 每次开关后等待曝光稳定，且间隔不小于 minToggleInterval。
+ */
+public class TorchController {
+	/** 平均亮度平滑系数 */
+	private static final float ALPHA = 0.2F;
+	/** 开关后至少记录的帧数，等待曝光稳定 */
+	private static final int SETTLE_FRAME_COUNT = 5;
+	
+	private float darkLuminance = 40;
+	private float brightLuminance = 160;
+	private long minToggleInterval = 2000;
+	
+	private boolean isEnabled;
+	private OnTorchRequestListener onTorchRequestListener;
+	private boolean isTorchOn;
+	private boolean isRequested;
+	private long toggleTime;
+	private int sampleCount;
+	private float luminance;
+	
+	public synchronized float getDarkLuminance() {
+		return this.darkLuminance;
+	}
+	
+	/**
+	 * 设置打开闪光灯的平均亮度
+	 *
+	 * @param darkLuminance 0 - 255，小于 brightLuminance
+	 */
+	public synchronized void setDarkLuminance(float darkLuminance) {
+		if (darkLuminance < 0 || darkLuminance >= this.brightLuminance) {
+			throw new IllegalArgumentException("darkLuminance must be in [0, brightLuminance): " + darkLuminance);
+		}
+		this.darkLuminance = darkLuminance;
+	}
+	
+	public synchronized float getBrightLuminance() {
+		return this.brightLuminance;
+	}
+	
+	/**
+	 * 设置闪光灯打开后关闭的平均亮度
+	 *
+	 * @param brightLuminance 0 - 255，大于 darkLuminance
+	 */
+	public synchronized void setBrightLuminance(float brightLuminance) {
+		if (brightLuminance <= this.darkLuminance || brightLuminance > 255) {
+			throw new IllegalArgumentException("brightLuminance must be in (darkLuminance, 255]: " + brightLuminance);
+		}
+		this.brightLuminance = brightLuminance;
+	}
+	
+	public synchronized long getMinToggleInterval() {
+		return this.minToggleInterval;
+	}
+	
+	/**
+	 * 设置两次开关闪光灯的最小间隔
+	 *
+	 * @param minToggleInterval 毫秒
+	 */
+	public synchronized void setMinToggleInterval(long minToggleInterval) {
+		if (minToggleInterval < 0) {
+			throw new IllegalArgumentException("minToggleInterval must not be negative: " + minToggleInterval);
+		}
+		this.minToggleInterval = minToggleInterval;
+	}
+	
+	synchronized boolean isEnabled() {
+		return this.isEnabled;
+	}
+	
+	synchronized void setEnabled(boolean enabled) {
+		this.isEnabled = enabled;
+		this.isRequested = false;
+		this.sampleCount = 0;
+	}
+	
+	/**
+	 * @param listener 开关请求，在解码线程回调
+	 */
+	synchronized void setOnTorchRequestListener(OnTorchRequestListener listener) {
+		this.onTorchRequestListener = listener;
+	}
+	
+	/**
+	 * 开始扫描时记录闪光灯状态
+	 *
+	 * @param torchOn true 闪光灯已打开
+	 */
+	synchronized void reset(boolean torchOn) {
+		this.isTorchOn = torchOn;
+		this.isRequested = false;
+		this.toggleTime = 0;
+		this.sampleCount = 0;
+	}
+	
+	/**
+	 * 闪光灯已开关，重新记录亮度
+	 *
+	 * @param torchOn   true 已打开
+	 * @param nowMillis 当前时间
+	 */
+	synchronized void torchApplied(boolean torchOn, long nowMillis) {
+		this.isTorchOn = torchOn;
+		this.isRequested = false;
+		this.toggleTime = nowMillis;
+		this.sampleCount = 0;
+	}
+	
+	/**
+	 * 记录一帧扫描区域的平均亮度，需要开关闪光灯时回调 OnTorchRequestListener
+	 *
+	 * @param meanLuminance 平均亮度 0 - 255
+	 * @param nowMillis     当前时间
+	 * @return true 已请求开关
+	 */
+	boolean frameMeasured(float meanLuminance, long nowMillis) {
+		OnTorchRequestListener listener;
+		boolean torchOn;
+		synchronized (this) {
+			listener = this.onTorchRequestListener;
+			if (!this.isEnabled || listener == null || this.isRequested) {
+				return false;
+			}
+			this.luminance = this.sampleCount++ == 0
+					? meanLuminance : this.luminance + (meanLuminance - this.luminance) * ALPHA;
+			if (this.sampleCount < SETTLE_FRAME_COUNT
+					|| (this.toggleTime != 0 && nowMillis - this.toggleTime < this.minToggleInterval)) {
+				return false;
+			}
+			if (this.isTorchOn ? this.luminance <= this.brightLuminance : this.luminance >= this.darkLuminance) {
+				return false;
+			}
+			this.isRequested = true;
+			torchOn = !this.isTorchOn;
+		}
+		listener.torchRequested(torchOn);
+		return true;
+	}
+	
+	interface OnTorchRequestListener {
+		/**
+		 * @param torchOn true 打开闪光灯
+		 */
+		void torchRequested(boolean torchOn);
+	}
+}
@@ -0,0 +1,219 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+/**
+ * 根据识别过程中找到的定位点自动变焦，默认关闭
+ * <p>
+ * 二维码的定位图形、一维码的起止符等在识别失败时也会回调。定位点在扫描框中所占比例过小时逐级放大画面，
+ * 条码较远时更少的帧即可识别；每次变焦间隔不小于最小间隔且倍数变化不超过一级，识别成功后恢复。
+ * 数码变焦以画面中心为准，只在定位点放大后仍处于扫描框内时放大。
+ */
+public class ZoomController {
+	/** 每次变焦的最大倍数变化 */
+	private static final float ZOOM_STEP = 1.25F;
+	/** 目标倍数与当前倍数相差该比例以内不变焦 */
+	private static final float ZOOM_TOLERANCE = 1.1F;
+	/** 放大后定位点距扫描框中心不超过半边长的该比例 */
+	private static final float MAX_CENTER_OFFSET = 0.9F;
+	
+	private boolean isEnabled;
+	private float maxZoomRatio = 4;
+	private float targetCodeRatio = 0.4F;
+	private long minZoomInterval = 200;
+	private long zoomOutDelay = 1500;
+	
+	private float hardwareMaxZoomRatio = 1;
+	private float zoomRatio = 1;
+	private long lastZoomTime;
+	private long lastPointTime;
+	
+	public synchronized boolean isEnabled() {
+		return this.isEnabled;
+	}
+	
+	/**
+	 * 设置是否自动变焦，下次启动扫描时生效
+	 *
+	 * @param enabled true 启用
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.isEnabled = enabled;
+	}
+	
+	public synchronized float getMaxZoomRatio() {
+		return this.maxZoomRatio;
+	}
+	
+	/**
+	 * 设置最大变焦倍数，同时受相机支持的倍数限制
+	 *
+	 * @param maxZoomRatio 不小于 1
+	 */
+	public synchronized void setMaxZoomRatio(float maxZoomRatio) {
+		if (maxZoomRatio < 1) {
+			throw new IllegalArgumentException("maxZoomRatio must not be less than 1: " + maxZoomRatio);
+		}
+		this.maxZoomRatio = maxZoomRatio;
+	}
+	
+	public synchronized float getTargetCodeRatio() {
+		return this.targetCodeRatio;
+	}
+	
+	/**
+	 * 设置放大后定位点范围占扫描框边长的目标比例
+	 *
+	 * @param targetCodeRatio 0 - 1
+	 */
+	public synchronized void setTargetCodeRatio(float targetCodeRatio) {
+		if (targetCodeRatio <= 0 || targetCodeRatio > 1) {
+			throw new IllegalArgumentException("targetCodeRatio must be in (0, 1]: " + targetCodeRatio);
+		}
+		this.targetCodeRatio = targetCodeRatio;
+	}
+	
+	public synchronized long getMinZoomInterval() {
+		return this.minZoomInterval;
+	}
+	
+	/**
+	 * 设置两次变焦的最小间隔
+	 *
+	 * @param minZoomInterval 毫秒
+	 */
+	public synchronized void setMinZoomInterval(long minZoomInterval) {
+		if (minZoomInterval < 0) {
+			throw new IllegalArgumentException("minZoomInterval must not be negative: " + minZoomInterval);
+		}
+		this.minZoomInterval = minZoomInterval;
+	}
+	
+	public synchronized long getZoomOutDelay() {
+		return this.zoomOutDelay;
+	}
+	
+	/**
+	 * 设置没有找到定位点多久后逐级缩小
+	 *
+	 * @param zoomOutDelay 毫秒
+	 */
+	public synchronized void setZoomOutDelay(long zoomOutDelay) {
+		if (zoomOutDelay < 0) {
+			throw new IllegalArgumentException("zoomOutDelay must not be negative: " + zoomOutDelay);
+		}
+		this.zoomOutDelay = zoomOutDelay;
+	}
+	
+	/**
+	 * 当前变焦倍数
+	 */
+	public synchronized float getZoomRatio() {
+		return this.zoomRatio;
+	}
+	
+	/**
+	 * 开始扫描或识别成功后恢复为不变焦
+	 *
+	 * @param hardwareMaxZoomRatio 相机支持的最大倍数
+	 */
+	synchronized void reset(float hardwareMaxZoomRatio) {
+		this.hardwareMaxZoomRatio = Math.max(hardwareMaxZoomRatio, 1);
+		this.zoomRatio = 1;
+		this.lastZoomTime = 0;
+		this.lastPointTime = 0;
+	}
+	
+	/**
+	 * 相机实际应用的倍数，可能与请求的倍数不同
+	 *
+	 * @param zoomRatio 变焦倍数
+	 */
+	synchronized void zoomApplied(float zoomRatio) {
+		this.zoomRatio = zoomRatio;
+	}
+	
+	/**
+	 * 一帧识别失败后判断是否变焦
+	 *
+	 * @param pointCollector 识别过程中找到的定位点
+	 * @param width          扫描区域宽度
+	 * @param height         扫描区域高度
+	 * @param now            当前时间，毫秒
+	 * @return 新的变焦倍数，不变焦时为 0
+	 */
+	synchronized float frameFailed(PointCollector pointCollector, int width, int height, long now) {
+		if (!this.isEnabled || now - this.lastZoomTime < this.minZoomInterval) {
+			return 0;
+		}
+		float maxRatio = Math.min(this.maxZoomRatio, this.hardwareMaxZoomRatio);
+		float targetRatio;
+		if (pointCollector.count >= 2) {
+			this.lastPointTime = now;
+			float side = Math.min(width, height);
+			float spread = Math.max(pointCollector.maxX - pointCollector.minX, pointCollector.maxY - pointCollector.minY);
+			spread = Math.max(spread, 1) / side;
+			// 定位点最远处距扫描框中心的比例，放大后同比例增大
+			float offset = Math.max(
+					Math.max(Math.abs(pointCollector.minX - width / 2F), Math.abs(pointCollector.maxX - width / 2F)),
+					Math.max(Math.abs(pointCollector.minY - height / 2F), Math.abs(pointCollector.maxY - height / 2F)))
+					/ (side / 2);
+			targetRatio = this.zoomRatio * this.targetCodeRatio / spread;
+			if (offset > 0) {
+				targetRatio = Math.min(targetRatio, this.zoomRatio * MAX_CENTER_OFFSET / offset);
+			}
+		} else if (this.zoomRatio > 1 && this.lastPointTime != 0 && now - this.lastPointTime > this.zoomOutDelay) {
+			// 条码已离开画面
+			targetRatio = 1;
+		} else {
+			return 0;
+		}
+		
+		targetRatio = Math.max(1, Math.min(targetRatio, maxRatio));
+		float nextRatio;
+		if (targetRatio > this.zoomRatio * ZOOM_TOLERANCE) {
+			nextRatio = Math.min(targetRatio, this.zoomRatio * ZOOM_STEP);
+		} else if (targetRatio < this.zoomRatio / ZOOM_TOLERANCE || (targetRatio == 1 && this.zoomRatio > 1)) {
+			nextRatio = Math.max(targetRatio, this.zoomRatio / ZOOM_STEP);
+		} else {
+			return 0;
+		}
+		this.lastZoomTime = now;
+		this.zoomRatio = nextRatio;
+		return nextRatio;
+	}
+	
+	/**
+	 * 收集一次识别中找到的定位点范围，每个解码线程持有一个
+	 */
+	static class PointCollector implements ResultPointCallback {
+		int count;
+		float minX;
+		float minY;
+		float maxX;
+		float maxY;
+		
+		void reset() {
+			this.count = 0;
+		}
+		
+		@Override
+		public void foundPossibleResultPoint(ResultPoint point) {
+			float x = point.getX();
+			float y = point.getY();
+			if (this.count == 0) {
+				this.minX = x;
+				this.maxX = x;
+				this.minY = y;
+				this.maxY = y;
+			} else {
+				this.minX = Math.min(this.minX, x);
+				this.maxX = Math.max(this.maxX, x);
+				this.minY = Math.min(this.minY, y);
+				this.maxY = Math.max(this.maxY, y);
+			}
+			this.count++;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 相册逐级解码策略测试
+ */
+public class AlbumDecodePolicyTest {
+	
+	@Test
+	public void sampleSize_escalatesUntilPixelBudget() throws Exception {
+		AlbumDecodePolicy albumDecodePolicy = new AlbumDecodePolicy();
+		// 12MP 照片：16 倍 -> 8 倍 -> 4 倍 -> 2 倍，原图超过预算
+		assertEquals(16, albumDecodePolicy.initialSampleSize(4000, 3000));
+		assertEquals(8, albumDecodePolicy.nextSampleSize(4000, 3000, 16));
+		assertEquals(4, albumDecodePolicy.nextSampleSize(4000, 3000, 8));
+		assertEquals(2, albumDecodePolicy.nextSampleSize(4000, 3000, 4));
+		assertEquals(0, albumDecodePolicy.nextSampleSize(4000, 3000, 2));
+	}
+	
+	@Test
+	public void sampleSize_decodesSmallImageOnce() throws Exception {
+		AlbumDecodePolicy albumDecodePolicy = new AlbumDecodePolicy();
+		assertEquals(1, albumDecodePolicy.initialSampleSize(300, 400));
+		assertEquals(0, albumDecodePolicy.nextSampleSize(300, 400, 1));
+	}
+	
+	@Test
+	public void sampleSize_initialAttemptRespectsBudget() throws Exception {
+		AlbumDecodePolicy albumDecodePolicy = new AlbumDecodePolicy();
+		albumDecodePolicy.setPixelBudget(100 * 1000);
+		assertEquals(16, albumDecodePolicy.initialSampleSize(4000, 3000));
+		assertEquals(0, albumDecodePolicy.nextSampleSize(4000, 3000, 16));
+	}
+}
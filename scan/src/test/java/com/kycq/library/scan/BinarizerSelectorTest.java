@@ -0,0 +1,54 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 二值化方式选择测试
+ */
+public class BinarizerSelectorTest {
+	private static final float GOOD = BinarizerSelector.GOOD_CONTRAST;
+	
+	@Test
+	public void select_hybridForLowContrast() throws Exception {
+		BinarizerSelector binarizerSelector = new BinarizerSelector();
+		for (int index = 0; index < 20; index++) {
+			assertEquals(FrameBinarizer.STRATEGY_HYBRID, binarizerSelector.select(GOOD - 1));
+		}
+	}
+	
+	@Test
+	public void select_globalHistogramFirstWithExploration() throws Exception {
+		BinarizerSelector binarizerSelector = new BinarizerSelector();
+		int hybridCount = 0;
+		for (int index = 0; index < 80; index++) {
+			if (binarizerSelector.select(GOOD) == FrameBinarizer.STRATEGY_HYBRID) {
+				hybridCount++;
+			}
+		}
+		assertEquals(10, hybridCount);
+	}
+	
+	@Test
+	public void select_fallsBackToHybridWhenGlobalHistogramFails() throws Exception {
+		BinarizerSelector binarizerSelector = new BinarizerSelector();
+		for (int index = 0; index < 50; index++) {
+			binarizerSelector.decoded(FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM, GOOD, false);
+			binarizerSelector.decoded(FrameBinarizer.STRATEGY_HYBRID, GOOD, true);
+		}
+		assertTrue(binarizerSelector.getHybridRate() > binarizerSelector.getGlobalHistogramRate());
+		assertEquals(FrameBinarizer.STRATEGY_HYBRID, binarizerSelector.select(GOOD));
+		
+		// 低对比度帧不参与比较
+		for (int index = 0; index < 200; index++) {
+			binarizerSelector.decoded(FrameBinarizer.STRATEGY_HYBRID, GOOD - 1, false);
+		}
+		assertEquals(FrameBinarizer.STRATEGY_HYBRID, binarizerSelector.select(GOOD));
+		
+		for (int index = 0; index < 200; index++) {
+			binarizerSelector.decoded(FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM, GOOD, true);
+		}
+		assertEquals(FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM, binarizerSelector.select(GOOD));
+	}
+}
@@ -0,0 +1,32 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.RGBLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 图片亮度转换测试
+ */
+public class BitmapLuminanceTest {
+	
+	@Test
+	public void toLuminance_matchesRgbLuminanceSource() throws Exception {
+		int width = 64;
+		int[] pixels = new int[width];
+		Random random = new Random(7);
+		for (int x = 0; x < width; x++) {
+			pixels[x] = 0xFF000000 | random.nextInt(0x1000000);
+		}
+		
+		byte[] luminances = new byte[width + 3];
+		BitmapLuminance.toLuminance(pixels, width, luminances, 3);
+		byte[] expected = new RGBLuminanceSource(width, 1, pixels).getRow(0, null);
+		for (int x = 0; x < width; x++) {
+			assertEquals(expected[x], luminances[x + 3]);
+		}
+	}
+}
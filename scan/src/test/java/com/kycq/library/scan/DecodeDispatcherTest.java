@@ -0,0 +1,143 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预览帧分发测试
+ */
+public class DecodeDispatcherTest {
+	
+	@Test
+	public void onFrame_idleWorkerReceivesFrame() throws Exception {
+		TestFrameSource frameSource = new TestFrameSource();
+		DecodeDispatcher decodeDispatcher = createDispatcher(frameSource, new ScanStatistics());
+		TestWorker worker = new TestWorker();
+		decodeDispatcher.workerIdle(worker);
+		
+		PreviewFrame previewFrame = createFrame();
+		decodeDispatcher.onFrame(previewFrame);
+		assertEquals(1, worker.frames.size());
+		assertSame(previewFrame, worker.frames.get(0));
+		assertTrue(frameSource.releasedFrames.isEmpty());
+		
+		// 领取后不再空闲，下一帧等待
+		decodeDispatcher.onFrame(createFrame());
+		assertEquals(1, worker.frames.size());
+	}
+	
+	@Test
+	public void onFrame_replacesPendingFrameWhenBusy() throws Exception {
+		TestFrameSource frameSource = new TestFrameSource();
+		ScanStatistics scanStatistics = new ScanStatistics();
+		DecodeDispatcher decodeDispatcher = createDispatcher(frameSource, scanStatistics);
+		
+		PreviewFrame first = createFrame();
+		PreviewFrame second = createFrame();
+		PreviewFrame third = createFrame();
+		decodeDispatcher.onFrame(first);
+		assertTrue(frameSource.releasedFrames.isEmpty());
+		assertEquals(0, scanStatistics.getDroppedFrameCount());
+		
+		decodeDispatcher.onFrame(second);
+		decodeDispatcher.onFrame(third);
+		assertEquals(2, frameSource.releasedFrames.size());
+		assertSame(first, frameSource.releasedFrames.get(0));
+		assertSame(second, frameSource.releasedFrames.get(1));
+		assertEquals(2, scanStatistics.getDroppedFrameCount());
+		
+		TestWorker worker = new TestWorker();
+		decodeDispatcher.workerIdle(worker);
+		assertEquals(1, worker.frames.size());
+		assertSame(third, worker.frames.get(0));
+	}
+	
+	@Test
+	public void deactivate_releasesPendingFrameOnce() throws Exception {
+		TestFrameSource frameSource = new TestFrameSource();
+		DecodeDispatcher decodeDispatcher = createDispatcher(frameSource, new ScanStatistics());
+		PreviewFrame previewFrame = createFrame();
+		decodeDispatcher.onFrame(previewFrame);
+		
+		assertTrue(decodeDispatcher.deactivate());
+		assertFalse(decodeDispatcher.isActive());
+		assertEquals(1, frameSource.releasedFrames.size());
+		assertSame(previewFrame, frameSource.releasedFrames.get(0));
+		
+		assertFalse(decodeDispatcher.deactivate());
+		assertEquals(1, frameSource.releasedFrames.size());
+		
+		// 暂停后新帧直接归还，不分发给空闲的解码线程
+		TestWorker worker = new TestWorker();
+		decodeDispatcher.workerIdle(worker);
+		PreviewFrame inactiveFrame = createFrame();
+		decodeDispatcher.onFrame(inactiveFrame);
+		assertTrue(worker.frames.isEmpty());
+		assertSame(inactiveFrame, frameSource.releasedFrames.get(1));
+	}
+	
+	@Test
+	public void workerIdle_takesPendingFrame() throws Exception {
+		TestFrameSource frameSource = new TestFrameSource();
+		DecodeDispatcher decodeDispatcher = createDispatcher(frameSource, new ScanStatistics());
+		PreviewFrame previewFrame = createFrame();
+		decodeDispatcher.onFrame(previewFrame);
+		
+		TestWorker first = new TestWorker();
+		decodeDispatcher.workerIdle(first);
+		assertEquals(1, first.frames.size());
+		assertSame(previewFrame, first.frames.get(0));
+		
+		// 没有等待中的帧时进入空闲队列，下一帧直接领取
+		TestWorker second = new TestWorker();
+		decodeDispatcher.workerIdle(second);
+		assertTrue(second.frames.isEmpty());
+		PreviewFrame nextFrame = createFrame();
+		decodeDispatcher.onFrame(nextFrame);
+		assertEquals(1, first.frames.size());
+		assertSame(nextFrame, second.frames.get(0));
+		assertTrue(frameSource.releasedFrames.isEmpty());
+	}
+	
+	private static DecodeDispatcher createDispatcher(FrameSource frameSource, ScanStatistics scanStatistics) {
+		DecodeDispatcher decodeDispatcher = new DecodeDispatcher(frameSource, scanStatistics, new ScanMetrics());
+		decodeDispatcher.setActive(true);
+		return decodeDispatcher;
+	}
+	
+	private static PreviewFrame createFrame() {
+		PreviewFrame previewFrame = new PreviewFrame();
+		previewFrame.setData(new byte[64 * 48], 64, 48);
+		return previewFrame;
+	}
+	
+	private static class TestFrameSource implements FrameSource {
+		final List<PreviewFrame> releasedFrames = new ArrayList<>();
+		
+		@Override
+		public void start(FrameCallback frameCallback, int bufferCount) {
+		}
+		
+		@Override
+		public void stop() {
+		}
+		
+		@Override
+		public void releaseFrame(PreviewFrame previewFrame) {
+			this.releasedFrames.add(previewFrame);
+		}
+	}
+	
+	private static class TestWorker implements DecodeDispatcher.DecodeWorker {
+		final List<PreviewFrame> frames = new ArrayList<>();
+		
+		@Override
+		public void decode(PreviewFrame previewFrame) {
+			this.frames.add(previewFrame);
+		}
+	}
+}
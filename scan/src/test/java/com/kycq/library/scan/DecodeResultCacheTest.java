@@ -0,0 +1,91 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 解码结果缓存测试
+ */
+public class DecodeResultCacheTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	@Test
+	public void get_hitsAfterReloadAndMissesAfterChange() throws Exception {
+		File cacheFile = new File(this.temporaryFolder.getRoot(), "cache");
+		File imageFile = writeFile("image.jpg", "first");
+		AlbumImage albumImage = AlbumImage.fromFile(imageFile);
+		
+		DecodeResultCache decodeResultCache = new DecodeResultCache(cacheFile);
+		String key = decodeResultCache.key(albumImage);
+		assertNull(decodeResultCache.get(key));
+		decodeResultCache.put(key, albumImage, new Result("12345", null, null, BarcodeFormat.QR_CODE));
+		// 结果先保存在内存中，flush 后写入磁盘
+		assertFalse(cacheFile.exists());
+		decodeResultCache.flush();
+		assertTrue(cacheFile.exists());
+		
+		DecodeResultCache reloadedCache = new DecodeResultCache(cacheFile);
+		Result result = reloadedCache.get(reloadedCache.key(albumImage));
+		assertEquals("12345", result.getText());
+		assertEquals(BarcodeFormat.QR_CODE, result.getBarcodeFormat());
+		assertEquals(1, reloadedCache.getHitCount());
+		
+		writeFile("image.jpg", "second image");
+		assertNull(reloadedCache.get(reloadedCache.key(albumImage)));
+		assertEquals(1, reloadedCache.getMissCount());
+	}
+	
+	@Test
+	public void put_sameContentSharesResult() throws Exception {
+		DecodeResultCache decodeResultCache = new DecodeResultCache(new File(this.temporaryFolder.getRoot(), "cache"));
+		AlbumImage firstImage = AlbumImage.fromFile(writeFile("first.jpg", "content"));
+		AlbumImage secondImage = AlbumImage.fromFile(writeFile("second.jpg", "content"));
+		
+		decodeResultCache.put(decodeResultCache.key(firstImage), firstImage,
+				new Result("abc", null, null, BarcodeFormat.CODE_128));
+		assertEquals("abc", decodeResultCache.get(decodeResultCache.key(secondImage)).getText());
+	}
+	
+	@Test
+	public void put_evictsLeastRecentlyUsed() throws Exception {
+		DecodeResultCache decodeResultCache = new DecodeResultCache(new File(this.temporaryFolder.getRoot(), "cache"));
+		decodeResultCache.setMaxEntries(2);
+		AlbumImage[] albumImages = new AlbumImage[3];
+		String[] keys = new String[3];
+		for (int index = 0; index < albumImages.length; index++) {
+			albumImages[index] = AlbumImage.fromFile(writeFile(index + ".jpg", "image " + index));
+			keys[index] = decodeResultCache.key(albumImages[index]);
+		}
+		
+		decodeResultCache.put(keys[0], albumImages[0], new Result("0", null, null, BarcodeFormat.QR_CODE));
+		decodeResultCache.put(keys[1], albumImages[1], new Result("1", null, null, BarcodeFormat.QR_CODE));
+		assertNotNull(decodeResultCache.get(keys[0]));
+		decodeResultCache.put(keys[2], albumImages[2], new Result("2", null, null, BarcodeFormat.QR_CODE));
+		
+		assertEquals(2, decodeResultCache.size());
+		assertNotNull(decodeResultCache.get(keys[0]));
+		assertNull(decodeResultCache.get(keys[1]));
+	}
+	
+	private File writeFile(String name, String content) throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), name);
+		FileOutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(content.getBytes("UTF-8"));
+		} finally {
+			outputStream.close();
+		}
+		return file;
+	}
+}
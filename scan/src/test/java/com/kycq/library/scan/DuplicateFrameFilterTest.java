@@ -0,0 +1,74 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 重复帧过滤测试
+ */
+public class DuplicateFrameFilterTest {
+	private static final int WIDTH = 160;
+	private static final int HEIGHT = 120;
+	private static final int[] SENSOR_RECT = {20, 10, 140, 110};
+	
+	@Test
+	public void compute_ignoresNoiseAndDetectsMovement() throws Exception {
+		byte[] frame = createGradient(0, 0);
+		long hash = hash(frame);
+		assertTrue(FrameHash.distance(hash, hash(createGradient(0, 6))) <= 4);
+		assertTrue(FrameHash.distance(hash, hash(createGradient(30, 0))) > 4);
+	}
+	
+	@Test
+	public void isDuplicate_skipsUntilMovedOrInvalidated() throws Exception {
+		DuplicateFrameFilter duplicateFrameFilter = new DuplicateFrameFilter();
+		long hash = hash(createGradient(0, 0));
+		assertFalse(duplicateFrameFilter.isDuplicate(hash));
+		
+		duplicateFrameFilter.decodeFailed(hash);
+		assertTrue(duplicateFrameFilter.isDuplicate(hash(createGradient(0, 6))));
+		assertFalse(duplicateFrameFilter.isDuplicate(hash(createGradient(30, 0))));
+		
+		duplicateFrameFilter.decodeFailed(hash);
+		duplicateFrameFilter.invalidate();
+		assertFalse(duplicateFrameFilter.isDuplicate(hash));
+	}
+	
+	@Test
+	public void isDuplicate_forcesDecodeAfterConsecutiveSkips() throws Exception {
+		DuplicateFrameFilter duplicateFrameFilter = new DuplicateFrameFilter();
+		duplicateFrameFilter.setMaxConsecutiveSkips(3);
+		long hash = hash(createGradient(0, 0));
+		duplicateFrameFilter.decodeFailed(hash);
+		for (int index = 0; index < 3; index++) {
+			assertTrue(duplicateFrameFilter.isDuplicate(hash));
+		}
+		assertFalse(duplicateFrameFilter.isDuplicate(hash));
+		assertTrue(duplicateFrameFilter.isDuplicate(hash));
+	}
+	
+	private static long hash(byte[] data) {
+		return FrameHash.compute(new ArrayLumaPlane(data, WIDTH), SENSOR_RECT, new int[72]);
+	}
+	
+	/**
+	 * 斜向条纹，offset 表示画面平移
+	 */
+	private static byte[] createGradient(int offset, int noise) {
+		Random random = new Random(offset * 31 + noise);
+		byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				int value = ((x + y + offset) / 20) % 2 == 0 ? 60 : 200;
+				if (noise > 0) {
+					value += random.nextInt(noise * 2 + 1) - noise;
+				}
+				data[y * WIDTH + x] = (byte) value;
+			}
+		}
+		return data;
+	}
+}
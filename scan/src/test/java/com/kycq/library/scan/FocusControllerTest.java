@@ -0,0 +1,89 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按清晰度请求对焦
+ */
+public class FocusControllerTest {
+	@Test
+	public void frameMeasured_withoutListener() throws Exception {
+		FocusController focusController = new FocusController();
+		assertFalse(focusController.frameMeasured(0, 10000));
+	}
+	
+	@Test
+	public void frameMeasured_sharpFrames() throws Exception {
+		CountListener listener = new CountListener();
+		FocusController focusController = createFocusController(listener);
+		for (int index = 0; index < 100; index++) {
+			assertFalse(focusController.frameMeasured(30, 2000 + index * 50));
+		}
+		assertEquals(0, listener.count);
+	}
+	
+	@Test
+	public void frameMeasured_sharpnessDrops() throws Exception {
+		CountListener listener = new CountListener();
+		FocusController focusController = createFocusController(listener);
+		assertFalse(focusController.frameMeasured(30, 2000));
+		assertFalse(focusController.frameMeasured(20, 2050));
+		// 平滑值 30 -> 27.5 -> 22.6 -> 17.0，低于峰值的 0.6
+		assertFalse(focusController.frameMeasured(8, 2100));
+		assertTrue(focusController.frameMeasured(0, 2150));
+		assertEquals(1, listener.count);
+		
+		// 对焦请求未处理前不重复请求
+		assertFalse(focusController.frameMeasured(0, 2200));
+		assertEquals(1, listener.count);
+	}
+	
+	@Test
+	public void frameMeasured_blurryScene() throws Exception {
+		CountListener listener = new CountListener();
+		FocusController focusController = createFocusController(listener);
+		assertTrue(focusController.frameMeasured(2, 2000));
+		assertEquals(1, listener.count);
+	}
+	
+	@Test
+	public void frameMeasured_minInterval() throws Exception {
+		CountListener listener = new CountListener();
+		FocusController focusController = createFocusController(listener);
+		focusController.focusStarted();
+		assertFalse(focusController.frameMeasured(0, 1100));
+		focusController.focusFinished(1500);
+		// 对焦完成后的间隔内只记录清晰度
+		assertFalse(focusController.frameMeasured(2, 1600));
+		assertFalse(focusController.frameMeasured(2, 2400));
+		assertTrue(focusController.frameMeasured(2, 2500));
+		assertEquals(1, listener.count);
+	}
+	
+	@Test
+	public void setOnFocusRequestListener_cleared() throws Exception {
+		CountListener listener = new CountListener();
+		FocusController focusController = createFocusController(listener);
+		focusController.setOnFocusRequestListener(null);
+		assertFalse(focusController.frameMeasured(0, 2000));
+		assertEquals(0, listener.count);
+	}
+	
+	private static FocusController createFocusController(CountListener listener) {
+		FocusController focusController = new FocusController();
+		focusController.setOnFocusRequestListener(listener);
+		focusController.focusFinished(1000);
+		return focusController;
+	}
+	
+	private static class CountListener implements FocusController.OnFocusRequestListener {
+		int count;
+		
+		@Override
+		public void focusRequested() {
+			this.count++;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 复用缓冲区的二值化测试
+ */
+public class FrameBinarizerTest {
+	
+	@Test
+	public void create_matchesZXingBinarizers() throws Exception {
+		FrameBinarizer frameBinarizer = new FrameBinarizer();
+		// 非 8 的倍数、小于分块最小尺寸的区域
+		int[][] sizes = {{400, 400}, {403, 397}, {36, 50}, {400, 400}};
+		for (int[] size : sizes) {
+			PlanarYUVLuminanceSource source = createSource(size[0], size[1]);
+			assertEquals(new HybridBinarizer(source).getBlackMatrix(),
+					frameBinarizer.create(source, FrameBinarizer.STRATEGY_HYBRID).getBlackMatrix());
+			assertEquals(new GlobalHistogramBinarizer(source).getBlackMatrix(),
+					frameBinarizer.create(source, FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM).getBlackMatrix());
+		}
+	}
+	
+	@Test
+	public void create_reusesMatrixForSameSize() throws Exception {
+		FrameBinarizer frameBinarizer = new FrameBinarizer();
+		BitMatrix first = frameBinarizer.create(createSource(200, 200), FrameBinarizer.STRATEGY_HYBRID).getBlackMatrix();
+		BitMatrix second = frameBinarizer.create(createSource(200, 200), FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM)
+				.getBlackMatrix();
+		assertSame(first, second);
+		assertNotSame(second, frameBinarizer.create(createSource(240, 200), FrameBinarizer.STRATEGY_HYBRID)
+				.getBlackMatrix());
+	}
+	
+	@Test
+	public void createBinarizer_doesNotShareBuffers() throws Exception {
+		FrameBinarizer frameBinarizer = new FrameBinarizer();
+		Binarizer binarizer = frameBinarizer.create(createSource(200, 200), FrameBinarizer.STRATEGY_HYBRID);
+		BitMatrix matrix = binarizer.getBlackMatrix();
+		Binarizer cropped = binarizer.createBinarizer(createSource(200, 200));
+		assertNotSame(matrix, cropped.getBlackMatrix());
+	}
+	
+	@Test(expected = NotFoundException.class)
+	public void globalHistogram_lowContrastNotFound() throws Exception {
+		// 两个峰相距过近
+		byte[] data = new byte[100 * 100];
+		Arrays.fill(data, 0, data.length / 2, (byte) 128);
+		Arrays.fill(data, data.length / 2, data.length, (byte) 136);
+		PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(data, 100, 100, 0, 0, 100, 100, false);
+		new FrameBinarizer().create(source, FrameBinarizer.STRATEGY_GLOBAL_HISTOGRAM).getBlackMatrix();
+	}
+	
+	/**
+	 * 带亮度渐变与噪声的二维码图像
+	 */
+	private static PlanarYUVLuminanceSource createSource(int width, int height) throws Exception {
+		int size = Math.min(width, height);
+		BitMatrix code = new MultiFormatWriter().encode("KycqScan", BarcodeFormat.QR_CODE, size, size);
+		Random random = new Random(width * 31 + height);
+		byte[] data = new byte[width * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int base = 60 + 120 * x / width;
+				int value = x < size && y < size && code.get(x, y) ? base / 3 : base + 60;
+				data[y * width + x] = (byte) Math.max(0, Math.min(255, value + random.nextInt(21) - 10));
+			}
+		}
+		return new PlanarYUVLuminanceSource(data, width, height, 0, 0, width, height, false);
+	}
+}
@@ -0,0 +1,169 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 单帧解码流程测试
+ */
+public class FrameDecoderTest {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+	private static final long FRAME_INTERVAL = 33000000L;
+	
+	@Test
+	public void decode_tracksBarcodeWithinFrame() throws Exception {
+		ScanStatistics scanStatistics = new ScanStatistics();
+		FrameDecoder frameDecoder = createFrameDecoder(new MultiFormatReader(), scanStatistics);
+		frameDecoder.setRoiTracker(new RoiTracker(), null);
+		
+		byte[] image = createImage();
+		draw(image, "QR-LEFT", BarcodeFormat.QR_CODE, 140, 140, 20, 20);
+		for (int index = 0; index < 6; index++) {
+			Result result = frameDecoder.decode(createFrame(image, index), 0, 0, WIDTH, HEIGHT);
+			assertNotNull(result);
+			assertEquals("QR-LEFT", result.getText());
+		}
+		// 预测区域使用 ZXing 原有的二值化，识别结果不变
+		assertTrue(scanStatistics.getTrackedSuccessCount() > 0);
+	}
+	
+	@Test
+	public void decode_multiDecoderSearchesWholeFrameWhileTracking() throws Exception {
+		ScanStatistics scanStatistics = new ScanStatistics();
+		MultiFormatReader multiFormatReader = new MultiFormatReader();
+		multiFormatReader.setHints(DecodeFormat.createDecodeHints());
+		FrameDecoder frameDecoder = createFrameDecoder(multiFormatReader, scanStatistics);
+		MultiDecodePolicy multiDecodePolicy = new MultiDecodePolicy();
+		multiDecodePolicy.setFrameTimeBudget(1000);
+		frameDecoder.setMultiDecoder(new MultiDecoder(multiFormatReader, DecodeFormat.createDecodeHints()),
+				multiDecodePolicy);
+		frameDecoder.setRoiTracker(new RoiTracker(), null);
+		
+		byte[] image = createImage();
+		draw(image, "QR-LEFT", BarcodeFormat.QR_CODE, 140, 140, 20, 20);
+		draw(image, "QR-RIGHT", BarcodeFormat.QR_CODE, 140, 140, 170, 20);
+		assertNotNull(frameDecoder.decode(createFrame(image, 0), 0, 0, WIDTH, HEIGHT));
+		assertEquals(Arrays.asList("QR-LEFT", "QR-RIGHT"), texts(frameDecoder.getResults()));
+		
+		// 新条码出现在上次位置之外，每帧仍识别整个扫描区域
+		draw(image, "CODE-128-LABEL", BarcodeFormat.CODE_128, 560, 100, 40, 340);
+		for (int index = 1; index < 6; index++) {
+			assertNotNull(frameDecoder.decode(createFrame(image, index), 0, 0, WIDTH, HEIGHT));
+			assertEquals(Arrays.asList("CODE-128-LABEL", "QR-LEFT", "QR-RIGHT"), texts(frameDecoder.getResults()));
+		}
+		assertEquals(0, scanStatistics.getTrackedCount());
+	}
+	
+	@Test
+	public void decode_metricsDoNotChangeResults() throws Exception {
+		List<byte[]> images = new ArrayList<>();
+		byte[] qrImage = createImage();
+		draw(qrImage, "QR-LEFT", BarcodeFormat.QR_CODE, 140, 140, 20, 20);
+		images.add(qrImage);
+		// 背景亮度两个峰相距过近且条码避开全局直方图的采样行，整体二值化失败，逐行二值化仍可识别
+		byte[] barcodeImage = createImage();
+		for (int index = 0; index < barcodeImage.length; index += 2) {
+			barcodeImage[index] = (byte) 240;
+		}
+		draw(barcodeImage, "CODE-128-LABEL", BarcodeFormat.CODE_128, 560, 60, 40, 210);
+		images.add(barcodeImage);
+		images.add(createImage());
+		
+		List<String> expected = decodeTexts(images, false);
+		assertEquals(Arrays.asList("QR-LEFT", "CODE-128-LABEL", null), expected);
+		assertEquals(expected, decodeTexts(images, true));
+	}
+	
+	private static List<String> decodeTexts(List<byte[]> images, boolean isMetricsEnabled) {
+		ScanMetrics scanMetrics = new ScanMetrics();
+		scanMetrics.setEnabled(isMetricsEnabled);
+		MultiFormatReader multiFormatReader = new MultiFormatReader();
+		multiFormatReader.setHints(DecodeFormat.createDecodeHints());
+		FrameDecoder frameDecoder = createFrameDecoder(multiFormatReader, new ScanStatistics(), scanMetrics);
+		// 对比度足够时先使用全局直方图二值化
+		frameDecoder.setBinarizerSelector(new BinarizerSelector());
+		List<String> texts = new ArrayList<>();
+		for (int index = 0; index < images.size(); index++) {
+			Result result = frameDecoder.decode(createFrame(images.get(index), index), 0, 0, WIDTH, HEIGHT);
+			texts.add(result != null ? result.getText() : null);
+		}
+		if (isMetricsEnabled) {
+			assertEquals(images.size(), scanMetrics.getSampleCount(ScanMetrics.STAGE_BINARIZE));
+		}
+		return texts;
+	}
+	
+	private static FrameDecoder createFrameDecoder(MultiFormatReader multiFormatReader,
+	                                               ScanStatistics scanStatistics) {
+		return createFrameDecoder(multiFormatReader, scanStatistics, new ScanMetrics());
+	}
+	
+	private static FrameDecoder createFrameDecoder(MultiFormatReader multiFormatReader,
+	                                               ScanStatistics scanStatistics, ScanMetrics scanMetrics) {
+		DuplicateFrameFilter duplicateFrameFilter = new DuplicateFrameFilter();
+		duplicateFrameFilter.setEnabled(false);
+		FrameQualityGate frameQualityGate = new FrameQualityGate();
+		frameQualityGate.setEnabled(false);
+		return new FrameDecoder(multiFormatReader, frameQualityGate, duplicateFrameFilter,
+				scanStatistics, scanMetrics, new FrameSource() {
+			@Override
+			public void start(FrameCallback frameCallback, int bufferCount) {
+			}
+			
+			@Override
+			public void stop() {
+			}
+			
+			@Override
+			public void releaseFrame(PreviewFrame previewFrame) {
+			}
+		});
+	}
+	
+	private static PreviewFrame createFrame(byte[] image, int index) {
+		PreviewFrame previewFrame = new PreviewFrame();
+		previewFrame.setData(image, WIDTH, HEIGHT);
+		previewFrame.timestamp = FRAME_INTERVAL * (index + 1);
+		return previewFrame;
+	}
+	
+	private static byte[] createImage() {
+		byte[] image = new byte[WIDTH * HEIGHT];
+		Arrays.fill(image, (byte) 0xFF);
+		return image;
+	}
+	
+	private static void draw(byte[] image, String contents, BarcodeFormat format,
+	                         int width, int height, int left, int top) throws Exception {
+		BitMatrix matrix = new MultiFormatWriter().encode(contents, format, width, height);
+		for (int y = 0; y < matrix.getHeight(); y++) {
+			for (int x = 0; x < matrix.getWidth(); x++) {
+				if (matrix.get(x, y)) {
+					image[(top + y) * WIDTH + left + x] = 0;
+				}
+			}
+		}
+	}
+	
+	private static List<String> texts(List<Result> results) {
+		List<String> texts = new ArrayList<>();
+		for (Result result : results) {
+			texts.add(result.getText());
+		}
+		Collections.sort(texts);
+		return texts;
+	}
+}
@@ -0,0 +1,98 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 画面质量筛选测试
+ */
+public class FrameQualityGateTest {
+	private static final int WIDTH = 160;
+	private static final int HEIGHT = 120;
+	private static final int[] SENSOR_RECT = {20, 10, 140, 110};
+	
+	@Test
+	public void measure_separatesSharpAndBlurryFrames() throws Exception {
+		FrameQuality sharp = measure(createCheckerboard(16, 60, 200));
+		FrameQuality blurry = measure(blur(createCheckerboard(16, 60, 200), 4));
+		assertEquals(130, sharp.meanLuminance, 5);
+		assertTrue(sharp.contrast > 60);
+		assertTrue(sharp.sharpness > blurry.sharpness * 2);
+	}
+	
+	@Test
+	public void evaluate_rejectsDarkFlatAndBlurryFrames() throws Exception {
+		FrameQualityGate frameQualityGate = new FrameQualityGate();
+		assertEquals(FrameQualityGate.QUALITY_DARK, frameQualityGate.evaluate(measure(createCheckerboard(4, 0, 10))));
+		assertEquals(FrameQualityGate.QUALITY_BRIGHT, frameQualityGate.evaluate(measure(createCheckerboard(4, 250, 255))));
+		assertEquals(FrameQualityGate.QUALITY_FLAT, frameQualityGate.evaluate(measure(createNoise(128, 2))));
+		
+		assertEquals(FrameQualityGate.QUALITY_OK, frameQualityGate.evaluate(measure(createCheckerboard(16, 60, 200))));
+		// 清晰帧之后的模糊帧低于自适应阈值
+		assertEquals(FrameQualityGate.QUALITY_BLURRY,
+				frameQualityGate.evaluate(measure(blur(createCheckerboard(16, 60, 200), 4))));
+	}
+	
+	@Test
+	public void evaluate_forcesDecodeAfterConsecutiveRejects() throws Exception {
+		FrameQualityGate frameQualityGate = new FrameQualityGate();
+		frameQualityGate.setMaxConsecutiveRejects(3);
+		FrameQuality dark = measure(createCheckerboard(4, 0, 10));
+		for (int index = 0; index < 3; index++) {
+			assertEquals(FrameQualityGate.QUALITY_DARK, frameQualityGate.evaluate(dark));
+		}
+		assertEquals(FrameQualityGate.QUALITY_OK, frameQualityGate.evaluate(dark));
+		assertEquals(FrameQualityGate.QUALITY_DARK, frameQualityGate.evaluate(dark));
+		
+		frameQualityGate.setEnabled(false);
+		assertEquals(FrameQualityGate.QUALITY_OK, frameQualityGate.evaluate(dark));
+	}
+	
+	private static FrameQuality measure(byte[] data) {
+		FrameQuality frameQuality = new FrameQuality();
+		frameQuality.measure(new ArrayLumaPlane(data, WIDTH), SENSOR_RECT);
+		return frameQuality;
+	}
+	
+	private static byte[] createCheckerboard(int cellSize, int black, int white) {
+		byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				boolean isBlack = ((x / cellSize) + (y / cellSize)) % 2 == 0;
+				data[y * WIDTH + x] = (byte) (isBlack ? black : white);
+			}
+		}
+		return data;
+	}
+	
+	private static byte[] createNoise(int mean, int amplitude) {
+		Random random = new Random(5);
+		byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+		for (int index = 0; index < WIDTH * HEIGHT; index++) {
+			data[index] = (byte) (mean + random.nextInt(amplitude * 2 + 1) - amplitude);
+		}
+		return data;
+	}
+	
+	/**
+	 * 方框均值模糊
+	 */
+	private static byte[] blur(byte[] data, int radius) {
+		byte[] result = data.clone();
+		for (int y = radius; y < HEIGHT - radius; y++) {
+			for (int x = radius; x < WIDTH - radius; x++) {
+				int sum = 0;
+				for (int dy = -radius; dy <= radius; dy++) {
+					for (int dx = -radius; dx <= radius; dx++) {
+						sum += data[(y + dy) * WIDTH + x + dx] & 0xFF;
+					}
+				}
+				result[y * WIDTH + x] = (byte) (sum / ((radius * 2 + 1) * (radius * 2 + 1)));
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,144 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预览数据旋转正确性测试，与逐像素旋转的结果比较
+ */
+public class FrameRotatorTest {
+	private static final int[] ROTATIONS = {0, 90, 180, 270};
+	private static final int[][] SIZES = {
+			{1, 1}, {1, 7}, {7, 1}, {3, 5}, {31, 33}, {33, 31}, {63, 65}, {97, 41}, {100, 64}, {129, 257}
+	};
+	
+	@Test
+	public void rotate_matchesReference() throws Exception {
+		Random random = new Random(42);
+		for (int[] size : SIZES) {
+			byte[] data = createFrame(size[0], size[1], random);
+			for (int rotation : ROTATIONS) {
+				byte[] expected = referenceRotate(data, size[0], size[1], rotation);
+				byte[] result = new byte[size[0] * size[1]];
+				FrameRotator.rotate(data, size[0], size[1], rotation, result);
+				assertArrayEquals("size " + size[0] + "x" + size[1] + ", rotation " + rotation, expected, result);
+			}
+		}
+	}
+	
+	@Test
+	public void rotateCrop_matchesReference() throws Exception {
+		Random random = new Random(7);
+		for (int[] size : SIZES) {
+			byte[] data = createFrame(size[0], size[1], random);
+			for (int rotation : ROTATIONS) {
+				int rotatedWidth = FrameRotator.rotatedWidth(size[0], size[1], rotation);
+				int rotatedHeight = FrameRotator.rotatedHeight(size[0], size[1], rotation);
+				byte[] rotated = referenceRotate(data, size[0], size[1], rotation);
+				for (int trial = 0; trial < 20; trial++) {
+					int left = random.nextInt(rotatedWidth);
+					int top = random.nextInt(rotatedHeight);
+					int width = 1 + random.nextInt(rotatedWidth - left);
+					int height = 1 + random.nextInt(rotatedHeight - top);
+					
+					byte[] expected = new byte[width * height];
+					for (int y = 0; y < height; y++) {
+						System.arraycopy(rotated, (top + y) * rotatedWidth + left, expected, y * width, width);
+					}
+					byte[] result = new byte[width * height];
+					FrameRotator.rotateCrop(data, size[0], size[1], rotation, left, top, width, height, result);
+					assertArrayEquals("size " + size[0] + "x" + size[1] + ", rotation " + rotation
+							+ ", crop " + left + "," + top + " " + width + "x" + height, expected, result);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void rotateCrop_leavesChromaAndTailUntouched() throws Exception {
+		int dataWidth = 37;
+		int dataHeight = 23;
+		byte[] data = createFrame(dataWidth, dataHeight, new Random(3));
+		byte[] copy = data.clone();
+		for (int rotation : ROTATIONS) {
+			int width = FrameRotator.rotatedWidth(dataWidth, dataHeight, rotation) - 2;
+			int height = FrameRotator.rotatedHeight(dataWidth, dataHeight, rotation) - 2;
+			byte[] result = new byte[width * height + 16];
+			for (int index = width * height; index < result.length; index++) {
+				result[index] = (byte) 0xA5;
+			}
+			FrameRotator.rotateCrop(data, dataWidth, dataHeight, rotation, 1, 1, width, height, result);
+			for (int index = width * height; index < result.length; index++) {
+				assertEquals((byte) 0xA5, result[index]);
+			}
+		}
+		assertArrayEquals(copy, data);
+	}
+	
+	@Test
+	public void mapToSensor_coversCropSource() throws Exception {
+		Random random = new Random(11);
+		int[] sensorRect = new int[4];
+		for (int[] size : SIZES) {
+			for (int rotation : ROTATIONS) {
+				int rotatedWidth = FrameRotator.rotatedWidth(size[0], size[1], rotation);
+				int rotatedHeight = FrameRotator.rotatedHeight(size[0], size[1], rotation);
+				int left = random.nextInt(rotatedWidth);
+				int top = random.nextInt(rotatedHeight);
+				int width = 1 + random.nextInt(rotatedWidth - left);
+				int height = 1 + random.nextInt(rotatedHeight - top);
+				FrameRotator.mapToSensor(size[0], size[1], rotation, left, top, width, height, sensorRect);
+				assertEquals(width * height, (sensorRect[2] - sensorRect[0]) * (sensorRect[3] - sensorRect[1]));
+				
+				// 传感器区域内标记为 1，截取结果应全部为 1
+				byte[] data = new byte[size[0] * size[1]];
+				for (int y = sensorRect[1]; y < sensorRect[3]; y++) {
+					for (int x = sensorRect[0]; x < sensorRect[2]; x++) {
+						data[y * size[0] + x] = 1;
+					}
+				}
+				byte[] result = new byte[width * height];
+				FrameRotator.rotateCrop(data, size[0], size[1], rotation, left, top, width, height, result);
+				for (byte value : result) {
+					assertEquals(1, value);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * NV21 帧，亮度之后附带色度数据
+	 */
+	private static byte[] createFrame(int width, int height, Random random) {
+		byte[] data = new byte[width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2)];
+		random.nextBytes(data);
+		return data;
+	}
+	
+	private static byte[] referenceRotate(byte[] data, int width, int height, int rotation) {
+		byte[] result = new byte[width * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				byte value = data[x + y * width];
+				switch (rotation) {
+					case 90:
+						result[x * height + height - y - 1] = value;
+						break;
+					case 180:
+						result[(height - y - 1) * width + width - x - 1] = value;
+						break;
+					case 270:
+						result[(width - x - 1) * height + y] = value;
+						break;
+					default:
+						result[x + y * width] = value;
+						break;
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,175 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.MultiFormatReader;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 图像帧来源与带行间距的亮度平面测试
+ */
+public class ImageFrameSourceTest {
+	private static final int WIDTH = 40;
+	private static final int HEIGHT = 30;
+	private static final int ROW_STRIDE = 48;
+	
+	@Test
+	public void onImage_closesImageWhenReleasedOrExhausted() throws Exception {
+		TestFrameSource frameSource = new TestFrameSource(0);
+		final List<PreviewFrame> frames = new ArrayList<>();
+		frameSource.start(new FrameSource.FrameCallback() {
+			@Override
+			public void onFrame(PreviewFrame previewFrame) {
+				frames.add(previewFrame);
+			}
+		}, 2);
+		
+		TestImage image1 = new TestImage(createLuminance(), ROW_STRIDE, 1);
+		TestImage image2 = new TestImage(createLuminance(), ROW_STRIDE, 1);
+		TestImage image3 = new TestImage(createLuminance(), ROW_STRIDE, 1);
+		frameSource.onImage(image1);
+		frameSource.onImage(image2);
+		// 两张图像都未归还，第三张直接丢弃
+		frameSource.onImage(image3);
+		assertEquals(2, frames.size());
+		assertFalse(image1.isClosed);
+		assertTrue(image3.isClosed);
+		
+		frameSource.releaseFrame(frames.get(0));
+		assertTrue(image1.isClosed);
+		TestImage image4 = new TestImage(createLuminance(), ROW_STRIDE, 1);
+		frameSource.onImage(image4);
+		assertEquals(3, frames.size());
+		
+		frameSource.stop();
+		TestImage image5 = new TestImage(createLuminance(), ROW_STRIDE, 1);
+		frameSource.onImage(image5);
+		assertTrue(image5.isClosed);
+		frameSource.releaseFrame(frames.get(1));
+		frameSource.releaseFrame(frames.get(2));
+		assertTrue(image2.isClosed);
+		assertTrue(image4.isClosed);
+	}
+	
+	@Test
+	public void decode_stridedBufferMatchesArray() throws Exception {
+		byte[] luminance = createLuminance();
+		for (int rotation : new int[]{0, 90, 180, 270}) {
+			for (int pixelStride : new int[]{1, 2}) {
+				PreviewFrame arrayFrame = new PreviewFrame();
+				arrayFrame.setData(luminance, WIDTH, HEIGHT);
+				arrayFrame.rotationAngle = rotation;
+				byte[] expected = crop(arrayFrame, new TestFrameSource(0) {
+					@Override
+					public void releaseFrame(PreviewFrame previewFrame) {
+					}
+				});
+				
+				TestFrameSource frameSource = new TestFrameSource(rotation);
+				final PreviewFrame[] imageFrame = new PreviewFrame[1];
+				frameSource.start(new FrameSource.FrameCallback() {
+					@Override
+					public void onFrame(PreviewFrame previewFrame) {
+						imageFrame[0] = previewFrame;
+					}
+				}, 1);
+				TestImage image = new TestImage(luminance, ROW_STRIDE * pixelStride, pixelStride);
+				frameSource.onImage(image);
+				assertArrayEquals("rotation " + rotation + ", pixelStride " + pixelStride,
+						expected, crop(imageFrame[0], frameSource));
+				assertTrue(image.isClosed);
+			}
+		}
+	}
+	
+	private static byte[] crop(PreviewFrame previewFrame, FrameSource frameSource) {
+		DuplicateFrameFilter duplicateFrameFilter = new DuplicateFrameFilter();
+		duplicateFrameFilter.setEnabled(false);
+		FrameQualityGate frameQualityGate = new FrameQualityGate();
+		frameQualityGate.setEnabled(false);
+		FrameDecoder frameDecoder = new FrameDecoder(new MultiFormatReader(), frameQualityGate,
+				duplicateFrameFilter, new ScanStatistics(), new ScanMetrics(), frameSource);
+		frameDecoder.decode(previewFrame, 3, 5, 23, 21);
+		byte[] matrix = frameDecoder.getLuminanceSource().getMatrix();
+		return Arrays.copyOf(matrix, matrix.length);
+	}
+	
+	private static byte[] createLuminance() {
+		byte[] luminance = new byte[WIDTH * HEIGHT];
+		for (int index = 0; index < luminance.length; index++) {
+			luminance[index] = (byte) (index * 7);
+		}
+		return luminance;
+	}
+	
+	private static class TestFrameSource extends ImageFrameSource {
+		
+		TestFrameSource(int rotationAngle) {
+			super(WIDTH, HEIGHT, rotationAngle);
+		}
+		
+		@Override
+		void onStart() {
+		}
+		
+		@Override
+		void onStop() {
+		}
+	}
+	
+	/**
+	 * 按行间距与像素间距排列亮度，间隙填充无关数据
+	 */
+	private static class TestImage implements LumaImage {
+		private final ByteBuffer buffer;
+		private final int rowStride;
+		private final int pixelStride;
+		boolean isClosed;
+		
+		TestImage(byte[] luminance, int rowStride, int pixelStride) {
+			this.rowStride = rowStride;
+			this.pixelStride = pixelStride;
+			byte[] data = new byte[rowStride * HEIGHT];
+			Arrays.fill(data, (byte) 0x55);
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					data[y * rowStride + x * pixelStride] = luminance[y * WIDTH + x];
+				}
+			}
+			this.buffer = ByteBuffer.allocateDirect(data.length);
+			this.buffer.put(data);
+			this.buffer.rewind();
+		}
+		
+		@Override
+		public ByteBuffer getBuffer() {
+			return this.buffer;
+		}
+		
+		@Override
+		public int getRowStride() {
+			return this.rowStride;
+		}
+		
+		@Override
+		public int getPixelStride() {
+			return this.pixelStride;
+		}
+		
+		@Override
+		public long getTimestamp() {
+			return 0;
+		}
+		
+		@Override
+		public void close() {
+			this.isClosed = true;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 单帧多码识别测试
+ */
+public class MultiDecoderTest {
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 400;
+	
+	@Test
+	public void decode_findsAllCodesInFrame() throws Exception {
+		byte[] image = createLabel();
+		MultiDecoder multiDecoder = createMultiDecoder();
+		
+		List<String> texts = texts(multiDecoder.decode(bitmap(image), 6, 1000));
+		Collections.sort(texts);
+		assertEquals(Arrays.asList("CODE-128-LABEL", "QR-LEFT", "QR-RIGHT"), texts);
+		
+		// 达到最大数量后不再加入
+		assertEquals(2, multiDecoder.decode(bitmap(image), 2, 1000).size());
+	}
+	
+	@Test
+	public void decode_skipsGenericSearchWithoutBudget() throws Exception {
+		MultiDecoder multiDecoder = createMultiDecoder();
+		// 二维码由 QRCodeMultiReader 一次识别，其余区域的搜索受时间预算限制
+		List<String> texts = texts(multiDecoder.decode(bitmap(createLabel()), 6, 0));
+		Collections.sort(texts);
+		assertEquals(Arrays.asList("QR-LEFT", "QR-RIGHT"), texts);
+	}
+	
+	@Test
+	public void accumulator_deliversAfterSettleFrames() throws Exception {
+		MultiResultAccumulator accumulator = new MultiResultAccumulator(6, 2);
+		Result first = new Result("A", null, null, BarcodeFormat.QR_CODE);
+		Result second = new Result("B", null, null, BarcodeFormat.CODE_128);
+		List<Result> empty = Collections.emptyList();
+		
+		assertNull(accumulator.frameDecoded(empty));
+		assertNull(accumulator.frameDecoded(Collections.singletonList(first)));
+		assertNull(accumulator.frameDecoded(Arrays.asList(first, second)));
+		// 相同格式与内容不计为新的条码
+		assertNull(accumulator.frameDecoded(Collections.singletonList(
+				new Result("A", null, null, BarcodeFormat.QR_CODE))));
+		List<Result> results = accumulator.frameDecoded(empty);
+		assertEquals(Arrays.asList(first, second), results);
+		
+		assertNull(accumulator.frameDecoded(empty));
+	}
+	
+	@Test
+	public void accumulator_deliversAtMaxResultCount() throws Exception {
+		MultiResultAccumulator accumulator = new MultiResultAccumulator(2, 5);
+		Result first = new Result("A", null, null, BarcodeFormat.QR_CODE);
+		Result second = new Result("A", null, null, BarcodeFormat.CODE_128);
+		assertEquals(2, accumulator.frameDecoded(Arrays.asList(first, second)).size());
+	}
+	
+	private static MultiDecoder createMultiDecoder() {
+		MultiFormatReader multiFormatReader = new MultiFormatReader();
+		multiFormatReader.setHints(DecodeFormat.createDecodeHints());
+		return new MultiDecoder(multiFormatReader, DecodeFormat.createDecodeHints());
+	}
+	
+	private static byte[] createLabel() throws Exception {
+		byte[] image = new byte[WIDTH * HEIGHT];
+		Arrays.fill(image, (byte) 0xFF);
+		MultiFormatWriter writer = new MultiFormatWriter();
+		draw(image, writer.encode("QR-LEFT", BarcodeFormat.QR_CODE, 180, 180), 20, 20);
+		draw(image, writer.encode("QR-RIGHT", BarcodeFormat.QR_CODE, 180, 180), 260, 20);
+		draw(image, writer.encode("CODE-128-LABEL", BarcodeFormat.CODE_128, 560, 100), 40, 260);
+		return image;
+	}
+	
+	private static void draw(byte[] image, BitMatrix matrix, int left, int top) {
+		for (int y = 0; y < matrix.getHeight(); y++) {
+			for (int x = 0; x < matrix.getWidth(); x++) {
+				if (matrix.get(x, y)) {
+					image[(top + y) * WIDTH + left + x] = 0;
+				}
+			}
+		}
+	}
+	
+	private static BinaryBitmap bitmap(byte[] image) {
+		return new BinaryBitmap(new HybridBinarizer(
+				new PlanarYUVLuminanceSource(image, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false)));
+	}
+	
+	private static List<String> texts(List<Result> results) {
+		List<String> texts = new ArrayList<>();
+		for (Result result : results) {
+			texts.add(result.getText());
+		}
+		return texts;
+	}
+}
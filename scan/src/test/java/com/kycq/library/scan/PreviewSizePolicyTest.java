@@ -0,0 +1,60 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预览分辨率策略测试
+ */
+public class PreviewSizePolicyTest {
+	private static final List<int[]> SUPPORTED_SIZES = Arrays.asList(
+			new int[]{1920, 1080}, new int[]{640, 480}, new int[]{4032, 3024},
+			new int[]{1280, 720}, new int[]{640, 360}, new int[]{1440, 1080});
+	
+	@Test
+	public void selectPreviewSize_smallestWithEnoughFinderPixels() throws Exception {
+		PreviewSizePolicy previewSizePolicy = new PreviewSizePolicy();
+		// 16:9 中扫描框边长 720 * 0.6 = 432 像素
+		assertArrayEquals(new int[]{1280, 720}, previewSizePolicy.selectPreviewSize(SUPPORTED_SIZES, 1080, 1920));
+		
+		previewSizePolicy.setMinFinderPixels(500);
+		assertArrayEquals(new int[]{1920, 1080}, previewSizePolicy.selectPreviewSize(SUPPORTED_SIZES, 1080, 1920));
+		
+		previewSizePolicy.setMinFinderPixels(5000);
+		assertArrayEquals(new int[]{1920, 1080}, previewSizePolicy.selectPreviewSize(SUPPORTED_SIZES, 1080, 1920));
+	}
+	
+	@Test
+	public void selectPreviewSize_largestMode() throws Exception {
+		PreviewSizePolicy previewSizePolicy = new PreviewSizePolicy();
+		previewSizePolicy.setMode(PreviewSizePolicy.MODE_LARGEST);
+		assertArrayEquals(new int[]{4032, 3024}, previewSizePolicy.selectPreviewSize(SUPPORTED_SIZES, 1080, 1920));
+		assertArrayEquals(new int[]{1440, 1080}, previewSizePolicy.selectPreviewSize(SUPPORTED_SIZES, 1440, 1080));
+	}
+	
+	@Test
+	public void stepPreviewSize_followsDecodeCost() throws Exception {
+		PreviewSizePolicy previewSizePolicy = new PreviewSizePolicy();
+		assertNull(previewSizePolicy.stepPreviewSize(SUPPORTED_SIZES, 1280, 720, 10, 0));
+		
+		previewSizePolicy.setStepEnabled(true);
+		// 超出 1000 / 15 毫秒的预算，降低一级
+		assertArrayEquals(new int[]{1280, 720},
+				previewSizePolicy.stepPreviewSize(SUPPORTED_SIZES, 1920, 1080, 200, 0));
+		// 再低一级扫描框像素不足
+		assertNull(previewSizePolicy.stepPreviewSize(SUPPORTED_SIZES, 1280, 720, 200, 0));
+		
+		// 耗时很低且一直未识别，提高一级
+		PreviewSizePolicy fastPolicy = new PreviewSizePolicy();
+		fastPolicy.setStepEnabled(true);
+		assertArrayEquals(new int[]{1920, 1080},
+				fastPolicy.stepPreviewSize(SUPPORTED_SIZES, 1280, 720, 10, 0));
+		assertTrue(fastPolicy.getDecodeCostPerMegapixel() > 0);
+		// 有识别成功时保持
+		assertNull(fastPolicy.stepPreviewSize(SUPPORTED_SIZES, 1280, 720, 10, 0.1F));
+	}
+}
@@ -0,0 +1,96 @@
+package com.kycq.library.scan;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预览帧录制与回放测试
+ */
+public class ReplayFrameSourceTest {
+	private static final int WIDTH = 8;
+	private static final int HEIGHT = 4;
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	@Test
+	public void replay_deliversEveryFrameAtMaxSpeed() throws Exception {
+		File file = this.temporaryFolder.newFile();
+		FrameRecording.Writer writer = new FrameRecording.Writer(file, WIDTH, HEIGHT, 90, WIDTH * HEIGHT);
+		byte[] data = new byte[WIDTH * HEIGHT];
+		for (int index = 0; index < 10; index++) {
+			data[0] = (byte) index;
+			writer.write(data, index * 1000L);
+		}
+		writer.close();
+		
+		final ReplayFrameSource frameSource = new ReplayFrameSource(file, false, false);
+		final List<Integer> frameIndexes = new ArrayList<>();
+		frameSource.start(new FrameSource.FrameCallback() {
+			@Override
+			public void onFrame(PreviewFrame previewFrame) {
+				assertEquals(WIDTH, previewFrame.dataWidth);
+				assertEquals(HEIGHT, previewFrame.dataHeight);
+				assertEquals(90, previewFrame.rotationAngle);
+				assertEquals(previewFrame.lumaPlane.get(0, 0) * 1000L, previewFrame.timestamp);
+				frameIndexes.add(previewFrame.lumaPlane.get(0, 0));
+				frameSource.releaseFrame(previewFrame);
+			}
+		}, 2);
+		frameSource.awaitFinished();
+		frameSource.stop();
+		
+		assertEquals(10, frameIndexes.size());
+		for (int index = 0; index < 10; index++) {
+			assertEquals(index, (int) frameIndexes.get(index));
+		}
+	}
+	
+	@Test
+	public void replay_realTimeUsesBufferReleasedBeforeDueTime() throws Exception {
+		File file = this.temporaryFolder.newFile();
+		FrameRecording.Writer writer = new FrameRecording.Writer(file, WIDTH, HEIGHT, 90, WIDTH * HEIGHT);
+		byte[] data = new byte[WIDTH * HEIGHT];
+		for (int index = 0; index < 5; index++) {
+			data[0] = (byte) index;
+			// 帧间隔 50 毫秒
+			writer.write(data, index * 50000000L);
+		}
+		writer.close();
+		
+		final ReplayFrameSource frameSource = new ReplayFrameSource(file, true, false);
+		final List<Integer> frameIndexes = new ArrayList<>();
+		frameSource.start(new FrameSource.FrameCallback() {
+			@Override
+			public void onFrame(final PreviewFrame previewFrame) {
+				synchronized (frameIndexes) {
+					frameIndexes.add(previewFrame.lumaPlane.get(0, 0));
+				}
+				// 解码 10 毫秒后归还，早于下一帧的采集时间
+				new Thread() {
+					@Override
+					public void run() {
+						try {
+							Thread.sleep(10);
+						} catch (InterruptedException ignored) {
+						}
+						frameSource.releaseFrame(previewFrame);
+					}
+				}.start();
+			}
+		}, 1);
+		frameSource.awaitFinished();
+		frameSource.stop();
+		
+		synchronized (frameIndexes) {
+			assertEquals(5, frameIndexes.size());
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 连续扫描结果去重测试
+ */
+public class ResultDeduplicatorTest {
+	
+	@Test
+	public void accept_suppressesWithinTtl() throws Exception {
+		ResultDeduplicator resultDeduplicator = new ResultDeduplicator(1000, 16);
+		assertTrue(resultDeduplicator.accept("A", 0));
+		assertFalse(resultDeduplicator.accept("A", 500));
+		assertTrue(resultDeduplicator.accept("B", 600));
+		// 有效期从最近一次识别起计算
+		assertFalse(resultDeduplicator.accept("A", 1400));
+		assertTrue(resultDeduplicator.accept("A", 2400));
+	}
+	
+	@Test
+	public void accept_removesExpiredEntries() throws Exception {
+		ResultDeduplicator resultDeduplicator = new ResultDeduplicator(1000, 16);
+		resultDeduplicator.accept("A", 0);
+		resultDeduplicator.accept("B", 100);
+		resultDeduplicator.accept("C", 900);
+		assertEquals(3, resultDeduplicator.size());
+		
+		resultDeduplicator.accept("D", 1050);
+		assertEquals(3, resultDeduplicator.size());
+		resultDeduplicator.accept("D", 5000);
+		assertEquals(1, resultDeduplicator.size());
+	}
+	
+	@Test
+	public void accept_boundedByCapacity() throws Exception {
+		ResultDeduplicator resultDeduplicator = new ResultDeduplicator(60000, 2);
+		resultDeduplicator.accept("A", 0);
+		resultDeduplicator.accept("B", 1);
+		// 刷新 A 后最久未识别到的是 B
+		resultDeduplicator.accept("A", 2);
+		resultDeduplicator.accept("C", 3);
+		assertEquals(2, resultDeduplicator.size());
+		assertFalse(resultDeduplicator.accept("A", 4));
+		assertTrue(resultDeduplicator.accept("B", 5));
+	}
+	
+	@Test
+	public void clear_acceptsAgain() throws Exception {
+		ResultDeduplicator resultDeduplicator = new ResultDeduplicator(1000, 16);
+		resultDeduplicator.accept("A", 0);
+		resultDeduplicator.clear();
+		assertTrue(resultDeduplicator.accept("A", 1));
+	}
+}
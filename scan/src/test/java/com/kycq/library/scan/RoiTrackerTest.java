@@ -0,0 +1,100 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 条码位置跟踪的预测区域
+ */
+public class RoiTrackerTest {
+	private static final int[] FRAME_RECT = {100, 100, 400, 400};
+	
+	@Test
+	public void predict_withoutHit() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		assertFalse(roiTracker.predict(FRAME_RECT, 0, new int[4]));
+	}
+	
+	@Test
+	public void predict_paddedBox() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		roiTracker.hit(200, 200, 260, 260, 0);
+		
+		int[] result = new int[4];
+		assertTrue(roiTracker.predict(FRAME_RECT, 0, result));
+		// 边距 60 * 0.5 + 16，坐标相对扫描区域
+		assertArrayEquals(new int[]{54, 54, 152, 152}, result);
+	}
+	
+	@Test
+	public void predict_clippedToFrame() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		roiTracker.hit(100, 100, 160, 160, 0);
+		
+		int[] result = new int[4];
+		assertTrue(roiTracker.predict(FRAME_RECT, 0, result));
+		assertArrayEquals(new int[]{0, 0, 106, 106}, result);
+	}
+	
+	@Test
+	public void predict_followsVelocity() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		roiTracker.hit(200, 200, 260, 260, 0);
+		roiTracker.hit(210, 200, 270, 260, 100000000L);
+		
+		int[] result = new int[4];
+		assertTrue(roiTracker.predict(FRAME_RECT, 200000000L, result));
+		assertArrayEquals(new int[]{74, 54, 152, 152}, result);
+	}
+	
+	@Test
+	public void predict_skipsForRefresh() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		roiTracker.hit(200, 200, 260, 260, 0);
+		
+		int[] result = new int[4];
+		assertTrue(roiTracker.predict(FRAME_RECT, 0, result));
+		assertTrue(roiTracker.predict(FRAME_RECT, 0, result));
+		assertTrue(roiTracker.predict(FRAME_RECT, 0, result));
+		assertFalse(roiTracker.predict(FRAME_RECT, 0, result));
+		assertTrue(roiTracker.isTracking());
+	}
+	
+	@Test
+	public void predict_boxCoversFrame() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		roiTracker.hit(110, 110, 450, 450, 0);
+		assertFalse(roiTracker.predict(FRAME_RECT, 0, new int[4]));
+	}
+	
+	@Test
+	public void predict_expired() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		roiTracker.hit(200, 200, 260, 260, 0);
+		assertFalse(roiTracker.predict(FRAME_RECT, 2000000000L, new int[4]));
+		assertFalse(roiTracker.isTracking());
+	}
+	
+	@Test
+	public void miss_stopsTracking() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		roiTracker.hit(200, 200, 260, 260, 0);
+		roiTracker.miss();
+		roiTracker.miss();
+		assertTrue(roiTracker.isTracking());
+		roiTracker.miss();
+		assertFalse(roiTracker.isTracking());
+	}
+	
+	@Test
+	public void hit_ignoresOlderFrame() throws Exception {
+		RoiTracker roiTracker = new RoiTracker();
+		roiTracker.hit(200, 200, 260, 260, 100000000L);
+		roiTracker.hit(300, 300, 360, 360, 0);
+		
+		int[] result = new int[4];
+		assertTrue(roiTracker.predict(FRAME_RECT, 100000000L, result));
+		assertArrayEquals(new int[]{54, 54, 152, 152}, result);
+	}
+}
@@ -0,0 +1,109 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.MultiFormatReader;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 耗时统计与对数直方图测试
+ */
+public class ScanMetricsTest {
+	
+	@Test
+	public void bucketIndex_boundsContainValue() throws Exception {
+		for (long micros = 0; micros < 1000000; micros = micros * 9 / 8 + 1) {
+			int index = LatencyHistogram.bucketIndex(micros);
+			assertTrue(LatencyHistogram.bucketLowerBound(index) <= micros);
+			assertTrue(LatencyHistogram.bucketLowerBound(index + 1) > micros);
+		}
+	}
+	
+	@Test
+	public void getPercentile_withinBucketError() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		// 1 - 100 毫秒均匀分布
+		for (int millis = 1; millis <= 100; millis++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(50000, histogram.getPercentile(50), 50000 * 0.125);
+		assertEquals(95000, histogram.getPercentile(95), 95000 * 0.125);
+		assertEquals(99000, histogram.getPercentile(99), 99000 * 0.125);
+		assertEquals(50500, histogram.getMean());
+		
+		histogram.reset();
+		assertEquals(0, histogram.getPercentile(50));
+	}
+	
+	@Test
+	public void record_ignoresMissingStartTime() throws Exception {
+		ScanMetrics scanMetrics = new ScanMetrics();
+		scanMetrics.setEnabled(true);
+		scanMetrics.record(ScanMetrics.STAGE_QUEUE, 0, 1000000L);
+		assertEquals(0, scanMetrics.getSampleCount(ScanMetrics.STAGE_QUEUE));
+		scanMetrics.record(ScanMetrics.STAGE_QUEUE, 1000000L, 3000000L);
+		assertEquals(1, scanMetrics.getSampleCount(ScanMetrics.STAGE_QUEUE));
+		assertEquals(2F, scanMetrics.getLatency(ScanMetrics.STAGE_QUEUE, 50), 2F * 0.125F);
+	}
+	
+	@Test
+	public void getAttemptsPerSuccess() throws Exception {
+		ScanMetrics scanMetrics = new ScanMetrics();
+		scanMetrics.setEnabled(true);
+		assertEquals(0F, scanMetrics.getAttemptsPerSuccess(), 0F);
+		for (int index = 0; index < 6; index++) {
+			scanMetrics.decodeAttempted();
+		}
+		scanMetrics.decodeSucceeded();
+		scanMetrics.decodeSucceeded();
+		assertEquals(3F, scanMetrics.getAttemptsPerSuccess(), 0F);
+		
+		// 重新启用时清空
+		scanMetrics.setEnabled(false);
+		scanMetrics.setEnabled(true);
+		assertEquals(0F, scanMetrics.getAttemptsPerSuccess(), 0F);
+	}
+	
+	@Test
+	public void decode_recordsNothingWhenDisabled() throws Exception {
+		ScanMetrics scanMetrics = new ScanMetrics();
+		FrameSource frameSource = new FrameSource() {
+			@Override
+			public void start(FrameCallback frameCallback, int bufferCount) {
+			}
+			
+			@Override
+			public void stop() {
+			}
+			
+			@Override
+			public void releaseFrame(PreviewFrame previewFrame) {
+			}
+		};
+		DecodeDispatcher decodeDispatcher = new DecodeDispatcher(frameSource, new ScanStatistics(), scanMetrics);
+		final PreviewFrame[] decodedFrame = new PreviewFrame[1];
+		decodeDispatcher.workerIdle(new DecodeDispatcher.DecodeWorker() {
+			@Override
+			public void decode(PreviewFrame previewFrame) {
+				decodedFrame[0] = previewFrame;
+			}
+		});
+		decodeDispatcher.setActive(true);
+		
+		PreviewFrame previewFrame = new PreviewFrame();
+		previewFrame.setData(new byte[64 * 48], 64, 48);
+		decodeDispatcher.onFrame(previewFrame);
+		assertEquals(0, decodedFrame[0].receiveTime);
+		
+		FrameDecoder frameDecoder = new FrameDecoder(new MultiFormatReader(),
+				new FrameQualityGate(), new DuplicateFrameFilter(), new ScanStatistics(), scanMetrics, frameSource);
+		frameDecoder.decode(previewFrame, 0, 0, 64, 48);
+		for (int stage = ScanMetrics.STAGE_QUEUE; stage <= ScanMetrics.STAGE_TOTAL; stage++) {
+			assertEquals(0, scanMetrics.getSampleCount(stage));
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 启动阶段耗时记录
+ */
+public class StartupTimingsTest {
+	@Test
+	public void record_firstOnly() throws Exception {
+		StartupTimings startupTimings = new StartupTimings();
+		assertEquals(-1, startupTimings.getPhaseTime(StartupTimings.PHASE_CAMERA_OPEN), 0);
+		
+		startupTimings.record(StartupTimings.PHASE_CAMERA_OPEN, 1000000L, 121000000L);
+		startupTimings.record(StartupTimings.PHASE_CAMERA_OPEN, 0, 500000000L);
+		assertEquals(120, startupTimings.getPhaseTime(StartupTimings.PHASE_CAMERA_OPEN), 0.001F);
+	}
+	
+	@Test
+	public void start_clearsPhases() throws Exception {
+		StartupTimings startupTimings = new StartupTimings();
+		startupTimings.recordSinceStart(StartupTimings.PHASE_FIRST_FRAME);
+		assertTrue(startupTimings.getPhaseTime(StartupTimings.PHASE_FIRST_FRAME) >= 0);
+		
+		startupTimings.start();
+		assertEquals(-1, startupTimings.getPhaseTime(StartupTimings.PHASE_FIRST_FRAME), 0);
+	}
+	
+	@Test
+	public void toString_phases() throws Exception {
+		StartupTimings startupTimings = new StartupTimings();
+		startupTimings.record(StartupTimings.PHASE_CAMERA_OPEN, 0, 85500000L);
+		assertEquals("camera open: 85.5 ms, camera configure: -, surface: -, start preview: -, "
+				+ "first frame: -, first result: -", startupTimings.toString());
+	}
+}
@@ -0,0 +1,23 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分块解码测试
+ */
+public class TileDecoderTest {
+	
+	@Test
+	public void splitAxis_overlapsAndAlignsLastTile() throws Exception {
+		assertArrayEquals(new int[]{0, 768, 1536, 2304, 2976}, TileDecoder.splitAxis(4000, 1024, 256));
+	}
+	
+	@Test
+	public void splitAxis_singleTileForShortAxis() throws Exception {
+		assertArrayEquals(new int[]{0}, TileDecoder.splitAxis(1024, 1024, 256));
+		assertArrayEquals(new int[]{0}, TileDecoder.splitAxis(600, 1024, 256));
+		assertArrayEquals(new int[]{0, 76}, TileDecoder.splitAxis(1100, 1024, 256));
+	}
+}
@@ -0,0 +1,87 @@
+package com.kycq.library.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按扫描区域亮度开关闪光灯
+ */
+public class TorchControllerTest {
+	@Test
+	public void frameMeasured_disabled() throws Exception {
+		RequestListener listener = new RequestListener();
+		TorchController torchController = new TorchController();
+		torchController.setOnTorchRequestListener(listener);
+		torchController.reset(false);
+		for (int index = 0; index < 10; index++) {
+			assertFalse(torchController.frameMeasured(10, 1000 + index * 50));
+		}
+	}
+	
+	@Test
+	public void frameMeasured_turnsOnWhenDark() throws Exception {
+		RequestListener listener = new RequestListener();
+		TorchController torchController = createTorchController(listener);
+		// 曝光稳定前不开关
+		for (int index = 0; index < 4; index++) {
+			assertFalse(torchController.frameMeasured(10, 1000 + index * 50));
+		}
+		assertTrue(torchController.frameMeasured(10, 1200));
+		assertEquals(Boolean.TRUE, listener.torchOn);
+		
+		// 请求未处理前不重复请求
+		assertFalse(torchController.frameMeasured(10, 1250));
+	}
+	
+	@Test
+	public void frameMeasured_hysteresis() throws Exception {
+		RequestListener listener = new RequestListener();
+		TorchController torchController = createTorchController(listener);
+		torchController.torchApplied(true, 1000);
+		// 闪光灯打开后亮度介于两个阈值之间时保持打开
+		for (int index = 0; index < 100; index++) {
+			assertFalse(torchController.frameMeasured(120, 4000 + index * 50));
+		}
+		assertNull(listener.torchOn);
+		
+		for (int index = 0; index < 20 && listener.torchOn == null; index++) {
+			torchController.frameMeasured(220, 10000 + index * 50);
+		}
+		assertEquals(Boolean.FALSE, listener.torchOn);
+	}
+	
+	@Test
+	public void frameMeasured_minToggleInterval() throws Exception {
+		RequestListener listener = new RequestListener();
+		TorchController torchController = createTorchController(listener);
+		torchController.torchApplied(true, 1000);
+		for (int index = 0; index < 20; index++) {
+			assertFalse(torchController.frameMeasured(250, 1050 + index * 50));
+		}
+		assertTrue(torchController.frameMeasured(250, 3000));
+		assertEquals(Boolean.FALSE, listener.torchOn);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void setDarkLuminance_aboveBright() throws Exception {
+		new TorchController().setDarkLuminance(200);
+	}
+	
+	private static TorchController createTorchController(RequestListener listener) {
+		TorchController torchController = new TorchController();
+		torchController.setEnabled(true);
+		torchController.setOnTorchRequestListener(listener);
+		torchController.reset(false);
+		return torchController;
+	}
+	
+	private static class RequestListener implements TorchController.OnTorchRequestListener {
+		Boolean torchOn;
+		
+		@Override
+		public void torchRequested(boolean torchOn) {
+			this.torchOn = torchOn;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.kycq.library.scan;
+
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 自动变焦测试
+ */
+public class ZoomControllerTest {
+	private static final int SIZE = 400;
+	
+	@Test
+	public void frameFailed_disabled() throws Exception {
+		ZoomController zoomController = new ZoomController();
+		zoomController.reset(4);
+		assertEquals(0, zoomController.frameFailed(points(180, 220), SIZE, SIZE, 1000), 0);
+	}
+	
+	@Test
+	public void frameFailed_stepsTowardSmallCode() throws Exception {
+		ZoomController zoomController = createZoomController();
+		// 定位点范围占扫描框 10%，目标 4 倍
+		assertEquals(1.25F, zoomController.frameFailed(points(180, 220), SIZE, SIZE, 1000), 0.001F);
+		// 间隔内不再变焦
+		assertEquals(0, zoomController.frameFailed(points(175, 225), SIZE, SIZE, 1100), 0);
+		assertEquals(1.5625F, zoomController.frameFailed(points(175, 225), SIZE, SIZE, 1200), 0.001F);
+		
+		zoomController.setMaxZoomRatio(1.9F);
+		assertEquals(1.9F, zoomController.frameFailed(points(170, 230), SIZE, SIZE, 1400), 0.001F);
+		assertEquals(0, zoomController.frameFailed(points(170, 230), SIZE, SIZE, 1600), 0);
+	}
+	
+	@Test
+	public void frameFailed_keepsPointsInsideFrame() throws Exception {
+		ZoomController zoomController = createZoomController();
+		// 靠近边缘的定位点放大后会离开扫描框
+		assertEquals(0, zoomController.frameFailed(points(20, 60), SIZE, SIZE, 1000), 0);
+	}
+	
+	@Test
+	public void frameFailed_zoomsOutWhenPointsLost() throws Exception {
+		ZoomController zoomController = createZoomController();
+		assertEquals(1.25F, zoomController.frameFailed(points(180, 220), SIZE, SIZE, 1000), 0.001F);
+		
+		ZoomController.PointCollector empty = new ZoomController.PointCollector();
+		assertEquals(0, zoomController.frameFailed(empty, SIZE, SIZE, 2000), 0);
+		assertEquals(1, zoomController.frameFailed(empty, SIZE, SIZE, 2600), 0);
+		assertEquals(1, zoomController.getZoomRatio(), 0);
+		assertEquals(0, zoomController.frameFailed(empty, SIZE, SIZE, 5000), 0);
+	}
+	
+	@Test
+	public void reset_restoresZoomRatio() throws Exception {
+		ZoomController zoomController = createZoomController();
+		zoomController.frameFailed(points(180, 220), SIZE, SIZE, 1000);
+		zoomController.zoomApplied(1.2F);
+		assertEquals(1.2F, zoomController.getZoomRatio(), 0);
+		
+		zoomController.reset(1);
+		assertEquals(1, zoomController.getZoomRatio(), 0);
+		// 相机不支持变焦
+		assertEquals(0, zoomController.frameFailed(points(180, 220), SIZE, SIZE, 2000), 0);
+	}
+	
+	@Test
+	public void pointCollector_tracksBounds() throws Exception {
+		ZoomController.PointCollector pointCollector = new ZoomController.PointCollector();
+		pointCollector.foundPossibleResultPoint(new ResultPoint(30, 80));
+		pointCollector.foundPossibleResultPoint(new ResultPoint(10, 90));
+		pointCollector.foundPossibleResultPoint(new ResultPoint(50, 40));
+		assertEquals(3, pointCollector.count);
+		assertEquals(10, pointCollector.minX, 0);
+		assertEquals(50, pointCollector.maxX, 0);
+		assertEquals(40, pointCollector.minY, 0);
+		assertEquals(90, pointCollector.maxY, 0);
+		
+		pointCollector.reset();
+		pointCollector.foundPossibleResultPoint(new ResultPoint(5, 5));
+		assertEquals(5, pointCollector.minX, 0);
+		assertEquals(5, pointCollector.maxY, 0);
+	}
+	
+	private static ZoomController createZoomController() {
+		ZoomController zoomController = new ZoomController();
+		zoomController.setEnabled(true);
+		zoomController.reset(4);
+		return zoomController;
+	}
+	
+	private static ZoomController.PointCollector points(float min, float max) {
+		ZoomController.PointCollector pointCollector = new ZoomController.PointCollector();
+		pointCollector.foundPossibleResultPoint(new ResultPoint(min, min));
+		pointCollector.foundPossibleResultPoint(new ResultPoint(max, max));
+		return pointCollector;
+	}
+}